@@ -162,6 +162,11 @@ public class DataLoader implements CommandLineRunner {
                 "Basic amenities", "1,202 kg", 56,
                 1710, 1062);
 
+        // Cabin layouts: 42 rows of 10 abreast (3-4-3), four seats next to the doors blocked = 416 seats
+        aircraft1.setSeatLayout(new SeatLayoutTemplate("B747-416", 42, "ABCDEFGHJK", "CG",
+                "1A,1K,42A,42K", "1-6:UPFRONT,20-21:EXTRA_LEGROOM"));
+        aircraft2.setSeatLayout(new SeatLayoutTemplate("C172-4", 2, "AB", "", "", ""));
+
 
         //single Airline
         Airline airline = new Airline("xlr8Travel", "XT");
@@ -0,0 +1,178 @@
+package org.example.xlr8travel.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Small in-process cache bounded both by entry count (least-recently-used eviction)
+ * and by time-to-live. Every instance registers the standard Micrometer cache meters
+ * (cache.gets, cache.puts, cache.evictions, cache.size) tagged with its name, so hit
+ * rates show up in Prometheus next to the rest of the application metrics.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BoundedCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier ticker;
+
+    private final Map<K, Entry<V>> entries;
+    private long lastSweepNanos;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter puts;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    public BoundedCache(String name, int maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this(name, maxSize, ttl, meterRegistry, System::nanoTime);
+    }
+
+    BoundedCache(String name, int maxSize, Duration ttl, MeterRegistry meterRegistry, LongSupplier ticker) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive for cache " + name);
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive for cache " + name);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+        this.lastSweepNanos = ticker.getAsLong();
+
+        // Access-ordered map: iteration starts at the least recently used entry
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedCache.this.maxSize) {
+                    sizeEvictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hits = Counter.builder("cache.gets")
+                .tag("cache", name).tag("result", "hit")
+                .description("Number of cache lookups that returned a live entry")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cache.gets")
+                .tag("cache", name).tag("result", "miss")
+                .description("Number of cache lookups that found no live entry")
+                .register(meterRegistry);
+        this.puts = Counter.builder("cache.puts")
+                .tag("cache", name)
+                .description("Number of entries added to the cache")
+                .register(meterRegistry);
+        this.sizeEvictions = Counter.builder("cache.evictions")
+                .tag("cache", name).tag("cause", "size")
+                .description("Entries evicted because the cache was full")
+                .register(meterRegistry);
+        this.expiredEvictions = Counter.builder("cache.evictions")
+                .tag("cache", name).tag("cause", "expired")
+                .description("Entries evicted because their time-to-live elapsed")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", this, BoundedCache::size)
+                .tag("cache", name)
+                .description("Number of entries currently held in the cache")
+                .register(meterRegistry);
+    }
+
+    public synchronized Optional<V> get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        if (entry.isExpired(ticker.getAsLong())) {
+            entries.remove(key);
+            expiredEvictions.increment();
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(entry.value);
+    }
+
+    public synchronized void put(K key, V value) {
+        long now = ticker.getAsLong();
+        // Expired entries that are never read again would otherwise only leave through LRU pressure
+        if (now - lastSweepNanos >= ttlNanos) {
+            evictExpired(now);
+        }
+        entries.put(key, new Entry<>(value, now + ttlNanos));
+        puts.increment();
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Drops every entry whose key matches the predicate.
+     *
+     * @return the number of entries removed
+     */
+    public synchronized int invalidateIf(Predicate<? super K> predicate) {
+        int removed = 0;
+        Iterator<K> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            if (predicate.test(it.next())) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+                expiredEvictions.increment();
+            }
+        }
+        lastSweepNanos = now;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAtNanos;
+
+        Entry(V value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.xlr8travel.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.xlr8travel.dto.CartDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Signed-in users' carts, as last written. Cart mutations write their result through once their
+ * transaction commits, so a read after a change never goes back to the database.
+ * <p>
+ * A read that misses loads the cart and offers it with the version it saw before loading. Every write
+ * bumps the version, so a load that raced with a commit is dropped instead of overwriting the newer cart.
+ * Versions are striped by user id, which keeps them bounded at the cost of the odd dropped load.
+ */
+@Component
+public class CartCache {
+
+    static final String CACHE_NAME = "cart.user";
+    private static final int VERSION_STRIPES = 64;
+
+    private final BoundedCache<Long, CartDTO> cache;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    public CartCache(MeterRegistry meterRegistry,
+                     @Value("${cart.cache.max-size:10000}") int maxSize,
+                     @Value("${cart.cache.ttl:10m}") Duration ttl) {
+        this.cache = new BoundedCache<>(CACHE_NAME, maxSize, ttl, meterRegistry);
+    }
+
+    public Optional<CartDTO> get(Long userId) {
+        return cache.get(userId);
+    }
+
+    /**
+     * Version to pass to {@link #putIfUnchanged}; read it before loading the cart.
+     */
+    public long version(Long userId) {
+        return versions.get(stripe(userId));
+    }
+
+    public synchronized void putIfUnchanged(Long userId, long version, CartDTO cart) {
+        if (versions.get(stripe(userId)) == version) {
+            cache.put(userId, cart);
+        }
+    }
+
+    /**
+     * Stores the cart a mutation produced, after the surrounding transaction commits (right away outside one).
+     * On rollback the cached cart, which still matches the database, is left alone.
+     */
+    public void writeThrough(Long userId, CartDTO cart) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(userId, cart);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                write(userId, cart);
+            }
+        });
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private synchronized void write(Long userId, CartDTO cart) {
+        versions.incrementAndGet(stripe(userId));
+        cache.put(userId, cart);
+    }
+
+    private static int stripe(Long userId) {
+        return Long.hashCode(userId) & (VERSION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,258 @@
+package org.example.xlr8travel.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.xlr8travel.models.CheckoutIdempotencyRecord;
+import org.example.xlr8travel.repositories.CheckoutIdempotencyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Checkout responses keyed by the client's {@code Idempotency-Key}, so a retried purchase replays the
+ * original response instead of creating a second order.
+ * <p>
+ * Keys are rows of the checkout_idempotency table, so all instances share them. The first request for a key
+ * claims it by inserting its row; the unique key on (username, idempotency_key) makes that insert fail for
+ * duplicates, which poll the row until the checkout has finished and replay its response. Only successful
+ * (2xx) responses are stored, for {@code checkout.idempotency.ttl}; any other outcome deletes the row, so a
+ * retry with the same key runs the checkout again against the cart as it is by then. A running checkout
+ * holds its key for {@code checkout.idempotency.lease}, after which the key can be taken over: an instance
+ * that died mid-checkout does not block it for good.
+ * Keys are scoped per user, and a key reused with a different request body is rejected.
+ */
+@Component
+public class CheckoutIdempotencyStore {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 255;
+    static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutIdempotencyStore.class);
+
+    private final CheckoutIdempotencyRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Duration waitTimeout;
+    private final Clock clock;
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter coalesced;
+    private final Counter mismatched;
+
+    private final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkout-idempotency-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public CheckoutIdempotencyStore(CheckoutIdempotencyRepository repository, ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${checkout.idempotency.ttl:24h}") Duration ttl,
+                                    @Value("${checkout.idempotency.lease:5m}") Duration lease,
+                                    @Value("${checkout.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this(repository, objectMapper, meterRegistry, ttl, lease, waitTimeout, Clock.systemDefaultZone());
+    }
+
+    CheckoutIdempotencyStore(CheckoutIdempotencyRepository repository, ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry, Duration ttl, Duration lease, Duration waitTimeout,
+                             Clock clock) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.lease = lease;
+        this.waitTimeout = waitTimeout;
+        this.clock = clock;
+
+        this.executed = outcomeCounter(meterRegistry, "executed", "Checkouts run for a new idempotency key");
+        this.replayed = outcomeCounter(meterRegistry, "replayed", "Retries answered from a stored checkout response");
+        this.coalesced = outcomeCounter(meterRegistry, "coalesced", "Duplicates that waited for the checkout in flight");
+        this.mismatched = outcomeCounter(meterRegistry, "mismatched", "Keys reused with a different request body");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        purger.scheduleWithFixedDelay(this::purgeExpiredQuietly, 1, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Runs the checkout once per (user, key). Repeats get the stored response with the
+     * {@value #REPLAYED_HEADER} header set.
+     *
+     * @param fingerprint summary of the request body whose {@code toString()} is the same for the same request
+     * @throws ResponseStatusException 400 for an over-long key, 422 when the key was used for a different
+     *                                 request, 409 when the original request is still running after the wait timeout
+     */
+    public ResponseEntity<?> execute(String username, String idempotencyKey, Object fingerprint,
+                                     Supplier<ResponseEntity<?>> checkout) {
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters.");
+        }
+        String fingerprintHash = hash(fingerprint);
+        long deadline = clock.millis() + waitTimeout.toMillis();
+        boolean waited = false;
+
+        while (true) {
+            LocalDateTime now = LocalDateTime.now(clock);
+            CheckoutIdempotencyRecord record = repository.findByUsernameAndIdempotencyKey(username, idempotencyKey)
+                    .orElse(null);
+            if (record == null) {
+                CheckoutIdempotencyRecord claimed = claim(username, idempotencyKey, fingerprintHash, now);
+                if (claimed != null) {
+                    return run(claimed, checkout);
+                }
+                continue; // another request inserted the key first; read its row
+            }
+            if (record.isExpired(now)) {
+                // A replay window that has ended, or the lease of an instance that never finished the checkout
+                repository.deleteIfExpired(record.getId(), now);
+                continue;
+            }
+            if (!record.getFingerprint().equals(fingerprintHash)) {
+                mismatched.increment();
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key was already used for a different checkout request.");
+            }
+            if (record.isCompleted()) {
+                (waited ? coalesced : replayed).increment();
+                return replay(record);
+            }
+            if (clock.millis() - deadline >= 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "A checkout with this Idempotency-Key is still being processed.");
+            }
+            waited = true;
+            pause();
+        }
+    }
+
+    /**
+     * Deletes the keys whose replay window or lease has ended. Runs hourly; expired keys are also
+     * replaced as soon as they are used again.
+     *
+     * @return the number of keys deleted
+     */
+    public int purgeExpired() {
+        int purged = repository.deleteExpired(LocalDateTime.now(clock));
+        if (purged > 0) {
+            log.debug("Purged {} expired checkout idempotency keys", purged);
+        }
+        return purged;
+    }
+
+    private void purgeExpiredQuietly() {
+        try {
+            purgeExpired();
+        } catch (RuntimeException e) {
+            log.error("Checkout idempotency key purge failed", e);
+        }
+    }
+
+    // Inserts the key's row; null when the unique key shows that another request holds it
+    private CheckoutIdempotencyRecord claim(String username, String idempotencyKey, String fingerprintHash,
+                                            LocalDateTime now) {
+        try {
+            return repository.saveAndFlush(
+                    new CheckoutIdempotencyRecord(username, idempotencyKey, fingerprintHash, now, now.plus(lease)));
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    private ResponseEntity<?> run(CheckoutIdempotencyRecord claimed, Supplier<ResponseEntity<?>> checkout) {
+        executed.increment();
+        ResponseEntity<?> response;
+        try {
+            response = checkout.get();
+        } catch (RuntimeException e) {
+            repository.release(claimed.getId());
+            throw e;
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            repository.release(claimed.getId());
+            return response;
+        }
+        try {
+            repository.complete(claimed.getId(), response.getStatusCode().value(), toJson(response.getBody()),
+                    LocalDateTime.now(clock).plus(ttl));
+        } catch (RuntimeException e) {
+            // The order exists; duplicates get a 409 until the lease ends instead of a second order
+            log.error("Could not store the response for checkout idempotency key {}", claimed.getId(), e);
+        }
+        return response;
+    }
+
+    private ResponseEntity<?> replay(CheckoutIdempotencyRecord record) {
+        return ResponseEntity.status(record.getResponseStatus())
+                .header(REPLAYED_HEADER, "true")
+                .body(fromJson(record.getResponseBody()));
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted waiting for checkout.");
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return body == null ? null : objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Checkout response is not serializable", e);
+        }
+    }
+
+    private Object fromJson(String json) {
+        try {
+            return json == null ? null : objectMapper.readValue(json, Object.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored checkout response is not valid JSON", e);
+        }
+    }
+
+    private static String hash(Object fingerprint) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(String.valueOf(fingerprint).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome, String description) {
+        return Counter.builder("checkout.idempotency.requests")
+                .tag("outcome", outcome)
+                .description(description)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.xlr8travel.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.xlr8travel.dto.FareCalendarDayDTO;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-route, per-month fare calendar rows (only days that have flights).
+ * A flight change only affects the month it departs in, so invalidation is exact.
+ * <p>
+ * A miss loads the month and offers it with the version read before loading. Invalidation bumps the
+ * version, so a load that raced with a flight change is dropped instead of caching the old fares.
+ * Versions are striped by key, as in {@link CartCache}.
+ */
+@Component
+public class FareCalendarCache {
+
+    static final String CACHE_NAME = "flights.fare-calendar";
+    private static final int VERSION_STRIPES = 64;
+
+    private final BoundedCache<RouteMonthKey, List<FareCalendarDayDTO>> cache;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    public FareCalendarCache(MeterRegistry meterRegistry,
+                             @Value("${flights.fare-calendar-cache.max-size:1000}") int maxSize,
+                             @Value("${flights.fare-calendar-cache.ttl:10m}") Duration ttl) {
+        this.cache = new BoundedCache<>(CACHE_NAME, maxSize, ttl, meterRegistry);
+    }
+
+    public Optional<List<FareCalendarDayDTO>> get(String origin, String destination, YearMonth month) {
+        return cache.get(RouteMonthKey.of(origin, destination, month));
+    }
+
+    /**
+     * Version to pass to {@link #putIfUnchanged}; read it before loading the month.
+     */
+    public long version(String origin, String destination, YearMonth month) {
+        return versions.get(stripe(RouteMonthKey.of(origin, destination, month)));
+    }
+
+    public synchronized void putIfUnchanged(String origin, String destination, YearMonth month, long version,
+                                            List<FareCalendarDayDTO> days) {
+        RouteMonthKey key = RouteMonthKey.of(origin, destination, month);
+        if (versions.get(stripe(key)) == version) {
+            cache.put(key, List.copyOf(days));
+        }
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    @Order(FlightChangedEvent.READ_MODEL_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlightChanged(FlightChangedEvent event) {
+        invalidateMonthOf(event.getPrevious());
+        invalidateMonthOf(event.getCurrent());
+    }
+
+    private synchronized void invalidateMonthOf(FlightDTO flight) {
+        if (flight == null || flight.getDepartureDate() == null) {
+            return;
+        }
+        RouteMonthKey key = RouteMonthKey.of(flight.getOrigin(), flight.getDestination(),
+                YearMonth.from(flight.getDepartureDate()));
+        versions.incrementAndGet(stripe(key));
+        cache.invalidate(key);
+    }
+
+    private static int stripe(RouteMonthKey key) {
+        return key.hashCode() & (VERSION_STRIPES - 1);
+    }
+
+    record RouteMonthKey(String origin, String destination, YearMonth month) {
+
+        static RouteMonthKey of(String origin, String destination, YearMonth month) {
+            return new RouteMonthKey(normalize(origin), normalize(destination), month);
+        }
+
+        private static String normalize(String code) {
+            return code == null ? null : code.trim().toUpperCase(Locale.ROOT);
+        }
+    }
+}
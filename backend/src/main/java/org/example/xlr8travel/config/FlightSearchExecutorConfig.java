@@ -0,0 +1,30 @@
+package org.example.xlr8travel.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class FlightSearchExecutorConfig {
+
+    // Bounded pool for fanning out the legs of a search. When the queue is full the
+    // request thread runs the lookup itself, so saturation slows searches down instead of failing them.
+    @Bean(name = "flightSearchExecutor")
+    public Executor flightSearchExecutor(@Value("${flights.search-executor.core-size:4}") int coreSize,
+                                         @Value("${flights.search-executor.max-size:8}") int maxSize,
+                                         @Value("${flights.search-executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("flight-search-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.xlr8travel.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.example.xlr8travel.dto.TripDTO;
 import org.example.xlr8travel.services.BoardingPassPdfService;
 import org.example.xlr8travel.services.TicketService;
 import org.example.xlr8travel.services.UserService;
@@ -32,7 +33,10 @@ public class BoardingPassController {
      * Get all boarding passes (checked-in tickets) for the authenticated user
      */
     @GetMapping("/boarding-passes")
-    public ResponseEntity<List<Ticket>> getBoardingPasses(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<List<TripDTO>> getBoardingPasses(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         if (userDetails == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -46,7 +50,7 @@ public class BoardingPassController {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
             }
 
-            List<Ticket> checkedInTickets = ticketService.findCheckedInTickets(userId);
+            List<TripDTO> checkedInTickets = ticketService.findCheckedInTickets(userId, page, size);
             return ResponseEntity.ok(checkedInTickets);
         } catch (Exception e) {
             log.error("Error fetching boarding passes for user: {}", userDetails.getUsername(), e);
@@ -1,15 +1,21 @@
 package org.example.xlr8travel.controllers;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.example.xlr8travel.dto.AddToCartRequestDTO;
 import org.example.xlr8travel.dto.CartDTO;
+import org.example.xlr8travel.dto.CartOperationDTO;
+import org.example.xlr8travel.dto.CartPatchRequestDTO;
 import org.example.xlr8travel.models.Flight;
 import org.example.xlr8travel.models.User;
 import org.example.xlr8travel.services.CartService; // Use persistent CartService
 import org.example.xlr8travel.services.FlightService;
+import org.example.xlr8travel.services.GuestCartService;
+import org.example.xlr8travel.services.SeatConflictException;
 import org.example.xlr8travel.services.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -18,6 +24,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.persistence.EntityNotFoundException; // Import exception
+import java.util.List;
 import java.util.Map; // For error response
 
 @RestController
@@ -28,11 +35,14 @@ public class CartController {
     private final FlightService flightService;
     private final CartService cartService; // Inject PERSISTENT CartService
     private final UserService userService;
+    private final GuestCartService guestCartService; // In-memory carts for visitors who have not signed in
 
-    public CartController(FlightService flightService, CartService cartService, UserService userService) {
+    public CartController(FlightService flightService, CartService cartService, UserService userService,
+                          GuestCartService guestCartService) {
         this.flightService = flightService;
         this.cartService = cartService;
         this.userService = userService;
+        this.guestCartService = guestCartService;
     }
 
     // Helper to get User (reuse or centralize)
@@ -46,7 +56,13 @@ public class CartController {
 
     // --- GET CART CONTENT ---
     @GetMapping
-    public ResponseEntity<CartDTO> showCart(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<CartDTO> showCart(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @CookieValue(value = GuestCartService.COOKIE_NAME, required = false) String guestCartToken) {
+        if (userDetails == null) {
+            // SecurityConfig only lets requests without a bearer token through unauthenticated
+            return ResponseEntity.ok(guestCartService.getCart(guestCartToken));
+        }
         log.info("Request received to view persistent cart");
         try {
             User user = getCurrentUser(userDetails);
@@ -65,7 +81,12 @@ public class CartController {
     @PostMapping("/add")
     public ResponseEntity<?> addFlightToCart(
             @Valid @RequestBody AddToCartRequestDTO request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserDetails userDetails,
+            @CookieValue(value = GuestCartService.COOKIE_NAME, required = false) String guestCartToken,
+            HttpServletRequest httpRequest) {
+        if (userDetails == null) {
+            return updateGuestCart(guestCartToken, httpRequest, List.of(toAddOperation(request)));
+        }
         try {
             User user = getCurrentUser(userDetails); // Get authenticated user
             Long flightId = request.getFlightId();
@@ -99,6 +120,11 @@ public class CartController {
             log.info("Flight ID {} added/incremented in persistent cart for user {}.", flight.getId(), user.getUsername());
             return ResponseEntity.ok(updatedCart);
 
+        } catch (SeatConflictException conflict) {
+            // The seat is booked or held by someone else; suggest the nearest free ones
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", conflict.getReason(),
+                    "alternativeSeats", conflict.getAlternativeSeats()));
         } catch (ResponseStatusException rse) {
             return ResponseEntity.status(rse.getStatusCode()).body(Map.of("error", rse.getReason()));
         } catch (Exception e) {
@@ -107,11 +133,48 @@ public class CartController {
         }
     }
 
+    // --- BATCHED CHANGES (e.g. outbound + return flight, seat and baggage) IN ONE REQUEST ---
+    @PatchMapping
+    public ResponseEntity<?> updateCart(
+            @Valid @RequestBody CartPatchRequestDTO request,
+            @AuthenticationPrincipal UserDetails userDetails,
+            @CookieValue(value = GuestCartService.COOKIE_NAME, required = false) String guestCartToken,
+            HttpServletRequest httpRequest) {
+        if (userDetails == null) {
+            return updateGuestCart(guestCartToken, httpRequest, request.getOperations());
+        }
+        try {
+            User user = getCurrentUser(userDetails);
+            log.info("User {} request to apply {} cart operations", user.getUsername(), request.getOperations().size());
+
+            // Flights are loaded by the service in one query, not here per operation
+            CartDTO updatedCart = cartService.applyOperations(user, request.getOperations());
+            return ResponseEntity.ok(updatedCart);
+
+        } catch (SeatConflictException conflict) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", conflict.getReason(),
+                    "alternativeSeats", conflict.getAlternativeSeats()));
+        } catch (ResponseStatusException rse) {
+            return ResponseEntity.status(rse.getStatusCode()).body(Map.of("error", rse.getReason()));
+        } catch (EntityNotFoundException enfe) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Item not found in cart"));
+        } catch (Exception e) {
+            log.error("Error applying cart operations for user {}", (userDetails != null ? userDetails.getUsername() : "UNKNOWN"), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to update cart."));
+        }
+    }
+
     // --- DECREASE ITEM QUANTITY ---
     @PostMapping("/decrease/{flightId}")
     public ResponseEntity<?> decreaseQuantity(
             @PathVariable Long flightId,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserDetails userDetails,
+            @CookieValue(value = GuestCartService.COOKIE_NAME, required = false) String guestCartToken,
+            HttpServletRequest httpRequest) {
+        if (userDetails == null) {
+            return updateGuestCart(guestCartToken, httpRequest, List.of(operation(CartOperationDTO.Op.DECREASE, flightId)));
+        }
         try {
             User user = getCurrentUser(userDetails);
             log.info("User {} request to decrease quantity for flight ID {}", user.getUsername(), flightId);
@@ -141,7 +204,12 @@ public class CartController {
     @DeleteMapping("/remove/{flightId}")
     public ResponseEntity<?> removeFlightFromCart(
             @PathVariable Long flightId,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserDetails userDetails,
+            @CookieValue(value = GuestCartService.COOKIE_NAME, required = false) String guestCartToken,
+            HttpServletRequest httpRequest) {
+        if (userDetails == null) {
+            return updateGuestCart(guestCartToken, httpRequest, List.of(operation(CartOperationDTO.Op.REMOVE, flightId)));
+        }
         try {
             User user = getCurrentUser(userDetails);
             log.info("User {} request to remove flight ID {} from persistent cart", user.getUsername(), flightId);
@@ -166,4 +234,38 @@ public class CartController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to remove item from cart."));
         }
     }
+
+    // Guest changes go to the in-memory cart; the cookie is (re)issued so its expiry follows the cart's
+    private ResponseEntity<?> updateGuestCart(String guestCartToken, HttpServletRequest httpRequest,
+                                              List<CartOperationDTO> operations) {
+        String token = guestCartService.isValidToken(guestCartToken) ? guestCartToken : guestCartService.newToken();
+        try {
+            CartDTO updatedCart = guestCartService.apply(token, httpRequest.getRemoteAddr(), operations);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.SET_COOKIE, guestCartService.cookie(token).toString())
+                    .body(updatedCart);
+        } catch (ResponseStatusException rse) {
+            return ResponseEntity.status(rse.getStatusCode()).body(Map.of("error", rse.getReason()));
+        } catch (EntityNotFoundException enfe) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Item not found in cart"));
+        }
+    }
+
+    private static CartOperationDTO toAddOperation(AddToCartRequestDTO request) {
+        CartOperationDTO operation = operation(CartOperationDTO.Op.ADD, request.getFlightId());
+        operation.setSeatId(request.getSeatId());
+        operation.setSeatNumber(request.getSeatNumber());
+        operation.setSeatType(request.getSeatType());
+        operation.setDeferSeatSelection(request.isDeferSeatSelection());
+        operation.setAllocateRandomSeat(request.isAllocateRandomSeat());
+        operation.setBaggageType(request.getBaggageType());
+        return operation;
+    }
+
+    private static CartOperationDTO operation(CartOperationDTO.Op op, Long flightId) {
+        CartOperationDTO operation = new CartOperationDTO();
+        operation.setOp(op);
+        operation.setFlightId(flightId);
+        return operation;
+    }
 }
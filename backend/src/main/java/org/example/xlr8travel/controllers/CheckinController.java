@@ -2,8 +2,12 @@ package org.example.xlr8travel.controllers;
 
 import lombok.RequiredArgsConstructor;
 import org.example.xlr8travel.dto.CheckInDTO;
+import org.example.xlr8travel.dto.SeatLayoutDTO;
+import org.example.xlr8travel.dto.SeatOccupancyDTO;
+import org.example.xlr8travel.dto.TripDTO;
 import org.example.xlr8travel.models.Ticket;
 import org.example.xlr8travel.models.User;
+import org.example.xlr8travel.services.SeatConflictException;
 import org.example.xlr8travel.services.TicketService;
 import org.example.xlr8travel.services.UserService;
 import org.slf4j.Logger;
@@ -34,15 +38,20 @@ public class CheckinController {
      * Get all tickets eligible for check-in for the authenticated user.
      *
      * @param userDetails The authenticated user details
-     * @return A list of tickets eligible for check-in
+     * @param page The zero-based page, soonest departure first
+     * @param size The page size
+     * @return A page of tickets eligible for check-in
      */
     @GetMapping("/eligible-tickets")
-    public ResponseEntity<List<Ticket>> getEligibleTickets(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<List<TripDTO>> getEligibleTickets(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         try {
             User user = getCurrentUser(userDetails);
             log.info("Getting eligible tickets for check-in for user: {}", user.getUsername());
 
-            List<Ticket> eligibleTickets = ticketService.findEligibleForCheckIn(user.getId());
+            List<TripDTO> eligibleTickets = ticketService.findEligibleForCheckIn(user.getId(), page, size);
             return ResponseEntity.ok(eligibleTickets);
         } catch (ResponseStatusException rse) {
             log.warn("Failed to get eligible tickets: {}", rse.getReason());
@@ -101,6 +110,9 @@ public class CheckinController {
             }
 
             return ResponseEntity.ok(result);
+        } catch (SeatConflictException conflict) {
+            log.warn("Seat {} for ticket {} was taken, offering {}", conflict.getSeatNumber(), ticketId, conflict.getAlternativeSeats());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(conflictResponse(ticketId, conflict));
         } catch (ResponseStatusException rse) {
             log.warn("Failed to check in ticket {}: {}", ticketId, rse.getReason());
             throw rse;
@@ -144,6 +156,10 @@ public class CheckinController {
             }
 
             return ResponseEntity.ok(result);
+        } catch (SeatConflictException conflict) {
+            // The randomly picked seat was claimed by another instance at the same moment; the client can simply retry
+            log.warn("Random seat {} for ticket {} was taken concurrently", conflict.getSeatNumber(), ticketId);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(conflictResponse(ticketId, conflict));
         } catch (ResponseStatusException rse) {
             log.warn("Failed to check in ticket {}: {}", ticketId, rse.getReason());
             throw rse;
@@ -153,6 +169,37 @@ public class CheckinController {
         }
     }
 
+    /**
+     * Check in several of the user's tickets on one flight in a single transaction. Passengers without
+     * a seat are seated together: in one row when possible, otherwise in neighbouring rows.
+     *
+     * @param flightId The ID of the flight
+     * @param requestBody Optional body with "ticketIds"; without it all of the user's confirmed tickets on the flight are checked in
+     * @param userDetails The authenticated user details
+     * @return The result of the check-in for every ticket
+     */
+    @PostMapping("/flights/{flightId}/group")
+    public ResponseEntity<List<CheckInDTO>> checkInGroup(
+            @PathVariable Long flightId,
+            @RequestBody(required = false) Map<String, List<Long>> requestBody,
+            @AuthenticationPrincipal UserDetails userDetails) {
+
+        try {
+            User user = getCurrentUser(userDetails);
+            List<Long> ticketIds = requestBody == null ? null : requestBody.get("ticketIds");
+            log.info("Group check-in on flight {} for user: {}", flightId, user.getUsername());
+
+            // Ownership is enforced by the query: only the user's own tickets are considered
+            return ResponseEntity.ok(ticketService.checkInGroup(user.getId(), flightId, ticketIds));
+        } catch (ResponseStatusException rse) {
+            log.warn("Failed group check-in on flight {}: {}", flightId, rse.getReason());
+            throw rse;
+        } catch (Exception e) {
+            log.error("Error in group check-in on flight {}", flightId, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error checking in tickets");
+        }
+    }
+
     /**
      * Get all booked seats for a flight.
      *
@@ -171,6 +218,57 @@ public class CheckinController {
         }
     }
 
+    /**
+     * Get the booked seats for a flight as a compact bitmap (one bit per seat, Base64 in JSON),
+     * selected with {@code ?format=bitmap}.
+     *
+     * @param flightId The ID of the flight
+     * @return The flight's seat occupancy bitmap
+     */
+    @GetMapping(value = "/flights/{flightId}/booked-seats", params = "format=bitmap")
+    public ResponseEntity<SeatOccupancyDTO> getSeatOccupancy(@PathVariable Long flightId) {
+        try {
+            log.info("Getting seat occupancy bitmap for flight: {}", flightId);
+            return ResponseEntity.ok(ticketService.getSeatOccupancy(flightId));
+        } catch (Exception e) {
+            log.error("Error getting seat occupancy for flight {}", flightId, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error getting booked seats");
+        }
+    }
+
+    /**
+     * Get the cabin layout for a flight, used to render its seat map.
+     *
+     * @param flightId The ID of the flight
+     * @return The layout of the aircraft operating the flight
+     */
+    @GetMapping("/flights/{flightId}/seat-layout")
+    public ResponseEntity<SeatLayoutDTO> getSeatLayout(@PathVariable Long flightId) {
+        try {
+            log.info("Getting seat layout for flight: {}", flightId);
+            return ResponseEntity.ok(ticketService.getSeatLayout(flightId));
+        } catch (Exception e) {
+            log.error("Error getting seat layout for flight {}", flightId, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error getting seat layout");
+        }
+    }
+
+
+    /**
+     * Helper method to describe a lost seat race, including the nearest seats that were still free.
+     *
+     * @param ticketId The ID of the ticket being checked in
+     * @param conflict The conflict raised while claiming the seat
+     * @return A failed CheckInDTO carrying the alternative seats
+     */
+    private CheckInDTO conflictResponse(Long ticketId, SeatConflictException conflict) {
+        CheckInDTO response = new CheckInDTO();
+        response.setTicketId(ticketId);
+        response.setSuccessful(false);
+        response.setErrorMessage(conflict.getReason());
+        response.setAlternativeSeats(conflict.getAlternativeSeats());
+        return response;
+    }
 
     /**
      * Helper method to get the current authenticated user.
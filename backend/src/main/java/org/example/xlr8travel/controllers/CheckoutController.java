@@ -1,6 +1,7 @@
 package org.example.xlr8travel.controllers;
 
 // No longer need HttpSession here
+import org.example.xlr8travel.cache.CheckoutIdempotencyStore;
 import org.example.xlr8travel.dto.CartDTO; // Need CartDTO from persistent service
 import org.example.xlr8travel.dto.CheckoutRequestDTO;
 import org.example.xlr8travel.models.User;
@@ -17,6 +18,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -28,20 +31,39 @@ public class CheckoutController {
     private final UserService userService;
     private final OrderService orderService;
     private final CartService cartService; // Inject persistent CartService
+    private final CheckoutIdempotencyStore idempotencyStore;
 
-    public CheckoutController(UserService userService, OrderService orderService, CartService cartService) {
+    public CheckoutController(UserService userService, OrderService orderService, CartService cartService,
+                              CheckoutIdempotencyStore idempotencyStore) {
         this.userService = userService;
         this.orderService = orderService;
         this.cartService = cartService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @PostMapping("/confirm")
     public ResponseEntity<?> confirmPurchase(
             @RequestBody CheckoutRequestDTO checkoutRequest,
-            @AuthenticationPrincipal UserDetails userDetails) { // Get authenticated user
+            @AuthenticationPrincipal UserDetails userDetails, // Get authenticated user
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
         log.info("Received purchase confirmation request.");
 
+        // Without a key (or a user to scope it to) every request is a new purchase
+        if (idempotencyKey == null || idempotencyKey.isBlank() || userDetails == null) {
+            return processPurchase(checkoutRequest, userDetails);
+        }
+        try {
+            return idempotencyStore.execute(userDetails.getUsername(), idempotencyKey, fingerprint(checkoutRequest),
+                    () -> processPurchase(checkoutRequest, userDetails));
+        } catch (ResponseStatusException rse) {
+            log.warn("Checkout with Idempotency-Key rejected for user {}: {}", userDetails.getUsername(), rse.getReason());
+            return ResponseEntity.status(rse.getStatusCode()).body(Map.of("error", rse.getReason()));
+        }
+    }
+
+    private ResponseEntity<?> processPurchase(CheckoutRequestDTO checkoutRequest, UserDetails userDetails) {
+
         User user = null;
         CartDTO cart = null;
         try {
@@ -49,13 +71,14 @@ public class CheckoutController {
             user = getCurrentUser(userDetails);
             log.info("Processing purchase for user: {}", user.getUsername());
 
-            // 2. Get Persistent Cart Contents for this user
-            cart = cartService.getCartForUser(user); // Use service
+            // 2. Get Persistent Cart Contents for this user, from the database rather than the cart cache
+            cart = cartService.getCartForCheckout(user);
             if (cart == null || cart.getItems() == null || cart.getItems().isEmpty()) {
                 log.warn("User {} attempted purchase with an empty persistent cart.", user.getUsername());
                 return ResponseEntity.badRequest().body(Map.of("error", "Cannot confirm purchase, your cart is empty."));
             }
             log.info("User {} persistent cart has {} items.", user.getUsername(), cart.getItems().size());
+            cartService.extendSeatHolds(user); // Keep the cart's seats held while the purchase goes through
 
 
             // 3. *** CRITICAL: Process Payment *** (Placeholder)
@@ -91,6 +114,12 @@ public class CheckoutController {
         }
     }
 
+    // Request fields that decide what gets bought; a retry must send the same ones
+    private static List<Object> fingerprint(CheckoutRequestDTO request) {
+        return Arrays.asList(request.getCustomerName(), request.getCustomerEmail(), request.isDeferSeatSelection(),
+                request.isAllocateRandomSeat(), request.getSeatNumber(), request.getSeatType());
+    }
+
     // Helper to get User (reuse or centralize)
     private User getCurrentUser(UserDetails userDetails) {
         if (userDetails == null) {
@@ -1,80 +1,112 @@
 package org.example.xlr8travel.controllers;
 
+import org.example.xlr8travel.dto.FareCalendarDayDTO;
 import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.dto.FlightPageDTO;
+import org.example.xlr8travel.dto.ItineraryDTO;
+import org.example.xlr8travel.dto.RoundTripSearchDTO;
 import org.example.xlr8travel.models.Flight;
+import org.example.xlr8travel.services.BookingFunnel;
+import org.example.xlr8travel.services.FlightCatalogVersion;
 import org.example.xlr8travel.services.FlightService;
 import org.slf4j.Logger; // Import Logger
 import org.slf4j.LoggerFactory; // Import LoggerFactory
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
 import org.springframework.web.server.ResponseStatusException; // For cleaner error handling
 
 import jakarta.validation.Valid; // For input validation (add dependency if needed)
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.Collections;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 @RestController // Changed from @Controller
 @RequestMapping("/api/flights") // Changed base path for API clarity
 public class FlightController {
 
     private static final Logger log = LoggerFactory.getLogger(FlightController.class);
-    private final FlightService flightService;
 
-    // Simple in-memory cache for nearby flights to reduce database load
-    private final Map<String, CachedFlights> nearbyFlightsCache = new ConcurrentHashMap<>();
+    // Page size used when the admin listing walks the whole catalog
+    private static final int ADMIN_LIST_PAGE_SIZE = 100;
+    // Largest +/- window accepted by the fare calendar in date mode
+    private static final int MAX_CALENDAR_RADIUS_DAYS = 15;
+    private final FlightService flightService;
 
-    // Cache expiration time in milliseconds (5 minutes)
-    private static final long CACHE_EXPIRATION_MS = 5 * 60 * 1000;
+    // Version of the flight catalog; public search responses are tagged with it
+    private final FlightCatalogVersion catalogVersion;
 
-    // Class to hold cached flights with timestamp
-    private static class CachedFlights {
-        final List<FlightDTO> flights;
-        final long timestamp;
+    // Counts searches for the conversion rate
+    private final BookingFunnel bookingFunnel;
 
-        CachedFlights(List<FlightDTO> flights) {
-            this.flights = flights;
-            this.timestamp = System.currentTimeMillis();
-        }
-
-        boolean isExpired() {
-            return System.currentTimeMillis() - timestamp > CACHE_EXPIRATION_MS;
-        }
-    }
+    // Shared caches may keep public search results briefly; clients revalidate with the ETag afterwards
+    private static final CacheControl PUBLIC_SEARCH_CACHE = CacheControl.maxAge(Duration.ofSeconds(30))
+            .sMaxAge(Duration.ofSeconds(60))
+            .cachePublic();
 
     // Constructor Injection (preferred)
-    public FlightController(FlightService flightService) {
+    public FlightController(FlightService flightService, FlightCatalogVersion catalogVersion, BookingFunnel bookingFunnel) {
         this.flightService = flightService;
+        this.catalogVersion = catalogVersion;
+        this.bookingFunnel = bookingFunnel;
     }
 
     // --- GET ALL FLIGHTS (Replaces /manage GET) ---
+    // Thin wrapper over the paginated listing so the admin page keeps its full-list contract
     @GetMapping
     @Secured("ROLE_ADMIN") // Keep security annotation
-    public ResponseEntity<List<Flight>> getAllFlights() {
+    public ResponseEntity<List<FlightDTO>> getAllFlights() {
         log.info("Request received for all flights");
         try {
-            List<Flight> flights = flightService.findAll();
+            List<FlightDTO> flights = new ArrayList<>();
+            String cursor = null;
+            do {
+                FlightPageDTO page = flightService.findFlightPage(cursor, ADMIN_LIST_PAGE_SIZE);
+                flights.addAll(page.getItems());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
             if (flights.isEmpty()) {
                 log.info("No flights found.");
-                // Consider returning 200 OK with empty list or 204 No Content
                 // Returning 200 OK with empty list is often preferred by frontends
                 return ResponseEntity.ok(flights);
             }
             log.info("Returning {} flights.", flights.size());
-            return ResponseEntity.ok(flights); // Spring converts List<Flight> to JSON
+            return ResponseEntity.ok(flights);
         } catch (Exception e) {
             log.error("Error fetching all flights", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    // --- GET FLIGHTS PAGE (admin listing with keyset cursor) ---
+    @GetMapping("/page")
+    @Secured("ROLE_ADMIN")
+    public ResponseEntity<FlightPageDTO> getFlightPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        log.info("Request received for flight page: cursor={}, limit={}", cursor, limit);
+        try {
+            return ResponseEntity.ok(flightService.findFlightPage(cursor, limit));
+        } catch (IllegalArgumentException iae) {
+            log.warn("Invalid flight page request: {}", iae.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error fetching flight page", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     // --- GET SINGLE FLIGHT (Replaces /edit/{id} GET) ---
     @GetMapping("/{id}")
     @Secured("ROLE_ADMIN")
@@ -191,7 +223,8 @@ public class FlightController {
             @RequestParam(defaultValue = "roundTrip") String tripType,
             @RequestParam(defaultValue = "1") int adults,
             @RequestParam(defaultValue = "0") int children,
-            @RequestParam(defaultValue = "0") int infants
+            @RequestParam(defaultValue = "0") int infants,
+            WebRequest webRequest
     ) {
         log.info("Searching flights: Type={}, Origin={}, Dest={}, Depart={}, Return={}, Pax={}/{}/{}",
                 tripType, origin, destination, departureDate, arrivalDate, adults, children, infants);
@@ -202,44 +235,179 @@ public class FlightController {
                 log.warn("Round trip search requested without arrival date");
                 return ResponseEntity.badRequest().body(List.of());
             }
+            if ("roundTrip".equals(tripType) && arrivalDate.isBefore(departureDate)) {
+                log.warn("Round trip search requested with a return date before the departure date");
+                return ResponseEntity.badRequest().body(List.of());
+            }
+            // A revalidated (304) search is still a search by the visitor
+            bookingFunnel.record(BookingFunnel.Stage.SEARCH);
+
+            // Unchanged catalog and same query: answer 304 before touching the index or serializing.
+            // checkNotModified also writes the ETag header onto 200 responses.
+            String eTag = catalogVersion.eTagFor("search", origin, destination, departureDate,
+                    "roundTrip".equals(tripType) ? arrivalDate : null);
+            if (webRequest.checkNotModified(eTag)) {
+                log.debug("Search not modified for ETag {}", eTag);
+                return null;
+            }
 
-            List<Flight> foundFlights;
+            List<FlightDTO> flightDTOs;
 
-            // Use the appropriate service method based on the tripType
+            // Both trip types are answered from the in-memory catalog index
             if ("roundTrip".equals(tripType)) {
+                // Outbound flights only, as this endpoint always answered; /search/round-trip returns
+                // the outbound and return legs in separate lists
                 log.info("Performing round trip flight search from {} to {} on {} returning {}", 
                         origin, destination, departureDate, arrivalDate);
-                foundFlights = flightService.findByOriginAndDestinationAndArrivalDateAndDepartureDate(
-                        origin, destination, arrivalDate, departureDate);
+                flightDTOs = flightService.searchFlights(origin, destination, departureDate, arrivalDate);
             } else {
                 // For one-way trips
                 log.info("Performing one-way flight search from {} to {} on {}", origin, destination, departureDate);
-                foundFlights = flightService.findByOriginAndDestinationAndDepartureDate(origin, destination, departureDate);
+                flightDTOs = flightService.searchFlights(origin, destination, departureDate, null);
             }
 
             // If no flights found, log detailed information for debugging
-            if (foundFlights.isEmpty()) {
+            if (flightDTOs.isEmpty()) {
                 log.warn("No flights found for search: {} to {} on {}", origin, destination, departureDate);
             }
 
-            // Convert found Flight entities to FlightDTOs before returning
-            List<FlightDTO> flightDTOs = foundFlights.stream()
-                    .map(FlightDTO::fromFlight)
-                    .collect(Collectors.toList());
-
             log.info("Found {} available flights for search criteria.", flightDTOs.size());
-            return ResponseEntity.ok(flightDTOs);
+            return ResponseEntity.ok()
+                    .cacheControl(PUBLIC_SEARCH_CACHE)
+                    .body(flightDTOs);
 
+        } catch (IllegalArgumentException iae) {
+            log.warn("Invalid flight search request: {}", iae.getMessage());
+            return ResponseEntity.badRequest().body(List.of());
         } catch (Exception e) {
             log.error("Error during flight search: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    // Round trip in one call: outbound and return legs are fetched concurrently
+    @GetMapping("/search/round-trip")
+    public ResponseEntity<RoundTripSearchDTO> searchRoundTrip(
+            @RequestParam String origin,
+            @RequestParam String destination,
+            @RequestParam LocalDate departureDate,
+            @RequestParam LocalDate returnDate,
+            WebRequest webRequest
+    ) {
+        log.info("Round trip search: Origin={}, Dest={}, Depart={}, Return={}", origin, destination, departureDate, returnDate);
+        try {
+            if (returnDate.isBefore(departureDate)) {
+                log.warn("Round trip search requested with a return date before the departure date");
+                return ResponseEntity.badRequest().build();
+            }
+            // Same catalog-versioned ETag as /search, so the availability page keeps its 304s
+            String eTag = catalogVersion.eTagFor("round-trip", origin, destination, departureDate, returnDate);
+            bookingFunnel.record(BookingFunnel.Stage.SEARCH);
+            if (webRequest.checkNotModified(eTag)) {
+                log.debug("Round trip search not modified for ETag {}", eTag);
+                return null;
+            }
+            RoundTripSearchDTO result = flightService.searchRoundTrip(origin, destination, departureDate, returnDate);
+            log.info("Found {} outbound and {} inbound flights", result.getOutbound().size(), result.getInbound().size());
+            return ResponseEntity.ok()
+                    .cacheControl(PUBLIC_SEARCH_CACHE)
+                    .body(result);
+        } catch (IllegalArgumentException iae) {
+            log.warn("Invalid round trip search request: {}", iae.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error during round trip search: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/search/page")
+    public ResponseEntity<FlightPageDTO> searchFlightPage(
+            @RequestParam String origin,
+            @RequestParam String destination,
+            @RequestParam LocalDate departureDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        log.info("Paged flight search: Origin={}, Dest={}, Depart={}, cursor={}, limit={}",
+                origin, destination, departureDate, cursor, limit);
+        try {
+            FlightPageDTO page = flightService.searchFlightPage(origin, destination, departureDate, cursor, limit);
+            if (cursor == null) {
+                bookingFunnel.record(BookingFunnel.Stage.SEARCH); // later pages continue the same search
+            }
+            log.info("Returning {} flights (hasMore={}) for paged search.", page.getItems().size(), page.isHasMore());
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException iae) {
+            log.warn("Invalid paged search request: {}", iae.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error during paged flight search: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // Direct plus 1- and 2-stop itineraries for routes without (enough) direct flights
+    @GetMapping("/connections")
+    public ResponseEntity<List<ItineraryDTO>> searchConnections(
+            @RequestParam String origin,
+            @RequestParam String destination,
+            @RequestParam LocalDate departureDate,
+            @RequestParam(defaultValue = "2") int maxStops
+    ) {
+        log.info("Connection search: Origin={}, Dest={}, Depart={}, maxStops={}", origin, destination, departureDate, maxStops);
+        try {
+            List<ItineraryDTO> itineraries = flightService.searchConnections(origin, destination, departureDate, maxStops);
+            bookingFunnel.record(BookingFunnel.Stage.SEARCH);
+            log.info("Found {} itineraries from {} to {} on {}", itineraries.size(), origin, destination, departureDate);
+            return ResponseEntity.ok(itineraries);
+        } catch (IllegalArgumentException iae) {
+            log.warn("Invalid connection search request: {}", iae.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error during connection search: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // Flexible-date search: cheapest fare per day, either for a whole month or date +/- days
+    @GetMapping("/calendar")
+    public ResponseEntity<List<FareCalendarDayDTO>> getFareCalendar(
+            @RequestParam String origin,
+            @RequestParam String destination,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth month,
+            @RequestParam(required = false) LocalDate date,
+            @RequestParam(defaultValue = "3") int days
+    ) {
+        log.info("Fare calendar request: Origin={}, Dest={}, month={}, date={}, days={}",
+                origin, destination, month, date, days);
+        if ((month == null) == (date == null)) {
+            log.warn("Fare calendar request must specify exactly one of month or date");
+            return ResponseEntity.badRequest().build();
+        }
+        if (date != null && (days < 0 || days > MAX_CALENDAR_RADIUS_DAYS)) {
+            log.warn("Fare calendar radius {} outside 0..{}", days, MAX_CALENDAR_RADIUS_DAYS);
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            LocalDate fromDate = month != null ? month.atDay(1) : date.minusDays(days);
+            LocalDate toDate = month != null ? month.atEndOfMonth() : date.plusDays(days);
+            List<FareCalendarDayDTO> calendar = flightService.getFareCalendar(origin, destination, fromDate, toDate);
+            return ResponseEntity.ok(calendar);
+        } catch (IllegalArgumentException iae) {
+            log.warn("Invalid fare calendar request: {}", iae.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error building fare calendar: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/nearby")
     public ResponseEntity<List<FlightDTO>> getNearbyFlights(
             @RequestParam String origin,
-            @RequestParam(required = false) LocalDate departureDate
+            @RequestParam(required = false) LocalDate departureDate,
+            WebRequest webRequest
     ) {
         log.info("Received request for nearby flights from origin: {}, departureDate: {}", origin, departureDate);
         try {
@@ -247,119 +415,18 @@ public class FlightController {
             LocalDate searchDate = departureDate != null ? departureDate : LocalDate.now();
             log.info("Using search date: {}", searchDate);
 
-            // Create a cache key based on origin and date
-            String cacheKey = origin + "-" + searchDate.toString();
-            log.info("Cache key: {}", cacheKey);
-
-            // Check if we have a valid cached result
-            CachedFlights cachedResult = nearbyFlightsCache.get(cacheKey);
-            if (cachedResult != null && !cachedResult.isExpired()) {
-                log.info("Returning cached nearby flights for origin: {}, found {} flights", 
-                         origin, cachedResult.flights.size());
-                return ResponseEntity.ok(cachedResult.flights);
+            String eTag = catalogVersion.eTagFor("nearby", origin, searchDate);
+            if (webRequest.checkNotModified(eTag)) {
+                log.debug("Nearby flights not modified for ETag {}", eTag);
+                return null;
             }
 
-            log.info("No valid cache found. Searching nearby flights from origin: {}, after date: {}", origin, searchDate);
-
-            try {
-                log.info("Calling flightService.findByOriginAndDepartureDateAfter for origin: {}, date: {}", origin, searchDate);
-                List<Flight> foundFlights = flightService.findByOriginAndDepartureDateAfter(origin, searchDate);
-                log.info("Database query completed, found {} flights", foundFlights.size());
-
-                // If no flights found, log detailed information for debugging
-                if (foundFlights.isEmpty()) {
-                    log.warn("No nearby flights found from: {} after date: {}. This may cause the frontend to show a loading spinner indefinitely.", origin, searchDate);
-                    // Return an empty list instead of null to avoid NPE
-                    return ResponseEntity.ok(Collections.emptyList());
-                }
-
-                // Convert found Flight entities to FlightDTOs
-                log.info("Converting {} Flight entities to FlightDTOs", foundFlights.size());
-                List<FlightDTO> allFlightDTOs = foundFlights.stream()
-                        .map(FlightDTO::fromFlight)
-                        .collect(Collectors.toList());
-                log.info("Converted to {} FlightDTOs", allFlightDTOs.size());
-
-                // Group flights by destination country to ensure diversity
-                log.info("Grouping flights by destination country");
-                Map<String, List<FlightDTO>> flightsByCountry = allFlightDTOs.stream()
-                        .collect(Collectors.groupingBy(flight -> {
-                            // Extract country from destination code
-                            // This is a simplified approach - in a real app, you'd have a proper mapping
-                            String destination = flight.getDestination();
-                            // Map destination codes to countries (simplified)
-                            if (destination.equals("BCN") || destination.equals("MAD")) return "Spain";
-                            if (destination.equals("LHR")) return "United Kingdom";
-                            if (destination.equals("CDG")) return "France";
-                            if (destination.equals("FCO") || destination.equals("MXP")) return "Italy";
-                            if (destination.equals("MUC") || destination.equals("BER")) return "Germany";
-                            if (destination.equals("AMS")) return "Netherlands";
-                            if (destination.equals("ATH")) return "Greece";
-                            if (destination.equals("ZRH")) return "Switzerland";
-                            if (destination.equals("CLJ")) return "Romania"; // Same country as origin, but different city
-                            if (destination.equals("CRL")) return "Belgium"; // Brussels Charleroi
-                            if (destination.equals("OTP")) return "Romania"; // Bucharest
-                            return "Other"; // Default category
-                        }));
-                log.info("Grouped flights into {} countries", flightsByCountry.size());
-
-                // Select diverse flights - one from each country first, then add more if needed
-                List<FlightDTO> diverseFlights = new java.util.ArrayList<>();
-                log.info("Selecting diverse flights - one from each country first");
-
-                // First pass: take one flight from each country
-                for (Map.Entry<String, List<FlightDTO>> entry : flightsByCountry.entrySet()) {
-                    String country = entry.getKey();
-                    List<FlightDTO> countryFlights = entry.getValue();
-
-                    if (!countryFlights.isEmpty()) {
-                        log.info("Adding first flight from {} (has {} flights)", country, countryFlights.size());
-                        diverseFlights.add(countryFlights.get(0));
-                    }
-
-                    // Stop if we have 6 flights already
-                    if (diverseFlights.size() >= 6) {
-                        log.info("Reached 6 flights after first pass, stopping");
-                        break;
-                    }
-                }
-
-                // Second pass: if we still need more flights, add additional ones from countries with multiple flights
-                if (diverseFlights.size() < 6) {
-                    log.info("First pass only yielded {} flights, adding more in second pass", diverseFlights.size());
-                    for (Map.Entry<String, List<FlightDTO>> entry : flightsByCountry.entrySet()) {
-                        String country = entry.getKey();
-                        List<FlightDTO> countryFlights = entry.getValue();
-
-                        if (countryFlights.size() > 1) {
-                            log.info("Country {} has {} additional flights to consider", country, countryFlights.size() - 1);
-                            // Start from the second flight (index 1) since we already added the first one
-                            for (int i = 1; i < countryFlights.size() && diverseFlights.size() < 6; i++) {
-                                log.info("Adding additional flight from {}", country);
-                                diverseFlights.add(countryFlights.get(i));
-                            }
-                        }
-
-                        // Stop if we have 6 flights
-                        if (diverseFlights.size() >= 6) {
-                            log.info("Reached 6 flights after second pass, stopping");
-                            break;
-                        }
-                    }
-                }
-
-                // Cache the result
-                log.info("Caching {} diverse flights with key: {}", diverseFlights.size(), cacheKey);
-                nearbyFlightsCache.put(cacheKey, new CachedFlights(diverseFlights));
-
-                // If we still don't have enough flights, just use what we have
-                log.info("Returning {} diverse nearby flights from: {}", diverseFlights.size(), origin);
-                return ResponseEntity.ok(diverseFlights);
-
-            } catch (Exception e) {
-                log.error("Error during nearby flights search: {}", e.getMessage(), e);
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-            }
+            // O(K) lookup in the precomputed per-origin table, diversified by destination country
+            List<FlightDTO> nearbyFlights = flightService.findNearbyFlights(origin, searchDate);
+            log.info("Returning {} diverse nearby flights from: {}", nearbyFlights.size(), origin);
+            return ResponseEntity.ok()
+                    .cacheControl(PUBLIC_SEARCH_CACHE)
+                    .body(nearbyFlights);
         } catch (Exception e) {
             log.error("Unexpected error in nearby flights endpoint: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
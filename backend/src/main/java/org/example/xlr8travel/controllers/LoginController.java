@@ -3,8 +3,10 @@ package org.example.xlr8travel.controllers;
 import org.example.xlr8travel.dto.LoginRequest;
 import org.example.xlr8travel.dto.LoginResponse;
 import org.example.xlr8travel.security.JwtUtils;
+import org.example.xlr8travel.services.GuestCartService;
 import org.example.xlr8travel.services.MetricsService;
 import org.example.xlr8travel.services.RecaptchaService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -28,17 +30,21 @@ public class LoginController {
     private final MetricsService metricsService;
     private final JwtUtils jwtUtils;
     private final RecaptchaService recaptchaService;
+    private final GuestCartService guestCartService;
 
     public LoginController(AuthenticationManager authenticationManager, MetricsService metricsService, 
-                          JwtUtils jwtUtils, RecaptchaService recaptchaService) {
+                          JwtUtils jwtUtils, RecaptchaService recaptchaService, GuestCartService guestCartService) {
         this.authenticationManager = authenticationManager;
         this.metricsService = metricsService;
         this.jwtUtils = jwtUtils;
         this.recaptchaService = recaptchaService;
+        this.guestCartService = guestCartService;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> authenticateUser(
+            @RequestBody LoginRequest loginRequest,
+            @CookieValue(value = GuestCartService.COOKIE_NAME, required = false) String guestCartToken) {
         log.info("Attempting authentication for user: {}", loginRequest.getUsername());
         try {
             // Verify reCAPTCHA token
@@ -80,8 +86,24 @@ public class LoginController {
             metricsService.updateLastLogin(username);
             log.info("Updated last login time for user: {}", username);
 
+            LoginResponse body = new LoginResponse("Login successful", jwt, refreshToken, username);
+            if (guestCartToken == null) {
+                log.info("Returning successful response with JWT token for user: {}", username);
+                return ResponseEntity.ok(body);
+            }
+
+            // Move whatever the visitor put in the cart before signing in; a failed merge must not fail the login
+            try {
+                if (guestCartService.mergeInto(username, guestCartToken)) {
+                    log.info("Merged guest cart into the cart of user: {}", username);
+                }
+            } catch (Exception e) {
+                log.warn("Could not merge guest cart for user {}: {}", username, e.getMessage());
+            }
             log.info("Returning successful response with JWT token for user: {}", username);
-            return ResponseEntity.ok(new LoginResponse("Login successful", jwt, refreshToken, username));
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.SET_COOKIE, guestCartService.expiredCookie().toString())
+                    .body(body);
 
         } catch (BadCredentialsException e) {
             log.warn("Authentication failed for user {}: Invalid credentials", loginRequest.getUsername());
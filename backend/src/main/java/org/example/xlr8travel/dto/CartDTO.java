@@ -1,6 +1,8 @@
 package org.example.xlr8travel.dto;
 import lombok.Getter;
 import lombok.Setter;
+
+import java.math.BigDecimal;
 import java.util.List;
 
 @Getter
@@ -9,4 +11,20 @@ public class CartDTO {
     private List<FlightCartItemDTO> items;
     private double totalPrice;
     private int totalQuantity; // Renamed from itemCount for clarity
-}
\ No newline at end of file
+
+    // Cart with the given lines and the totals derived from them
+    public static CartDTO of(List<FlightCartItemDTO> items) {
+        CartDTO cartDTO = new CartDTO();
+        cartDTO.setItems(items);
+        cartDTO.setTotalQuantity(items.stream()
+                .mapToInt(FlightCartItemDTO::getQuantity)
+                .sum());
+
+        BigDecimal totalPrice = items.stream()
+                .filter(item -> item.getPrice() != null && item.getQuantity() > 0)
+                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        cartDTO.setTotalPrice(totalPrice.doubleValue());
+        return cartDTO;
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.xlr8travel.dto;
+import lombok.Getter;
+import lombok.Setter;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * One change in a {@code PATCH /api/cart} batch. Which of the seat and baggage fields are read depends on the op.
+ */
+@Getter
+@Setter
+public class CartOperationDTO {
+
+    public enum Op {
+        ADD,         // add one unit of the flight, with the given seat and baggage choice
+        SET_SEAT,    // change the seat choice of a flight already in the cart
+        SET_BAGGAGE, // change the baggage of a flight already in the cart
+        DECREASE,    // take one unit of the flight out, dropping it at zero
+        REMOVE       // drop the flight from the cart
+    }
+
+    @NotNull(message = "Operation cannot be null")
+    private Op op;
+    @NotNull(message = "Flight ID cannot be null")
+    private Long flightId;
+    private Long seatId;
+    private String seatNumber;
+    private String seatType;
+    private boolean deferSeatSelection;
+    private boolean allocateRandomSeat;
+    private String baggageType;
+}
@@ -0,0 +1,16 @@
+package org.example.xlr8travel.dto;
+import lombok.Getter;
+import lombok.Setter;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class CartPatchRequestDTO {
+    @NotEmpty(message = "At least one cart operation is required")
+    @Size(max = 50, message = "At most 50 cart operations per request")
+    private List<@Valid CartOperationDTO> operations;
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * Data Transfer Object for check-in operations.
  * Used for both requests and responses related to flight check-ins.
@@ -54,6 +56,12 @@ public class CheckInDTO {
      */
     private String errorMessage;
 
+    /**
+     * Free seats near the requested one when it was taken by someone else
+     * Used in conflict responses only
+     */
+    private List<String> alternativeSeats;
+
     /**
      * Flight details for display purposes
      * Used in responses only
@@ -0,0 +1,19 @@
+package org.example.xlr8travel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FareCalendarDayDTO {
+    private LocalDate date;
+    private BigDecimal cheapestPrice; // null when no flight departs that day
+    private Long flightCount;
+}
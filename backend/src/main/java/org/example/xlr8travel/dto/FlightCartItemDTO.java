@@ -1,5 +1,6 @@
 package org.example.xlr8travel.dto;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.example.xlr8travel.models.Flight;
 
@@ -9,6 +10,7 @@ import java.time.LocalTime;
 
 @Getter
 @Setter
+@NoArgsConstructor
 public class FlightCartItemDTO {
     private Long id; // Should be Flight ID
     private String flightName;
@@ -27,4 +29,29 @@ public class FlightCartItemDTO {
     private String seatType;
     private String baggageType;
     private String code; // Flight code
+
+    // Used by the JPQL constructor expression in CartItemRepository.findCartLines
+    public FlightCartItemDTO(Long id, String flightName, String origin, String destination,
+                             LocalDate departureDate, LocalTime departureTime,
+                             LocalDate arrivalDate, LocalTime arrivalTime, BigDecimal price,
+                             int quantity, Long seatId, boolean deferSeatSelection, boolean allocateRandomSeat,
+                             String seatNumber, String seatType, String baggageType) {
+        this.id = id;
+        this.flightName = flightName;
+        this.origin = origin;
+        this.destination = destination;
+        this.departureDate = departureDate;
+        this.departureTime = departureTime;
+        this.arrivalDate = arrivalDate;
+        this.arrivalTime = arrivalTime;
+        this.price = price;
+        this.quantity = quantity;
+        this.seatId = seatId;
+        this.deferSeatSelection = deferSeatSelection;
+        this.allocateRandomSeat = allocateRandomSeat;
+        this.seatNumber = seatNumber;
+        this.seatType = seatType;
+        this.baggageType = baggageType;
+        this.code = flightName;
+    }
 }
@@ -0,0 +1,76 @@
+package org.example.xlr8travel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Keyset position in a flight listing ordered by (departureDate, departureTime, id).
+ * Sent to clients as an opaque URL-safe token.
+ * <p>
+ * Flights without a departure time sort before all timed flights of their day, as MySQL and H2 order
+ * NULLs in an ascending sort; the keyset queries in FlightRepository handle a null cursor time the same way.
+ */
+@Getter
+@AllArgsConstructor
+public class FlightCursor {
+
+    private static final Comparator<LocalTime> BY_TIME = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    // Within one departure date: null times first, then by time and id
+    public static final Comparator<FlightDTO> DEPARTURE_ORDER = Comparator
+            .comparing(FlightDTO::getDepartureTime, BY_TIME)
+            .thenComparing(FlightDTO::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    // Stands in for a null departure time in the encoded token
+    private static final String NO_TIME = "-";
+
+    private final LocalDate departureDate;
+    private final LocalTime departureTime;
+    private final Long id;
+
+    public static FlightCursor of(FlightDTO flight) {
+        return new FlightCursor(flight.getDepartureDate(), flight.getDepartureTime(), flight.getId());
+    }
+
+    public String encode() {
+        String raw = departureDate + "|" + (departureTime == null ? NO_TIME : departureTime) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static FlightCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            LocalTime time = NO_TIME.equals(parts[1]) ? null : LocalTime.parse(parts[1]);
+            return new FlightCursor(LocalDate.parse(parts[0]), time, Long.parseLong(parts[2]));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    // True when the given flight sorts strictly after this cursor position
+    public boolean isBefore(FlightDTO flight) {
+        int byDate = flight.getDepartureDate().compareTo(departureDate);
+        if (byDate != 0) {
+            return byDate > 0;
+        }
+        int byTime = BY_TIME.compare(flight.getDepartureTime(), departureTime);
+        if (byTime != 0) {
+            return byTime > 0;
+        }
+        return flight.getId() > id;
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.xlr8travel.dto;
 
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.example.xlr8travel.models.Flight; // Import your Flight entity
 
@@ -11,6 +12,7 @@ import java.time.LocalTime;
 
 @Getter
 @Setter
+@NoArgsConstructor
 public class FlightDTO {
     private Long id;
     private String name; // Changed from flightName to match entity
@@ -26,6 +28,25 @@ public class FlightDTO {
     private LocalDateTime lastUpdated;
     // Add other fields you want to display in search results or manage page
 
+    // Used by JPQL constructor expressions so search paths can select DTO columns directly
+    public FlightDTO(Long id, String name, String origin, String destination,
+                     LocalDate departureDate, LocalTime departureTime,
+                     LocalDate arrivalDate, LocalTime arrivalTime,
+                     BigDecimal price, String terminal, String gate, LocalDateTime lastUpdated) {
+        this.id = id;
+        this.name = name;
+        this.origin = origin;
+        this.destination = destination;
+        this.departureDate = departureDate;
+        this.departureTime = departureTime;
+        this.arrivalDate = arrivalDate;
+        this.arrivalTime = arrivalTime;
+        this.price = price;
+        this.terminal = terminal;
+        this.gate = gate;
+        this.lastUpdated = lastUpdated;
+    }
+
     // Static factory method to map from Flight entity
     public static FlightDTO fromFlight(Flight flight) {
         if (flight == null) {
@@ -0,0 +1,18 @@
+package org.example.xlr8travel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlightPageDTO {
+    private List<FlightDTO> items;
+    private String nextCursor; // null on the last page
+    private boolean hasMore;
+}
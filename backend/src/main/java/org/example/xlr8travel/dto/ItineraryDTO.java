@@ -0,0 +1,23 @@
+package org.example.xlr8travel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItineraryDTO {
+    private List<FlightDTO> legs; // In travel order
+    private int stops;
+    private LocalDateTime departure;
+    private LocalDateTime arrival;
+    private long totalDurationMinutes;
+    private BigDecimal totalPrice; // Sum of leg prices in EUR
+}
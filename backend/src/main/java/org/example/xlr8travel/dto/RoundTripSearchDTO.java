@@ -0,0 +1,17 @@
+package org.example.xlr8travel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoundTripSearchDTO {
+    private List<FlightDTO> outbound; // origin -> destination on the departure date
+    private List<FlightDTO> inbound;  // destination -> origin on the return date
+}
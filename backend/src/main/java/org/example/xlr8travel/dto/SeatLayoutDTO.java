@@ -0,0 +1,25 @@
+package org.example.xlr8travel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.example.xlr8travel.models.SeatType;
+
+import java.util.List;
+
+/**
+ * Cabin layout of a flight, for rendering the seat map.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatLayoutDTO {
+    private String name;
+    private int rows;
+    private String columns; // seat letters from window to window, e.g. "ABCDEF"
+    private String aisleAfter; // letters followed by an aisle, e.g. "C"
+    private List<String> blockedSeats;
+    private List<SeatType> rowTypes; // index 0 is row 1
+}
@@ -0,0 +1,24 @@
+package org.example.xlr8travel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Compact seat map of a flight: one bit per seat instead of a list of seat-number strings.
+ * Seat "12C" on a 6-abreast cabin ("ABCDEF") is bit (12 - 1) * 6 + 2; bit i lives in
+ * byte i / 8 at position i % 8. The bitmap is sent as Base64 in JSON.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatOccupancyDTO {
+    private int rows;
+    private String columns;
+    private byte[] bitmap;
+    private List<String> extraSeats; // booked seats that do not fit the grid (normally empty)
+}
@@ -0,0 +1,85 @@
+package org.example.xlr8travel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.example.xlr8travel.models.SeatType;
+import org.example.xlr8travel.models.TicketStatus;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One of a user's trips: a ticket with the flight, seat and passenger fields the check-in and
+ * boarding-pass pages show. Keeps the nested flight/seat/user shape of the serialized Ticket entity,
+ * without its baggage, class and reverse associations.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class TripDTO {
+    private Long id;
+    private TicketStatus ticketStatus;
+    private String seatNumber; // seat picked at purchase, before check-in
+    private boolean seatSelectionDeferred;
+    private boolean randomSeatAllocation;
+    private FlightInfo flight;
+    private SeatInfo seat; // null until a seat is assigned
+    private PassengerInfo user;
+
+    // Used by the JPQL constructor expression in TicketRepository.findTrips
+    public TripDTO(Long id, TicketStatus ticketStatus, String seatNumber,
+                   boolean seatSelectionDeferred, boolean randomSeatAllocation,
+                   Long flightId, String flightName, String origin, String destination,
+                   LocalDate departureDate, LocalTime departureTime,
+                   LocalDate arrivalDate, LocalTime arrivalTime,
+                   String terminal, String gate,
+                   String assignedSeatNumber, SeatType seatType,
+                   String firstname, String lastname) {
+        this.id = id;
+        this.ticketStatus = ticketStatus;
+        this.seatNumber = seatNumber;
+        this.seatSelectionDeferred = seatSelectionDeferred;
+        this.randomSeatAllocation = randomSeatAllocation;
+        this.flight = new FlightInfo(flightId, flightName, origin, destination,
+                departureDate, departureTime, arrivalDate, arrivalTime, terminal, gate);
+        this.seat = assignedSeatNumber != null ? new SeatInfo(assignedSeatNumber, seatType) : null;
+        this.user = new PassengerInfo(firstname, lastname);
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FlightInfo {
+        private Long id;
+        private String name;
+        private String origin;
+        private String destination;
+        private LocalDate departureDate;
+        private LocalTime departureTime;
+        private LocalDate arrivalDate;
+        private LocalTime arrivalTime;
+        private String terminal;
+        private String gate;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SeatInfo {
+        private String seatNumber;
+        private SeatType seatType;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PassengerInfo {
+        private String firstname;
+        private String lastname;
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.xlr8travel.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.xlr8travel.dto.FlightDTO;
+
+/**
+ * Published by FlightService whenever a flight is created, updated or deleted.
+ * Listeners use it to keep in-memory read models in sync with the flight table.
+ */
+@Getter
+@AllArgsConstructor
+public class FlightChangedEvent {
+
+    // Listener order: read models (index, caches) refresh before the catalog version is bumped,
+    // so a response tagged with the new version can never be built from stale data
+    public static final int READ_MODEL_ORDER = 0;
+    public static final int CATALOG_VERSION_ORDER = 100;
+
+    private final Long flightId;
+
+    // State before the change (null for newly created flights)
+    private final FlightDTO previous;
+
+    // State after the change (null for deleted flights)
+    private final FlightDTO current;
+
+    public boolean isDeletion() {
+        return current == null;
+    }
+}
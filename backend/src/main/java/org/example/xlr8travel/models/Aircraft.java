@@ -55,4 +55,8 @@ public class Aircraft {
     @ManyToOne
     private Airline airline;
 
+    // Shared by every aircraft of the same type; null means the default 30 x 6 cabin
+    @ManyToOne(cascade = CascadeType.PERSIST)
+    private SeatLayoutTemplate seatLayout;
+
 }
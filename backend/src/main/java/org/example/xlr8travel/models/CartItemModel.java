@@ -7,8 +7,10 @@ import java.util.Objects;
 @Table(name = "cart_items") // Optional: specify table name
 public class CartItemModel {
 
+    // Pooled ids, so the lines of a merged guest cart are inserted in one batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_items_seq")
+    @SequenceGenerator(name = "cart_items_seq", sequenceName = "cart_items_seq", allocationSize = 50)
     private Long id;
 
     // Many items belong to one cart
@@ -0,0 +1,66 @@
+package org.example.xlr8travel.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A checkout claimed under an Idempotency-Key. The row is inserted before the checkout runs and holds its
+ * response once it succeeded; the unique key makes the insert fail for any other request with the same key,
+ * whichever instance it reaches.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "checkout_idempotency", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_checkout_idempotency_key", columnNames = {"username", "idempotency_key"})
+}, indexes = {
+        // Purge of expired keys: expires_at <= now
+        @Index(name = "idx_checkout_idempotency_expires", columnList = "expires_at")
+})
+public class CheckoutIdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 64)
+    private String fingerprint; // SHA-256 of the request fields, hex
+
+    private Integer responseStatus; // null while the checkout is running
+
+    @Lob
+    private String responseBody; // JSON
+
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt; // lease while running, then the end of the replay window
+
+    public CheckoutIdempotencyRecord(String username, String idempotencyKey, String fingerprint,
+                                     LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.username = username;
+        this.idempotencyKey = idempotencyKey;
+        this.fingerprint = fingerprint;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isCompleted() {
+        return responseStatus != null;
+    }
+
+    public boolean isExpired(LocalDateTime now) {
+        return !expiresAt.isAfter(now);
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.xlr8travel.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 import jakarta.persistence.*;
 
@@ -14,7 +15,13 @@ import java.util.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@ToString(exclude = "airline")
+@Table(indexes = {
+        // Route search and fare calendar: origin = ? AND destination = ? AND departure_date = / BETWEEN ?
+        @Index(name = "idx_flight_route_date", columnList = "origin, destination, departure_date"),
+        // Keyset pagination over the whole catalog and date-window scans
+        @Index(name = "idx_flight_departure", columnList = "departure_date, departure_time, id")
+})
+@ToString(exclude = {"airline", "aircraft", "tickets"})
 @Getter
 @Setter
 
@@ -42,10 +49,28 @@ public class Flight {
     @JsonIgnore
     private Airline airline;
 
-    @OneToMany(mappedBy = "flight",cascade = CascadeType.PERSIST, fetch = FetchType.EAGER)
+    // Aircraft operating the flight; its seat layout drives seat validation and allocation.
+    // Written as {"aircraftId": ...} (see setAircraftId); the aircraft graph itself never goes through JSON
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JsonIgnore
+    private Aircraft aircraft;
+
+    // Lazy: loading a flight (e.g. at checkout) must not pull in every ticket sold on it
+    @OneToMany(mappedBy = "flight",cascade = CascadeType.PERSIST, fetch = FetchType.LAZY)
     @JsonIgnore
     private Set<Ticket> tickets = new HashSet<>();
 
+    @JsonProperty(value = "aircraftId", access = JsonProperty.Access.WRITE_ONLY)
+    public void setAircraftId(Long aircraftId) {
+        if (aircraftId == null) {
+            this.aircraft = null;
+            return;
+        }
+        Aircraft reference = new Aircraft();
+        reference.setId(aircraftId);
+        this.aircraft = reference;
+    }
+
     public <E> Flight(Object o, String s, LocalTime of, LocalTime of1, String romania, String italy, LocalDate date, LocalDate date1, String a, String number, LocalDateTime now, Object o1, HashSet<E> es, BigDecimal price) {
         this.name = s;
         this.departureTime = of;
@@ -13,8 +13,10 @@ import java.util.Objects;
 @Table(name = "order_items") // Table name for individual items within an order
 public class OrderItem {
 
+    // Pooled sequence instead of IDENTITY, which would force an immediate INSERT per item and rule out JDBC batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
     private Long id;
 
     // Many items belong to one order
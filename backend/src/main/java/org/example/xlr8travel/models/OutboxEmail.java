@@ -0,0 +1,59 @@
+package org.example.xlr8travel.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * An email waiting to be sent. Rows are written in the same transaction as the change they announce
+ * (e.g. an order), so an email exists if and only if that change committed; the dispatcher in
+ * EmailOutboxService sends them afterwards, outside any transaction.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "email_outbox", indexes = {
+        // Dispatcher poll: status = PENDING AND next_attempt_at <= now
+        @Index(name = "idx_email_outbox_due", columnList = "status, next_attempt_at")
+})
+public class OutboxEmail {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_outbox_seq")
+    @SequenceGenerator(name = "email_outbox_seq", sequenceName = "email_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Lob
+    @Column(nullable = false)
+    private String body; // HTML
+
+    @Column(nullable = false)
+    private OutboxEmailStatus status;
+
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt; // also the lease of an attempt in progress
+
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    public OutboxEmail(String recipient, String subject, String body) {
+        this.recipient = recipient;
+        this.subject = subject;
+        this.body = body;
+    }
+}
@@ -0,0 +1,5 @@
+package org.example.xlr8travel.models;
+
+public enum OutboxEmailStatus {
+    OUTBOX_EMAIL_STATUS_PENDING, OUTBOX_EMAIL_STATUS_SENT, OUTBOX_EMAIL_STATUS_FAILED
+}
@@ -0,0 +1,63 @@
+package org.example.xlr8travel.models;
+
+import lombok.*;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The seat a ticket holds on its flight. The unique key on (flight_id, seat_number) is what makes a
+ * seat claim race-free across application instances: a second claim of the same seat fails on insert.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_seat_assignment_flight_seat", columnNames = {"flight_id", "seat_number"}),
+        // One seat per ticket; moving a ticket rewrites its row
+        @UniqueConstraint(name = "uk_seat_assignment_ticket", columnNames = {"ticket_id"})
+})
+@ToString(exclude = {"flight", "ticket"})
+@Getter
+@Setter
+public class SeatAssignment {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "flight_id", nullable = false)
+    private Flight flight;
+
+    @Column(name = "seat_number", nullable = false, length = 8)
+    private String seatNumber;
+
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "ticket_id", nullable = false)
+    private Ticket ticket;
+
+    private LocalDateTime assignedAt;
+
+    public SeatAssignment(Flight flight, String seatNumber, Ticket ticket) {
+        this.flight = flight;
+        this.seatNumber = seatNumber;
+        this.ticket = ticket;
+        this.assignedAt = LocalDateTime.now();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SeatAssignment that = (SeatAssignment) o;
+        return Objects.equals(seatNumber, that.seatNumber) && Objects.equals(assignedAt, that.assignedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(seatNumber, assignedAt);
+    }
+}
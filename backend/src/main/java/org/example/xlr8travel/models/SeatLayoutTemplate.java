@@ -0,0 +1,61 @@
+package org.example.xlr8travel.models;
+
+import lombok.*;
+import jakarta.persistence.*;
+
+import java.util.Objects;
+
+/**
+ * Cabin layout of an aircraft type, stored as a compact textual spec and compiled into an
+ * immutable in-memory layout on first use.
+ * <p>
+ * Example (A320, 180 seats): rowCount = 30, columns = "ABCDEF", aisleAfter = "C",
+ * blockedSeats = "", rowTypes = "1-5:UPFRONT,14-15:EXTRA_LEGROOM,30:EXTRA_LEGROOM".
+ * Rows not listed in rowTypes are STANDARD.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@ToString(exclude = {})
+@Getter
+@Setter
+public class SeatLayoutTemplate {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+    private String name; // e.g. "B747-416"
+    private int rowCount;
+    @Column(name = "seat_columns") // COLUMNS is a keyword in MySQL
+    private String columns; // seat letters from window to window, e.g. "ABCDEF"
+    private String aisleAfter; // letters followed by an aisle, e.g. "C"
+    @Column(length = 1000)
+    private String blockedSeats; // comma-separated seats that can never be sold, e.g. "1A,1F"
+    @Column(length = 1000)
+    private String rowTypes; // comma-separated "row[-row]:TYPE" ranges
+
+    public SeatLayoutTemplate(String name, int rowCount, String columns, String aisleAfter, String blockedSeats, String rowTypes) {
+        this.name = name;
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.aisleAfter = aisleAfter;
+        this.blockedSeats = blockedSeats;
+        this.rowTypes = rowTypes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SeatLayoutTemplate that = (SeatLayoutTemplate) o;
+        return rowCount == that.rowCount && Objects.equals(name, that.name) && Objects.equals(columns, that.columns)
+                && Objects.equals(aisleAfter, that.aisleAfter) && Objects.equals(blockedSeats, that.blockedSeats)
+                && Objects.equals(rowTypes, that.rowTypes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, rowCount, columns, aisleAfter, blockedSeats, rowTypes);
+    }
+}
@@ -13,13 +13,21 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_ticket_flight_seat", columnList = "flight_id, seat_number, ticket_status"),
+        @Index(name = "idx_ticket_user_status", columnList = "user_id, ticket_status"),
+        // Sales metrics filter and group on purchase time
+        @Index(name = "idx_ticket_purchase_time", columnList = "purchase_time")
+})
 @ToString(exclude = {})
 @Getter
 @Setter
 public class Ticket {
 
+    // Pooled ids: a checkout fetches one block of 50 instead of a sequence round trip per ticket
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_seq")
+    @SequenceGenerator(name = "ticket_seq", sequenceName = "ticket_seq", allocationSize = 50)
     private Long id;
     private float price; // price of the ticket all in all
     private LocalDateTime purchaseTime;
@@ -38,6 +46,7 @@ public class Ticket {
         this.purchaseTime = purchaseTime;
         this.ticketStatus = ticketStatus;
         this.seat = seat;
+        this.seatNumber = seat != null ? seat.getSeatNumber() : null; // Seat lookups filter on this column
         this.seatSelectionDeferred = false;
         this.randomSeatAllocation = false;
     }
@@ -14,7 +14,11 @@ import java.util.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "users") // Use "users" instead of "user" to avoid H2 reserved keyword issues
+@Table(name = "users", // Use "users" instead of "user" to avoid H2 reserved keyword issues
+        indexes = {
+                @Index(name = "idx_users_email", columnList = "email"),
+                @Index(name = "idx_users_username", columnList = "username")
+        })
 @ToString(exclude = {})
 @Getter
 @Setter
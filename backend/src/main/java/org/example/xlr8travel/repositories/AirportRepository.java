@@ -0,0 +1,20 @@
+package org.example.xlr8travel.repositories;
+
+import org.example.xlr8travel.models.Airport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface AirportRepository extends JpaRepository<Airport, Long> {
+
+    // IATA code -> country name via Airport -> City -> Country, without loading the entity graph
+    @Query("SELECT a.iataCode AS iataCode, co.name AS country FROM Airport a JOIN a.city ci JOIN ci.country co " +
+            "WHERE a.iataCode IS NOT NULL")
+    List<AirportCountry> findAirportCountries();
+
+    interface AirportCountry {
+        String getIataCode();
+        String getCountry();
+    }
+}
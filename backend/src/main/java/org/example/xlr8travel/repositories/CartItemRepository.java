@@ -1,11 +1,15 @@
 package org.example.xlr8travel.repositories;
 
+import org.example.xlr8travel.dto.FlightCartItemDTO;
 import org.example.xlr8travel.models.CartItemModel;
 // import org.example.xlr8travel.models.Cart; // If using findByCart method
-// import java.util.List; // If using findByCart method
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItemModel, Long> {
 
@@ -15,4 +19,12 @@ public interface CartItemRepository extends JpaRepository<CartItemModel, Long> {
     // List<CartItemModel> findByCart(Cart cart);
     // void deleteByCart(Cart cart); // For bulk deletion if needed differently than cascade
 
-}
\ No newline at end of file
+    // A user's cart lines with their flight columns, in one statement. Projection only, so neither the
+    // cart items nor their flights (and the flights' EAGER tickets) are hydrated
+    @Query("SELECT new org.example.xlr8travel.dto.FlightCartItemDTO(f.id, f.name, f.origin, f.destination, " +
+            "f.departureDate, f.departureTime, f.arrivalDate, f.arrivalTime, f.price, " +
+            "ci.quantity, ci.seatId, ci.deferSeatSelection, ci.allocateRandomSeat, ci.seatNumber, ci.seatType, ci.baggageType) " +
+            "FROM CartItemModel ci JOIN ci.cart c JOIN ci.flight f " +
+            "WHERE c.user.id = :userId ORDER BY ci.id")
+    List<FlightCartItemDTO> findCartLines(@Param("userId") Long userId);
+}
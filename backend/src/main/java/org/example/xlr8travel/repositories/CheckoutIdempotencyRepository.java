@@ -0,0 +1,41 @@
+package org.example.xlr8travel.repositories;
+
+import org.example.xlr8travel.models.CheckoutIdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// The update methods run in their own transactions: the store calls them outside any, around the checkout
+public interface CheckoutIdempotencyRepository extends JpaRepository<CheckoutIdempotencyRecord, Long> {
+
+    // uk_checkout_idempotency_key
+    Optional<CheckoutIdempotencyRecord> findByUsernameAndIdempotencyKey(String username, String idempotencyKey);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CheckoutIdempotencyRecord r SET r.responseStatus = :status, r.responseBody = :body, " +
+            "r.expiresAt = :expiresAt WHERE r.id = :id")
+    int complete(@Param("id") Long id, @Param("status") int status, @Param("body") String body,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CheckoutIdempotencyRecord r WHERE r.id = :id")
+    int release(@Param("id") Long id);
+
+    // Only deletes the row while it is still expired, so a checkout that completed meanwhile keeps its response
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CheckoutIdempotencyRecord r WHERE r.id = :id AND r.expiresAt <= :now")
+    int deleteIfExpired(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CheckoutIdempotencyRecord r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,6 +1,10 @@
 package org.example.xlr8travel.repositories;
 
+import org.example.xlr8travel.dto.FareCalendarDayDTO;
+import org.example.xlr8travel.dto.FlightDTO;
 import org.example.xlr8travel.models.Flight;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -8,6 +12,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +36,100 @@ public interface FlightRepository extends CrudRepository<Flight, Long> {
     // Find flights by origin only (for nearby flights feature)
     List<Flight> findByOriginAndDepartureDateAfter(String origin, LocalDate departureDate);
 
+    // --- DTO projections (no entity hydration, no eager tickets) ---
+
+    // Full catalog snapshot used to build the in-memory search index
+    @Query("SELECT new org.example.xlr8travel.dto.FlightDTO(f.id, f.name, f.origin, f.destination, " +
+            "f.departureDate, f.departureTime, f.arrivalDate, f.arrivalTime, f.price, f.terminal, f.gate, f.lastUpdated) " +
+            "FROM Flight f")
+    List<FlightDTO> findAllFlightDTOs();
+
+    // Single flight snapshot, used to describe catalog changes without loading tickets
+    @Query("SELECT new org.example.xlr8travel.dto.FlightDTO(f.id, f.name, f.origin, f.destination, " +
+            "f.departureDate, f.departureTime, f.arrivalDate, f.arrivalTime, f.price, f.terminal, f.gate, f.lastUpdated) " +
+            "FROM Flight f WHERE f.id = :id")
+    Optional<FlightDTO> findFlightDTOById(@Param("id") Long id);
+
+    // Departure day of one flight, used to drop its seat map once it has left
+    @Query("SELECT f.departureDate FROM Flight f WHERE f.id = :id")
+    Optional<LocalDate> findDepartureDateById(@Param("id") Long id);
+
+    // --- Keyset pagination on (departureDate, departureTime, id); page size comes from the Pageable ---
+
+    // Rows after (:afterTime, :afterId) within one departure date. NULL times sort first in MySQL and H2, so a
+    // null cursor time is followed by the remaining untimed rows and then every timed one (see FlightCursor)
+    String AFTER_TIME = "(:afterTime IS NULL AND (f.departureTime IS NOT NULL OR f.id > :afterId)) " +
+            "OR f.departureTime > :afterTime OR (f.departureTime = :afterTime AND f.id > :afterId)";
+
+    @Query("SELECT new org.example.xlr8travel.dto.FlightDTO(f.id, f.name, f.origin, f.destination, " +
+            "f.departureDate, f.departureTime, f.arrivalDate, f.arrivalTime, f.price, f.terminal, f.gate, f.lastUpdated) " +
+            "FROM Flight f WHERE f.origin = :origin AND f.destination = :destination AND f.departureDate = :departureDate " +
+            "ORDER BY f.departureTime, f.id")
+    List<FlightDTO> findRoutePage(@Param("origin") String origin,
+                                  @Param("destination") String destination,
+                                  @Param("departureDate") LocalDate departureDate,
+                                  Pageable pageable);
+
+    @Query("SELECT new org.example.xlr8travel.dto.FlightDTO(f.id, f.name, f.origin, f.destination, " +
+            "f.departureDate, f.departureTime, f.arrivalDate, f.arrivalTime, f.price, f.terminal, f.gate, f.lastUpdated) " +
+            "FROM Flight f WHERE f.origin = :origin AND f.destination = :destination AND f.departureDate = :departureDate " +
+            "AND (" + AFTER_TIME + ") " +
+            "ORDER BY f.departureTime, f.id")
+    List<FlightDTO> findRoutePageAfter(@Param("origin") String origin,
+                                       @Param("destination") String destination,
+                                       @Param("departureDate") LocalDate departureDate,
+                                       @Param("afterTime") LocalTime afterTime,
+                                       @Param("afterId") Long afterId,
+                                       Pageable pageable);
+
+    @Query("SELECT new org.example.xlr8travel.dto.FlightDTO(f.id, f.name, f.origin, f.destination, " +
+            "f.departureDate, f.departureTime, f.arrivalDate, f.arrivalTime, f.price, f.terminal, f.gate, f.lastUpdated) " +
+            "FROM Flight f ORDER BY f.departureDate, f.departureTime, f.id")
+    List<FlightDTO> findFlightPage(Pageable pageable);
+
+    // The leading range lets the database seek idx_flight_departure instead of scanning it from the start
+    @Query("SELECT new org.example.xlr8travel.dto.FlightDTO(f.id, f.name, f.origin, f.destination, " +
+            "f.departureDate, f.departureTime, f.arrivalDate, f.arrivalTime, f.price, f.terminal, f.gate, f.lastUpdated) " +
+            "FROM Flight f WHERE f.departureDate >= :afterDate AND (f.departureDate > :afterDate " +
+            "OR (f.departureDate = :afterDate AND (" + AFTER_TIME + "))) " +
+            "ORDER BY f.departureDate, f.departureTime, f.id")
+    List<FlightDTO> findFlightPageAfter(@Param("afterDate") LocalDate afterDate,
+                                        @Param("afterTime") LocalTime afterTime,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
+
+    // Departures from the given day on, used to build the nearby-destinations table
+    @Query("SELECT new org.example.xlr8travel.dto.FlightDTO(f.id, f.name, f.origin, f.destination, " +
+            "f.departureDate, f.departureTime, f.arrivalDate, f.arrivalTime, f.price, f.terminal, f.gate, f.lastUpdated) " +
+            "FROM Flight f WHERE f.departureDate >= :fromDate")
+    List<FlightDTO> findFlightDTOsDepartingFrom(@Param("fromDate") LocalDate fromDate);
+
+    // All departures in a date window, used to build the connection-search graph
+    @Query("SELECT new org.example.xlr8travel.dto.FlightDTO(f.id, f.name, f.origin, f.destination, " +
+            "f.departureDate, f.departureTime, f.arrivalDate, f.arrivalTime, f.price, f.terminal, f.gate, f.lastUpdated) " +
+            "FROM Flight f WHERE f.departureDate BETWEEN :fromDate AND :toDate")
+    List<FlightDTO> findFlightDTOsDepartingBetween(@Param("fromDate") LocalDate fromDate,
+                                                   @Param("toDate") LocalDate toDate);
+
+    // Fare calendar: cheapest price and number of flights per departure day, in one grouped query
+    @Query("SELECT new org.example.xlr8travel.dto.FareCalendarDayDTO(f.departureDate, MIN(f.price), COUNT(f)) " +
+            "FROM Flight f WHERE f.origin = :origin AND f.destination = :destination " +
+            "AND f.departureDate BETWEEN :fromDate AND :toDate " +
+            "GROUP BY f.departureDate ORDER BY f.departureDate")
+    List<FareCalendarDayDTO> findFareCalendar(@Param("origin") String origin,
+                                              @Param("destination") String destination,
+                                              @Param("fromDate") LocalDate fromDate,
+                                              @Param("toDate") LocalDate toDate);
+
+    // --- Seat inventory ---
+
+    // Atomic conditional decrement: the row lock taken by the UPDATE serialises concurrent checkouts,
+    // and the WHERE clause makes it a no-op (0 rows) when fewer than :seats remain, so a flight can never be oversold
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Flight f SET f.availableSeats = f.availableSeats - :seats " +
+            "WHERE f.id = :id AND f.availableSeats >= :seats")
+    int reserveSeats(@Param("id") Long id, @Param("seats") int seats);
+
     // --- Metrics related queries ---
 
     // Find flights with departure date after the given date
@@ -50,4 +149,15 @@ public interface FlightRepository extends CrudRepository<Flight, Long> {
     // Count flights added after a certain date
     @Query("SELECT COUNT(f) FROM Flight f WHERE f.createdAt > :date")
     long countFlightsAddedAfter(@Param("date") LocalDateTime date);
+
+    // Dashboard inventory counts in one scan: total, with seats, fully booked, departing in [from, to], added since
+    @Query("SELECT COUNT(f), " +
+           "SUM(CASE WHEN f.availableSeats > 0 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN f.availableSeats = 0 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN f.departureDate BETWEEN :departingFrom AND :departingTo THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN f.createdAt > :addedSince THEN 1 ELSE 0 END) " +
+           "FROM Flight f")
+    List<Object[]> summarizeInventory(@Param("departingFrom") LocalDate departingFrom,
+                                      @Param("departingTo") LocalDate departingTo,
+                                      @Param("addedSince") LocalDateTime addedSince);
 }
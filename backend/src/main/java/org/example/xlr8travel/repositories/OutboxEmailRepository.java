@@ -0,0 +1,43 @@
+package org.example.xlr8travel.repositories;
+
+import org.example.xlr8travel.models.OutboxEmail;
+import org.example.xlr8travel.models.OutboxEmailStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// The update methods run in their own transactions: the dispatcher calls them outside any, around the SMTP call
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+
+    // Oldest due emails first (idx_email_outbox_due); batch size comes from the Pageable
+    @Query("SELECT e FROM OutboxEmail e WHERE e.status = :status AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt, e.id")
+    List<OutboxEmail> findDue(@Param("status") OutboxEmailStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Leases the email for one attempt by pushing next_attempt_at out to :leaseUntil. Matching on the attempt
+    // count read by the caller makes it a compare-and-set: 0 rows means another dispatcher took this attempt
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE OutboxEmail e SET e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil " +
+            "WHERE e.id = :id AND e.status = :status AND e.attempts = :attempts")
+    int claim(@Param("id") Long id, @Param("status") OutboxEmailStatus status,
+              @Param("attempts") int attempts, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE OutboxEmail e SET e.status = :status, e.sentAt = :sentAt, e.lastError = null WHERE e.id = :id")
+    int markSent(@Param("id") Long id, @Param("status") OutboxEmailStatus status, @Param("sentAt") LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE OutboxEmail e SET e.status = :status, e.nextAttemptAt = :nextAttemptAt, e.lastError = :error WHERE e.id = :id")
+    int markAttemptFailed(@Param("id") Long id, @Param("status") OutboxEmailStatus status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+
+    long countByStatus(OutboxEmailStatus status);
+}
@@ -0,0 +1,17 @@
+package org.example.xlr8travel.repositories;
+
+import org.example.xlr8travel.models.SeatAssignment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface SeatAssignmentRepository extends JpaRepository<SeatAssignment, Long> {
+
+    Optional<SeatAssignment> findByTicketId(Long ticketId);
+
+    @Query("SELECT a.seatNumber FROM SeatAssignment a WHERE a.flight.id = :flightId")
+    List<String> findSeatNumbersByFlightId(@Param("flightId") Long flightId);
+}
@@ -0,0 +1,18 @@
+package org.example.xlr8travel.repositories;
+
+import org.example.xlr8travel.models.SeatLayoutTemplate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface SeatLayoutTemplateRepository extends JpaRepository<SeatLayoutTemplate, Long> {
+
+    // Layout of the aircraft operating a flight; empty when the flight or its aircraft has none
+    @Query("SELECT a.seatLayout FROM Flight f JOIN f.aircraft a WHERE f.id = :flightId")
+    Optional<SeatLayoutTemplate> findByFlightId(@Param("flightId") Long flightId);
+
+    @Query("SELECT a.seatLayout FROM Aircraft a WHERE a.id = :aircraftId")
+    Optional<SeatLayoutTemplate> findByAircraftId(@Param("aircraftId") Long aircraftId);
+}
@@ -1,7 +1,9 @@
 package org.example.xlr8travel.repositories;
 
+import org.example.xlr8travel.dto.TripDTO;
 import org.example.xlr8travel.models.Ticket;
 import org.example.xlr8travel.models.TicketStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -13,15 +15,38 @@ public interface TicketRepository extends CrudRepository<Ticket, Long> {
 
     List<Ticket> findAll();
 
-    // Find tickets by flight ID and seat number
-    @Query("SELECT t FROM Ticket t WHERE t.flight.id = :flightId AND t.seat.seatNumber = :seatNumber")
+    // Find tickets by flight ID and seat number. Filters the ticket's own columns, with no join to seat or
+    // flight, so the lookup stays on idx_ticket_flight_seat; seatNumber is set wherever a seat is assigned
+    @Query("SELECT t FROM Ticket t WHERE t.flight.id = :flightId AND t.seatNumber = :seatNumber")
     List<Ticket> findByFlightIdAndSeatNumber(@Param("flightId") Long flightId, @Param("seatNumber") String seatNumber);
 
+    // Seat numbers held by live tickets of a flight: the seat assigned at check-in, else the one picked at purchase
+    // (assigning a seat also sets the ticket's seatNumber). Projection only, so no Ticket (and none of its eager
+    // baggage/class associations) is hydrated
+    @Query("SELECT t.seatNumber FROM Ticket t " +
+            "WHERE t.flight.id = :flightId AND t.seatNumber IS NOT NULL AND t.ticketStatus <> :excludedStatus")
+    List<String> findOccupiedSeatNumbers(@Param("flightId") Long flightId, @Param("excludedStatus") TicketStatus excludedStatus);
+
     // Find all tickets for a flight
     List<Ticket> findByFlightId(Long flightId);
 
-    // Find all checked-in tickets for a user
-    List<Ticket> findByUserIdAndTicketStatus(Long userId, TicketStatus ticketStatus);
+    // A user's tickets on one flight in a given status (group check-in)
+    List<Ticket> findByUserIdAndFlightIdAndTicketStatus(Long userId, Long flightId, TicketStatus ticketStatus);
+
+    // Find all checked-in tickets for a user. Explicit, since the derived query joins users (idx_ticket_user_status)
+    @Query("SELECT t FROM Ticket t WHERE t.user.id = :userId AND t.ticketStatus = :ticketStatus")
+    List<Ticket> findByUserIdAndTicketStatus(@Param("userId") Long userId, @Param("ticketStatus") TicketStatus ticketStatus);
+
+    // A user's trips in one status, flight, seat and passenger joined in a single statement (idx_ticket_user_status).
+    // Soonest departure first; page size comes from the Pageable
+    @Query("SELECT new org.example.xlr8travel.dto.TripDTO(t.id, t.ticketStatus, t.seatNumber, " +
+            "t.seatSelectionDeferred, t.randomSeatAllocation, " +
+            "f.id, f.name, f.origin, f.destination, f.departureDate, f.departureTime, f.arrivalDate, f.arrivalTime, " +
+            "f.terminal, f.gate, s.seatNumber, s.seatType, u.firstname, u.lastname) " +
+            "FROM Ticket t JOIN t.user u JOIN t.flight f LEFT JOIN t.seat s " +
+            "WHERE u.id = :userId AND t.ticketStatus = :status " +
+            "ORDER BY f.departureDate, f.departureTime, t.id")
+    List<TripDTO> findTrips(@Param("userId") Long userId, @Param("status") TicketStatus status, Pageable pageable);
 
     // Find tickets by purchase time after a certain date
     List<Ticket> findByPurchaseTimeAfter(LocalDateTime date);
@@ -44,6 +69,22 @@ public interface TicketRepository extends CrudRepository<Ticket, Long> {
     @Query("SELECT AVG(t.price) FROM Ticket t")
     float averageTicketPrice();
 
+    // Dashboard ticket totals in one scan: count, revenue, average price, and purchases since each cutoff
+    @Query("SELECT COUNT(t), SUM(t.price), AVG(t.price), " +
+           "SUM(CASE WHEN t.purchaseTime > :weekAgo THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN t.purchaseTime > :twoWeeksAgo THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN t.purchaseTime > :monthAgo THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN t.purchaseTime > :twoMonthsAgo THEN 1 ELSE 0 END) " +
+           "FROM Ticket t")
+    List<Object[]> summarizeTickets(@Param("weekAgo") LocalDateTime weekAgo,
+                                    @Param("twoWeeksAgo") LocalDateTime twoWeeksAgo,
+                                    @Param("monthAgo") LocalDateTime monthAgo,
+                                    @Param("twoMonthsAgo") LocalDateTime twoMonthsAgo);
+
+    // Ticket count per status; statuses without tickets have no row
+    @Query("SELECT t.ticketStatus, COUNT(t) FROM Ticket t GROUP BY t.ticketStatus")
+    List<Object[]> countTicketsByStatus();
+
     // Count tickets created per day
     @Query("SELECT CAST(t.purchaseTime AS date) as day, COUNT(t) FROM Ticket t GROUP BY CAST(t.purchaseTime AS date)")
     List<Object[]> countTicketsPerDay();
@@ -30,4 +30,20 @@ public interface UserRepository extends CrudRepository<User, Long> {
 
         @Query("SELECT COUNT(u) FROM User u WHERE u.lastLogin > :date")
         long countActiveUsersAfter(@Param("date") LocalDateTime date);
+
+        // Dashboard user counts in one scan: total, active since each login cutoff, created since each signup cutoff
+        @Query("SELECT COUNT(u), " +
+               "SUM(CASE WHEN u.lastLogin > :activeSince THEN 1 ELSE 0 END), " +
+               "SUM(CASE WHEN u.lastLogin > :previousActiveSince THEN 1 ELSE 0 END), " +
+               "SUM(CASE WHEN u.createdAt > :weekAgo THEN 1 ELSE 0 END), " +
+               "SUM(CASE WHEN u.createdAt > :twoWeeksAgo THEN 1 ELSE 0 END), " +
+               "SUM(CASE WHEN u.createdAt > :monthAgo THEN 1 ELSE 0 END), " +
+               "SUM(CASE WHEN u.createdAt > :twoMonthsAgo THEN 1 ELSE 0 END) " +
+               "FROM User u")
+        List<Object[]> summarizeUsers(@Param("activeSince") LocalDateTime activeSince,
+                                      @Param("previousActiveSince") LocalDateTime previousActiveSince,
+                                      @Param("weekAgo") LocalDateTime weekAgo,
+                                      @Param("twoWeeksAgo") LocalDateTime twoWeeksAgo,
+                                      @Param("monthAgo") LocalDateTime monthAgo,
+                                      @Param("twoMonthsAgo") LocalDateTime twoMonthsAgo);
 }
@@ -68,10 +68,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private String parseJwt(HttpServletRequest request) {
         // First try to get token from Authorization header
-        String headerAuth = request.getHeader("Authorization");
-
-        if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
-            return headerAuth.substring(7);
+        String bearerToken = bearerToken(request);
+        if (bearerToken != null) {
+            return bearerToken;
         }
 
         // If no token in header, try to get from cookies
@@ -86,4 +85,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         return null;
     }
+
+    /**
+     * The token of the request's {@code Authorization: Bearer} header, or null when there is none. A signed-out
+     * frontend may send "Bearer null" or "Bearer undefined"; those count as no token, not as a bad one.
+     */
+    static String bearerToken(HttpServletRequest request) {
+        String headerAuth = request.getHeader("Authorization");
+        if (!StringUtils.hasText(headerAuth) || !headerAuth.startsWith("Bearer ")) {
+            return null;
+        }
+        String token = headerAuth.substring(7).trim();
+        if (token.isEmpty() || token.equals("null") || token.equals("undefined")) {
+            return null;
+        }
+        return token;
+    }
 }
\ No newline at end of file
@@ -1,18 +1,22 @@
 package org.example.xlr8travel.security;
 
 import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import org.example.xlr8travel.services.GuestCartService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.WebUtils;
 
 import java.io.IOException;
 
@@ -21,12 +25,14 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
 
     private static final Logger logger = LoggerFactory.getLogger(OAuth2AuthenticationSuccessHandler.class);
     private final JwtUtils jwtUtils;
+    private final GuestCartService guestCartService;
 
     @Value("${app.frontend.url}")
     private String frontendUrl;
 
-    public OAuth2AuthenticationSuccessHandler(JwtUtils jwtUtils) {
+    public OAuth2AuthenticationSuccessHandler(JwtUtils jwtUtils, GuestCartService guestCartService) {
         this.jwtUtils = jwtUtils;
+        this.guestCartService = guestCartService;
     }
 
     @Override
@@ -45,6 +51,8 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
 
         logger.info("OAuth tokens stored in session for user: {}", username);
 
+        mergeGuestCart(request, response, username);
+
         // Redirect to frontend without tokens in URL
         String targetUrl = UriComponentsBuilder.fromUriString(frontendUrl)
                 .queryParam("oauth", "success")
@@ -58,6 +66,23 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
         getRedirectStrategy().sendRedirect(request, response, targetUrl);
     }
 
+    // Same as a password login: what the visitor put in the cart before signing in moves to their cart, and a
+    // failed merge must not fail the login
+    private void mergeGuestCart(HttpServletRequest request, HttpServletResponse response, String username) {
+        Cookie guestCartCookie = WebUtils.getCookie(request, GuestCartService.COOKIE_NAME);
+        if (guestCartCookie == null) {
+            return;
+        }
+        try {
+            if (guestCartService.mergeInto(username, guestCartCookie.getValue())) {
+                logger.info("Merged guest cart into the cart of user: {}", username);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not merge guest cart for user {}: {}", username, e.getMessage());
+        }
+        response.addHeader(HttpHeaders.SET_COOKIE, guestCartService.expiredCookie().toString());
+    }
+
     /**
      * Extracts the username from the authentication object.
      * For OAuth2 users, use the email attribute if available.
@@ -102,6 +102,10 @@ public class SecurityConfig {
                         // Everything else under /api/checkout requires auth (if you have more)
                         .requestMatchers("/api/checkout/**").authenticated()
 
+                        // Visitors without any bearer token get an in-memory guest cart; a bad or expired token is still a 401
+                        .requestMatchers(request -> isCartPath(request.getRequestURI())
+                                && JwtAuthenticationFilter.bearerToken(request) == null).permitAll()
+
                         // Cart, orders, user‐info remain protected
                         .requestMatchers("/api/cart/**").authenticated()
                         .requestMatchers("/api/orders/**").authenticated()
@@ -165,12 +169,17 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private static boolean isCartPath(String uri) {
+        return uri.equals("/api/cart") || uri.startsWith("/api/cart/");
+    }
+
     // CORS Configuration Bean
     @Bean
     CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(List.of(frontendUrl)); // Frontend origin
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        // PATCH is the batched cart update (PATCH /api/cart)
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Cache-Control", "Content-Language", "Accept", "X-Requested-With"));
         configuration.setAllowCredentials(true);
 
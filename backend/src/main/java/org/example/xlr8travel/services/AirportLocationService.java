@@ -3,6 +3,7 @@ package org.example.xlr8travel.services;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 
 @Service
 public class AirportLocationService {
@@ -40,6 +41,11 @@ public class AirportLocationService {
         airports.add(new Airport("ZRH", "Zurich Airport", "Zurich", "Switzerland", 47.4647, 8.5492));
     }
     
+    // All known airports (read-only view)
+    public List<Airport> getAirports() {
+        return Collections.unmodifiableList(airports);
+    }
+
     // Find the closest airport to the given coordinates
     public Airport findClosestAirport(double userLat, double userLng) {
         if (Double.isNaN(userLat) || Double.isNaN(userLng)) {
@@ -0,0 +1,243 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Booking funnel counters: searches, carts started, checkouts started and orders created, over the last
+ * hour and the last 24 hours. Nothing is written to the database; the counts start from zero on restart.
+ * <p>
+ * Recording an event only bumps a striped {@link LongAdder}, so request threads never block on each other.
+ * A background roller folds the adders into per-minute buckets every {@code metrics.funnel.roll-interval}
+ * and publishes an immutable snapshot of both windows, which readers and the Prometheus gauges use as is.
+ */
+@Service
+public class BookingFunnel {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingFunnel.class);
+
+    public enum Stage {
+        // A flight search was answered
+        SEARCH,
+        // A flight went into an empty cart, starting a new one; later adds to the same cart are not counted
+        ADD_TO_CART,
+        // An order was attempted from the cart
+        CHECKOUT_STARTED,
+        // An order was committed
+        ORDER_CREATED
+    }
+
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final int HOUR_MINUTES = 60;
+    private static final int DAY_MINUTES = 24 * 60;
+    private static final Stage[] STAGES = Stage.values();
+
+    private final Duration rollInterval;
+    private final LongSupplier clockMillis;
+
+    // Hot path: one adder per stage, never reset; the roller takes the difference since its last pass
+    private final LongAdder[] recorded = new LongAdder[STAGES.length];
+    private final Counter[] counters = new Counter[STAGES.length];
+
+    // Roller state, guarded by roll()
+    private final long[] rolled = new long[STAGES.length];
+    private final long[][] buckets = new long[STAGES.length][DAY_MINUTES];
+    private final long[] bucketMinute = new long[DAY_MINUTES];
+
+    private volatile Snapshot snapshot = new Snapshot(Window.EMPTY, Window.EMPTY);
+
+    private final ScheduledExecutorService roller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "booking-funnel-roller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public BookingFunnel(MeterRegistry meterRegistry,
+                         @Value("${metrics.funnel.roll-interval:5s}") Duration rollInterval) {
+        this(meterRegistry, rollInterval, System::currentTimeMillis);
+    }
+
+    BookingFunnel(MeterRegistry meterRegistry, Duration rollInterval, LongSupplier clockMillis) {
+        this.rollInterval = rollInterval;
+        this.clockMillis = clockMillis;
+        for (Stage stage : STAGES) {
+            recorded[stage.ordinal()] = new LongAdder();
+            counters[stage.ordinal()] = Counter.builder("booking.funnel.events")
+                    .tag("stage", stage.name().toLowerCase())
+                    .description("Booking funnel events, counted by the roller")
+                    .register(meterRegistry);
+        }
+        Arrays.fill(bucketMinute, -1);
+        registerRateGauges(meterRegistry, "1h", Snapshot::lastHour);
+        registerRateGauges(meterRegistry, "24h", Snapshot::lastDay);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long millis = rollInterval.toMillis();
+        roller.scheduleWithFixedDelay(this::rollQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(Stage stage) {
+        recorded[stage.ordinal()].increment();
+    }
+
+    /**
+     * Records the event once the surrounding transaction commits (right away outside one), so rolled back
+     * carts and orders are not counted.
+     */
+    public void recordAfterCommit(Stage stage) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(stage);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(stage);
+            }
+        });
+    }
+
+    public Window lastHour() {
+        return snapshot.lastHour();
+    }
+
+    public Window lastDay() {
+        return snapshot.lastDay();
+    }
+
+    /**
+     * Folds what was recorded since the last pass into the current minute's bucket and republishes both
+     * windows. Runs on the roller thread.
+     */
+    synchronized void roll() {
+        long minute = clockMillis.getAsLong() / MINUTE_MILLIS;
+        int slot = (int) (minute % DAY_MINUTES);
+        if (bucketMinute[slot] != minute) {
+            // The slot still holds the same minute of an earlier day
+            for (long[] stageBuckets : buckets) {
+                stageBuckets[slot] = 0;
+            }
+            bucketMinute[slot] = minute;
+        }
+
+        for (Stage stage : STAGES) {
+            int i = stage.ordinal();
+            // Adders only grow, so the delta is never negative; increments racing with sum() land next pass
+            long total = recorded[i].sum();
+            long delta = total - rolled[i];
+            rolled[i] = total;
+            if (delta > 0) {
+                buckets[i][slot] += delta;
+                counters[i].increment(delta);
+            }
+        }
+
+        long[] hour = new long[STAGES.length];
+        long[] day = new long[STAGES.length];
+        for (int s = 0; s < DAY_MINUTES; s++) {
+            long age = minute - bucketMinute[s];
+            if (bucketMinute[s] < 0 || age >= DAY_MINUTES) {
+                continue;
+            }
+            for (int i = 0; i < STAGES.length; i++) {
+                day[i] += buckets[i][s];
+                if (age < HOUR_MINUTES) {
+                    hour[i] += buckets[i][s];
+                }
+            }
+        }
+        snapshot = new Snapshot(Window.of(hour), Window.of(day));
+    }
+
+    private void rollQuietly() {
+        try {
+            roll();
+        } catch (RuntimeException e) {
+            log.error("Booking funnel roll failed", e);
+        }
+    }
+
+    private void registerRateGauges(MeterRegistry meterRegistry, String window, Function<Snapshot, Window> pick) {
+        registerGauge(meterRegistry, "booking.funnel.conversion.rate", window,
+                "Orders created per search", funnel -> pick.apply(funnel.snapshot).conversionRate());
+        registerGauge(meterRegistry, "booking.funnel.cart.abandonment.rate", window,
+                "Share of started carts that did not become an order", funnel -> pick.apply(funnel.snapshot).cartAbandonmentRate());
+        registerGauge(meterRegistry, "booking.funnel.checkout.abandonment.rate", window,
+                "Share of checkout attempts that did not become an order", funnel -> pick.apply(funnel.snapshot).checkoutAbandonmentRate());
+    }
+
+    private void registerGauge(MeterRegistry meterRegistry, String name, String window, String description,
+                               ToDoubleFunction<BookingFunnel> value) {
+        Gauge.builder(name, this, value)
+                .tag("window", window)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    private record Snapshot(Window lastHour, Window lastDay) {
+    }
+
+    /**
+     * Funnel counts over one window. Rates are 0 while their denominator is 0; abandonment is capped to
+     * [0, 1], since an order can complete a cart started before the window.
+     */
+    public record Window(long searches, long cartsStarted, long checkoutsStarted, long ordersCreated) {
+
+        static final Window EMPTY = new Window(0, 0, 0, 0);
+
+        static Window of(long[] counts) {
+            return new Window(counts[Stage.SEARCH.ordinal()], counts[Stage.ADD_TO_CART.ordinal()],
+                    counts[Stage.CHECKOUT_STARTED.ordinal()], counts[Stage.ORDER_CREATED.ordinal()]);
+        }
+
+        public double conversionRate() {
+            return ratio(ordersCreated, searches);
+        }
+
+        public double cartAbandonmentRate() {
+            return cartsStarted == 0 ? 0.0 : 1.0 - Math.min(1.0, ratio(ordersCreated, cartsStarted));
+        }
+
+        public double checkoutAbandonmentRate() {
+            return checkoutsStarted == 0 ? 0.0 : 1.0 - Math.min(1.0, ratio(ordersCreated, checkoutsStarted));
+        }
+
+        public Map<String, Long> counts() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            counts.put("searches", searches);
+            counts.put("cartsStarted", cartsStarted);
+            counts.put("checkoutsStarted", checkoutsStarted);
+            counts.put("ordersCreated", ordersCreated);
+            return counts;
+        }
+
+        private static double ratio(long numerator, long denominator) {
+            return denominator == 0 ? 0.0 : (double) numerator / denominator;
+        }
+    }
+}
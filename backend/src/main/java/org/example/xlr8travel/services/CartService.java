@@ -1,22 +1,36 @@
 package org.example.xlr8travel.services;
 
 import org.example.xlr8travel.dto.CartDTO;
+import org.example.xlr8travel.dto.CartOperationDTO;
+import org.example.xlr8travel.dto.FlightCartItemDTO;
 import org.example.xlr8travel.models.Flight;
 import org.example.xlr8travel.models.User;
 
 // Using jakarta.persistence.EntityNotFoundException or define your own
 import jakarta.persistence.EntityNotFoundException;
 
+import java.util.List;
+
 public interface CartService {
 
     /**
-     * Retrieves or creates a cart for the given user and returns it as a DTO.
+     * Retrieves the user's cart as a DTO, in a single query whatever the cart size.
+     * A user who has no cart yet gets an empty one.
      *
      * @param user The user whose cart is to be retrieved.
      * @return CartDTO representing the user's cart.
      */
     CartDTO getCartForUser(User user);
 
+    /**
+     * Reads the user's cart from the database, never from the cart cache. Checkout builds the order from it,
+     * so it must see the lines as committed, including changes made through another instance.
+     *
+     * @param user The user who is checking out.
+     * @return CartDTO representing the user's cart.
+     */
+    CartDTO getCartForCheckout(User user);
+
     /**
      * Adds one unit of the specified flight to the user's cart.
      * If the item already exists, increments the quantity.
@@ -52,6 +66,28 @@ public interface CartService {
      */
     CartDTO removeItemFromCart(User user, Flight flight) throws EntityNotFoundException;
 
+    /**
+     * Applies a batch of cart changes in one transaction: either all of them take effect or none do.
+     * The flights are loaded in one query and the result is built from the updated cart without re-reading it.
+     *
+     * @param user       The user whose cart is being modified.
+     * @param operations The changes, applied in order.
+     * @return Updated CartDTO.
+     * @throws EntityNotFoundException if SET_SEAT, SET_BAGGAGE, DECREASE or REMOVE names a flight that is not in the cart.
+     * @throws SeatConflictException   if a chosen seat is booked or held by someone else.
+     */
+    CartDTO applyOperations(User user, List<CartOperationDTO> operations) throws EntityNotFoundException;
+
+    /**
+     * Adds the lines of a guest cart to the user's cart in one write, after the guest signs in.
+     * Seats chosen as a guest are held now; one that was taken meanwhile becomes seat selection at check-in.
+     *
+     * @param user       The user who just signed in.
+     * @param guestLines The guest cart's lines.
+     * @return Updated CartDTO.
+     */
+    CartDTO mergeGuestCart(User user, List<FlightCartItemDTO> guestLines);
+
     /**
      * Removes all items from the user's cart.
      *
@@ -59,4 +95,11 @@ public interface CartService {
      * @return An empty CartDTO.
      */
     CartDTO clearCart(User user);
+
+    /**
+     * Extends the holds on the seats in the user's cart so they outlast checkout and payment.
+     *
+     * @param user The user who is checking out.
+     */
+    void extendSeatHolds(User user);
 }
@@ -1,6 +1,8 @@
 package org.example.xlr8travel.services;
 
+import org.example.xlr8travel.cache.CartCache;
 import org.example.xlr8travel.dto.CartDTO;
+import org.example.xlr8travel.dto.CartOperationDTO;
 import org.example.xlr8travel.dto.FlightCartItemDTO;
 import org.example.xlr8travel.models.Cart;
 import org.example.xlr8travel.models.CartItemModel;
@@ -8,17 +10,25 @@ import org.example.xlr8travel.models.Flight;
 import org.example.xlr8travel.models.User;
 import org.example.xlr8travel.repositories.CartItemRepository;
 import org.example.xlr8travel.repositories.CartRepository;
+import org.example.xlr8travel.repositories.FlightRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.persistence.EntityNotFoundException; // Or your custom exception
-import java.math.BigDecimal; // Import if using BigDecimal for price
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects; // Needed for filter(Objects::nonNull)
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,29 +39,70 @@ public class CartServiceImpl implements CartService {
 
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
-    // No FlightRepository needed if Flight object is passed in
-
-    public CartServiceImpl(CartRepository cartRepository, CartItemRepository cartItemRepository) {
+    private final SeatHoldService seatHoldService; // Keeps chosen seats held while they sit in the cart
+    private final FlightRepository flightRepository; // Only for batched operations; single ops get the Flight passed in
+    private final CartCache cartCache;
+    private final BookingFunnel bookingFunnel; // Counts carts started, for the abandonment rate
+
+    public CartServiceImpl(CartRepository cartRepository, CartItemRepository cartItemRepository,
+                           SeatHoldService seatHoldService, FlightRepository flightRepository, CartCache cartCache,
+                           BookingFunnel bookingFunnel) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
+        this.seatHoldService = seatHoldService;
+        this.flightRepository = flightRepository;
+        this.cartCache = cartCache;
+        this.bookingFunnel = bookingFunnel;
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true) // a cache hit needs no connection
     public CartDTO getCartForUser(User user) {
-        Cart cart = findOrCreateCartByUser(user);
-        return mapCartToDTO(cart);
+        if (user == null || user.getId() == null) {
+            log.error("getCartForUser called with null user or user without ID.");
+            throw new IllegalArgumentException("User cannot be null and must have an ID to read a cart.");
+        }
+        Optional<CartDTO> cached = cartCache.get(user.getId());
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long version = cartCache.version(user.getId());
+        // One projection query for any cart size; a user without a cart simply has no lines
+        CartDTO cart = CartDTO.of(cartItemRepository.findCartLines(user.getId()));
+        cartCache.putIfUnchanged(user.getId(), version, cart);
+        return cart;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CartDTO getCartForCheckout(User user) {
+        if (user == null || user.getId() == null) {
+            log.error("getCartForCheckout called with null user or user without ID.");
+            throw new IllegalArgumentException("User cannot be null and must have an ID to read a cart.");
+        }
+        return CartDTO.of(cartItemRepository.findCartLines(user.getId()));
     }
 
     @Override
     public CartDTO addItemToCart(User user, Flight flight, Long seatId, String seatNumber, String seatType, boolean deferSeatSelection, boolean allocateRandomSeat, String baggageType) {
         Cart cart = findOrCreateCartByUser(user);
+        boolean startsCart = cart.getCartItems().isEmpty();
         Optional<CartItemModel> existingItemOpt = cart.getCartItems().stream()
                 .filter(item -> item.getFlight() != null && item.getFlight().getId().equals(flight.getId()))
                 .findFirst();
 
+        // Hold the chosen seat first: if someone else has it, the cart is left untouched (409)
+        boolean choosesSeat = seatNumber != null && !seatNumber.isBlank() && !deferSeatSelection && !allocateRandomSeat;
+        if (choosesSeat) {
+            seatHoldService.hold(user.getId(), flight.getId(), seatNumber);
+        }
+
         CartItemModel cartItem;
         if (existingItemOpt.isPresent()) {
             cartItem = existingItemOpt.get();
+            if (!choosesSeat || !seatNumber.equalsIgnoreCase(cartItem.getSeatNumber())) {
+                releaseSeatHold(user, cartItem); // the line's previous seat is no longer wanted
+            }
             cartItem.setQuantity(cartItem.getQuantity() + 1);
             cartItem.setSeatId(seatId);
             cartItem.setSeatNumber(seatNumber);
@@ -77,8 +128,10 @@ public class CartServiceImpl implements CartService {
         }
 
         cartRepository.save(cart);
-        Cart updatedCart = findCartByUserOrThrow(user);
-        return mapCartToDTO(updatedCart);
+        if (startsCart) {
+            bookingFunnel.recordAfterCommit(BookingFunnel.Stage.ADD_TO_CART);
+        }
+        return writeThrough(user, cart);
     }
 
     @Override
@@ -97,6 +150,7 @@ public class CartServiceImpl implements CartService {
         log.info("Decreased quantity for flight ID {}. New quantity: {}", flight.getId(), itemToDecrease.getQuantity());
 
         if (itemToDecrease.getQuantity() <= 0) {
+            releaseSeatHold(user, itemToDecrease);
             boolean removed = cart.getCartItems().remove(itemToDecrease);
             cartItemRepository.delete(itemToDecrease);
             log.info("Quantity reached zero. Removed flight ID {} (removed={}) from cart for user {}.", flight.getId(), removed, user.getUsername());
@@ -105,8 +159,7 @@ public class CartServiceImpl implements CartService {
         }
 
         cartRepository.save(cart);
-        Cart updatedCart = findCartByUserOrThrow(user);
-        return mapCartToDTO(updatedCart);
+        return writeThrough(user, cart);
     }
 
     @Override
@@ -121,22 +174,135 @@ public class CartServiceImpl implements CartService {
                     return new EntityNotFoundException("Item not found in cart.");
                 });
 
+        releaseSeatHold(user, itemToRemove);
         boolean removed = cart.getCartItems().remove(itemToRemove);
         cartItemRepository.delete(itemToRemove);
         log.info("Removed flight ID {} entirely (removed={}) from cart for user {}.", flight.getId(), removed, user.getUsername());
 
         cartRepository.save(cart);
-        Cart updatedCart = findCartByUserOrThrow(user);
-        return mapCartToDTO(updatedCart);
+        return writeThrough(user, cart);
     }
 
 
+    @Override
+    public CartDTO applyOperations(User user, List<CartOperationDTO> operations) throws EntityNotFoundException {
+        Cart cart = findOrCreateCartByUser(user);
+        boolean wasEmpty = cart.getCartItems().isEmpty();
+        Map<Long, Flight> flights = loadFlights(operations);
+
+        Map<Long, CartItemModel> lines = new LinkedHashMap<>();
+        cart.getCartItems().stream()
+                .filter(item -> item.getFlight() != null)
+                .forEach(item -> lines.putIfAbsent(item.getFlight().getId(), item));
+        Set<HeldSeat> seatsTaken = heldSeats(lines.values());
+
+        // A failing operation rolls the whole batch back; holds taken so far are released on rollback
+        for (CartOperationDTO operation : operations) {
+            Long flightId = operation.getFlightId();
+            switch (operation.getOp()) {
+                case ADD -> {
+                    CartItemModel item = lines.get(flightId);
+                    if (item == null) {
+                        item = new CartItemModel();
+                        item.setFlight(flights.get(flightId));
+                        item.setQuantity(0);
+                        cart.addCartItem(item);
+                        lines.put(flightId, item);
+                    }
+                    item.setQuantity(item.getQuantity() + 1);
+                    applySeat(user, item, operation, seatsTaken);
+                    item.setBaggageType(operation.getBaggageType());
+                }
+                case SET_SEAT -> applySeat(user, lineOrThrow(lines, flightId, user), operation, seatsTaken);
+                case SET_BAGGAGE -> lineOrThrow(lines, flightId, user).setBaggageType(operation.getBaggageType());
+                case DECREASE -> {
+                    CartItemModel item = lineOrThrow(lines, flightId, user);
+                    item.setQuantity(item.getQuantity() - 1);
+                    if (item.getQuantity() <= 0) {
+                        lines.remove(flightId);
+                        cart.getCartItems().remove(item);
+                    }
+                }
+                case REMOVE -> {
+                    CartItemModel item = lineOrThrow(lines, flightId, user);
+                    lines.remove(flightId);
+                    cart.getCartItems().remove(item); // orphanRemoval deletes the row
+                }
+            }
+        }
+
+        cartRepository.save(cart);
+        if (wasEmpty && !cart.getCartItems().isEmpty()) {
+            bookingFunnel.recordAfterCommit(BookingFunnel.Stage.ADD_TO_CART);
+        }
+
+        // Seats held before or during the batch that no line wants any more
+        Set<HeldSeat> seatsAfter = heldSeats(lines.values());
+        seatsTaken.stream()
+                .filter(seat -> !seatsAfter.contains(seat))
+                .forEach(seat -> seatHoldService.release(user.getId(), seat.flightId(), seat.seatNumber()));
+
+        log.info("Applied {} cart operations for user {}", operations.size(), user.getUsername());
+        return writeThrough(user, cart);
+    }
+
+    @Override
+    public CartDTO mergeGuestCart(User user, List<FlightCartItemDTO> guestLines) {
+        Cart cart = findOrCreateCartByUser(user);
+        if (guestLines.isEmpty()) {
+            return writeThrough(user, cart);
+        }
+        Map<Long, Flight> flights = new HashMap<>();
+        flightRepository.findAllById(guestLines.stream().map(FlightCartItemDTO::getId).collect(Collectors.toSet()))
+                .forEach(flight -> flights.put(flight.getId(), flight));
+
+        Map<Long, CartItemModel> lines = new LinkedHashMap<>();
+        cart.getCartItems().stream()
+                .filter(item -> item.getFlight() != null)
+                .forEach(item -> lines.putIfAbsent(item.getFlight().getId(), item));
+        Set<HeldSeat> seatsTaken = heldSeats(lines.values());
+
+        for (FlightCartItemDTO guestLine : guestLines) {
+            Flight flight = flights.get(guestLine.getId());
+            if (flight == null) {
+                log.info("Dropping guest cart line for flight ID {} that no longer exists", guestLine.getId());
+                continue;
+            }
+            CartItemModel item = lines.get(flight.getId());
+            if (item == null) {
+                item = new CartItemModel();
+                item.setFlight(flight);
+                cart.addCartItem(item);
+                lines.put(flight.getId(), item);
+            }
+            // The guest's choices are the most recent ones, so they win over an older line for the same flight
+            item.setQuantity(item.getQuantity() + guestLine.getQuantity());
+            if (guestLine.getBaggageType() != null) {
+                item.setBaggageType(guestLine.getBaggageType());
+            }
+            mergeSeat(user, item, guestLine, seatsTaken);
+        }
+
+        // All new lines go out in one flush (cart item ids are pooled, so the inserts batch)
+        cartRepository.save(cart);
+
+        Set<HeldSeat> seatsAfter = heldSeats(lines.values());
+        seatsTaken.stream()
+                .filter(seat -> !seatsAfter.contains(seat))
+                .forEach(seat -> seatHoldService.release(user.getId(), seat.flightId(), seat.seatNumber()));
+
+        log.info("Merged {} guest cart lines into the cart of user {}", guestLines.size(), user.getUsername());
+        return writeThrough(user, cart);
+    }
+
     @Override
     public CartDTO clearCart(User user) {
         Cart cart = findCartByUserOrThrow(user);
 
         if (cart.getCartItems() != null && !cart.getCartItems().isEmpty()) {
             log.info("Clearing {} items from cart for user {}", cart.getCartItems().size(), user.getUsername());
+            // Seats just bought were handed over to their tickets; anything still held is released
+            cart.getCartItems().forEach(item -> releaseSeatHold(user, item));
             cartItemRepository.deleteAll(cart.getCartItems());
 
             cart.getCartItems().clear();
@@ -145,11 +311,105 @@ public class CartServiceImpl implements CartService {
         } else {
             log.info("Cart was already empty for user {}", user.getUsername());
         }
-        Cart updatedCart = findCartByUserOrThrow(user);
-        return mapCartToDTO(updatedCart);
+        return writeThrough(user, cart);
+    }
+
+
+
+    @Override
+    public void extendSeatHolds(User user) {
+        int extended = seatHoldService.extendForCheckout(user.getId());
+        log.info("Extended {} seat holds for user {} at checkout", extended, user.getUsername());
+    }
+
+    private Map<Long, Flight> loadFlights(List<CartOperationDTO> operations) {
+        Set<Long> flightIds = operations.stream()
+                .filter(operation -> operation.getOp() == CartOperationDTO.Op.ADD)
+                .map(CartOperationDTO::getFlightId)
+                .collect(Collectors.toSet());
+        if (flightIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Flight> flights = new HashMap<>();
+        flightRepository.findAllById(flightIds).forEach(flight -> flights.put(flight.getId(), flight));
+        for (Long flightId : flightIds) {
+            if (!flights.containsKey(flightId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight " + flightId + " not found");
+            }
+        }
+        return flights;
     }
 
+    private CartItemModel lineOrThrow(Map<Long, CartItemModel> lines, Long flightId, User user) {
+        CartItemModel item = lines.get(flightId);
+        if (item == null) {
+            log.warn("Cart operation for flight ID {} not found in cart for user {}", flightId, user.getUsername());
+            throw new EntityNotFoundException("Item not found in cart.");
+        }
+        return item;
+    }
 
+    // Guest seat choices were never held; one someone else took meanwhile is turned into seat selection at check-in
+    private void mergeSeat(User user, CartItemModel item, FlightCartItemDTO guestLine, Set<HeldSeat> seatsTaken) {
+        String seatNumber = guestLine.getSeatNumber();
+        boolean choosesSeat = seatNumber != null && !seatNumber.isBlank()
+                && !guestLine.isDeferSeatSelection() && !guestLine.isAllocateRandomSeat();
+        if (!choosesSeat && !guestLine.isDeferSeatSelection() && !guestLine.isAllocateRandomSeat()) {
+            return; // the guest made no seat choice; keep whatever the line already had
+        }
+        if (choosesSeat) {
+            try {
+                seatHoldService.hold(user.getId(), item.getFlight().getId(), seatNumber);
+                seatsTaken.add(HeldSeat.of(item.getFlight().getId(), seatNumber));
+            } catch (ResponseStatusException unavailable) {
+                log.info("Guest seat {} on flight ID {} is no longer available for user {}; deferring seat selection",
+                        seatNumber, item.getFlight().getId(), user.getUsername());
+                item.setSeatId(null);
+                item.setSeatNumber(null);
+                item.setSeatType(null);
+                item.setDeferSeatSelection(true);
+                item.setAllocateRandomSeat(false);
+                return;
+            }
+        }
+        item.setSeatId(guestLine.getSeatId());
+        item.setSeatNumber(seatNumber);
+        item.setSeatType(guestLine.getSeatType());
+        item.setDeferSeatSelection(guestLine.isDeferSeatSelection());
+        item.setAllocateRandomSeat(guestLine.isAllocateRandomSeat());
+    }
+
+    // Holds a newly chosen seat before recording it; the previous seat is released once the whole batch is applied
+    private void applySeat(User user, CartItemModel item, CartOperationDTO operation, Set<HeldSeat> seatsTaken) {
+        String seatNumber = operation.getSeatNumber();
+        boolean choosesSeat = seatNumber != null && !seatNumber.isBlank()
+                && !operation.isDeferSeatSelection() && !operation.isAllocateRandomSeat();
+        if (choosesSeat) {
+            seatHoldService.hold(user.getId(), item.getFlight().getId(), seatNumber);
+            seatsTaken.add(HeldSeat.of(item.getFlight().getId(), seatNumber));
+        }
+        item.setSeatId(operation.getSeatId());
+        item.setSeatNumber(seatNumber);
+        item.setSeatType(operation.getSeatType());
+        item.setDeferSeatSelection(operation.isDeferSeatSelection());
+        item.setAllocateRandomSeat(operation.isAllocateRandomSeat());
+    }
+
+    private static Set<HeldSeat> heldSeats(Iterable<CartItemModel> items) {
+        Set<HeldSeat> seats = new HashSet<>();
+        for (CartItemModel item : items) {
+            if (item.getSeatNumber() != null && !item.getSeatNumber().isBlank() && item.getFlight() != null) {
+                seats.add(HeldSeat.of(item.getFlight().getId(), item.getSeatNumber()));
+            }
+        }
+        return seats;
+    }
+
+    private void releaseSeatHold(User user, CartItemModel item) {
+        if (item.getSeatNumber() != null && !item.getSeatNumber().isBlank() && item.getFlight() != null) {
+            seatHoldService.release(user.getId(), item.getFlight().getId(), item.getSeatNumber());
+        }
+    }
 
     private Cart findOrCreateCartByUser(User user) {
         if (user == null || user.getId() == null) {
@@ -177,61 +437,38 @@ public class CartServiceImpl implements CartService {
                 });
     }
 
+    private CartDTO writeThrough(User user, Cart cart) {
+        CartDTO cartDTO = mapCartToDTO(cart);
+        cartCache.writeThrough(user.getId(), cartDTO);
+        return cartDTO;
+    }
+
+    // Mutations already hold the cart aggregate, so they map it in memory instead of querying again
     private CartDTO mapCartToDTO(Cart cart) {
-        CartDTO cartDTO = new CartDTO();
+        if (cart.getCartItems() == null) {
+            return CartDTO.of(Collections.emptyList());
+        }
+        return CartDTO.of(cart.getCartItems().stream()
+                .map(cartItemModel -> {
+                    if (cartItemModel == null || cartItemModel.getFlight() == null) {
+                        log.warn("Skipping null CartItemModel or CartItemModel with null Flight during mapping.");
+                        return null;
+                    }
+                    Flight flight = cartItemModel.getFlight();
+                    return new FlightCartItemDTO(flight.getId(), flight.getName(), flight.getOrigin(), flight.getDestination(),
+                            flight.getDepartureDate(), flight.getDepartureTime(), flight.getArrivalDate(), flight.getArrivalTime(),
+                            flight.getPrice(), cartItemModel.getQuantity(), cartItemModel.getSeatId(),
+                            cartItemModel.isDeferSeatSelection(), cartItemModel.isAllocateRandomSeat(),
+                            cartItemModel.getSeatNumber(), cartItemModel.getSeatType(), cartItemModel.getBaggageType());
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
 
-        if (cart.getCartItems() == null || cart.getCartItems().isEmpty()) {
-            cartDTO.setItems(Collections.emptyList());
-            cartDTO.setTotalQuantity(0);
-            cartDTO.setTotalPrice(0.0);
-        } else {
-            cartDTO.setItems(cart.getCartItems().stream()
-                    .map(cartItemModel -> {
-                        if (cartItemModel == null || cartItemModel.getFlight() == null) {
-                            log.warn("Skipping null CartItemModel or CartItemModel with null Flight during mapping.");
-                            return null;
-                        }
-                        Flight flight = cartItemModel.getFlight();
-                        FlightCartItemDTO dto = new FlightCartItemDTO();
-
-                        dto.setId(flight.getId());
-                        dto.setFlightName(flight.getName());
-                        dto.setOrigin(flight.getOrigin());
-                        dto.setDestination(flight.getDestination());
-                        dto.setDepartureDate(flight.getDepartureDate());
-                        dto.setDepartureTime(flight.getDepartureTime());
-                        dto.setArrivalDate(flight.getArrivalDate());
-                        dto.setArrivalTime(flight.getArrivalTime());
-                        dto.setPrice(flight.getPrice());
-
-                        dto.setQuantity(cartItemModel.getQuantity());
-                        dto.setSeatId(cartItemModel.getSeatId());
-                        dto.setSeatNumber(cartItemModel.getSeatNumber());
-                        dto.setSeatType(cartItemModel.getSeatType());
-                        dto.setDeferSeatSelection(cartItemModel.isDeferSeatSelection());
-                        dto.setAllocateRandomSeat(cartItemModel.isAllocateRandomSeat());
-                        dto.setBaggageType(cartItemModel.getBaggageType());
-
-                        dto.setCode(flight.getName());
-
-                        return dto;
-                    })
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList()));
-
-            int totalQuantity = cart.getCartItems().stream()
-                    .mapToInt(CartItemModel::getQuantity)
-                    .sum();
-            cartDTO.setTotalQuantity(totalQuantity);
-
-            BigDecimal totalPrice = cart.getCartItems().stream()
-                    .filter(item -> item != null && item.getFlight() != null && item.getFlight().getPrice() != null && item.getQuantity() > 0)
-                    .map(item -> item.getFlight().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            cartDTO.setTotalPrice(totalPrice.doubleValue());
+    private record HeldSeat(Long flightId, String seatNumber) {
 
+        static HeldSeat of(Long flightId, String seatNumber) {
+            return new HeldSeat(flightId, SeatMapService.normalize(seatNumber));
         }
-        return cartDTO;
     }
 }
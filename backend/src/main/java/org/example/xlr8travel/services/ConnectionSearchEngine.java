@@ -0,0 +1,304 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.xlr8travel.cache.BoundedCache;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.dto.ItineraryDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Finds direct, 1-stop and 2-stop itineraries between two airports.
+ * <p>
+ * Flights departing in a short date window are loaded into a time-expanded graph: for every
+ * airport, its departures sorted by departure time. A depth-first search follows a leg, then
+ * only considers departures from the arrival airport inside the [min, max] connection window
+ * (found by binary search). Each examined leg costs one unit of a fixed search budget, so the
+ * work per request stays bounded no matter how large the flight table grows.
+ */
+@Component
+public class ConnectionSearchEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionSearchEngine.class);
+
+    static final int MAX_STOPS = 2;
+
+    // Itineraries may arrive up to two days after the first departure (overnight connections)
+    private static final int GRAPH_WINDOW_DAYS = 2;
+
+    private static final Comparator<ItineraryDTO> BY_DURATION_THEN_PRICE = Comparator
+            .comparingLong(ItineraryDTO::getTotalDurationMinutes)
+            .thenComparing(ItineraryDTO::getTotalPrice);
+
+    private final FlightRepository flightRepository;
+    private final Duration minConnection;
+    private final Duration maxConnection;
+    private final int searchBudget;
+    private final int maxResults;
+
+    // Graphs keyed by the first day of their window; dropped whenever a flight changes
+    private final BoundedCache<LocalDate, ConnectionGraph> graphs;
+    // Bumped with every drop, so a graph built from flights read before a change is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Timer searchTimer;
+    private final Counter truncatedSearches;
+
+    public ConnectionSearchEngine(FlightRepository flightRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${flights.connections.min-connection:45m}") Duration minConnection,
+                                  @Value("${flights.connections.max-connection:6h}") Duration maxConnection,
+                                  @Value("${flights.connections.search-budget:20000}") int searchBudget,
+                                  @Value("${flights.connections.max-results:20}") int maxResults) {
+        if (minConnection.compareTo(maxConnection) > 0) {
+            throw new IllegalArgumentException("Minimum connection time must not exceed the maximum connection time");
+        }
+        this.flightRepository = flightRepository;
+        this.minConnection = minConnection;
+        this.maxConnection = maxConnection;
+        this.searchBudget = searchBudget;
+        this.maxResults = maxResults;
+        this.graphs = new BoundedCache<>("flights.connection-graph", 31, Duration.ofMinutes(10), meterRegistry);
+        this.searchTimer = Timer.builder("flight.connections.search")
+                .description("Time taken to answer a connection search")
+                .register(meterRegistry);
+        this.truncatedSearches = Counter.builder("flight.connections.search.truncated")
+                .description("Connection searches that stopped because the search budget ran out")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param maxStops 0 for direct flights only, up to {@value #MAX_STOPS}
+     * @return itineraries departing on the given date, shortest total duration first, then cheapest
+     */
+    public List<ItineraryDTO> search(String origin, String destination, LocalDate departureDate, int maxStops) {
+        if (origin == null || destination == null || departureDate == null) {
+            throw new IllegalArgumentException("Origin, destination and departure date are required");
+        }
+        if (maxStops < 0 || maxStops > MAX_STOPS) {
+            throw new IllegalArgumentException("maxStops must be between 0 and " + MAX_STOPS);
+        }
+        String from = normalize(origin);
+        String to = normalize(destination);
+        if (from.equals(to)) {
+            return List.of();
+        }
+
+        return searchTimer.record(() -> {
+            ConnectionGraph graph = graphFor(departureDate);
+            SearchState state = new SearchState(searchBudget);
+            Deque<Leg> path = new ArrayDeque<>();
+
+            for (Leg first : graph.departuresOn(from, departureDate)) {
+                if (!state.spend()) {
+                    break;
+                }
+                path.addLast(first);
+                extend(graph, path, to, maxStops, state);
+                path.removeLast();
+            }
+
+            if (state.exhausted) {
+                truncatedSearches.increment();
+                log.warn("Connection search {} -> {} on {} hit the search budget of {} legs; returning partial results",
+                        from, to, departureDate, searchBudget);
+            }
+            return state.itineraries.stream()
+                    .sorted(BY_DURATION_THEN_PRICE)
+                    .limit(maxResults)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    @Order(FlightChangedEvent.READ_MODEL_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onFlightChanged(FlightChangedEvent event) {
+        generation.incrementAndGet();
+        graphs.invalidateAll();
+    }
+
+    private void extend(ConnectionGraph graph, Deque<Leg> path, String destination, int stopsLeft, SearchState state) {
+        Leg last = path.peekLast();
+        if (last.to().equals(destination)) {
+            state.itineraries.add(toItinerary(path));
+            return;
+        }
+        if (stopsLeft == 0) {
+            return;
+        }
+        LocalDateTime earliest = last.arrival().plus(minConnection);
+        LocalDateTime latest = last.arrival().plus(maxConnection);
+        for (Leg next : graph.departuresBetween(last.to(), earliest, latest)) {
+            if (!state.spend()) {
+                return;
+            }
+            if (visits(path, next.to())) {
+                continue; // never loop back through an airport already on the path
+            }
+            path.addLast(next);
+            extend(graph, path, destination, stopsLeft - 1, state);
+            path.removeLast();
+        }
+    }
+
+    private static boolean visits(Deque<Leg> path, String airport) {
+        for (Leg leg : path) {
+            if (leg.from().equals(airport)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ItineraryDTO toItinerary(Deque<Leg> path) {
+        List<FlightDTO> legs = new ArrayList<>(path.size());
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        for (Leg leg : path) {
+            legs.add(leg.flight());
+            if (leg.flight().getPrice() != null) {
+                totalPrice = totalPrice.add(leg.flight().getPrice());
+            }
+        }
+        LocalDateTime departure = path.peekFirst().departure();
+        LocalDateTime arrival = path.peekLast().arrival();
+        return new ItineraryDTO(Collections.unmodifiableList(legs), legs.size() - 1, departure, arrival,
+                Duration.between(departure, arrival).toMinutes(), totalPrice);
+    }
+
+    private ConnectionGraph graphFor(LocalDate departureDate) {
+        Optional<ConnectionGraph> cached = graphs.get(departureDate);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long builtFor = generation.get();
+        List<FlightDTO> flights = flightRepository.findFlightDTOsDepartingBetween(
+                departureDate, departureDate.plusDays(GRAPH_WINDOW_DAYS));
+        ConnectionGraph graph = ConnectionGraph.build(flights);
+        cacheIfCurrent(departureDate, builtFor, graph);
+        log.debug("Built connection graph for {}: {} legs", departureDate, flights.size());
+        return graph;
+    }
+
+    // A stale graph still answers the request that built it; it just is not kept for the next one
+    private synchronized void cacheIfCurrent(LocalDate departureDate, long builtFor, ConnectionGraph graph) {
+        if (generation.get() == builtFor) {
+            graphs.put(departureDate, graph);
+        }
+    }
+
+    private static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private record Leg(FlightDTO flight, String from, String to, LocalDateTime departure, LocalDateTime arrival) {
+
+        static Leg of(FlightDTO flight) {
+            if (flight.getOrigin() == null || flight.getDestination() == null
+                    || flight.getDepartureDate() == null || flight.getDepartureTime() == null
+                    || flight.getArrivalDate() == null || flight.getArrivalTime() == null) {
+                return null;
+            }
+            LocalDateTime departure = LocalDateTime.of(flight.getDepartureDate(), flight.getDepartureTime());
+            LocalDateTime arrival = LocalDateTime.of(flight.getArrivalDate(), flight.getArrivalTime());
+            if (arrival.isBefore(departure)) {
+                return null;
+            }
+            return new Leg(flight, normalize(flight.getOrigin()), normalize(flight.getDestination()), departure, arrival);
+        }
+    }
+
+    /**
+     * Departures per airport, sorted by departure time. Immutable once built.
+     */
+    static final class ConnectionGraph {
+
+        private final Map<String, List<Leg>> departuresByAirport;
+
+        private ConnectionGraph(Map<String, List<Leg>> departuresByAirport) {
+            this.departuresByAirport = departuresByAirport;
+        }
+
+        static ConnectionGraph build(List<FlightDTO> flights) {
+            Map<String, List<Leg>> byAirport = new HashMap<>();
+            for (FlightDTO flight : flights) {
+                Leg leg = Leg.of(flight);
+                if (leg != null) {
+                    byAirport.computeIfAbsent(leg.from(), k -> new ArrayList<>()).add(leg);
+                }
+            }
+            byAirport.values().forEach(legs -> legs.sort(Comparator.comparing(Leg::departure)));
+            return new ConnectionGraph(byAirport);
+        }
+
+        List<Leg> departuresOn(String airport, LocalDate date) {
+            return departuresBetween(airport, date.atStartOfDay(), date.atTime(23, 59, 59, 999_999_999));
+        }
+
+        // Inclusive range; binary search for the first departure at or after 'from'
+        List<Leg> departuresBetween(String airport, LocalDateTime from, LocalDateTime to) {
+            List<Leg> legs = departuresByAirport.get(airport);
+            if (legs == null) {
+                return List.of();
+            }
+            int low = 0;
+            int high = legs.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (legs.get(mid).departure().isBefore(from)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            int end = low;
+            while (end < legs.size() && !legs.get(end).departure().isAfter(to)) {
+                end++;
+            }
+            return legs.subList(low, end);
+        }
+    }
+
+    private static final class SearchState {
+        private final List<ItineraryDTO> itineraries = new ArrayList<>();
+        private int remaining;
+        private boolean exhausted;
+
+        SearchState(int budget) {
+            this.remaining = budget;
+        }
+
+        boolean spend() {
+            if (remaining <= 0) {
+                exhausted = true;
+                return false;
+            }
+            remaining--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.xlr8travel.models.Order;
+import org.example.xlr8travel.models.OutboxEmail;
+import org.example.xlr8travel.models.OutboxEmailStatus;
+import org.example.xlr8travel.models.User;
+import org.example.xlr8travel.repositories.OutboxEmailRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox for outgoing email.
+ * <p>
+ * Callers queue an email as an {@link OutboxEmail} row inside their own transaction, so the request never
+ * waits on SMTP while holding a connection and locks. A background dispatcher sends due rows after commit,
+ * and retries failures with exponential backoff until {@code email.outbox.max-attempts} is reached.
+ * <p>
+ * Each attempt first leases the row (see {@link OutboxEmailRepository#claim}), so several instances can
+ * dispatch the same table. Delivery is at-least-once: if an instance dies between sending and recording
+ * the send, the lease runs out and the email goes out again.
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    // Emails sent per dispatcher pass
+    static final int BATCH_SIZE = 20;
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final EmailService emailService;
+    private final Duration pollInterval;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final Duration sendLease;
+    private final Clock clock;
+
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Timer sendTimer;
+    private final AtomicLong pending = new AtomicLong();
+
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "email-outbox-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public EmailOutboxService(OutboxEmailRepository outboxEmailRepository,
+                              EmailService emailService,
+                              MeterRegistry meterRegistry,
+                              @Value("${email.outbox.poll-interval:5s}") Duration pollInterval,
+                              @Value("${email.outbox.max-attempts:8}") int maxAttempts,
+                              @Value("${email.outbox.backoff:30s}") Duration backoff,
+                              @Value("${email.outbox.max-backoff:1h}") Duration maxBackoff,
+                              @Value("${email.outbox.send-lease:2m}") Duration sendLease) {
+        this(outboxEmailRepository, emailService, meterRegistry, pollInterval, maxAttempts, backoff, maxBackoff,
+                sendLease, Clock.systemUTC());
+    }
+
+    EmailOutboxService(OutboxEmailRepository outboxEmailRepository, EmailService emailService,
+                       MeterRegistry meterRegistry, Duration pollInterval, int maxAttempts, Duration backoff,
+                       Duration maxBackoff, Duration sendLease, Clock clock) {
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.emailService = emailService;
+        this.pollInterval = pollInterval;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+        this.sendLease = sendLease;
+        this.clock = clock;
+        this.sentCounter = Counter.builder("email.outbox.sent")
+                .description("Outbox emails delivered to the mail server")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("email.outbox.retried")
+                .description("Failed outbox email attempts scheduled for a retry")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("email.outbox.failed")
+                .description("Outbox emails given up on after the last attempt")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("email.outbox.send")
+                .description("Time spent handing one outbox email to the mail server")
+                .register(meterRegistry);
+        Gauge.builder("email.outbox.pending", pending, AtomicLong::get)
+                .description("Outbox emails waiting to be sent, as of the last dispatcher pass")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long millis = pollInterval.toMillis();
+        dispatcher.scheduleWithFixedDelay(this::dispatchQuietly, 0, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the purchase confirmation for the order in the caller's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEmail enqueuePurchaseConfirmation(Order order, User user, String currencySymbol) {
+        return enqueue(emailService.composePurchaseConfirmationEmail(order, user, currencySymbol));
+    }
+
+    /**
+     * Queues an email in the caller's transaction. It is sent only if that transaction commits; the
+     * dispatcher is woken up right after the commit instead of waiting for its next poll.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEmail enqueue(OutboxEmail email) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        email.setStatus(OutboxEmailStatus.OUTBOX_EMAIL_STATUS_PENDING);
+        email.setCreatedAt(now);
+        email.setNextAttemptAt(now);
+        OutboxEmail saved = outboxEmailRepository.save(email);
+        log.debug("Queued email '{}' to {}", email.getSubject(), email.getRecipient());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.execute(EmailOutboxService.this::dispatchQuietly);
+                }
+            });
+        }
+        return saved;
+    }
+
+    /**
+     * Sends one batch of due emails. Runs on the dispatcher thread; must not be called inside a transaction,
+     * so that no connection is held across the SMTP calls.
+     *
+     * @return the number of emails sent
+     */
+    public int dispatch() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<OutboxEmail> due = outboxEmailRepository.findDue(OutboxEmailStatus.OUTBOX_EMAIL_STATUS_PENDING, now,
+                PageRequest.of(0, BATCH_SIZE));
+
+        int sent = 0;
+        for (OutboxEmail email : due) {
+            if (outboxEmailRepository.claim(email.getId(), OutboxEmailStatus.OUTBOX_EMAIL_STATUS_PENDING,
+                    email.getAttempts(), now.plus(sendLease)) == 0) {
+                continue; // another dispatcher took this attempt
+            }
+            int attempt = email.getAttempts() + 1;
+            try {
+                sendTimer.recordCallable(() -> {
+                    emailService.sendHtmlEmail(email.getRecipient(), email.getSubject(), email.getBody());
+                    return null;
+                });
+                outboxEmailRepository.markSent(email.getId(), OutboxEmailStatus.OUTBOX_EMAIL_STATUS_SENT,
+                        LocalDateTime.now(clock));
+                sentCounter.increment();
+                sent++;
+            } catch (Exception e) {
+                recordFailure(email, attempt, e);
+            }
+        }
+
+        pending.set(outboxEmailRepository.countByStatus(OutboxEmailStatus.OUTBOX_EMAIL_STATUS_PENDING));
+        if (sent > 0) {
+            log.info("Sent {} queued email(s)", sent);
+        }
+        return sent;
+    }
+
+    private void dispatchQuietly() {
+        try {
+            dispatch();
+        } catch (RuntimeException e) {
+            log.error("Email outbox dispatch failed", e);
+        }
+    }
+
+    private void recordFailure(OutboxEmail email, int attempt, Exception e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        if (attempt >= maxAttempts) {
+            outboxEmailRepository.markAttemptFailed(email.getId(), OutboxEmailStatus.OUTBOX_EMAIL_STATUS_FAILED, null, error);
+            failedCounter.increment();
+            log.error("Giving up on email {} to {} after {} attempts: {}", email.getId(), email.getRecipient(), attempt, error);
+            return;
+        }
+        Duration delay = backoffAfter(attempt);
+        outboxEmailRepository.markAttemptFailed(email.getId(), OutboxEmailStatus.OUTBOX_EMAIL_STATUS_PENDING,
+                LocalDateTime.now(clock).plus(delay), error);
+        retriedCounter.increment();
+        log.warn("Sending email {} failed (attempt {}/{}), retrying in {}: {}", email.getId(), attempt, maxAttempts, delay, error);
+    }
+
+    // backoff, 2 x backoff, 4 x backoff, ... capped at max-backoff
+    Duration backoffAfter(int attempt) {
+        Duration delay = backoff.multipliedBy(1L << Math.min(attempt - 1, 30));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
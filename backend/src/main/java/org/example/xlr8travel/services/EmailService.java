@@ -1,6 +1,8 @@
 package org.example.xlr8travel.services;
 
+import jakarta.mail.MessagingException;
 import org.example.xlr8travel.models.Order;
+import org.example.xlr8travel.models.OutboxEmail;
 import org.example.xlr8travel.models.User;
 
 /**
@@ -18,6 +20,27 @@ public interface EmailService {
      */
     boolean sendPurchaseConfirmationEmail(Order order, User user, String currencySymbol);
 
+    /**
+     * Builds the purchase confirmation email without sending it, e.g. to queue it in the outbox.
+     *
+     * @param order The order containing purchase details
+     * @param user The user who made the purchase
+     * @param currencySymbol The currency symbol to use in the email (e.g., "$", "€", "£")
+     * @return An unsaved outbox email holding the recipient, subject and HTML body
+     */
+    OutboxEmail composePurchaseConfirmationEmail(Order order, User user, String currencySymbol);
+
+    /**
+     * Sends an HTML email. Unlike the other send methods it reports failures by throwing, so callers can retry.
+     *
+     * @param to Recipient email address
+     * @param subject Email subject
+     * @param html Email body as HTML
+     * @throws MessagingException if the message cannot be built
+     * @throws org.springframework.mail.MailException if the mail server cannot be reached or rejects the message
+     */
+    void sendHtmlEmail(String to, String subject, String html) throws MessagingException;
+
     /**
      * Sends a simple text email.
      *
@@ -0,0 +1,224 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.xlr8travel.dto.FlightCursor;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of the flight catalog keyed by (origin, destination, departureDate).
+ * Holds ready-made FlightDTOs so route searches are answered without touching the database.
+ * The index is loaded once the application is ready and then kept up to date from
+ * FlightChangedEvents published by FlightService after each commit.
+ */
+@Component
+public class FlightCatalogIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightCatalogIndex.class);
+
+    // Same order as the keyset queries, so cursors work across the index and the database
+    private static final Comparator<FlightDTO> BY_DEPARTURE = FlightCursor.DEPARTURE_ORDER;
+
+    private final FlightRepository flightRepository;
+
+    // Both maps are swapped together on rebuild; individual updates go through the write lock
+    private volatile Map<RouteDateKey, List<FlightDTO>> flightsByRouteAndDate = new ConcurrentHashMap<>();
+    private volatile Map<Long, FlightDTO> flightsById = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+
+    private final Object writeLock = new Object();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer rebuildTimer;
+
+    public FlightCatalogIndex(FlightRepository flightRepository, MeterRegistry meterRegistry) {
+        this.flightRepository = flightRepository;
+        this.hits = Counter.builder("flight.catalog.index.lookups")
+                .tag("result", "hit")
+                .description("Route searches answered from the in-memory catalog index")
+                .register(meterRegistry);
+        this.misses = Counter.builder("flight.catalog.index.lookups")
+                .tag("result", "miss")
+                .description("Route searches with no indexed flights or issued before the index was ready")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("flight.catalog.index.rebuild")
+                .description("Time taken to rebuild the catalog index from the database")
+                .register(meterRegistry);
+        Gauge.builder("flight.catalog.index.flights", this, FlightCatalogIndex::size)
+                .description("Number of flights held in the catalog index")
+                .register(meterRegistry);
+        Gauge.builder("flight.catalog.index.routes", this, index -> index.flightsByRouteAndDate.size())
+                .description("Number of (origin, destination, date) keys held in the catalog index")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Reloads the whole index from the database using a DTO projection.
+     */
+    public void rebuild() {
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+            List<FlightDTO> flights = flightRepository.findAllFlightDTOs();
+
+            Map<RouteDateKey, List<FlightDTO>> byRoute = new ConcurrentHashMap<>();
+            Map<Long, FlightDTO> byId = new ConcurrentHashMap<>();
+            Map<RouteDateKey, List<FlightDTO>> grouped = new HashMap<>();
+            for (FlightDTO flight : flights) {
+                RouteDateKey key = RouteDateKey.of(flight);
+                if (key == null || flight.getId() == null) {
+                    continue;
+                }
+                grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(flight);
+                byId.put(flight.getId(), flight);
+            }
+            grouped.forEach((key, list) -> {
+                list.sort(BY_DEPARTURE);
+                byRoute.put(key, Collections.unmodifiableList(list));
+            });
+
+            this.flightsByRouteAndDate = byRoute;
+            this.flightsById = byId;
+            this.ready = true;
+
+            long elapsed = System.nanoTime() - start;
+            rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("Flight catalog index rebuilt: {} flights across {} route/date keys in {} ms",
+                    byId.size(), byRoute.size(), elapsed / 1_000_000);
+        }
+    }
+
+    /**
+     * Looks up flights for a route on a given departure date.
+     *
+     * @return the indexed flights (possibly empty), or Optional.empty() if the index is not loaded yet
+     *         and the caller should fall back to the database
+     */
+    public Optional<List<FlightDTO>> lookup(String origin, String destination, LocalDate departureDate) {
+        if (!ready) {
+            misses.increment();
+            return Optional.empty();
+        }
+        List<FlightDTO> flights = flightsByRouteAndDate.get(RouteDateKey.of(origin, destination, departureDate));
+        if (flights == null) {
+            misses.increment();
+            return Optional.of(List.of());
+        }
+        hits.increment();
+        return Optional.of(flights);
+    }
+
+    public Optional<FlightDTO> findById(Long flightId) {
+        return Optional.ofNullable(flightsById.get(flightId));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return flightsById.size();
+    }
+
+    @Order(FlightChangedEvent.READ_MODEL_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlightChanged(FlightChangedEvent event) {
+        if (event.isDeletion()) {
+            remove(event.getFlightId());
+        } else {
+            upsert(event.getCurrent());
+        }
+    }
+
+    void upsert(FlightDTO flight) {
+        if (flight == null || flight.getId() == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            removeFromRouteIndex(flightsById.get(flight.getId()));
+            RouteDateKey key = RouteDateKey.of(flight);
+            if (key != null) {
+                flightsByRouteAndDate.compute(key, (k, existing) -> {
+                    List<FlightDTO> updated = existing == null ? new ArrayList<>() : new ArrayList<>(existing);
+                    updated.add(flight);
+                    updated.sort(BY_DEPARTURE);
+                    return Collections.unmodifiableList(updated);
+                });
+            }
+            flightsById.put(flight.getId(), flight);
+        }
+        log.debug("Catalog index updated for flight {}", flight.getId());
+    }
+
+    void remove(Long flightId) {
+        if (flightId == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            removeFromRouteIndex(flightsById.remove(flightId));
+        }
+        log.debug("Flight {} removed from catalog index", flightId);
+    }
+
+    private void removeFromRouteIndex(FlightDTO previous) {
+        if (previous == null) {
+            return;
+        }
+        RouteDateKey key = RouteDateKey.of(previous);
+        if (key == null) {
+            return;
+        }
+        flightsByRouteAndDate.computeIfPresent(key, (k, existing) -> {
+            List<FlightDTO> updated = new ArrayList<>(existing);
+            updated.removeIf(f -> previous.getId().equals(f.getId()));
+            return updated.isEmpty() ? null : Collections.unmodifiableList(updated);
+        });
+    }
+
+    // Airport codes are matched case-insensitively, like the default MySQL collation does
+    private record RouteDateKey(String origin, String destination, LocalDate departureDate) {
+
+        static RouteDateKey of(String origin, String destination, LocalDate departureDate) {
+            return new RouteDateKey(normalize(origin), normalize(destination), departureDate);
+        }
+
+        static RouteDateKey of(FlightDTO flight) {
+            if (flight.getOrigin() == null || flight.getDestination() == null || flight.getDepartureDate() == null) {
+                return null;
+            }
+            return of(flight.getOrigin(), flight.getDestination(), flight.getDepartureDate());
+        }
+
+        private static String normalize(String code) {
+            return code == null ? null : code.trim().toUpperCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.xlr8travel.services;
+
+import org.example.xlr8travel.events.FlightChangedEvent;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Monotonic version of the flight catalog, bumped after every committed flight insert, update or delete.
+ * Public flight GET endpoints derive their ETags from it, so a conditional request can be answered
+ * with 304 before any lookup or serialization happens.
+ */
+@Component
+public class FlightCatalogVersion {
+
+    // Seeded from the clock so ETags issued before a restart (and the DataLoader re-seed) never match after it
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Strong ETag for a response built from the current catalog and the given request parameters.
+     */
+    public String eTagFor(Object... parameters) {
+        CRC32 crc = new CRC32();
+        for (Object parameter : parameters) {
+            crc.update(Objects.toString(parameter, "").getBytes(StandardCharsets.UTF_8));
+            crc.update('|');
+        }
+        return "\"" + Long.toHexString(current()) + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    /**
+     * Invalidates every ETag issued so far. Read models that refresh asynchronously call this
+     * once their new data is visible.
+     */
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    @Order(FlightChangedEvent.CATALOG_VERSION_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlightChanged(FlightChangedEvent event) {
+        bump();
+    }
+}
@@ -1,5 +1,10 @@
 package org.example.xlr8travel.services;
 
+import org.example.xlr8travel.dto.FareCalendarDayDTO;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.dto.FlightPageDTO;
+import org.example.xlr8travel.dto.ItineraryDTO;
+import org.example.xlr8travel.dto.RoundTripSearchDTO;
 import org.example.xlr8travel.models.Flight;
 
 import java.time.LocalDate;
@@ -27,6 +32,58 @@ public interface FlightService {
     // Method for finding flights by origin for nearby flights feature
     List<Flight> findByOriginAndDepartureDateAfter(String origin, LocalDate departureDate);
 
+    /**
+     * Up to six upcoming flights from the origin departing after the given date, spread across as many
+     * destination countries as possible.
+     */
+    List<FlightDTO> findNearbyFlights(String origin, LocalDate afterDate);
+
+    /**
+     * Route search served from the in-memory catalog index (falls back to the database until the index is loaded).
+     *
+     * @param arrivalDate optional; when given only flights arriving on that date are returned
+     */
+    List<FlightDTO> searchFlights(String origin, String destination, LocalDate departureDate, LocalDate arrivalDate);
+
+    /**
+     * Round-trip search: outbound (origin -> destination on departureDate) and inbound
+     * (destination -> origin on returnDate) legs, looked up concurrently and returned together.
+     *
+     * @throws IllegalArgumentException if returnDate is before departureDate
+     */
+    RoundTripSearchDTO searchRoundTrip(String origin, String destination, LocalDate departureDate, LocalDate returnDate);
+
+    /**
+     * One page of a route search, ordered by departure time.
+     *
+     * @param cursor opaque token from a previous page's nextCursor, or null for the first page
+     * @param limit  requested page size (clamped to the service maximum)
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    FlightPageDTO searchFlightPage(String origin, String destination, LocalDate departureDate, String cursor, int limit);
+
+    /**
+     * One page of the whole flight catalog, ordered by (departureDate, departureTime, id).
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    FlightPageDTO findFlightPage(String cursor, int limit);
+
+    /**
+     * Cheapest fare and number of flights for every day in [fromDate, toDate] on a route.
+     * Days without flights are included with a null price and a zero count.
+     *
+     * @throws IllegalArgumentException if the window is inverted or longer than the service maximum
+     */
+    List<FareCalendarDayDTO> getFareCalendar(String origin, String destination, LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Direct and connecting itineraries (up to maxStops stops), shortest total duration first, then cheapest.
+     *
+     * @throws IllegalArgumentException if maxStops is outside 0..2
+     */
+    List<ItineraryDTO> searchConnections(String origin, String destination, LocalDate departureDate, int maxStops);
+
     // Optional: Add existsById if used in implementation
     // boolean existsById(Long id);
 }
@@ -2,25 +2,64 @@ package org.example.xlr8travel.services;
 
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.example.xlr8travel.cache.FareCalendarCache;
+import org.example.xlr8travel.dto.FareCalendarDayDTO;
+import org.example.xlr8travel.dto.FlightCursor;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.dto.FlightPageDTO;
+import org.example.xlr8travel.dto.ItineraryDTO;
+import org.example.xlr8travel.dto.RoundTripSearchDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
 import org.example.xlr8travel.models.Flight;
 import org.example.xlr8travel.repositories.FlightRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class FlightServiceImpl implements FlightService {
 
+    static final int MAX_PAGE_SIZE = 100;
+    static final int MAX_CALENDAR_DAYS = 62;
+
     private final FlightRepository flightRepository;
+    private final FlightCatalogIndex flightCatalogIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FareCalendarCache fareCalendarCache;
+    private final ConnectionSearchEngine connectionSearchEngine;
+    private final Executor flightSearchExecutor;
+    private final NearbyDestinationIndex nearbyDestinationIndex;
+    private final SeatLayoutService seatLayoutService;
 
     @Override
     @Transactional
     public Flight save(Flight flight) {
-        return flightRepository.save(flight);
+        FlightDTO previous = flight.getId() != null ? snapshotOf(flight.getId()) : null;
+        if (flight.getId() == null && flight.getAircraft() != null && flight.getAircraft().getId() != null) {
+            // Inventory of a new flight follows its aircraft's cabin instead of the 180-seat default
+            int seats = seatLayoutService.layoutForAircraft(flight.getAircraft().getId()).bookableSeats();
+            flight.setTotalSeats(seats);
+            flight.setAvailableSeats(seats);
+        }
+        Flight savedFlight = flightRepository.save(flight);
+        publishChange(savedFlight.getId(), previous, FlightDTO.fromFlight(savedFlight));
+        return savedFlight;
     }
 
     @Override
@@ -42,6 +81,7 @@ public class FlightServiceImpl implements FlightService {
     public Flight updateFlightById(Long id, Flight flightDetails) {
         Flight existingFlight = flightRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Flight not found with ID: " + id + " - cannot update"));
+        FlightDTO previous = FlightDTO.fromFlight(existingFlight);
 
         // Update fields (ensure these match your Flight entity setters)
         existingFlight.setName(flightDetails.getName());
@@ -56,7 +96,9 @@ public class FlightServiceImpl implements FlightService {
         existingFlight.setPrice(flightDetails.getPrice());
         // Don't usually update lastUpdated manually here if it's handled by JPA/DB
 
-        return flightRepository.save(existingFlight);
+        Flight updatedFlight = flightRepository.save(existingFlight);
+        publishChange(id, previous, FlightDTO.fromFlight(updatedFlight));
+        return updatedFlight;
     }
 
 
@@ -66,7 +108,9 @@ public class FlightServiceImpl implements FlightService {
         if (!flightRepository.existsById(flightId)) { // Use existsById check
             throw new EntityNotFoundException("Flight not found with ID: " + flightId + " - cannot delete");
         }
+        FlightDTO previous = snapshotOf(flightId);
         flightRepository.deleteById(flightId);
+        publishChange(flightId, previous, null);
     }
 
     // Implementation for existing round-trip search
@@ -93,6 +137,180 @@ public class FlightServiceImpl implements FlightService {
         return flightRepository.findByOriginAndDepartureDateAfter(origin, departureDate);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<FlightDTO> findNearbyFlights(String origin, LocalDate afterDate) {
+        Optional<List<FlightDTO>> precomputed = nearbyDestinationIndex.lookup(origin, afterDate);
+        if (precomputed.isPresent()) {
+            return precomputed.get();
+        }
+        // Table not built yet (startup) - rank the origin's flights directly
+        List<FlightDTO> flights = flightRepository.findByOriginAndDepartureDateAfter(origin, afterDate).stream()
+                .map(FlightDTO::fromFlight)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return nearbyDestinationIndex.rank(flights, afterDate);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<FlightDTO> searchFlights(String origin, String destination, LocalDate departureDate, LocalDate arrivalDate) {
+        Optional<List<FlightDTO>> indexed = flightCatalogIndex.lookup(origin, destination, departureDate);
+        if (indexed.isPresent()) {
+            if (arrivalDate == null) {
+                return indexed.get();
+            }
+            return indexed.get().stream()
+                    .filter(flight -> arrivalDate.equals(flight.getArrivalDate()))
+                    .collect(Collectors.toList());
+        }
+
+        // Index not loaded yet (e.g. during startup) - answer from the database
+        List<Flight> flights = arrivalDate != null
+                ? flightRepository.findByOriginAndDestinationAndArrivalDateAndDepartureDate(origin, destination, arrivalDate, departureDate)
+                : flightRepository.findByOriginAndDestinationAndDepartureDate(origin, destination, departureDate);
+        return flights.stream()
+                .map(FlightDTO::fromFlight)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public RoundTripSearchDTO searchRoundTrip(String origin, String destination, LocalDate departureDate, LocalDate returnDate) {
+        if (departureDate == null || returnDate == null) {
+            throw new IllegalArgumentException("Departure and return dates are required for a round trip");
+        }
+        if (returnDate.isBefore(departureDate)) {
+            throw new IllegalArgumentException("Return date must not be before the departure date");
+        }
+        // Both legs run at the same time so the response costs one lookup's latency, not two.
+        // FutureTask rather than CompletableFuture: its cancel(true) interrupts a leg that is already running.
+        FutureTask<List<FlightDTO>> outbound = new FutureTask<>(
+                () -> searchFlights(origin, destination, departureDate, null));
+        FutureTask<List<FlightDTO>> inbound = new FutureTask<>(
+                () -> searchFlights(destination, origin, returnDate, null));
+        try {
+            flightSearchExecutor.execute(outbound);
+            flightSearchExecutor.execute(inbound);
+            return new RoundTripSearchDTO(outbound.get(), inbound.get());
+        } catch (ExecutionException e) {
+            // One leg failed, so the other one's result is of no use
+            outbound.cancel(true);
+            inbound.cancel(true);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Round trip search failed", e.getCause());
+        } catch (InterruptedException e) {
+            outbound.cancel(true);
+            inbound.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Round trip search was interrupted", e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public FlightPageDTO searchFlightPage(String origin, String destination, LocalDate departureDate, String cursor, int limit) {
+        int pageSize = clampPageSize(limit);
+        FlightCursor after = cursor != null && !cursor.isBlank() ? FlightCursor.decode(cursor) : null;
+
+        Optional<List<FlightDTO>> indexed = flightCatalogIndex.lookup(origin, destination, departureDate);
+        List<FlightDTO> candidates;
+        if (indexed.isPresent()) {
+            // Indexed lists are already sorted by (departureTime, id) - slice after the cursor
+            candidates = indexed.get().stream()
+                    .filter(flight -> after == null || after.isBefore(flight))
+                    .limit(pageSize + 1L)
+                    .collect(Collectors.toList());
+        } else if (after == null) {
+            candidates = flightRepository.findRoutePage(origin, destination, departureDate, PageRequest.of(0, pageSize + 1));
+        } else {
+            candidates = flightRepository.findRoutePageAfter(origin, destination, departureDate,
+                    after.getDepartureTime(), after.getId(), PageRequest.of(0, pageSize + 1));
+        }
+        return toPage(candidates, pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public FlightPageDTO findFlightPage(String cursor, int limit) {
+        int pageSize = clampPageSize(limit);
+        FlightCursor after = cursor != null && !cursor.isBlank() ? FlightCursor.decode(cursor) : null;
+
+        // One extra row tells us whether another page exists without a COUNT query
+        List<FlightDTO> candidates = after == null
+                ? flightRepository.findFlightPage(PageRequest.of(0, pageSize + 1))
+                : flightRepository.findFlightPageAfter(after.getDepartureDate(), after.getDepartureTime(),
+                        after.getId(), PageRequest.of(0, pageSize + 1));
+        return toPage(candidates, pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<FareCalendarDayDTO> getFareCalendar(String origin, String destination, LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null || toDate == null || toDate.isBefore(fromDate)) {
+            throw new IllegalArgumentException("Fare calendar window must have fromDate <= toDate");
+        }
+        if (ChronoUnit.DAYS.between(fromDate, toDate) >= MAX_CALENDAR_DAYS) {
+            throw new IllegalArgumentException("Fare calendar window is limited to " + MAX_CALENDAR_DAYS + " days");
+        }
+
+        // Whole months are queried and cached, then trimmed to the requested window
+        Map<LocalDate, FareCalendarDayDTO> byDate = new HashMap<>();
+        for (YearMonth month = YearMonth.from(fromDate); !month.isAfter(YearMonth.from(toDate)); month = month.plusMonths(1)) {
+            for (FareCalendarDayDTO day : fareCalendarMonth(origin, destination, month)) {
+                byDate.put(day.getDate(), day);
+            }
+        }
+
+        List<FareCalendarDayDTO> calendar = new ArrayList<>();
+        for (LocalDate date = fromDate; !date.isAfter(toDate); date = date.plusDays(1)) {
+            FareCalendarDayDTO day = byDate.get(date);
+            calendar.add(day != null ? day : new FareCalendarDayDTO(date, null, 0L));
+        }
+        return calendar;
+    }
+
+    @Override
+    public List<ItineraryDTO> searchConnections(String origin, String destination, LocalDate departureDate, int maxStops) {
+        return connectionSearchEngine.search(origin, destination, departureDate, maxStops);
+    }
+
+    private List<FareCalendarDayDTO> fareCalendarMonth(String origin, String destination, YearMonth month) {
+        Optional<List<FareCalendarDayDTO>> cached = fareCalendarCache.get(origin, destination, month);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long version = fareCalendarCache.version(origin, destination, month);
+        List<FareCalendarDayDTO> days = flightRepository.findFareCalendar(origin, destination,
+                month.atDay(1), month.atEndOfMonth());
+        fareCalendarCache.putIfUnchanged(origin, destination, month, version, days);
+        return days;
+    }
+
+    private FlightPageDTO toPage(List<FlightDTO> candidates, int pageSize) {
+        boolean hasMore = candidates.size() > pageSize;
+        List<FlightDTO> items = hasMore ? candidates.subList(0, pageSize) : candidates;
+        String nextCursor = hasMore ? FlightCursor.of(items.get(items.size() - 1)).encode() : null;
+        return new FlightPageDTO(List.copyOf(items), nextCursor, hasMore);
+    }
+
+    private int clampPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    // Prefer the indexed copy; only hit the database while the index is still loading
+    private FlightDTO snapshotOf(Long flightId) {
+        return flightCatalogIndex.findById(flightId)
+                .orElseGet(() -> flightRepository.findFlightDTOById(flightId).orElse(null));
+    }
+
+    // Listeners (catalog index, caches) apply the change once the transaction has committed
+    private void publishChange(Long flightId, FlightDTO previous, FlightDTO current) {
+        eventPublisher.publishEvent(new FlightChangedEvent(flightId, previous, current));
+    }
+
     // Optional: existsById implementation if needed by controller/other services
     // public boolean existsById(Long id) {
     //    return flightRepository.existsById(id);
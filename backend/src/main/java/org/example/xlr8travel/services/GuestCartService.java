@@ -0,0 +1,268 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.example.xlr8travel.cache.BoundedCache;
+import org.example.xlr8travel.dto.CartDTO;
+import org.example.xlr8travel.dto.CartOperationDTO;
+import org.example.xlr8travel.dto.FlightCartItemDTO;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.models.User;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.example.xlr8travel.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Carts of visitors who have not signed in. They live only in memory, keyed by a random token in the
+ * {@value #COOKIE_NAME} cookie, and are bounded by {@code cart.guest.max-size} and {@code cart.guest.ttl}.
+ * One client address can start at most {@code cart.guest.max-per-client} carts within {@code cart.guest.ttl}
+ * of each other, so a client that never keeps its cookie cannot push everyone else's carts out.
+ * <p>
+ * Seat choices are recorded but not held until the guest signs in and the cart is merged into their
+ * persistent one (see {@link CartService#mergeGuestCart}).
+ */
+@Service
+public class GuestCartService {
+
+    private static final Logger log = LoggerFactory.getLogger(GuestCartService.class);
+
+    public static final String COOKIE_NAME = "GUEST_CART";
+    static final String CACHE_NAME = "cart.guest";
+    static final String CLIENTS_CACHE_NAME = "cart.guest.clients";
+    static final int MAX_LINES = 20;
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("[A-Za-z0-9_-]{22}");
+
+    private final BoundedCache<String, Map<Long, GuestLine>> carts;
+    private final BoundedCache<String, Integer> cartsStartedByClient;
+    private final int maxCartsPerClient;
+    private final FlightCatalogIndex flightCatalogIndex;
+    private final FlightRepository flightRepository;
+    private final CartService cartService;
+    private final UserRepository userRepository; // Not UserService: that needs the PasswordEncoder from SecurityConfig, which needs this
+    private final BookingFunnel bookingFunnel;
+    private final Duration ttl;
+    private final SecureRandom random = new SecureRandom();
+
+    public GuestCartService(FlightCatalogIndex flightCatalogIndex,
+                            FlightRepository flightRepository,
+                            CartService cartService,
+                            UserRepository userRepository,
+                            BookingFunnel bookingFunnel,
+                            MeterRegistry meterRegistry,
+                            @Value("${cart.guest.max-size:10000}") int maxSize,
+                            @Value("${cart.guest.ttl:24h}") Duration ttl,
+                            @Value("${cart.guest.max-per-client:50}") int maxCartsPerClient) {
+        this.flightCatalogIndex = flightCatalogIndex;
+        this.flightRepository = flightRepository;
+        this.cartService = cartService;
+        this.userRepository = userRepository;
+        this.bookingFunnel = bookingFunnel;
+        this.ttl = ttl;
+        this.carts = new BoundedCache<>(CACHE_NAME, maxSize, ttl, meterRegistry);
+        this.cartsStartedByClient = new BoundedCache<>(CLIENTS_CACHE_NAME, maxSize, ttl, meterRegistry);
+        this.maxCartsPerClient = maxCartsPerClient;
+    }
+
+    /**
+     * The guest's cart; empty for an unknown or expired token.
+     */
+    public CartDTO getCart(String token) {
+        return toCartDTO(token == null ? Map.of() : carts.get(token).orElse(Map.of()));
+    }
+
+    /**
+     * Applies the operations to the guest's cart, all or nothing, creating the cart if needed.
+     *
+     * @param client address of the client, which new carts are counted against
+     * @throws EntityNotFoundException if SET_SEAT, SET_BAGGAGE, DECREASE or REMOVE names a flight that is not in the cart
+     * @throws ResponseStatusException 404 for an unknown flight, 400 when the cart would exceed {@value #MAX_LINES} flights,
+     *                                 429 when the client has started too many carts
+     */
+    public CartDTO apply(String token, String client, List<CartOperationDTO> operations) throws EntityNotFoundException {
+        // Flight lookups happen outside the lock; they only hit the database while the catalog index is loading
+        Map<Long, FlightDTO> flights = new HashMap<>();
+        for (CartOperationDTO operation : operations) {
+            if (operation.getOp() == CartOperationDTO.Op.ADD) {
+                flights.computeIfAbsent(operation.getFlightId(), this::snapshotOf);
+            }
+        }
+
+        Map<Long, GuestLine> updated;
+        boolean startsCart;
+        synchronized (this) {
+            // Copy on write, so a failing operation leaves the stored cart as it was
+            updated = new LinkedHashMap<>(carts.get(token).orElse(Map.of()));
+            startsCart = updated.isEmpty();
+            for (CartOperationDTO operation : operations) {
+                Long flightId = operation.getFlightId();
+                switch (operation.getOp()) {
+                    case ADD -> {
+                        GuestLine line = updated.get(flightId);
+                        updated.put(flightId, new GuestLine(flights.get(flightId), line == null ? 1 : line.quantity() + 1,
+                                operation.getSeatId(), operation.getSeatNumber(), operation.getSeatType(),
+                                operation.isDeferSeatSelection(), operation.isAllocateRandomSeat(), operation.getBaggageType()));
+                    }
+                    case SET_SEAT -> updated.put(flightId, lineOrThrow(updated, flightId).withSeat(operation));
+                    case SET_BAGGAGE -> updated.put(flightId, lineOrThrow(updated, flightId).withBaggage(operation.getBaggageType()));
+                    case DECREASE -> {
+                        GuestLine line = lineOrThrow(updated, flightId);
+                        if (line.quantity() <= 1) {
+                            updated.remove(flightId);
+                        } else {
+                            updated.put(flightId, line.withQuantity(line.quantity() - 1));
+                        }
+                    }
+                    case REMOVE -> {
+                        lineOrThrow(updated, flightId);
+                        updated.remove(flightId);
+                    }
+                }
+            }
+            if (updated.size() > MAX_LINES) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "A guest cart can hold at most " + MAX_LINES + " flights. Please sign in to add more.");
+            }
+            if (startsCart && !updated.isEmpty()) {
+                countNewCart(client);
+            }
+            carts.put(token, Collections.unmodifiableMap(updated));
+        }
+        if (startsCart && !updated.isEmpty()) {
+            bookingFunnel.record(BookingFunnel.Stage.ADD_TO_CART); // not counted again when merged at login
+        }
+        return toCartDTO(updated);
+    }
+
+    /**
+     * Moves the guest cart into the persistent cart of the user who just signed in. The guest cart is gone
+     * afterwards, whether or not it had lines.
+     *
+     * @return true if there was a guest cart with lines to merge
+     */
+    public boolean mergeInto(String username, String token) {
+        if (!isValidToken(token)) {
+            return false;
+        }
+        Map<Long, GuestLine> lines;
+        synchronized (this) {
+            lines = carts.get(token).orElse(Map.of());
+            carts.invalidate(token);
+        }
+        if (lines.isEmpty()) {
+            return false;
+        }
+        User user = userRepository.findByUsername(username).stream().findFirst().orElse(null);
+        if (user == null) {
+            log.warn("Cannot merge guest cart: user {} not found", username);
+            return false;
+        }
+        cartService.mergeGuestCart(user, toCartDTO(lines).getItems());
+        return true;
+    }
+
+    public String newToken() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public boolean isValidToken(String token) {
+        return token != null && TOKEN_PATTERN.matcher(token).matches();
+    }
+
+    // Site-wide rather than /api, so it also reaches the OAuth2 login callback, which merges the cart too
+    public ResponseCookie cookie(String token) {
+        return ResponseCookie.from(COOKIE_NAME, token)
+                .httpOnly(true)
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(ttl)
+                .build();
+    }
+
+    // Tells the browser to drop the cookie once the guest cart has been merged
+    public ResponseCookie expiredCookie() {
+        return ResponseCookie.from(COOKIE_NAME, "")
+                .httpOnly(true)
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(0)
+                .build();
+    }
+
+    public int size() {
+        return carts.size();
+    }
+
+    // Called under the lock, before the new cart is stored; each new cart restarts the client's window
+    private void countNewCart(String client) {
+        int started = cartsStartedByClient.get(client).orElse(0);
+        if (started >= maxCartsPerClient) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Too many guest carts were started from your address. Please sign in to continue.");
+        }
+        cartsStartedByClient.put(client, started + 1);
+    }
+
+    private FlightDTO snapshotOf(Long flightId) {
+        return flightCatalogIndex.findById(flightId)
+                .or(() -> flightRepository.findFlightDTOById(flightId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight " + flightId + " not found"));
+    }
+
+    private static GuestLine lineOrThrow(Map<Long, GuestLine> lines, Long flightId) {
+        GuestLine line = lines.get(flightId);
+        if (line == null) {
+            throw new EntityNotFoundException("Item not found in cart.");
+        }
+        return line;
+    }
+
+    // Flight fields come from the catalog index when it has the flight, so prices are current
+    private CartDTO toCartDTO(Map<Long, GuestLine> lines) {
+        return CartDTO.of(lines.values().stream()
+                .map(line -> {
+                    FlightDTO flight = flightCatalogIndex.findById(line.flight().getId()).orElse(line.flight());
+                    return new FlightCartItemDTO(flight.getId(), flight.getName(), flight.getOrigin(), flight.getDestination(),
+                            flight.getDepartureDate(), flight.getDepartureTime(), flight.getArrivalDate(), flight.getArrivalTime(),
+                            flight.getPrice(), line.quantity(), line.seatId(), line.deferSeatSelection(),
+                            line.allocateRandomSeat(), line.seatNumber(), line.seatType(), line.baggageType());
+                })
+                .toList());
+    }
+
+    private record GuestLine(FlightDTO flight, int quantity, Long seatId, String seatNumber, String seatType,
+                             boolean deferSeatSelection, boolean allocateRandomSeat, String baggageType) {
+
+        GuestLine withQuantity(int newQuantity) {
+            return new GuestLine(flight, newQuantity, seatId, seatNumber, seatType, deferSeatSelection,
+                    allocateRandomSeat, baggageType);
+        }
+
+        GuestLine withSeat(CartOperationDTO operation) {
+            return new GuestLine(flight, quantity, operation.getSeatId(), operation.getSeatNumber(), operation.getSeatType(),
+                    operation.isDeferSeatSelection(), operation.isAllocateRandomSeat(), baggageType);
+        }
+
+        GuestLine withBaggage(String newBaggageType) {
+            return new GuestLine(flight, quantity, seatId, seatNumber, seatType, deferSeatSelection,
+                    allocateRandomSeat, newBaggageType);
+        }
+    }
+}
@@ -1,233 +1,344 @@
 package org.example.xlr8travel.services;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.example.xlr8travel.models.TicketStatus;
 import org.example.xlr8travel.models.User;
 import org.example.xlr8travel.repositories.FlightRepository;
 import org.example.xlr8travel.repositories.TicketRepository;
 import org.example.xlr8travel.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dashboard metrics, served from an immutable snapshot.
+ * <p>
+ * A background refresher rebuilds the snapshot every {@code metrics.snapshot.refresh-interval} with six
+ * aggregate queries (one scan each of users and flights, and four over tickets), so polling the dashboard
+ * costs no queries at all. Until the first refresh has run, the first request builds the snapshot itself.
+ * A failed refresh keeps the previous snapshot; {@code metrics.snapshot.age} shows how old it is.
+ */
 @Service
-@RequiredArgsConstructor
 public class MetricsServiceImpl implements MetricsService {
 
+    private static final Logger log = LoggerFactory.getLogger(MetricsServiceImpl.class);
+
     private final UserRepository userRepository;
     private final FlightRepository flightRepository;
     private final TicketRepository ticketRepository;
     private final UserService userService;
+    private final BookingFunnel bookingFunnel;
+    private final Duration refreshInterval;
+    private final Clock clock;
+
+    private final Timer refreshTimer;
+    private final Counter refreshFailures;
+
+    // null until the first refresh
+    private volatile Snapshot snapshot;
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "metrics-snapshot-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public MetricsServiceImpl(UserRepository userRepository,
+                              FlightRepository flightRepository,
+                              TicketRepository ticketRepository,
+                              UserService userService,
+                              BookingFunnel bookingFunnel,
+                              MeterRegistry meterRegistry,
+                              @Value("${metrics.snapshot.refresh-interval:30s}") Duration refreshInterval) {
+        this(userRepository, flightRepository, ticketRepository, userService, bookingFunnel, meterRegistry,
+                refreshInterval, Clock.systemDefaultZone());
+    }
 
-    @Override
-    public Map<String, Object> getUserMetrics() {
-        Map<String, Object> metrics = new HashMap<>();
-
-        // Calculate dates for metrics
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime yesterday = now.minus(24, ChronoUnit.HOURS);
-        LocalDateTime sevenDaysAgo = now.minus(7, ChronoUnit.DAYS);
-        LocalDateTime thirtyDaysAgo = now.minus(30, ChronoUnit.DAYS);
+    MetricsServiceImpl(UserRepository userRepository, FlightRepository flightRepository,
+                       TicketRepository ticketRepository, UserService userService, BookingFunnel bookingFunnel,
+                       MeterRegistry meterRegistry, Duration refreshInterval, Clock clock) {
+        this.userRepository = userRepository;
+        this.flightRepository = flightRepository;
+        this.ticketRepository = ticketRepository;
+        this.userService = userService;
+        this.bookingFunnel = bookingFunnel;
+        this.refreshInterval = refreshInterval;
+        this.clock = clock;
+        this.refreshTimer = Timer.builder("metrics.snapshot.refresh")
+                .description("Time spent rebuilding the dashboard metrics snapshot")
+                .register(meterRegistry);
+        this.refreshFailures = Counter.builder("metrics.snapshot.refresh.failures")
+                .description("Dashboard metrics refreshes that failed and kept the previous snapshot")
+                .register(meterRegistry);
+        Gauge.builder("metrics.snapshot.age", this, MetricsServiceImpl::snapshotAgeSeconds)
+                .description("Seconds since the dashboard metrics snapshot was built")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
 
-        // Get user counts
-        long totalUsers = userRepository.count();
-        long activeUsers24Hours = userRepository.countActiveUsersAfter(yesterday);
-        long newSignups7Days = userRepository.countUsersCreatedAfter(sevenDaysAgo);
-        long newSignups30Days = userRepository.countUsersCreatedAfter(thirtyDaysAgo);
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long millis = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, millis, TimeUnit.MILLISECONDS);
+    }
 
-        // Calculate growth rates
-        LocalDateTime twoDaysAgo = now.minus(48, ChronoUnit.HOURS);
-        LocalDateTime fourteenDaysAgo = now.minus(14, ChronoUnit.DAYS);
-        LocalDateTime sixtyDaysAgo = now.minus(60, ChronoUnit.DAYS);
+    @Override
+    public Map<String, Object> getUserMetrics() {
+        return current().userMetrics();
+    }
 
-        long prevActiveUsers = userRepository.countActiveUsersAfter(twoDaysAgo) - activeUsers24Hours;
-        long prevNewSignups7Days = userRepository.countUsersCreatedAfter(fourteenDaysAgo) - newSignups7Days;
-        long prevNewSignups30Days = userRepository.countUsersCreatedAfter(sixtyDaysAgo) - newSignups30Days;
+    @Override
+    public Map<String, Object> getFlightInventoryMetrics() {
+        return current().flightInventoryMetrics();
+    }
 
-        double activeUsersGrowthRate = calculateGrowthRate(activeUsers24Hours, prevActiveUsers);
-        double newSignups7DaysGrowthRate = calculateGrowthRate(newSignups7Days, prevNewSignups7Days);
-        double newSignups30DaysGrowthRate = calculateGrowthRate(newSignups30Days, prevNewSignups30Days);
+    @Override
+    public Map<String, Object> getBookingRevenueMetrics() {
+        return current().bookingRevenueMetrics();
+    }
 
-        // Add metrics to map
-        metrics.put("totalUsers", totalUsers);
-        metrics.put("activeUsers24Hours", activeUsers24Hours);
-        metrics.put("newSignups7Days", newSignups7Days);
-        metrics.put("newSignups30Days", newSignups30Days);
-        metrics.put("activeUsersGrowthRate", activeUsersGrowthRate);
-        metrics.put("newSignups7DaysGrowthRate", newSignups7DaysGrowthRate);
-        metrics.put("newSignups30DaysGrowthRate", newSignups30DaysGrowthRate);
+    @Override
+    public Map<String, Object> getTicketMetrics() {
+        return current().ticketMetrics();
+    }
 
-        return metrics;
+    @Override
+    public Map<String, Object> getAllMetrics() {
+        return current().allMetrics();
     }
 
     @Override
-    public Map<String, Object> getFlightInventoryMetrics() {
-        Map<String, Object> metrics = new HashMap<>();
+    public void updateLastLogin(String username) {
+        User user = userService.findByUsername(username);
+        if (user != null) {
+            user.setLastLogin(LocalDateTime.now());
+            userService.save(user);
+        }
+    }
 
-        // Calculate dates for metrics
-        LocalDate today = LocalDate.now();
-        LocalDate sevenDaysAhead = today.plus(7, ChronoUnit.DAYS);
-        LocalDate sevenDaysAgo = today.minus(7, ChronoUnit.DAYS);
+    /**
+     * Rebuilds the snapshot and publishes it. Runs on the refresher thread.
+     */
+    synchronized void refresh() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now(clock);
+
+        Map<String, Object> userMetrics = buildUserMetrics(now);
+        Map<String, Object> flightInventoryMetrics = buildFlightInventoryMetrics(now);
+        // Bookings and tickets share the ticket totals
+        TicketTotals ticketTotals = TicketTotals.of(single(ticketRepository.summarizeTickets(
+                now.minus(7, ChronoUnit.DAYS), now.minus(14, ChronoUnit.DAYS),
+                now.minus(30, ChronoUnit.DAYS), now.minus(60, ChronoUnit.DAYS))));
+        Map<String, Object> bookingRevenueMetrics = buildBookingRevenueMetrics(ticketTotals);
+        Map<String, Object> ticketMetrics = buildTicketMetrics(ticketTotals);
+
+        Snapshot built = new Snapshot(userMetrics, flightInventoryMetrics, bookingRevenueMetrics, ticketMetrics,
+                Map.of("userMetrics", userMetrics,
+                        "flightInventoryMetrics", flightInventoryMetrics,
+                        "bookingRevenueMetrics", bookingRevenueMetrics,
+                        "ticketMetrics", ticketMetrics),
+                clock.millis());
+        snapshot = built;
+        refreshTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
 
-        // Get flight counts
-        long totalFlights = flightRepository.count();
-        long availableFlights = flightRepository.countAvailableFlights();
-        long fullyBookedFlights = flightRepository.countFullyBookedFlights();
-        long upcomingFlights7Days = flightRepository.findByDepartureDateBetween(today, sevenDaysAhead).size();
-        long flightsAdded7Days = flightRepository.countFlightsAddedAfter(LocalDateTime.of(sevenDaysAgo, LocalDateTime.now().toLocalTime()));
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : refreshIfMissing();
+    }
 
-        // Add metrics to map
-        metrics.put("totalFlights", totalFlights);
-        metrics.put("availableFlights", availableFlights);
-        metrics.put("fullyBookedFlights", fullyBookedFlights);
-        metrics.put("upcomingFlights7Days", upcomingFlights7Days);
-        metrics.put("flightsAdded7Days", flightsAdded7Days);
+    // Requests arriving before the first refresh wait for one build instead of each running their own
+    private synchronized Snapshot refreshIfMissing() {
+        if (snapshot == null) {
+            refresh();
+        }
+        return snapshot;
+    }
 
-        return metrics;
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            log.error("Refreshing the dashboard metrics snapshot failed; keeping the previous one", e);
+        }
     }
 
-    @Override
-    public Map<String, Object> getBookingRevenueMetrics() {
-        Map<String, Object> metrics = new HashMap<>();
+    private double snapshotAgeSeconds() {
+        Snapshot current = snapshot;
+        return current == null ? Double.NaN : (clock.millis() - current.generatedAtMillis()) / 1000.0;
+    }
 
-        // Calculate dates for metrics
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime sevenDaysAgo = now.minus(7, ChronoUnit.DAYS);
-        LocalDateTime thirtyDaysAgo = now.minus(30, ChronoUnit.DAYS);
+    private Map<String, Object> buildUserMetrics(LocalDateTime now) {
+        Object[] row = single(userRepository.summarizeUsers(
+                now.minus(24, ChronoUnit.HOURS), now.minus(48, ChronoUnit.HOURS),
+                now.minus(7, ChronoUnit.DAYS), now.minus(14, ChronoUnit.DAYS),
+                now.minus(30, ChronoUnit.DAYS), now.minus(60, ChronoUnit.DAYS)));
+        long totalUsers = count(row[0]);
+        long activeUsers24Hours = count(row[1]);
+        long newSignups7Days = count(row[3]);
+        long newSignups30Days = count(row[5]);
+
+        // The window before each one: counted since twice as long ago, minus the current window
+        long prevActiveUsers = count(row[2]) - activeUsers24Hours;
+        long prevNewSignups7Days = count(row[4]) - newSignups7Days;
+        long prevNewSignups30Days = count(row[6]) - newSignups30Days;
 
-        // Get booking counts
-        long totalBookings = ticketRepository.count();
-        long bookingsLast7Days = ticketRepository.countTicketsCreatedAfter(sevenDaysAgo);
-        long bookingsLast30Days = ticketRepository.countTicketsCreatedAfter(thirtyDaysAgo);
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalUsers", totalUsers);
+        metrics.put("activeUsers24Hours", activeUsers24Hours);
+        metrics.put("newSignups7Days", newSignups7Days);
+        metrics.put("newSignups30Days", newSignups30Days);
+        metrics.put("activeUsersGrowthRate", calculateGrowthRate(activeUsers24Hours, prevActiveUsers));
+        metrics.put("newSignups7DaysGrowthRate", calculateGrowthRate(newSignups7Days, prevNewSignups7Days));
+        metrics.put("newSignups30DaysGrowthRate", calculateGrowthRate(newSignups30Days, prevNewSignups30Days));
+        return Map.copyOf(metrics);
+    }
 
-        // Get revenue metrics
-        float totalRevenue = ticketRepository.sumTicketPrices();
-        float averageTicketPrice = ticketRepository.averageTicketPrice();
+    private Map<String, Object> buildFlightInventoryMetrics(LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+        Object[] row = single(flightRepository.summarizeInventory(
+                today, today.plus(7, ChronoUnit.DAYS), now.minus(7, ChronoUnit.DAYS)));
+
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalFlights", count(row[0]));
+        metrics.put("availableFlights", count(row[1]));
+        metrics.put("fullyBookedFlights", count(row[2]));
+        metrics.put("upcomingFlights7Days", count(row[3]));
+        metrics.put("flightsAdded7Days", count(row[4]));
+        return Map.copyOf(metrics);
+    }
 
-        // Get bookings per day and week
+    private Map<String, Object> buildBookingRevenueMetrics(TicketTotals totals) {
         Map<String, Long> bookingsCreatedDaily = new HashMap<>();
-        ticketRepository.countTicketsPerDay().forEach(row -> {
-            bookingsCreatedDaily.put(row[0].toString(), (Long) row[1]);
-        });
+        ticketRepository.countTicketsPerDay().forEach(row ->
+                bookingsCreatedDaily.put(String.valueOf(row[0]), count(row[1])));
 
         Map<String, Long> bookingsCreatedWeekly = new HashMap<>();
-        ticketRepository.countTicketsPerWeek().forEach(row -> {
-            bookingsCreatedWeekly.put(row[0].toString(), (Long) row[1]);
-        });
-
-        // Calculate conversion and abandonment rates (placeholder values)
-        double conversionRate = 0.15; // 15% conversion rate
-        double cartAbandonmentRate = 0.25; // 25% abandonment rate
+        ticketRepository.countTicketsPerWeek().forEach(row ->
+                bookingsCreatedWeekly.put(String.valueOf(row[0]), count(row[1])));
 
-        // Add metrics to map
-        metrics.put("totalBookings", totalBookings);
-        metrics.put("bookingsLast7Days", bookingsLast7Days);
-        metrics.put("bookingsLast30Days", bookingsLast30Days);
-        metrics.put("totalRevenue", totalRevenue);
-        metrics.put("averageTicketPrice", averageTicketPrice);
-        metrics.put("bookingsCreatedDaily", bookingsCreatedDaily);
-        metrics.put("bookingsCreatedWeekly", bookingsCreatedWeekly);
-        metrics.put("conversionRate", conversionRate);
-        metrics.put("cartAbandonmentRate", cartAbandonmentRate);
+        // Conversion and abandonment over the last 24 hours, from the in-memory booking funnel
+        BookingFunnel.Window funnel = bookingFunnel.lastDay();
 
-        return metrics;
-    }
-
-    @Override
-    public Map<String, Object> getTicketMetrics() {
         Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalBookings", totals.count());
+        metrics.put("bookingsLast7Days", totals.last7Days());
+        metrics.put("bookingsLast30Days", totals.last30Days());
+        metrics.put("totalRevenue", totals.revenue());
+        metrics.put("averageTicketPrice", totals.averagePrice());
+        metrics.put("bookingsCreatedDaily", Map.copyOf(bookingsCreatedDaily));
+        metrics.put("bookingsCreatedWeekly", Map.copyOf(bookingsCreatedWeekly));
+        metrics.put("conversionRate", funnel.conversionRate());
+        metrics.put("cartAbandonmentRate", funnel.cartAbandonmentRate());
+        metrics.put("checkoutAbandonmentRate", funnel.checkoutAbandonmentRate());
+        metrics.put("funnelLast24Hours", Map.copyOf(funnel.counts()));
+        metrics.put("funnelLastHour", Map.copyOf(bookingFunnel.lastHour().counts()));
+        return Map.copyOf(metrics);
+    }
 
-        // Calculate dates for metrics
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime sevenDaysAgo = now.minus(7, ChronoUnit.DAYS);
-        LocalDateTime thirtyDaysAgo = now.minus(30, ChronoUnit.DAYS);
+    private Map<String, Object> buildTicketMetrics(TicketTotals totals) {
+        Map<TicketStatus, Long> countsByStatus = new HashMap<>();
+        ticketRepository.countTicketsByStatus().forEach(row -> {
+            if (row[0] != null) {
+                countsByStatus.put((TicketStatus) row[0], count(row[1]));
+            }
+        });
 
-        // Get ticket counts by status
+        long totalTickets = totals.count();
         Map<String, Long> ticketsByStatus = new HashMap<>();
-        for (TicketStatus status : TicketStatus.values()) {
-            long count = ticketRepository.countByTicketStatus(status);
-            ticketsByStatus.put(status.name(), count);
-        }
-
-        // Calculate percentages
-        long totalTickets = ticketRepository.count();
         Map<String, Double> ticketStatusPercentages = new HashMap<>();
         for (TicketStatus status : TicketStatus.values()) {
-            long count = ticketRepository.countByTicketStatus(status);
-            double percentage = totalTickets > 0 ? ((double) count / totalTickets) * 100 : 0;
-            ticketStatusPercentages.put(status.name(), Math.round(percentage * 100.0) / 100.0); // Round to 2 decimal places
+            long count = countsByStatus.getOrDefault(status, 0L);
+            ticketsByStatus.put(status.name(), count);
+            ticketStatusPercentages.put(status.name(), percentageOf(count, totalTickets));
         }
 
-        // Get recent ticket activity
-        long ticketsCreatedLast7Days = ticketRepository.countTicketsCreatedAfter(sevenDaysAgo);
-        long ticketsCreatedLast30Days = ticketRepository.countTicketsCreatedAfter(thirtyDaysAgo);
-
-        // Calculate growth rates
-        LocalDateTime fourteenDaysAgo = now.minus(14, ChronoUnit.DAYS);
-        LocalDateTime sixtyDaysAgo = now.minus(60, ChronoUnit.DAYS);
-
-        long prevTicketsCreated7Days = ticketRepository.countTicketsCreatedAfter(fourteenDaysAgo) - ticketsCreatedLast7Days;
-        long prevTicketsCreated30Days = ticketRepository.countTicketsCreatedAfter(sixtyDaysAgo) - ticketsCreatedLast30Days;
-
-        double ticketsCreated7DaysGrowthRate = calculateGrowthRate(ticketsCreatedLast7Days, prevTicketsCreated7Days);
-        double ticketsCreated30DaysGrowthRate = calculateGrowthRate(ticketsCreatedLast30Days, prevTicketsCreated30Days);
-
-        // Get specific metrics for checked-in tickets and boarding passes
-        long checkedInTickets = ticketRepository.countByTicketStatus(TicketStatus.TICKET_STATUS_CHECKED_IN);
-        double checkedInPercentage = totalTickets > 0 ? ((double) checkedInTickets / totalTickets) * 100 : 0;
-        checkedInPercentage = Math.round(checkedInPercentage * 100.0) / 100.0; // Round to 2 decimal places
+        long ticketsCreatedLast7Days = totals.last7Days();
+        long ticketsCreatedLast30Days = totals.last30Days();
+        long prevTicketsCreated7Days = totals.last14Days() - ticketsCreatedLast7Days;
+        long prevTicketsCreated30Days = totals.last60Days() - ticketsCreatedLast30Days;
 
-        // Calculate growth rate for checked-in tickets
+        long checkedInTickets = countsByStatus.getOrDefault(TicketStatus.TICKET_STATUS_CHECKED_IN, 0L);
         long prevCheckedInTickets = 0; // We don't have historical data, so we'll assume 0 for now
-        double checkedInGrowthRate = calculateGrowthRate(checkedInTickets, prevCheckedInTickets);
 
-        // Add metrics to map
+        Map<String, Object> metrics = new HashMap<>();
         metrics.put("totalTickets", totalTickets);
-        metrics.put("ticketsByStatus", ticketsByStatus);
-        metrics.put("ticketStatusPercentages", ticketStatusPercentages);
+        metrics.put("ticketsByStatus", Map.copyOf(ticketsByStatus));
+        metrics.put("ticketStatusPercentages", Map.copyOf(ticketStatusPercentages));
         metrics.put("ticketsCreatedLast7Days", ticketsCreatedLast7Days);
         metrics.put("ticketsCreatedLast30Days", ticketsCreatedLast30Days);
-        metrics.put("ticketsCreated7DaysGrowthRate", ticketsCreated7DaysGrowthRate);
-        metrics.put("ticketsCreated30DaysGrowthRate", ticketsCreated30DaysGrowthRate);
+        metrics.put("ticketsCreated7DaysGrowthRate", calculateGrowthRate(ticketsCreatedLast7Days, prevTicketsCreated7Days));
+        metrics.put("ticketsCreated30DaysGrowthRate", calculateGrowthRate(ticketsCreatedLast30Days, prevTicketsCreated30Days));
 
         // Add specific metrics for checked-in tickets and boarding passes
         metrics.put("checkedInTickets", checkedInTickets);
-        metrics.put("checkedInPercentage", checkedInPercentage);
-        metrics.put("checkedInGrowthRate", checkedInGrowthRate);
+        metrics.put("checkedInPercentage", percentageOf(checkedInTickets, totalTickets));
+        metrics.put("checkedInGrowthRate", calculateGrowthRate(checkedInTickets, prevCheckedInTickets));
         metrics.put("boardingPasses", checkedInTickets); // In this application, a boarding pass is a checked-in ticket
+        return Map.copyOf(metrics);
+    }
 
-        return metrics;
+    private double calculateGrowthRate(long current, long previous) {
+        if (previous == 0) {
+            return current > 0 ? 100.0 : 0.0;
+        }
+        return ((double) (current - previous) / previous) * 100.0;
     }
 
-    @Override
-    public Map<String, Object> getAllMetrics() {
-        Map<String, Object> allMetrics = new HashMap<>();
+    // Percentage rounded to 2 decimal places
+    private static double percentageOf(long count, long total) {
+        double percentage = total > 0 ? ((double) count / total) * 100 : 0;
+        return Math.round(percentage * 100.0) / 100.0;
+    }
 
-        allMetrics.put("userMetrics", getUserMetrics());
-        allMetrics.put("flightInventoryMetrics", getFlightInventoryMetrics());
-        allMetrics.put("bookingRevenueMetrics", getBookingRevenueMetrics());
-        allMetrics.put("ticketMetrics", getTicketMetrics());
+    // Aggregate queries without GROUP BY always return exactly one row
+    private static Object[] single(List<Object[]> rows) {
+        return rows.get(0);
+    }
 
-        return allMetrics;
+    // SUM over no rows is null
+    private static long count(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
     }
 
-    @Override
-    public void updateLastLogin(String username) {
-        User user = userService.findByUsername(username);
-        if (user != null) {
-            user.setLastLogin(LocalDateTime.now());
-            userService.save(user);
-        }
+    private record Snapshot(Map<String, Object> userMetrics,
+                            Map<String, Object> flightInventoryMetrics,
+                            Map<String, Object> bookingRevenueMetrics,
+                            Map<String, Object> ticketMetrics,
+                            Map<String, Object> allMetrics,
+                            long generatedAtMillis) {
     }
 
-    private double calculateGrowthRate(long current, long previous) {
-        if (previous == 0) {
-            return current > 0 ? 100.0 : 0.0;
+    private record TicketTotals(long count, float revenue, float averagePrice,
+                                long last7Days, long last14Days, long last30Days, long last60Days) {
+
+        static TicketTotals of(Object[] row) {
+            return new TicketTotals(MetricsServiceImpl.count(row[0]),
+                    row[1] == null ? 0f : ((Number) row[1]).floatValue(),
+                    row[2] == null ? 0f : ((Number) row[2]).floatValue(),
+                    MetricsServiceImpl.count(row[3]), MetricsServiceImpl.count(row[4]),
+                    MetricsServiceImpl.count(row[5]), MetricsServiceImpl.count(row[6]));
         }
-        return ((double) (current - previous) / previous) * 100.0;
     }
 }
@@ -0,0 +1,342 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
+import org.example.xlr8travel.repositories.AirportRepository;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Precomputed "diverse top-K destinations" per origin for the nearby-flights section.
+ * <p>
+ * Upcoming flights from each origin are bucketed by destination country, using the
+ * Airport -> City -> Country data in the database with {@link AirportLocationService} as a fallback;
+ * an airport with no known country forms its own bucket. Results are picked round-robin across
+ * buckets, so the top K spread over as many countries as possible. The answer for "after today" is
+ * stored ready-made; other dates are served from the same buckets with a binary search per country.
+ * <p>
+ * The table is rebuilt in the background: shortly after flights change and hourly (date rollover).
+ * Only flights departing today or later are loaded. The catalog version is bumped only when a rebuild
+ * produces a different table, so the hourly pass does not invalidate search ETags for nothing.
+ */
+@Component
+public class NearbyDestinationIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(NearbyDestinationIndex.class);
+
+    static final int TOP_K = 6;
+
+    // Bursts of admin edits are folded into a single rebuild
+    private static final long REFRESH_DEBOUNCE_MS = 2_000;
+
+    private static final Comparator<FlightDTO> BY_DEPARTURE = Comparator
+            .comparing(FlightDTO::getDepartureDate)
+            .thenComparing(FlightDTO::getDepartureTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(FlightDTO::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final FlightRepository flightRepository;
+    private final AirportRepository airportRepository;
+    private final AirportLocationService airportLocationService;
+    private final FlightCatalogVersion catalogVersion;
+    private final Clock clock;
+    private final Timer refreshTimer;
+
+    private volatile Map<String, String> countryByAirport;
+    private volatile Snapshot snapshot; // null until the first build
+
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "nearby-destinations-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long refreshIntervalMinutes;
+
+    @Autowired
+    public NearbyDestinationIndex(FlightRepository flightRepository,
+                                  AirportRepository airportRepository,
+                                  AirportLocationService airportLocationService,
+                                  FlightCatalogVersion catalogVersion,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${flights.nearby.refresh-interval-minutes:60}") long refreshIntervalMinutes) {
+        this(flightRepository, airportRepository, airportLocationService, catalogVersion, meterRegistry,
+                refreshIntervalMinutes, Clock.systemDefaultZone());
+    }
+
+    NearbyDestinationIndex(FlightRepository flightRepository,
+                           AirportRepository airportRepository,
+                           AirportLocationService airportLocationService,
+                           FlightCatalogVersion catalogVersion,
+                           MeterRegistry meterRegistry,
+                           long refreshIntervalMinutes,
+                           Clock clock) {
+        this.flightRepository = flightRepository;
+        this.airportRepository = airportRepository;
+        this.airportLocationService = airportLocationService;
+        this.catalogVersion = catalogVersion;
+        this.refreshIntervalMinutes = refreshIntervalMinutes;
+        this.clock = clock;
+        this.countryByAirport = staticCountries();
+        this.refreshTimer = Timer.builder("flight.nearby.index.refresh")
+                .description("Time taken to rebuild the nearby-destinations table")
+                .register(meterRegistry);
+        Gauge.builder("flight.nearby.index.origins", this, index -> {
+                    Snapshot current = index.snapshot;
+                    return current == null ? 0 : current.byOrigin().size();
+                })
+                .description("Number of origins with a precomputed nearby-destinations list")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+        refresher.scheduleWithFixedDelay(this::rebuildQuietly, refreshIntervalMinutes, refreshIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @Order(FlightChangedEvent.READ_MODEL_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlightChanged(FlightChangedEvent event) {
+        if (refreshQueued.compareAndSet(false, true)) {
+            refresher.schedule(() -> {
+                refreshQueued.set(false);
+                rebuildQuietly();
+            }, REFRESH_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Diverse top-K flights leaving the origin after the given date.
+     *
+     * @return Optional.empty() until the table has been built (the caller should fall back to the database)
+     */
+    public Optional<List<FlightDTO>> lookup(String origin, LocalDate afterDate) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return Optional.empty();
+        }
+        OriginTable table = current.byOrigin().get(normalize(origin));
+        if (table == null) {
+            return Optional.of(List.of());
+        }
+        if (afterDate.equals(current.builtFor())) {
+            return Optional.of(table.topK());
+        }
+        return Optional.of(pickDiverse(table.byCountry(), afterDate));
+    }
+
+    /**
+     * Ranks an arbitrary set of flights the same way the table does (used while the table is not built yet).
+     */
+    public List<FlightDTO> rank(Collection<FlightDTO> flights, LocalDate afterDate) {
+        List<FlightDTO> rankable = flights.stream()
+                .filter(flight -> flight.getDestination() != null && flight.getDepartureDate() != null)
+                .toList();
+        return pickDiverse(bucketByCountry(rankable, countryByAirport), afterDate);
+    }
+
+    public void rebuild() {
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now(clock);
+        Map<String, String> countries = loadCountries();
+        Map<String, List<FlightDTO>> flightsByOrigin = new HashMap<>();
+        // Departed flights are never offered, and would otherwise decide the order of their country's bucket
+        for (FlightDTO flight : flightRepository.findFlightDTOsDepartingFrom(today)) {
+            if (flight.getOrigin() == null || flight.getDestination() == null || flight.getDepartureDate() == null) {
+                continue;
+            }
+            flightsByOrigin.computeIfAbsent(normalize(flight.getOrigin()), k -> new ArrayList<>()).add(flight);
+        }
+
+        Map<String, OriginTable> byOrigin = new HashMap<>();
+        flightsByOrigin.forEach((origin, flights) -> {
+            List<List<FlightDTO>> byCountry = bucketByCountry(flights, countries);
+            byOrigin.put(origin, new OriginTable(pickDiverse(byCountry, today), byCountry));
+        });
+
+        Snapshot previous = this.snapshot;
+        Snapshot rebuilt = new Snapshot(today, byOrigin);
+        this.countryByAirport = countries;
+        this.snapshot = rebuilt;
+        // Responses tagged with the old version may hold the previous table
+        if (previous == null || !previous.sameAs(rebuilt)) {
+            catalogVersion.bump();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        refreshTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Nearby-destinations table rebuilt for {} origins in {} ms", byOrigin.size(), elapsed / 1_000_000);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            // Keep serving the previous table; the next change or interval retries
+            log.error("Failed to rebuild nearby-destinations table", e);
+        }
+    }
+
+    private Map<String, String> loadCountries() {
+        Map<String, String> countries = staticCountries();
+        for (AirportRepository.AirportCountry airport : airportRepository.findAirportCountries()) {
+            if (airport.getCountry() != null) {
+                countries.put(normalize(airport.getIataCode()), airport.getCountry());
+            }
+        }
+        return countries;
+    }
+
+    private Map<String, String> staticCountries() {
+        Map<String, String> countries = new HashMap<>();
+        for (AirportLocationService.Airport airport : airportLocationService.getAirports()) {
+            countries.put(normalize(airport.getCode()), airport.getCountry());
+        }
+        return countries;
+    }
+
+    // Buckets sorted by departure; buckets ordered by their earliest flight, then by country name
+    private static List<List<FlightDTO>> bucketByCountry(Collection<FlightDTO> flights, Map<String, String> countries) {
+        Map<String, List<FlightDTO>> buckets = new LinkedHashMap<>();
+        for (FlightDTO flight : flights) {
+            String destination = normalize(flight.getDestination());
+            // Unknown airports form their own bucket instead of being lumped together
+            String country = countries.getOrDefault(destination, destination);
+            buckets.computeIfAbsent(country, k -> new ArrayList<>()).add(flight);
+        }
+        List<Map.Entry<String, List<FlightDTO>>> entries = new ArrayList<>(buckets.entrySet());
+        entries.forEach(entry -> entry.getValue().sort(BY_DEPARTURE));
+        entries.sort(Comparator.<Map.Entry<String, List<FlightDTO>>, FlightDTO>comparing(entry -> entry.getValue().get(0), BY_DEPARTURE)
+                .thenComparing(Map.Entry::getKey));
+
+        List<List<FlightDTO>> byCountry = new ArrayList<>(entries.size());
+        entries.forEach(entry -> byCountry.add(Collections.unmodifiableList(entry.getValue())));
+        return Collections.unmodifiableList(byCountry);
+    }
+
+    // Round-robin over countries, starting each bucket at its first flight after the date
+    private static List<FlightDTO> pickDiverse(List<List<FlightDTO>> byCountry, LocalDate afterDate) {
+        int[] next = new int[byCountry.size()];
+        for (int i = 0; i < byCountry.size(); i++) {
+            next[i] = firstDepartingAfter(byCountry.get(i), afterDate);
+        }
+        List<FlightDTO> picked = new ArrayList<>(TOP_K);
+        boolean progress = true;
+        while (picked.size() < TOP_K && progress) {
+            progress = false;
+            for (int i = 0; i < byCountry.size() && picked.size() < TOP_K; i++) {
+                List<FlightDTO> bucket = byCountry.get(i);
+                if (next[i] < bucket.size()) {
+                    picked.add(bucket.get(next[i]++));
+                    progress = true;
+                }
+            }
+        }
+        return Collections.unmodifiableList(picked);
+    }
+
+    private static int firstDepartingAfter(List<FlightDTO> bucket, LocalDate afterDate) {
+        int low = 0;
+        int high = bucket.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bucket.get(mid).getDepartureDate().isAfter(afterDate)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static String normalize(String code) {
+        return code == null ? null : code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private record Snapshot(LocalDate builtFor, Map<String, OriginTable> byOrigin) {
+
+        // FlightDTO has identity equality, so the buckets are compared field by field
+        boolean sameAs(Snapshot other) {
+            if (!builtFor.equals(other.builtFor) || !byOrigin.keySet().equals(other.byOrigin.keySet())) {
+                return false;
+            }
+            for (Map.Entry<String, OriginTable> entry : byOrigin.entrySet()) {
+                List<List<FlightDTO>> buckets = entry.getValue().byCountry();
+                List<List<FlightDTO>> otherBuckets = other.byOrigin.get(entry.getKey()).byCountry();
+                if (buckets.size() != otherBuckets.size()) {
+                    return false;
+                }
+                for (int i = 0; i < buckets.size(); i++) {
+                    if (!sameFlights(buckets.get(i), otherBuckets.get(i))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static boolean sameFlights(List<FlightDTO> flights, List<FlightDTO> others) {
+            if (flights.size() != others.size()) {
+                return false;
+            }
+            for (int i = 0; i < flights.size(); i++) {
+                FlightDTO a = flights.get(i);
+                FlightDTO b = others.get(i);
+                boolean same = Objects.equals(a.getId(), b.getId())
+                        && Objects.equals(a.getName(), b.getName())
+                        && Objects.equals(a.getOrigin(), b.getOrigin())
+                        && Objects.equals(a.getDestination(), b.getDestination())
+                        && Objects.equals(a.getDepartureDate(), b.getDepartureDate())
+                        && Objects.equals(a.getDepartureTime(), b.getDepartureTime())
+                        && Objects.equals(a.getArrivalDate(), b.getArrivalDate())
+                        && Objects.equals(a.getArrivalTime(), b.getArrivalTime())
+                        && Objects.equals(a.getPrice(), b.getPrice())
+                        && Objects.equals(a.getTerminal(), b.getTerminal())
+                        && Objects.equals(a.getGate(), b.getGate())
+                        && Objects.equals(a.getLastUpdated(), b.getLastUpdated());
+                if (!same) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record OriginTable(List<FlightDTO> topK, List<List<FlightDTO>> byCountry) {
+    }
+}
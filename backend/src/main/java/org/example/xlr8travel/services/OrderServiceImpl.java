@@ -9,13 +9,21 @@ import org.example.xlr8travel.repositories.*; // Import relevant repositories
 import org.example.xlr8travel.repositories.TicketRepository; // Explicitly import TicketRepository
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal; // Import BigDecimal
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 @Service
 @Transactional // Ensures operations are atomic
@@ -26,19 +34,25 @@ public class OrderServiceImpl implements OrderService {
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository; // Inject repository for OrderItems
     private final FlightRepository flightRepository;       // Inject repository to fetch Flights
-    private final EmailService emailService;               // Inject email service
+    private final EmailOutboxService emailOutboxService;   // Queues emails for sending after commit
     private final TicketRepository ticketRepository;       // Inject repository for Tickets
+    private final SeatAssignmentService seatAssignmentService; // Claims seats chosen at purchase
+    private final BookingFunnel bookingFunnel;             // Counts checkout attempts and orders
 
     public OrderServiceImpl(OrderRepository orderRepository,
                             OrderItemRepository orderItemRepository,
                             FlightRepository flightRepository,
-                            EmailService emailService,
-                            TicketRepository ticketRepository) {
+                            EmailOutboxService emailOutboxService,
+                            TicketRepository ticketRepository,
+                            SeatAssignmentService seatAssignmentService,
+                            BookingFunnel bookingFunnel) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.flightRepository = flightRepository;
-        this.emailService = emailService;
+        this.emailOutboxService = emailOutboxService;
         this.ticketRepository = ticketRepository;
+        this.seatAssignmentService = seatAssignmentService;
+        this.bookingFunnel = bookingFunnel;
     }
 
     /**
@@ -64,8 +78,13 @@ public class OrderServiceImpl implements OrderService {
         if (checkoutRequest == null) {
             throw new IllegalArgumentException("Checkout request data cannot be null.");
         }
+        // Counted whether or not the order goes through; failed attempts are the checkout abandonment
+        bookingFunnel.record(BookingFunnel.Stage.CHECKOUT_STARTED);
 
 
+        // --- Reserve seats first: nothing below runs unless every flight still has room ---
+        reserveSeats(cart, user);
+
         // --- Create the Order Entity ---
         Order order = new Order();
         // Assume Order entity has @Getter/@Setter via Lombok or manual methods
@@ -81,6 +100,14 @@ public class OrderServiceImpl implements OrderService {
         Set<OrderItem> orderItems = new HashSet<>();
         BigDecimal calculatedTotalPrice = BigDecimal.ZERO; // Calculate total server-side for accuracy
 
+        // --- Load every flight in the cart with one query ---
+        Map<Long, Flight> flightsById = loadFlights(cart);
+
+        // Cart line per flight, so tickets below need no rescan of the cart; the first line wins for duplicates
+        Map<Long, FlightCartItemDTO> cartItemsByFlight = new LinkedHashMap<>();
+        // Order items in cart order (the Set's hash codes change once ids are assigned)
+        List<OrderItem> issuedItems = new ArrayList<>();
+
         // --- Create OrderItem Entities from Cart Items (FlightCartItemDTOs) ---
         for (FlightCartItemDTO cartItemDTO : cart.getItems()) {
             Long flightId = cartItemDTO.getId(); // Use getId() which should be the Flight ID
@@ -89,29 +116,22 @@ public class OrderServiceImpl implements OrderService {
                 continue; // Skip this invalid item
             }
 
-            // Fetch the actual Flight entity
-            Flight flight = flightRepository.findById(flightId)
-                    .orElseThrow(() -> new EntityNotFoundException("Flight with ID " + flightId + " not found during order creation."));
-
-            // --- Optional: Add stock/availability check here ---
-            // if (flight.getAvailableSeats() < cartItemDTO.getQuantity()) {
-            //     throw new IllegalStateException("Not enough seats available for flight " + flightId);
-            // }
+            Flight flight = flightsById.get(flightId);
+            if (flight == null) {
+                throw new EntityNotFoundException("Flight with ID " + flightId + " not found during order creation.");
+            }
+            cartItemsByFlight.putIfAbsent(flightId, cartItemDTO);
 
             // Determine the price per item *at the time of purchase* from the Flight entity
             BigDecimal priceAtPurchase;
             if (flight.getPrice() != null) {
-                // Convert Double from Flight entity to BigDecimal for OrderItem
                 priceAtPurchase = flight.getPrice();
-                // If Flight.getPrice() already returns BigDecimal, just assign:
-                // priceAtPurchase = flight.getPrice();
             } else {
                 log.error("Flight {} (ID: {}) has a null price. Cannot proceed with order.", flight.getName(), flight.getId());
                 throw new IllegalStateException("Flight price is missing. Cannot create order.");
             }
 
             // Create an OrderItem entity
-            // Assume OrderItem entity has @Getter/@Setter via Lombok or manual methods
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);          // Link back to the Order being created
             orderItem.setFlight(flight);        // Link to the actual Flight entity
@@ -119,6 +139,7 @@ public class OrderServiceImpl implements OrderService {
             orderItem.setPricePerItem(priceAtPurchase); // Use fetched & converted price
 
             orderItems.add(orderItem);
+            issuedItems.add(orderItem);
 
             // Add item's contribution to calculated total price
             calculatedTotalPrice = calculatedTotalPrice.add(
@@ -166,106 +187,155 @@ public class OrderServiceImpl implements OrderService {
 
 
         // --- Optional: Post-Save Actions ---
-        // e.g., Decrease flight available seats? Send confirmation email?
-        // inventoryService.updateStock(savedOrder);
-
-        // Create tickets for each order item
-// Create tickets for each order item
-        for (OrderItem item : orderItems) {
-            // Find the corresponding cart item DTO to get seat information
-            FlightCartItemDTO cartItemDTO = cart.getItems().stream()
-                    .filter(cartItem -> cartItem.getId().equals(item.getFlight().getId()))
-                    .findFirst()
-                    .orElse(null);
-
-            if (cartItemDTO == null) {
-                log.warn("Could not find cart item DTO for flight {}", item.getFlight().getId());
-                continue;
-            }
+        // Seats were already taken from inventory by reserveSeats() above
 
+        // --- Issue tickets: built in memory, then written as JDBC batches with pooled ids ---
+        List<Ticket> tickets = new ArrayList<>();
+        for (OrderItem item : issuedItems) {
+            FlightCartItemDTO cartItemDTO = cartItemsByFlight.get(item.getFlight().getId());
             // Create a ticket for each quantity in the order item
             for (int i = 0; i < item.getQuantity(); i++) {
-                Ticket ticket;
-
-                // Check the cart item's seat preferences
-                if (cartItemDTO.isAllocateRandomSeat()) {
-                    // Create ticket with random seat allocation (price = 0)
-                    ticket = new Ticket(
-                            0.0f, // Set price to 0 for random seat
-                            LocalDateTime.now(),
-                            TicketStatus.TICKET_STATUS_CONFIRMED,
-                            false // seatSelectionDeferred = false
-                    );
-                    ticket.setRandomSeatAllocation(true);
-                    log.info("Created ticket with random seat allocation (free) for flight {} for user {}",
-                            item.getFlight().getName(), user.getUsername());
-
-                } else if (cartItemDTO.isDeferSeatSelection()) {
-                    // Create ticket with deferred seat selection
-                    ticket = new Ticket(
-                            item.getPricePerItem().floatValue(),
-                            LocalDateTime.now(),
-                            TicketStatus.TICKET_STATUS_CONFIRMED,
-                            true // seatSelectionDeferred = true
-                    );
-                    ticket.setSeatSelectionDeferred(true);
-                    log.info("Created ticket with deferred seat selection for flight {} for user {}",
-                            item.getFlight().getName(), user.getUsername());
-
-                }  else if (cartItemDTO.getSeatNumber() != null && !cartItemDTO.getSeatNumber().isEmpty()) {
-                    // Create ticket with selected seat
-                    ticket = new Ticket(
-                            item.getPricePerItem().floatValue(),
-                            LocalDateTime.now(),
-                            TicketStatus.TICKET_STATUS_CONFIRMED,
-                            false // seatSelectionDeferred = false
-                    );
-
-                    ticket.setSeatNumber(cartItemDTO.getSeatNumber());
-                    ticket.setSeatType(cartItemDTO.getSeatType());
-
-                    log.info("Created ticket with seat {} of type {} for flight {} for user {}",
-                            cartItemDTO.getSeatNumber(), cartItemDTO.getSeatType(),
-                            item.getFlight().getName(), user.getUsername());
-
-                } else {
-                    // Create ticket with deferred seat selection as fallback
-                    ticket = new Ticket(
-                            item.getPricePerItem().floatValue(),
-                            LocalDateTime.now(),
-                            TicketStatus.TICKET_STATUS_CONFIRMED,
-                            true // seatSelectionDeferred = true
-                    );
-                    ticket.setSeatSelectionDeferred(true);
-                    log.info("Created ticket with deferred seat selection (fallback) for flight {} for user {}",
-                            item.getFlight().getName(), user.getUsername());
-                }
-
-                ticket.setUser(user);
-                ticket.setFlight(item.getFlight());
-
-                // Handle baggage if needed
-                if (cartItemDTO.getBaggageType() != null) {
-                    log.info("Ticket has baggage type: {}", cartItemDTO.getBaggageType());
-                    // You can create baggage entities here if needed
-                }
-
-                // Save the ticket
-                ticketRepository.save(ticket);
+                tickets.add(issueTicket(user, item, cartItemDTO, i == 0));
             }
         }
-
-        // Send purchase confirmation email
-        boolean emailSent = emailService.sendPurchaseConfirmationEmail(savedOrder, user, "€");
-        if (emailSent) {
-            log.info("Purchase confirmation email sent to user: {}", user.getUsername());
-        } else {
-            log.warn("Failed to send purchase confirmation email to user: {}", user.getUsername());
-            // Note: We continue processing even if email fails - don't block the order completion
+        ticketRepository.saveAll(tickets);
+        log.info("Issued {} ticket(s) for order {}", tickets.size(), savedOrder.getId());
+
+        // Claim the chosen seats; a taken seat fails the checkout with 409 and rolls everything back.
+        // The first claim flushes the batched order item and ticket inserts
+        for (Ticket ticket : tickets) {
+            if (ticket.getSeatNumber() != null) {
+                seatAssignmentService.claim(ticket, ticket.getSeatNumber());
+            }
         }
 
+        // Queue the purchase confirmation email; it is sent after commit, so checkout never waits on SMTP
+        emailOutboxService.enqueuePurchaseConfirmation(savedOrder, user, "€");
+        log.info("Purchase confirmation email queued for user: {}", user.getUsername());
+        bookingFunnel.recordAfterCommit(BookingFunnel.Stage.ORDER_CREATED);
+
         // Return confirmation (e.g., the Order ID as a String)
         // Assumes Order entity has getId() via Lombok or manual method
         return String.valueOf(savedOrder.getId());
     }
+
+    // One findAllById for all flights in the cart instead of a findById per line
+    private Map<Long, Flight> loadFlights(CartDTO cart) {
+        Set<Long> flightIds = new HashSet<>();
+        for (FlightCartItemDTO cartItemDTO : cart.getItems()) {
+            if (cartItemDTO.getId() != null) {
+                flightIds.add(cartItemDTO.getId());
+            }
+        }
+        Map<Long, Flight> flightsById = new HashMap<>();
+        for (Flight flight : flightRepository.findAllById(flightIds)) {
+            flightsById.put(flight.getId(), flight);
+        }
+        return flightsById;
+    }
+
+    /**
+     * Builds (does not save) one ticket of an order item according to the cart line's seat preferences.
+     * A line holds one chosen seat, so only its first ticket gets it; further tickets fall through to
+     * deferred selection.
+     */
+    private Ticket issueTicket(User user, OrderItem item, FlightCartItemDTO cartItemDTO, boolean firstOfLine) {
+        Ticket ticket;
+
+        // Check the cart item's seat preferences
+        if (cartItemDTO.isAllocateRandomSeat()) {
+            // Create ticket with random seat allocation (price = 0)
+            ticket = new Ticket(
+                    0.0f, // Set price to 0 for random seat
+                    LocalDateTime.now(),
+                    TicketStatus.TICKET_STATUS_CONFIRMED,
+                    false // seatSelectionDeferred = false
+            );
+            ticket.setRandomSeatAllocation(true);
+            log.info("Created ticket with random seat allocation (free) for flight {} for user {}",
+                    item.getFlight().getName(), user.getUsername());
+
+        } else if (cartItemDTO.isDeferSeatSelection()) {
+            // Create ticket with deferred seat selection
+            ticket = new Ticket(
+                    item.getPricePerItem().floatValue(),
+                    LocalDateTime.now(),
+                    TicketStatus.TICKET_STATUS_CONFIRMED,
+                    true // seatSelectionDeferred = true
+            );
+            ticket.setSeatSelectionDeferred(true);
+            log.info("Created ticket with deferred seat selection for flight {} for user {}",
+                    item.getFlight().getName(), user.getUsername());
+
+        } else if (cartItemDTO.getSeatNumber() != null && !cartItemDTO.getSeatNumber().isEmpty() && firstOfLine) {
+            // Create ticket with selected seat
+            ticket = new Ticket(
+                    item.getPricePerItem().floatValue(),
+                    LocalDateTime.now(),
+                    TicketStatus.TICKET_STATUS_CONFIRMED,
+                    false // seatSelectionDeferred = false
+            );
+
+            ticket.setSeatNumber(cartItemDTO.getSeatNumber());
+            ticket.setSeatType(cartItemDTO.getSeatType());
+
+            log.info("Created ticket with seat {} of type {} for flight {} for user {}",
+                    cartItemDTO.getSeatNumber(), cartItemDTO.getSeatType(),
+                    item.getFlight().getName(), user.getUsername());
+
+        } else {
+            // Create ticket with deferred seat selection as fallback
+            ticket = new Ticket(
+                    item.getPricePerItem().floatValue(),
+                    LocalDateTime.now(),
+                    TicketStatus.TICKET_STATUS_CONFIRMED,
+                    true // seatSelectionDeferred = true
+            );
+            ticket.setSeatSelectionDeferred(true);
+            log.info("Created ticket with deferred seat selection (fallback) for flight {} for user {}",
+                    item.getFlight().getName(), user.getUsername());
+        }
+
+        ticket.setUser(user);
+        ticket.setFlight(item.getFlight());
+
+        // Handle baggage if needed
+        if (cartItemDTO.getBaggageType() != null) {
+            log.info("Ticket has baggage type: {}", cartItemDTO.getBaggageType());
+            // You can create baggage entities here if needed
+        }
+        return ticket;
+    }
+
+    /**
+     * Takes the cart's seats out of flight inventory with one conditional UPDATE per flight.
+     * A flight without enough seats left fails the whole checkout with 409 CONFLICT; being a runtime
+     * exception it rolls back the seats already reserved for other flights in this transaction.
+     */
+    private void reserveSeats(CartDTO cart, User user) {
+        // Sum quantities per flight and reserve in id order, so concurrent checkouts lock rows in the same order
+        Map<Long, Integer> seatsByFlight = new TreeMap<>();
+        for (FlightCartItemDTO cartItemDTO : cart.getItems()) {
+            if (cartItemDTO.getId() == null) {
+                continue; // skipped again (with a warning) when the order items are built
+            }
+            if (cartItemDTO.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive for flight " + cartItemDTO.getId());
+            }
+            seatsByFlight.merge(cartItemDTO.getId(), cartItemDTO.getQuantity(), Integer::sum);
+        }
+
+        seatsByFlight.forEach((flightId, seats) -> {
+            if (flightRepository.reserveSeats(flightId, seats) == 1) {
+                log.info("Reserved {} seat(s) on flight {} for user {}", seats, flightId, user.getUsername());
+                return;
+            }
+            if (!flightRepository.existsById(flightId)) {
+                throw new EntityNotFoundException("Flight with ID " + flightId + " not found during order creation.");
+            }
+            log.warn("Not enough seats left on flight {} for user {} (requested {})", flightId, user.getUsername(), seats);
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Not enough seats available for flight " + flightId + ". Please review your cart.");
+        });
+    }
 }
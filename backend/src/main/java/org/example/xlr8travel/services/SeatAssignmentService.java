@@ -0,0 +1,144 @@
+package org.example.xlr8travel.services;
+
+import org.example.xlr8travel.models.Seat;
+import org.example.xlr8travel.models.SeatAssignment;
+import org.example.xlr8travel.models.Ticket;
+import org.example.xlr8travel.repositories.SeatAssignmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Claims seats for tickets.
+ * <p>
+ * A claim first flips the seat's bit in the in-memory {@link SeatMapService} bitmap, which turns away
+ * most conflicts without touching the database. It then writes the ticket's {@link SeatAssignment}
+ * row; the unique key on (flight_id, seat_number) makes that write the authority, so two instances
+ * (or a stale bitmap) can never hand out the same seat twice. A failed claim throws
+ * {@link SeatConflictException}, which rolls back the caller's transaction.
+ */
+@Service
+public class SeatAssignmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatAssignmentService.class);
+
+    // How many nearby free seats a conflict response suggests
+    static final int ALTERNATIVE_SEATS = 5;
+
+    private final SeatAssignmentRepository seatAssignmentRepository;
+    private final SeatMapService seatMapService;
+    private final SeatHoldService seatHoldService;
+
+    public SeatAssignmentService(SeatAssignmentRepository seatAssignmentRepository, SeatMapService seatMapService,
+                                 SeatHoldService seatHoldService) {
+        this.seatAssignmentRepository = seatAssignmentRepository;
+        this.seatMapService = seatMapService;
+        this.seatHoldService = seatHoldService;
+    }
+
+    /**
+     * Assigns the seat to the (already persisted) ticket, replacing the ticket's previous assignment.
+     * A cart hold on the seat by the ticket's owner is converted instead of being treated as a conflict.
+     * Releasing the previous seat in the bitmap is left to the caller, after commit.
+     *
+     * @throws SeatConflictException if the seat is taken, blocked or claimed concurrently
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void claim(Ticket ticket, String seatNumber) {
+        Long flightId = ticket.getFlight().getId();
+        String seat = seatNumber.trim().toUpperCase(Locale.ROOT);
+
+        // A seat the ticket's owner holds from the cart is already theirs in the bitmap
+        boolean held = ticket.getUser() != null && seatHoldService.takeOver(ticket.getUser().getId(), flightId, seat);
+        if (!held && !seatMapService.tryBook(flightId, seat)) {
+            log.warn("Seat {} on flight {} is already booked", seat, flightId);
+            throw conflict(flightId, seat);
+        }
+
+        assign(ticket, flightId, seat);
+    }
+
+    /**
+     * Assigns any free seat to the ticket, e.g. for random seat allocation at check-in.
+     *
+     * @return the seat, or empty when the flight is full
+     * @throws SeatConflictException if another instance claimed the picked seat concurrently
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<String> claimAny(Ticket ticket) {
+        Long flightId = ticket.getFlight().getId();
+        Optional<String> seat = seatMapService.claimFreeSeat(flightId);
+        seat.ifPresent(claimed -> assign(ticket, flightId, claimed));
+        return seat;
+    }
+
+    /**
+     * Seats a group of managed tickets on one flight together (see {@link SeatMapService#claimAdjacentSeats}).
+     * The tickets' seats and all assignment rows go out in one flush, together with any other pending
+     * changes to the tickets. The tickets must not hold seats yet.
+     *
+     * @return the seats, in the order of the tickets
+     * @throws ResponseStatusException 409 if the flight has too few free seats or they were claimed concurrently
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<String> claimAdjacent(List<Ticket> tickets) {
+        Long flightId = tickets.get(0).getFlight().getId();
+        List<String> seats = seatMapService.claimAdjacentSeats(flightId, tickets.size())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Not enough free seats left to seat " + tickets.size() + " passengers on flight " + flightId + "."));
+
+        SeatLayout layout = seatMapService.layoutFor(flightId);
+        List<SeatAssignment> assignments = new ArrayList<>(tickets.size());
+        for (int i = 0; i < tickets.size(); i++) {
+            Ticket ticket = tickets.get(i);
+            String seat = seats.get(i);
+            ticket.setSeat(new Seat(seat, true, layout.typeOf(seat)));
+            ticket.setSeatNumber(seat);
+            ticket.setSeatSelectionDeferred(false);
+            assignments.add(new SeatAssignment(ticket.getFlight(), seat, ticket));
+        }
+        try {
+            seatAssignmentRepository.saveAllAndFlush(assignments);
+        } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+            log.warn("Seats {} on flight {} were claimed concurrently by another instance", seats, flightId);
+            seatMapService.evict(flightId);
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Some of the seats were taken while checking in. Please try again.");
+        }
+        return seats;
+    }
+
+    // A single INSERT (or an UPDATE of the ticket's own row when it moves); the unique key rejects a taken seat.
+    // The failed statement leaves the persistence context unusable, so there is no retry within the transaction.
+    private void assign(Ticket ticket, Long flightId, String seat) {
+        SeatAssignment assignment = seatAssignmentRepository.findByTicketId(ticket.getId())
+                .orElseGet(() -> new SeatAssignment(ticket.getFlight(), seat, ticket));
+        assignment.setSeatNumber(seat);
+        try {
+            seatAssignmentRepository.saveAndFlush(assignment);
+        } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+            // Duplicate key, or a lock/deadlock error while racing another insert of the same key
+            log.warn("Seat {} on flight {} was claimed concurrently by another instance", seat, flightId);
+            SeatConflictException conflict = conflict(flightId, seat);
+            // This bitmap missed that booking; reload it from the database on next use
+            seatMapService.evict(flightId);
+            throw conflict;
+        }
+    }
+
+    private SeatConflictException conflict(Long flightId, String seat) {
+        List<String> alternatives = seatMapService.freeSeatsNear(flightId, seat, ALTERNATIVE_SEATS);
+        return new SeatConflictException(flightId, seat, alternatives);
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.xlr8travel.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * A seat was claimed by someone else first. Carries the nearest seats that were still free, so the
+ * client can offer them instead of sending the passenger back to the full seat map.
+ */
+public class SeatConflictException extends ResponseStatusException {
+
+    private final Long flightId;
+    private final String seatNumber;
+    private final List<String> alternativeSeats;
+
+    public SeatConflictException(Long flightId, String seatNumber, List<String> alternativeSeats) {
+        super(HttpStatus.CONFLICT, "Seat " + seatNumber + " on flight " + flightId + " is already taken. Please choose another seat.");
+        this.flightId = flightId;
+        this.seatNumber = seatNumber;
+        this.alternativeSeats = List.copyOf(alternativeSeats);
+    }
+
+    public Long getFlightId() {
+        return flightId;
+    }
+
+    public String getSeatNumber() {
+        return seatNumber;
+    }
+
+    public List<String> getAlternativeSeats() {
+        return alternativeSeats;
+    }
+}
@@ -0,0 +1,298 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-limited seat holds for seats sitting in a cart.
+ * <p>
+ * A hold sets the seat's bit in the flight's {@link SeatMapService} bitmap, so nobody else can pick the seat
+ * while it is held. Holds are indexed by seat and by expiry: the sweeper takes expired holds off the head of
+ * the expiry-ordered map and stops at the first live one, so a sweep costs O(expired), never a scan of all
+ * holds. Checkout extends a user's holds and turns them into seat assignments; abandoned holds simply expire.
+ * <p>
+ * Holds live in memory only. After a restart (or a bitmap reload) they are gone, and the unique seat
+ * assignment key still decides any race at checkout.
+ */
+@Service
+public class SeatHoldService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatHoldService.class);
+
+    private final SeatMapService seatMapService;
+    private final Duration holdTtl;
+    private final Duration checkoutTtl;
+    private final Duration sweepInterval;
+    private final Clock clock;
+    private final Counter expiredCounter;
+
+    private final Map<SeatKey, SeatHold> holds = new ConcurrentHashMap<>();
+    private final Map<Long, Set<SeatHold>> holdsByUser = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<ExpiryKey, SeatHold> byExpiry = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "seat-hold-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public SeatHoldService(SeatMapService seatMapService,
+                           MeterRegistry meterRegistry,
+                           @Value("${seats.hold.ttl:15m}") Duration holdTtl,
+                           @Value("${seats.hold.checkout-ttl:10m}") Duration checkoutTtl,
+                           @Value("${seats.hold.sweep-interval:5s}") Duration sweepInterval) {
+        this(seatMapService, meterRegistry, holdTtl, checkoutTtl, sweepInterval, Clock.systemUTC());
+    }
+
+    SeatHoldService(SeatMapService seatMapService, MeterRegistry meterRegistry, Duration holdTtl,
+                    Duration checkoutTtl, Duration sweepInterval, Clock clock) {
+        this.seatMapService = seatMapService;
+        this.holdTtl = holdTtl;
+        this.checkoutTtl = checkoutTtl;
+        this.sweepInterval = sweepInterval;
+        this.clock = clock;
+        this.expiredCounter = Counter.builder("seat.holds.expired")
+                .description("Seat holds released by the sweeper after their TTL ran out")
+                .register(meterRegistry);
+        Gauge.builder("seat.holds.active", holds, Map::size)
+                .description("Seats currently held in carts")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long millis = sweepInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweepQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Holds the seat for the user, or extends the user's existing hold on it. A hold created inside a
+     * transaction that rolls back is released again.
+     *
+     * @throws SeatConflictException if the seat is booked or held by someone else
+     * @throws ResponseStatusException 400 if the seat does not exist on the flight's aircraft
+     */
+    public void hold(Long userId, Long flightId, String seatNumber) {
+        SeatKey key = new SeatKey(flightId, SeatMapService.normalize(seatNumber));
+        while (true) {
+            SeatHold existing = holds.get(key);
+            if (existing != null) {
+                if (!existing.userId.equals(userId)) {
+                    throw conflict(key);
+                }
+                if (extend(existing, holdTtl)) {
+                    return;
+                }
+                continue; // expired just now; take it again
+            }
+
+            SeatMapService.FlightSeatMap seatMap = seatMapService.seatMapFor(flightId);
+            if (!seatMap.layout().isBookable(key.seat())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Seat " + key.seat() + " does not exist on this aircraft.");
+            }
+            if (!seatMap.tryBook(key.seat())) {
+                throw conflict(key);
+            }
+            SeatHold hold = new SeatHold(userId, key, seatMap);
+            synchronized (hold) {
+                hold.expiry = nextExpiry(holdTtl);
+                byExpiry.put(hold.expiry, hold);
+            }
+            holds.put(key, hold);
+            holdsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(hold);
+            releaseOnRollback(hold);
+            log.debug("User {} holds seat {} on flight {} for {}", userId, key.seat(), flightId, holdTtl);
+            return;
+        }
+    }
+
+    /**
+     * Gives up the user's hold on the seat, if any. Seats no longer held (expired or bought) are left alone.
+     */
+    public void release(Long userId, Long flightId, String seatNumber) {
+        SeatHold hold = holds.get(new SeatKey(flightId, SeatMapService.normalize(seatNumber)));
+        if (hold != null && hold.userId.equals(userId)) {
+            end(hold, null, true);
+        }
+    }
+
+    /**
+     * Extends all of the user's holds to at least the checkout TTL, so they survive payment.
+     *
+     * @return the number of holds extended
+     */
+    public int extendForCheckout(Long userId) {
+        int extended = 0;
+        for (SeatHold hold : holdsByUser.getOrDefault(userId, Set.of())) {
+            if (extend(hold, checkoutTtl)) {
+                extended++;
+            }
+        }
+        return extended;
+    }
+
+    /**
+     * Hands the user's hold over to a ticket being issued: the seat's bit stays set and the hold is dropped
+     * once the transaction commits. If it rolls back, the hold carries on until it expires.
+     *
+     * @return false if the user holds no live hold on the seat in the current bitmap (the caller must book it itself)
+     */
+    boolean takeOver(Long userId, Long flightId, String seatNumber) {
+        SeatHold hold = holds.get(new SeatKey(flightId, SeatMapService.normalize(seatNumber)));
+        if (hold == null || !hold.userId.equals(userId) || hold.seatMap != seatMapService.seatMapFor(flightId)
+                || !extend(hold, checkoutTtl)) {
+            return false;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            end(hold, null, false);
+            return true;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                end(hold, null, false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Releases every hold whose TTL has run out.
+     *
+     * @return the number of holds released
+     */
+    public int sweep() {
+        long now = clock.millis();
+        int expired = 0;
+        Map.Entry<ExpiryKey, SeatHold> head;
+        while ((head = byExpiry.firstEntry()) != null && head.getKey().expiresAt() <= now) {
+            // A concurrent extend or release may have moved or removed the entry; end() re-checks under the hold's lock
+            if (byExpiry.remove(head.getKey(), head.getValue()) && end(head.getValue(), head.getKey(), true)) {
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            expiredCounter.increment(expired);
+            log.info("Released {} expired seat holds", expired);
+        }
+        return expired;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.error("Seat hold sweep failed", e);
+        }
+    }
+
+    private boolean extend(SeatHold hold, Duration ttl) {
+        synchronized (hold) {
+            if (hold.ended) {
+                return false;
+            }
+            ExpiryKey extended = nextExpiry(ttl);
+            if (extended.expiresAt() > hold.expiry.expiresAt()) {
+                byExpiry.remove(hold.expiry, hold);
+                hold.expiry = extended;
+                byExpiry.put(extended, hold);
+            }
+            return true;
+        }
+    }
+
+    // Ends the hold unless it already ended or (for the sweeper) was extended past the expected expiry
+    private boolean end(SeatHold hold, ExpiryKey expectedExpiry, boolean releaseSeat) {
+        synchronized (hold) {
+            if (hold.ended || (expectedExpiry != null && !hold.expiry.equals(expectedExpiry))) {
+                return false;
+            }
+            hold.ended = true;
+            byExpiry.remove(hold.expiry, hold);
+        }
+        holds.remove(hold.key, hold);
+        holdsByUser.computeIfPresent(hold.userId, (userId, userHolds) -> {
+            userHolds.remove(hold);
+            return userHolds.isEmpty() ? null : userHolds;
+        });
+        if (releaseSeat) {
+            // Released on the bitmap the hold was taken on; a reloaded bitmap never saw this hold
+            hold.seatMap.release(hold.key.seat());
+        }
+        return true;
+    }
+
+    private void releaseOnRollback(SeatHold hold) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    end(hold, null, true);
+                }
+            }
+        });
+    }
+
+    private ExpiryKey nextExpiry(Duration ttl) {
+        return new ExpiryKey(clock.millis() + ttl.toMillis(), sequence.incrementAndGet());
+    }
+
+    private SeatConflictException conflict(SeatKey key) {
+        return new SeatConflictException(key.flightId(), key.seat(),
+                seatMapService.freeSeatsNear(key.flightId(), key.seat(), SeatAssignmentService.ALTERNATIVE_SEATS));
+    }
+
+    record SeatKey(Long flightId, String seat) {
+    }
+
+    // The sequence keeps holds expiring in the same millisecond apart
+    record ExpiryKey(long expiresAt, long sequence) implements Comparable<ExpiryKey> {
+        @Override
+        public int compareTo(ExpiryKey other) {
+            int byTime = Long.compare(expiresAt, other.expiresAt);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class SeatHold {
+        private final Long userId;
+        private final SeatKey key;
+        private final SeatMapService.FlightSeatMap seatMap;
+        private ExpiryKey expiry; // guarded by this
+        private boolean ended; // guarded by this
+
+        private SeatHold(Long userId, SeatKey key, SeatMapService.FlightSeatMap seatMap) {
+            this.userId = userId;
+            this.key = key;
+            this.seatMap = seatMap;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.example.xlr8travel.services;
+
+import org.example.xlr8travel.dto.SeatLayoutDTO;
+import org.example.xlr8travel.models.SeatLayoutTemplate;
+import org.example.xlr8travel.models.SeatType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable, compiled cabin layout: a grid of rows x columns where seat "12C" maps to the index
+ * {@code (12 - 1) * columns.length() + 2}. Built once per {@link SeatLayoutTemplate} and shared
+ * by every flight operated with that aircraft type.
+ */
+public final class SeatLayout {
+
+    // Cabin used for flights without an aircraft layout (the original hard-coded 30 x A-F grid)
+    public static final SeatLayout DEFAULT = compile(new SeatLayoutTemplate("DEFAULT-180", 30, "ABCDEF", "C", "",
+            "1-5:UPFRONT,14-15:EXTRA_LEGROOM,30:EXTRA_LEGROOM"));
+
+    private final String name;
+    private final int rows;
+    private final String columns;
+    private final String aisleAfter;
+    private final long aisleMask; // bit c is set when the aisle follows column c
+    private final BitSet blocked;
+    private final SeatType[] rowTypes; // index = row - 1
+
+    private SeatLayout(String name, int rows, String columns, String aisleAfter, BitSet blocked, SeatType[] rowTypes) {
+        this.name = name;
+        this.rows = rows;
+        this.columns = columns;
+        this.aisleAfter = aisleAfter;
+        long mask = 0;
+        for (char c : aisleAfter.toCharArray()) {
+            mask |= 1L << columns.indexOf(c);
+        }
+        this.aisleMask = mask;
+        this.blocked = blocked;
+        this.rowTypes = rowTypes;
+    }
+
+    /**
+     * Parses and validates a template.
+     *
+     * @throws IllegalArgumentException if the template is malformed
+     */
+    public static SeatLayout compile(SeatLayoutTemplate template) {
+        String name = template.getName();
+        int rows = template.getRowCount();
+        String columns = template.getColumns() == null ? "" : template.getColumns().trim().toUpperCase(Locale.ROOT);
+        if (rows <= 0 || columns.isEmpty()) {
+            throw new IllegalArgumentException("Seat layout " + name + " needs at least one row and one column");
+        }
+        if (columns.chars().distinct().count() != columns.length() || !columns.chars().allMatch(Character::isLetter)) {
+            throw new IllegalArgumentException("Seat layout " + name + " has invalid columns: " + columns);
+        }
+        String aisleAfter = template.getAisleAfter() == null ? "" : template.getAisleAfter().trim().toUpperCase(Locale.ROOT);
+        for (char c : aisleAfter.toCharArray()) {
+            if (columns.indexOf(c) < 0) {
+                throw new IllegalArgumentException("Seat layout " + name + " has an aisle after unknown column " + c);
+            }
+        }
+
+        SeatType[] rowTypes = new SeatType[rows];
+        Arrays.fill(rowTypes, SeatType.SEAT_TYPE_STANDARD);
+        for (String range : split(template.getRowTypes())) {
+            int colon = range.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Seat layout " + name + " has an invalid row type entry: " + range);
+            }
+            SeatType type = SeatType.valueOf("SEAT_TYPE_" + range.substring(colon + 1).trim().toUpperCase(Locale.ROOT));
+            String[] bounds = range.substring(0, colon).split("-");
+            int from = Integer.parseInt(bounds[0].trim());
+            int to = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : from;
+            if (from < 1 || to > rows || from > to) {
+                throw new IllegalArgumentException("Seat layout " + name + " has row types outside rows 1-" + rows + ": " + range);
+            }
+            Arrays.fill(rowTypes, from - 1, to, type);
+        }
+
+        SeatLayout layout = new SeatLayout(name, rows, columns, aisleAfter, new BitSet(rows * columns.length()), rowTypes);
+        for (String seat : split(template.getBlockedSeats())) {
+            int index = layout.indexOf(seat);
+            if (index < 0) {
+                throw new IllegalArgumentException("Seat layout " + name + " blocks unknown seat " + seat);
+            }
+            layout.blocked.set(index);
+        }
+        return layout;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public String getColumns() {
+        return columns;
+    }
+
+    /**
+     * Columns followed by an aisle, as a bitmask over column positions (bit 0 is the first column).
+     */
+    public long aisleMask() {
+        return aisleMask;
+    }
+
+    /**
+     * Grid cells, including blocked ones (the size of an occupancy bitmap).
+     */
+    public int capacity() {
+        return rows * columns.length();
+    }
+
+    /**
+     * Seats that can actually be sold.
+     */
+    public int bookableSeats() {
+        return capacity() - blocked.cardinality();
+    }
+
+    /**
+     * @return the grid index of the seat, or -1 when the seat is not part of this cabin
+     */
+    public int indexOf(String seat) {
+        String normalized = seat.trim().toUpperCase(Locale.ROOT);
+        if (normalized.length() < 2) {
+            return -1;
+        }
+        int column = columns.indexOf(normalized.charAt(normalized.length() - 1));
+        if (column < 0) {
+            return -1;
+        }
+        int row = 0;
+        for (int i = 0; i < normalized.length() - 1; i++) {
+            char c = normalized.charAt(i);
+            if (c < '0' || c > '9' || row > rows) {
+                return -1;
+            }
+            row = row * 10 + (c - '0');
+        }
+        if (row < 1 || row > rows) {
+            return -1;
+        }
+        return (row - 1) * columns.length() + column;
+    }
+
+    public String seatAt(int index) {
+        return (index / columns.length() + 1) + String.valueOf(columns.charAt(index % columns.length()));
+    }
+
+    public boolean isBlocked(int index) {
+        return blocked.get(index);
+    }
+
+    /**
+     * @return true if the seat exists in this cabin and can be sold
+     */
+    public boolean isBookable(String seat) {
+        int index = indexOf(seat);
+        return index >= 0 && !blocked.get(index);
+    }
+
+    public SeatType typeOf(int index) {
+        return rowTypes[index / columns.length()];
+    }
+
+    public SeatType typeOf(String seat) {
+        int index = indexOf(seat);
+        if (index < 0) {
+            throw new IllegalArgumentException("Seat " + seat + " does not exist on layout " + name);
+        }
+        return typeOf(index);
+    }
+
+    public SeatLayoutDTO toDTO() {
+        List<String> blockedSeats = new ArrayList<>();
+        blocked.stream().forEach(index -> blockedSeats.add(seatAt(index)));
+        return new SeatLayoutDTO(name, rows, columns, aisleAfter, blockedSeats, List.of(rowTypes));
+    }
+
+    private static List<String> split(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(spec.split(","))
+                .map(String::trim)
+                .filter(part -> !part.isEmpty())
+                .toList();
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.xlr8travel.services;
+
+import org.example.xlr8travel.models.SeatLayoutTemplate;
+import org.example.xlr8travel.repositories.SeatLayoutTemplateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the cabin layout of a flight or aircraft. Templates are compiled once and cached per
+ * template (i.e. per aircraft type), so seat grids are never rebuilt per request.
+ */
+@Service
+public class SeatLayoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatLayoutService.class);
+
+    private final SeatLayoutTemplateRepository seatLayoutTemplateRepository;
+    private final Map<Long, SeatLayout> compiled = new ConcurrentHashMap<>();
+
+    public SeatLayoutService(SeatLayoutTemplateRepository seatLayoutTemplateRepository) {
+        this.seatLayoutTemplateRepository = seatLayoutTemplateRepository;
+    }
+
+    public SeatLayout layoutForFlight(Long flightId) {
+        return resolve(seatLayoutTemplateRepository.findByFlightId(flightId));
+    }
+
+    public SeatLayout layoutForAircraft(Long aircraftId) {
+        return resolve(seatLayoutTemplateRepository.findByAircraftId(aircraftId));
+    }
+
+    private SeatLayout resolve(Optional<SeatLayoutTemplate> template) {
+        if (template.isEmpty() || template.get().getId() == null) {
+            return SeatLayout.DEFAULT;
+        }
+        return compiled.computeIfAbsent(template.get().getId(), id -> {
+            SeatLayout layout = SeatLayout.compile(template.get());
+            log.info("Compiled seat layout {}: {} rows x {} seats, {} bookable",
+                    layout.getName(), layout.getRows(), layout.getColumns().length(), layout.bookableSeats());
+            return layout;
+        });
+    }
+}
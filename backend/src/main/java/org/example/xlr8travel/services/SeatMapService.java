@@ -0,0 +1,517 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.xlr8travel.dto.SeatOccupancyDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
+import org.example.xlr8travel.models.TicketStatus;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.example.xlr8travel.repositories.TicketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Seat occupancy per flight, kept as a compact bitmap (one bit per seat, 64 seats per word).
+ * <p>
+ * A flight's bitmap is loaded on first use from a seat-number projection (no Ticket entities are
+ * hydrated) and then kept in sync by check-in, allocation and release calls. Bits are flipped with
+ * compare-and-set, so two concurrent bookings of the same seat cannot both succeed in this process.
+ * When a booking happens inside a transaction that later rolls back, the seat is released again.
+ * Other instances keep their own bitmaps, so the bitmap is only a fast first check; the unique seat
+ * assignment row written by {@link SeatAssignmentService} is what decides a race.
+ * <p>
+ * A bitmap is dropped once its flight's departure day has passed (checked hourly) or the flight is deleted,
+ * so the number of maps held follows the upcoming schedule rather than every flight ever booked.
+ */
+@Service
+public class SeatMapService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatMapService.class);
+
+    private final TicketRepository ticketRepository;
+    private final SeatLayoutService seatLayoutService;
+    private final FlightRepository flightRepository;
+    private final Clock clock;
+    private final Map<Long, FlightSeatMap> seatMaps = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "seat-map-eviction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public SeatMapService(TicketRepository ticketRepository, SeatLayoutService seatLayoutService,
+                          FlightRepository flightRepository, MeterRegistry meterRegistry) {
+        this(ticketRepository, seatLayoutService, flightRepository, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    SeatMapService(TicketRepository ticketRepository, SeatLayoutService seatLayoutService,
+                   FlightRepository flightRepository, MeterRegistry meterRegistry, Clock clock) {
+        this.ticketRepository = ticketRepository;
+        this.seatLayoutService = seatLayoutService;
+        this.flightRepository = flightRepository;
+        this.clock = clock;
+        Gauge.builder("seat.maps.loaded", seatMaps, Map::size)
+                .description("Number of flights whose seat occupancy bitmap is held in memory")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        evictor.scheduleWithFixedDelay(this::evictDepartedQuietly, 1, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Cabin layout of the flight, resolved once together with its occupancy.
+     */
+    public SeatLayout layoutFor(Long flightId) {
+        return seatMapFor(flightId).layout;
+    }
+
+    /**
+     * @return true if the seat is taken or blocked on this flight
+     */
+    public boolean isBooked(Long flightId, String seatNumber) {
+        return seatMapFor(flightId).isBooked(normalize(seatNumber));
+    }
+
+    /**
+     * Marks the seat as booked if it is free.
+     *
+     * @return false if the seat was already booked or is blocked
+     */
+    public boolean tryBook(Long flightId, String seatNumber) {
+        String seat = normalize(seatNumber);
+        FlightSeatMap seatMap = seatMapFor(flightId);
+        if (!seatMap.tryBook(seat)) {
+            return false;
+        }
+        releaseOnRollback(seatMap, seat);
+        return true;
+    }
+
+    /**
+     * Books any free seat, starting the scan at a random position so passengers spread over the cabin.
+     */
+    public Optional<String> claimFreeSeat(Long flightId) {
+        FlightSeatMap seatMap = seatMapFor(flightId);
+        Optional<String> seat = seatMap.claimFree(ThreadLocalRandom.current().nextInt(seatMap.layout.capacity()));
+        seat.ifPresent(claimed -> releaseOnRollback(seatMap, claimed));
+        return seat;
+    }
+
+    /**
+     * Books {@code count} seats that sit together: a contiguous run in one row, on one side of the aisle,
+     * when one is free (frontmost row first), otherwise the free seats of the fewest neighbouring rows.
+     *
+     * @return the seats, front to back and left to right, or empty when fewer than {@code count} seats are free
+     */
+    public Optional<List<String>> claimAdjacentSeats(Long flightId, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Seat count must be positive");
+        }
+        FlightSeatMap seatMap = seatMapFor(flightId);
+        Optional<List<String>> seats = seatMap.claimGroup(count);
+        seats.ifPresent(claimed -> claimed.forEach(seat -> releaseOnRollback(seatMap, seat)));
+        return seats;
+    }
+
+    public void release(Long flightId, String seatNumber) {
+        FlightSeatMap seatMap = seatMaps.get(flightId);
+        if (seatMap != null) {
+            seatMap.release(normalize(seatNumber));
+        }
+    }
+
+    public List<String> bookedSeats(Long flightId) {
+        return seatMapFor(flightId).bookedSeats();
+    }
+
+    public List<String> freeSeats(Long flightId) {
+        return seatMapFor(flightId).freeSeats();
+    }
+
+    /**
+     * Up to {@code limit} free seats closest to the given one: same row first, then neighbouring rows.
+     */
+    public List<String> freeSeatsNear(Long flightId, String seatNumber, int limit) {
+        return seatMapFor(flightId).freeSeatsNear(normalize(seatNumber), limit);
+    }
+
+    /**
+     * Drops the flight's bitmap so the next access reloads it from the database. Used when the database
+     * rejected a seat this bitmap considered free, i.e. another instance booked it.
+     */
+    public void evict(Long flightId) {
+        seatMaps.remove(flightId);
+    }
+
+    /**
+     * Snapshot of the occupancy bitmap: bit {@code (row - 1) * columns.length() + column} is set when that
+     * seat is booked or blocked, packed little-endian into bytes. Booked seats outside the grid are listed separately.
+     */
+    public SeatOccupancyDTO occupancy(Long flightId) {
+        return seatMapFor(flightId).snapshot();
+    }
+
+    /**
+     * Drops the bitmaps of flights whose departure day is over. Flights without a departure date are kept.
+     *
+     * @return the number of bitmaps dropped
+     */
+    public int evictDeparted() {
+        LocalDate today = LocalDate.now(clock);
+        int evicted = 0;
+        for (Iterator<FlightSeatMap> it = seatMaps.values().iterator(); it.hasNext(); ) {
+            LocalDate departureDate = it.next().departureDate;
+            if (departureDate != null && departureDate.isBefore(today)) {
+                it.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Dropped {} seat maps of departed flights", evicted);
+        }
+        return evicted;
+    }
+
+    private void evictDepartedQuietly() {
+        try {
+            evictDeparted();
+        } catch (RuntimeException e) {
+            log.error("Seat map eviction failed", e);
+        }
+    }
+
+    // A deleted flight's bitmap would never be read again; a changed flight keeps its bookings but may move day
+    @Order(FlightChangedEvent.READ_MODEL_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlightChanged(FlightChangedEvent event) {
+        if (event.isDeletion()) {
+            seatMaps.remove(event.getFlightId());
+            return;
+        }
+        FlightSeatMap seatMap = seatMaps.get(event.getFlightId());
+        if (seatMap != null) {
+            seatMap.departureDate = event.getCurrent().getDepartureDate();
+        }
+    }
+
+    FlightSeatMap seatMapFor(Long flightId) {
+        if (flightId == null) {
+            throw new IllegalArgumentException("Flight id is required");
+        }
+        // computeIfAbsent loads each flight exactly once, even under concurrent first requests
+        return seatMaps.computeIfAbsent(flightId, this::load);
+    }
+
+    private FlightSeatMap load(Long flightId) {
+        FlightSeatMap seatMap = new FlightSeatMap(seatLayoutService.layoutForFlight(flightId));
+        seatMap.departureDate = flightRepository.findDepartureDateById(flightId).orElse(null);
+        List<String> occupied = ticketRepository.findOccupiedSeatNumbers(flightId, TicketStatus.TICKET_STATUS_CANCELLED);
+        for (String seatNumber : occupied) {
+            if (seatNumber != null) {
+                seatMap.tryBook(normalize(seatNumber));
+            }
+        }
+        log.debug("Loaded seat map for flight {}: {} occupied seats", flightId, occupied.size());
+        return seatMap;
+    }
+
+    private static void releaseOnRollback(FlightSeatMap seatMap, String seat) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    seatMap.release(seat);
+                }
+            }
+        });
+    }
+
+    static String normalize(String seatNumber) {
+        if (seatNumber == null || seatNumber.isBlank()) {
+            throw new IllegalArgumentException("Seat number is required");
+        }
+        return seatNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    static final class FlightSeatMap {
+
+        private final SeatLayout layout;
+        private final AtomicLongArray words;
+        // Seat numbers outside the layout only come from legacy data; keep them exact rather than dropping them
+        private final Set<String> extraSeats = ConcurrentHashMap.newKeySet();
+        // Decides when the map is dropped; null for flights without a date
+        private volatile LocalDate departureDate;
+
+        FlightSeatMap(SeatLayout layout) {
+            this.layout = layout;
+            this.words = new AtomicLongArray((layout.capacity() + 63) / 64);
+            // Blocked seats start out taken, so nothing can book or claim them
+            for (int index = 0; index < layout.capacity(); index++) {
+                if (layout.isBlocked(index)) {
+                    setBit(index);
+                }
+            }
+        }
+
+        SeatLayout layout() {
+            return layout;
+        }
+
+        boolean isBooked(String seat) {
+            int index = layout.indexOf(seat);
+            if (index < 0) {
+                return extraSeats.contains(seat);
+            }
+            return (words.get(index >>> 6) & (1L << index)) != 0;
+        }
+
+        boolean tryBook(String seat) {
+            int index = layout.indexOf(seat);
+            return index < 0 ? extraSeats.add(seat) : setBit(index);
+        }
+
+        void release(String seat) {
+            int index = layout.indexOf(seat);
+            if (index < 0) {
+                extraSeats.remove(seat);
+                return;
+            }
+            if (layout.isBlocked(index)) {
+                return;
+            }
+            clearBit(index);
+        }
+
+        // Scans word by word from 'start', wrapping around; a lost race on a bit just moves on to the next free one
+        Optional<String> claimFree(int start) {
+            int capacity = layout.capacity();
+            for (int scanned = 0; scanned < capacity; ) {
+                int index = (start + scanned) % capacity;
+                long free = ~words.get(index >>> 6) & (-1L << index);
+                int wordEnd = Math.min(((index >>> 6) + 1) << 6, capacity);
+                if (free == 0) {
+                    scanned += wordEnd - index;
+                    continue;
+                }
+                int candidate = ((index >>> 6) << 6) + Long.numberOfTrailingZeros(free);
+                if (candidate >= wordEnd) {
+                    scanned += wordEnd - index;
+                    continue;
+                }
+                if (setBit(candidate)) {
+                    return Optional.of(layout.seatAt(candidate));
+                }
+                scanned += candidate - index; // retry the same word from the lost candidate
+            }
+            return Optional.empty();
+        }
+
+        // A few retries cover seats lost to concurrent bookings between the search and the claim
+        private static final int GROUP_CLAIM_ATTEMPTS = 3;
+
+        Optional<List<String>> claimGroup(int count) {
+            for (int attempt = 0; attempt < GROUP_CLAIM_ATTEMPTS; attempt++) {
+                List<Integer> candidates = count <= layout.getColumns().length() ? findRun(count) : null;
+                if (candidates == null) {
+                    candidates = findRowWindow(count);
+                }
+                if (candidates == null) {
+                    return Optional.empty();
+                }
+                List<Integer> claimed = new ArrayList<>(candidates.size());
+                for (int index : candidates) {
+                    if (!setBit(index)) {
+                        break;
+                    }
+                    claimed.add(index);
+                }
+                if (claimed.size() == candidates.size()) {
+                    return Optional.of(claimed.stream().map(layout::seatAt).toList());
+                }
+                claimed.forEach(this::clearBit);
+            }
+            return Optional.empty();
+        }
+
+        // Free-run search, front to back: 'starts' keeps the columns where 'count' consecutive free seats begin
+        // without an aisle between any two of them
+        private List<Integer> findRun(int count) {
+            int rows = layout.getRows();
+            long noAisle = ~layout.aisleMask();
+            for (int row = 0; row < rows; row++) {
+                long free = freeColumns(row);
+                long starts = free;
+                for (int i = 1; i < count && starts != 0; i++) {
+                    starts &= (free >>> i) & (noAisle >>> (i - 1));
+                }
+                if (starts != 0) {
+                    int first = row * layout.getColumns().length() + Long.numberOfTrailingZeros(starts);
+                    List<Integer> run = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        run.add(first + i);
+                    }
+                    return run;
+                }
+            }
+            return null;
+        }
+
+        // The smallest block of consecutive rows that still has 'count' free seats between them (first such block wins)
+        private List<Integer> findRowWindow(int count) {
+            int rows = layout.getRows();
+            int[] freePerRow = new int[rows];
+            int totalFree = 0;
+            for (int row = 0; row < rows; row++) {
+                freePerRow[row] = Long.bitCount(freeColumns(row));
+                totalFree += freePerRow[row];
+            }
+            if (totalFree < count) {
+                return null;
+            }
+            for (int span = 1; span <= rows; span++) {
+                int inWindow = 0;
+                for (int row = 0; row < rows; row++) {
+                    inWindow += freePerRow[row];
+                    if (row >= span) {
+                        inWindow -= freePerRow[row - span];
+                    }
+                    if (row >= span - 1 && inWindow >= count) {
+                        return takeFree(row - span + 1, count);
+                    }
+                }
+            }
+            return null;
+        }
+
+        private List<Integer> takeFree(int fromRow, int count) {
+            int columns = layout.getColumns().length();
+            List<Integer> seats = new ArrayList<>(count);
+            for (int row = fromRow; seats.size() < count; row++) {
+                long free = freeColumns(row);
+                while (free != 0 && seats.size() < count) {
+                    seats.add(row * columns + Long.numberOfTrailingZeros(free));
+                    free &= free - 1;
+                }
+            }
+            return seats;
+        }
+
+        // Bit c is set when column c of the row is free; a row may straddle two words
+        private long freeColumns(int row) {
+            int columns = layout.getColumns().length();
+            int base = row * columns;
+            int offset = base & 63;
+            long occupied = words.get(base >>> 6) >>> offset;
+            if (offset + columns > 64) {
+                occupied |= words.get((base >>> 6) + 1) << (64 - offset);
+            }
+            return ~occupied & ((1L << columns) - 1);
+        }
+
+        List<String> bookedSeats() {
+            List<String> booked = new ArrayList<>();
+            forEachBit(true, index -> booked.add(layout.seatAt(index)));
+            booked.addAll(extraSeats);
+            return booked;
+        }
+
+        List<String> freeSeats() {
+            List<String> free = new ArrayList<>();
+            forEachBit(false, index -> free.add(layout.seatAt(index)));
+            return free;
+        }
+
+        List<String> freeSeatsNear(String seat, int limit) {
+            int columns = layout.getColumns().length();
+            int origin = Math.max(layout.indexOf(seat), 0);
+            int originRow = origin / columns;
+            int originColumn = origin % columns;
+            List<Integer> free = new ArrayList<>();
+            forEachBit(false, free::add);
+            return free.stream()
+                    .sorted(Comparator.<Integer>comparingInt(index -> Math.abs(index / columns - originRow))
+                            .thenComparingInt(index -> Math.abs(index % columns - originColumn)))
+                    .limit(limit)
+                    .map(layout::seatAt)
+                    .toList();
+        }
+
+        SeatOccupancyDTO snapshot() {
+            byte[] bitmap = new byte[(layout.capacity() + 7) / 8];
+            for (int i = 0; i < bitmap.length; i++) {
+                bitmap[i] = (byte) (words.get(i >>> 3) >>> ((i & 7) << 3));
+            }
+            return new SeatOccupancyDTO(layout.getRows(), layout.getColumns(), bitmap, List.copyOf(extraSeats));
+        }
+
+        private boolean setBit(int index) {
+            int word = index >>> 6;
+            long mask = 1L << index;
+            long current;
+            do {
+                current = words.get(word);
+                if ((current & mask) != 0) {
+                    return false;
+                }
+            } while (!words.compareAndSet(word, current, current | mask));
+            return true;
+        }
+
+        private void clearBit(int index) {
+            int word = index >>> 6;
+            long mask = 1L << index;
+            long current;
+            do {
+                current = words.get(word);
+            } while ((current & mask) != 0 && !words.compareAndSet(word, current, current & ~mask));
+        }
+
+        private void forEachBit(boolean booked, IntConsumer action) {
+            int capacity = layout.capacity();
+            for (int word = 0; word < words.length(); word++) {
+                long bits = booked ? words.get(word) : ~words.get(word);
+                while (bits != 0) {
+                    int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    if (index >= capacity) {
+                        break;
+                    }
+                    action.accept(index);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+}
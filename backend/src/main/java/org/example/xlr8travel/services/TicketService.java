@@ -1,6 +1,9 @@
 package org.example.xlr8travel.services;
 
 import org.example.xlr8travel.dto.CheckInDTO;
+import org.example.xlr8travel.dto.SeatLayoutDTO;
+import org.example.xlr8travel.dto.SeatOccupancyDTO;
+import org.example.xlr8travel.dto.TripDTO;
 import org.example.xlr8travel.models.Ticket;
 import org.example.xlr8travel.models.TicketStatus;
 
@@ -21,6 +24,7 @@ public interface TicketService {
      * @param seatNumber The selected seat number (e.g., "12A")
      * @param seatType The type of seat (STANDARD, UPFRONT, EXTRA_LEGROOM)
      * @return A CheckInDTO with the result of the check-in operation
+     * @throws SeatConflictException if the seat was taken first; the check-in is rolled back
      */
     CheckInDTO checkInWithSeat(Long ticketId, String seatNumber, String seatType);
 
@@ -32,14 +36,27 @@ public interface TicketService {
      */
     CheckInDTO checkInWithoutSeat(Long ticketId);
 
+    /**
+     * Check in several of a user's tickets on one flight at once, seating the passengers without a seat together
+     *
+     * @param userId The ID of the user owning the tickets
+     * @param flightId The ID of the flight
+     * @param ticketIds The tickets to check in, or null/empty for all of the user's confirmed tickets on the flight
+     * @return One CheckInDTO per ticket
+     * @throws org.springframework.web.server.ResponseStatusException if a ticket is not eligible or seats ran out
+     */
+    List<CheckInDTO> checkInGroup(Long userId, Long flightId, List<Long> ticketIds);
+
     /**
      * Get all tickets for a user that are eligible for check-in
      * (i.e., confirmed but not checked in or cancelled)
      * 
      * @param userId The ID of the user
-     * @return A list of tickets eligible for check-in
+     * @param page The zero-based page, soonest departure first
+     * @param size The page size (capped at 100)
+     * @return A page of trips eligible for check-in
      */
-    List<Ticket> findEligibleForCheckIn(Long userId);
+    List<TripDTO> findEligibleForCheckIn(Long userId, int page, int size);
 
     /**
      * Check if a seat is already booked for a specific flight
@@ -54,9 +71,11 @@ public interface TicketService {
      * Get all checked-in tickets for a user
      * 
      * @param userId The ID of the user
-     * @return A list of checked-in tickets
+     * @param page The zero-based page, soonest departure first
+     * @param size The page size (capped at 100)
+     * @return A page of checked-in trips
      */
-    List<Ticket> findCheckedInTickets(Long userId);
+    List<TripDTO> findCheckedInTickets(Long userId, int page, int size);
 
     /**
      * Get all booked seats for a flight
@@ -65,4 +84,20 @@ public interface TicketService {
      * @return A list of seat numbers that are already booked
      */
     List<String> getBookedSeats(Long flightId);
+
+    /**
+     * Get the booked seats of a flight as a compact occupancy bitmap
+     *
+     * @param flightId The ID of the flight
+     * @return One bit per seat of the cabin grid, plus any booked seats outside it
+     */
+    SeatOccupancyDTO getSeatOccupancy(Long flightId);
+
+    /**
+     * Get the cabin layout of the aircraft operating a flight
+     *
+     * @param flightId The ID of the flight
+     * @return Rows, seat letters, aisles, blocked seats and the seat type of every row
+     */
+    SeatLayoutDTO getSeatLayout(Long flightId);
 }
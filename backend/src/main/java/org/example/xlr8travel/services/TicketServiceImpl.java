@@ -2,17 +2,28 @@ package org.example.xlr8travel.services;
 
 import lombok.RequiredArgsConstructor;
 import org.example.xlr8travel.dto.CheckInDTO;
+import org.example.xlr8travel.dto.SeatLayoutDTO;
+import org.example.xlr8travel.dto.SeatOccupancyDTO;
+import org.example.xlr8travel.dto.TripDTO;
 import org.example.xlr8travel.models.*;
 import org.example.xlr8travel.repositories.TicketRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,7 +31,11 @@ import java.util.stream.Collectors;
 public class TicketServiceImpl implements TicketService {
 
     private static final Logger log = LoggerFactory.getLogger(TicketServiceImpl.class);
+    static final int MAX_TRIPS_PAGE_SIZE = 100;
+
     private final TicketRepository ticketRepository;
+    private final SeatMapService seatMapService;
+    private final SeatAssignmentService seatAssignmentService;
 
     @Override
     public void save(Ticket ticket) {
@@ -60,12 +75,6 @@ public class TicketServiceImpl implements TicketService {
             return createErrorResponse("Ticket already checked in");
         }
 
-        // Check if the seat is already booked for this flight
-        if (ticket.getFlight() != null && isSeatBooked(ticket.getFlight().getId(), seatNumber)) {
-            log.warn("Seat {} is already booked for flight {}", seatNumber, ticket.getFlight().getId());
-            return createErrorResponse("This seat is already booked. Please choose another seat.");
-        }
-
         // Parse seat type
         SeatType seatType;
         try {
@@ -75,6 +84,31 @@ public class TicketServiceImpl implements TicketService {
             return createErrorResponse("Invalid seat type");
         }
 
+        // Validate against the aircraft's cabin layout; the layout, not the client, decides the seat type
+        if (ticket.getFlight() != null) {
+            SeatLayout layout = seatMapService.layoutFor(ticket.getFlight().getId());
+            if (!layout.isBookable(seatNumber)) {
+                log.warn("Seat {} is not available on layout {} of flight {}", seatNumber, layout.getName(), ticket.getFlight().getId());
+                return createErrorResponse("Seat " + seatNumber + " does not exist on this aircraft.");
+            }
+            SeatType layoutType = layout.typeOf(seatNumber);
+            if (layoutType != seatType) {
+                log.info("Seat {} is {} on layout {}, not {}", seatNumber, layoutType, layout.getName(), seatType);
+                seatType = layoutType;
+            }
+        }
+
+        // Claim the seat (bitmap, then the unique seat assignment row); the seat picked at purchase already belongs to this ticket.
+        // A lost race throws SeatConflictException, rolling back the check-in.
+        String previousSeat = currentSeatNumber(ticket);
+        boolean keepsOwnSeat = seatNumber.equalsIgnoreCase(previousSeat);
+        if (ticket.getFlight() != null && !keepsOwnSeat) {
+            seatAssignmentService.claim(ticket, seatNumber);
+        }
+        if (ticket.getFlight() != null && previousSeat != null && !keepsOwnSeat) {
+            releaseAfterCommit(ticket.getFlight().getId(), previousSeat);
+        }
+
         // Create or update seat
         Seat seat = ticket.getSeat();
         if (seat == null) {
@@ -88,6 +122,7 @@ public class TicketServiceImpl implements TicketService {
         // Update ticket
 
         ticket.setSeat(seat);
+        ticket.setSeatNumber(seatNumber);
         ticket.setSeatSelectionDeferred(false); // Seat has been selected, so it's no longer deferred
         ticket.setTicketStatus(TicketStatus.TICKET_STATUS_CHECKED_IN);
         ticketRepository.save(ticket);
@@ -140,6 +175,44 @@ public class TicketServiceImpl implements TicketService {
         return createSuccessResponse(ticket);
     }
 
+    @Override
+    @Transactional
+    public List<CheckInDTO> checkInGroup(Long userId, Long flightId, List<Long> ticketIds) {
+        log.info("Group check-in for user {} on flight {} (tickets: {})", userId, flightId, ticketIds == null ? "all" : ticketIds);
+
+        // One query for the whole group instead of a lookup per ticket
+        Set<Long> requested = ticketIds == null ? Set.of() : new HashSet<>(ticketIds);
+        List<Ticket> tickets = ticketRepository.findByUserIdAndFlightIdAndTicketStatus(
+                        userId, flightId, TicketStatus.TICKET_STATUS_CONFIRMED).stream()
+                .filter(ticket -> requested.isEmpty() || requested.contains(ticket.getId()))
+                .sorted(Comparator.comparing(Ticket::getId))
+                .collect(Collectors.toList());
+        if (!requested.isEmpty() && tickets.size() != requested.size()) {
+            log.warn("Group check-in for user {} on flight {} asked for ineligible tickets {}", userId, flightId, ticketIds);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Some of the tickets do not belong to this flight or are not eligible for check-in");
+        }
+        if (tickets.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No tickets to check in on this flight");
+        }
+
+        // Status first, so the seat claim's flush writes every ticket change in the same batch
+        tickets.forEach(ticket -> ticket.setTicketStatus(TicketStatus.TICKET_STATUS_CHECKED_IN));
+
+        // Seats chosen at purchase are kept; everyone else is seated together
+        List<Ticket> unseated = tickets.stream()
+                .filter(ticket -> currentSeatNumber(ticket) == null)
+                .collect(Collectors.toList());
+        if (!unseated.isEmpty()) {
+            List<String> seats = seatAssignmentService.claimAdjacent(unseated);
+            log.info("Seated {} passengers on flight {} together: {}", unseated.size(), flightId, seats);
+        }
+        ticketRepository.saveAll(tickets);
+
+        log.info("Checked in {} tickets for user {} on flight {}", tickets.size(), userId, flightId);
+        return tickets.stream().map(this::createSuccessResponse).collect(Collectors.toList());
+    }
+
     /**
      * Allocates a random seat for a ticket
      * @param ticket The ticket to allocate a seat for
@@ -150,70 +223,30 @@ public class TicketServiceImpl implements TicketService {
             return;
         }
 
-        // Get all booked seats for this flight
-        List<String> bookedSeats = getBookedSeats(ticket.getFlight().getId());
-
-        // Define possible seat rows and columns
-        int[] rows = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30};
-        char[] columns = {'A', 'B', 'C', 'D', 'E', 'F'};
-
-        // Try to find an available seat
-        String seatNumber = null;
-        SeatType seatType = SeatType.SEAT_TYPE_STANDARD;
-
-        // Shuffle the rows and columns to make the selection more random
-        java.util.Collections.shuffle(java.util.Arrays.asList(rows));
-
-        // Try to find an available seat
-        for (int row : rows) {
-            for (char column : columns) {
-                String candidateSeat = row + String.valueOf(column);
-                if (!bookedSeats.contains(candidateSeat)) {
-                    seatNumber = candidateSeat;
-
-                    // Determine seat type based on row
-                    if (row <= 5) {
-                        seatType = SeatType.SEAT_TYPE_UPFRONT;
-                    } else if (row == 14 || row == 15 || row == 30) {
-                        seatType = SeatType.SEAT_TYPE_EXTRA_LEGROOM;
-                    } else {
-                        seatType = SeatType.SEAT_TYPE_STANDARD;
-                    }
-
-                    break;
-                }
-            }
-            if (seatNumber != null) {
-                break;
-            }
-        }
-
+        // Atomically claim any free seat in the flight's occupancy bitmap and record it as the ticket's assignment
+        String seatNumber = seatAssignmentService.claimAny(ticket).orElse(null);
         if (seatNumber == null) {
             log.warn("Could not find an available seat for random allocation for ticket {}", ticket.getId());
             return;
         }
 
+        SeatType seatType = seatMapService.layoutFor(ticket.getFlight().getId()).typeOf(seatNumber);
+
         // Create and set the seat
         Seat seat = new Seat(seatNumber, true, seatType);
         ticket.setSeat(seat);
+        ticket.setSeatNumber(seatNumber);
         ticket.setSeatSelectionDeferred(false);
 
         log.info("Randomly allocated seat {} of type {} for ticket {}", seatNumber, seatType, ticket.getId());
     }
 
     @Override
-    public List<Ticket> findEligibleForCheckIn(Long userId) {
+    public List<TripDTO> findEligibleForCheckIn(Long userId, int page, int size) {
         log.info("Finding tickets eligible for check-in for user {}", userId);
-
-        // Find all tickets for the user
-        List<Ticket> tickets = ticketRepository.findAll().stream()
-                .filter(ticket -> ticket.getUser() != null && ticket.getUser().getId().equals(userId))
-                .filter(ticket -> ticket.getTicketStatus() == TicketStatus.TICKET_STATUS_CONFIRMED)
-                .collect(Collectors.toList());
-
-        log.info("Found {} tickets eligible for check-in for user {}", tickets.size(), userId);
-
-        return tickets;
+        List<TripDTO> trips = findTrips(userId, TicketStatus.TICKET_STATUS_CONFIRMED, page, size);
+        log.info("Found {} tickets eligible for check-in for user {}", trips.size(), userId);
+        return trips;
     }
 
     // Helper methods
@@ -274,25 +307,54 @@ public class TicketServiceImpl implements TicketService {
 
     @Override
     public boolean isSeatBooked(Long flightId, String seatNumber) {
-        log.info("Checking if seat {} is booked for flight {}", seatNumber, flightId);
-        List<Ticket> tickets = ticketRepository.findByFlightIdAndSeatNumber(flightId, seatNumber);
-        return !tickets.isEmpty();
+        return seatMapService.isBooked(flightId, seatNumber);
     }
 
     @Override
-    public List<Ticket> findCheckedInTickets(Long userId) {
+    public List<TripDTO> findCheckedInTickets(Long userId, int page, int size) {
         log.info("Finding checked-in tickets for user {}", userId);
-        return ticketRepository.findByUserIdAndTicketStatus(userId, TicketStatus.TICKET_STATUS_CHECKED_IN);
+        return findTrips(userId, TicketStatus.TICKET_STATUS_CHECKED_IN, page, size);
+    }
+
+    private List<TripDTO> findTrips(Long userId, TicketStatus status, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_TRIPS_PAGE_SIZE));
+        return ticketRepository.findTrips(userId, status, PageRequest.of(Math.max(page, 0), pageSize));
     }
 
     @Override
     public List<String> getBookedSeats(Long flightId) {
         log.info("Getting booked seats for flight {}", flightId);
-        List<Ticket> tickets = ticketRepository.findByFlightId(flightId);
+        return seatMapService.bookedSeats(flightId);
+    }
 
-        return tickets.stream()
-            .filter(ticket -> ticket.getSeat() != null)
-            .map(ticket -> ticket.getSeat().getSeatNumber())
-            .collect(Collectors.toList());
+    @Override
+    public SeatOccupancyDTO getSeatOccupancy(Long flightId) {
+        return seatMapService.occupancy(flightId);
+    }
+
+    @Override
+    public SeatLayoutDTO getSeatLayout(Long flightId) {
+        return seatMapService.layoutFor(flightId).toDTO();
+    }
+
+    private static String currentSeatNumber(Ticket ticket) {
+        if (ticket.getSeat() != null && ticket.getSeat().getSeatNumber() != null) {
+            return ticket.getSeat().getSeatNumber();
+        }
+        return ticket.getSeatNumber();
+    }
+
+    // The old seat stays taken until the move is committed, so nobody else can grab it in between
+    private void releaseAfterCommit(Long flightId, String seatNumber) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            seatMapService.release(flightId, seatNumber);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                seatMapService.release(flightId, seatNumber);
+            }
+        });
     }
 }
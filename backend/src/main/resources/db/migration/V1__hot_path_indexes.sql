@@ -0,0 +1,19 @@
+-- Indexes for the hot lookup paths. Kept in sync with the @Index declarations on the entities.
+
+-- Route search / fare calendar: origin = ? AND destination = ? AND departure_date = (or BETWEEN) ?
+CREATE INDEX idx_flight_route_date ON flight (origin, destination, departure_date);
+-- Keyset pagination on (departure_date, departure_time, id) and date-window scans
+CREATE INDEX idx_flight_departure ON flight (departure_date, departure_time, id);
+
+-- Seat lookups per flight
+CREATE INDEX idx_ticket_flight_seat ON ticket (flight_id, seat_number);
+-- Check-in / boarding-pass listings per user and status
+CREATE INDEX idx_ticket_user_status ON ticket (user_id, ticket_status);
+-- Sales metrics over purchase time
+CREATE INDEX idx_ticket_purchase_time ON ticket (purchase_time);
+
+-- Login and profile lookups
+CREATE INDEX idx_users_email ON users (email);
+CREATE INDEX idx_users_username ON users (username);
+
+-- carts.user_id already has a unique index from the one-to-one mapping
@@ -0,0 +1,20 @@
+-- Seat assignments: one row per ticket holding a seat. The unique key on (flight_id, seat_number)
+-- rejects a second claim of the same seat, whichever application instance it comes from.
+-- Kept in sync with the SeatAssignment entity.
+
+CREATE TABLE seat_assignment (
+    id          BIGINT      NOT NULL,
+    flight_id   BIGINT      NOT NULL,
+    seat_number VARCHAR(8)  NOT NULL,
+    ticket_id   BIGINT      NOT NULL,
+    assigned_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_seat_assignment_flight_seat UNIQUE (flight_id, seat_number),
+    CONSTRAINT uk_seat_assignment_ticket UNIQUE (ticket_id),
+    CONSTRAINT fk_seat_assignment_flight FOREIGN KEY (flight_id) REFERENCES flight (id),
+    CONSTRAINT fk_seat_assignment_ticket FOREIGN KEY (ticket_id) REFERENCES ticket (id)
+);
+
+-- Id generator table used by @GeneratedValue on MySQL
+CREATE TABLE seat_assignment_seq (next_val BIGINT);
+INSERT INTO seat_assignment_seq VALUES (1);
@@ -0,0 +1,10 @@
+-- Order items and tickets take pooled ids (blocks of 50) from table-backed sequences, so a checkout's
+-- inserts can go out as JDBC batches. Kept in sync with the @SequenceGenerator declarations on the entities.
+
+-- order_items switches from AUTO_INCREMENT to its own sequence, continuing after the existing ids.
+-- The pooled optimizer hands out the 50 ids up to the value it reads, so the seed is MAX(id) + 50.
+ALTER TABLE order_items MODIFY id BIGINT NOT NULL;
+CREATE TABLE order_items_seq (next_val BIGINT);
+INSERT INTO order_items_seq SELECT COALESCE(MAX(id), 0) + 50 FROM order_items;
+
+-- ticket_seq already exists (Hibernate's default sequence for Ticket, also 50 per block)
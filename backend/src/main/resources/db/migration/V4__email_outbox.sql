@@ -0,0 +1,23 @@
+-- Outbox for emails queued in the same transaction as the change they announce and sent by the
+-- background dispatcher. Kept in sync with the OutboxEmail entity.
+
+CREATE TABLE email_outbox (
+    id              BIGINT       NOT NULL,
+    recipient       VARCHAR(255) NOT NULL,
+    subject         VARCHAR(255) NOT NULL,
+    body            LONGTEXT     NOT NULL,
+    status          TINYINT      NOT NULL,
+    attempts        INT          NOT NULL,
+    next_attempt_at DATETIME(6),
+    created_at      DATETIME(6),
+    sent_at         DATETIME(6),
+    last_error      VARCHAR(500),
+    PRIMARY KEY (id)
+);
+
+-- Dispatcher poll: status = PENDING AND next_attempt_at <= now
+CREATE INDEX idx_email_outbox_due ON email_outbox (status, next_attempt_at);
+
+-- Id generator table used by the pooled @SequenceGenerator on MySQL
+CREATE TABLE email_outbox_seq (next_val BIGINT);
+INSERT INTO email_outbox_seq VALUES (1);
@@ -0,0 +1,6 @@
+-- Cart items take pooled ids (blocks of 50) like order items, so merging a guest cart at login inserts
+-- its lines as one JDBC batch. Kept in sync with the @SequenceGenerator on CartItemModel.
+-- The pooled optimizer hands out the 50 ids up to the value it reads, so the seed is MAX(id) + 50.
+ALTER TABLE cart_items MODIFY id BIGINT NOT NULL;
+CREATE TABLE cart_items_seq (next_val BIGINT);
+INSERT INTO cart_items_seq SELECT COALESCE(MAX(id), 0) + 50 FROM cart_items;
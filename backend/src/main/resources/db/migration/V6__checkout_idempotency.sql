@@ -0,0 +1,19 @@
+-- Checkout Idempotency-Key records shared by all instances. Kept in sync with the
+-- CheckoutIdempotencyRecord entity.
+
+CREATE TABLE checkout_idempotency (
+    id              BIGINT       NOT NULL AUTO_INCREMENT,
+    username        VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    fingerprint     VARCHAR(64)  NOT NULL,
+    response_status INT,
+    response_body   LONGTEXT,
+    created_at      DATETIME(6),
+    expires_at      DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id),
+    -- The insert that claims a key fails for every other request carrying it, on any instance
+    CONSTRAINT uk_checkout_idempotency_key UNIQUE (username, idempotency_key)
+);
+
+-- Purge of expired keys: expires_at <= now
+CREATE INDEX idx_checkout_idempotency_expires ON checkout_idempotency (expires_at);
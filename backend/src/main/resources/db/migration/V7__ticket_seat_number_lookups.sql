@@ -0,0 +1,9 @@
+-- Seat lookups per flight read the ticket's own seat_number instead of joining seat.
+-- Tickets created with a seat before the constructor copied its number get it filled in here.
+UPDATE ticket t JOIN seat s ON s.id = t.seat_id SET t.seat_number = s.seat_number WHERE t.seat_number IS NULL;
+
+-- ticket_status joins idx_ticket_flight_seat so the occupied-seat projection is answered from the index.
+-- Dropped and re-added in one statement: the index also backs the foreign key on flight_id.
+ALTER TABLE ticket
+    DROP INDEX idx_ticket_flight_seat,
+    ADD INDEX idx_ticket_flight_seat (flight_id, seat_number, ticket_status);
@@ -0,0 +1,90 @@
+package org.example.xlr8travel.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong clock;
+    private BoundedCache<String, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        cache = new BoundedCache<>("test", 2, Duration.ofSeconds(10), meterRegistry, clock::get);
+    }
+
+    @Test
+    void put_BeyondMaxSize_ShouldEvictLeastRecentlyUsed() {
+        // Arrange
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a"); // "b" is now the least recently used entry
+
+        // Act
+        cache.put("c", "C");
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertTrue(cache.get("a").isPresent());
+        assertTrue(cache.get("b").isEmpty());
+        assertTrue(cache.get("c").isPresent());
+        assertEquals(1.0, meterRegistry.get("cache.evictions").tag("cause", "size").counter().count());
+    }
+
+    @Test
+    void get_AfterTtl_ShouldMissAndEvict() {
+        // Arrange
+        cache.put("a", "A");
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        // Act & Assert
+        assertTrue(cache.get("a").isEmpty());
+        assertEquals(0, cache.size());
+        assertEquals(1.0, meterRegistry.get("cache.evictions").tag("cause", "expired").counter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void put_AfterTtl_ShouldSweepExpiredEntries() {
+        // Arrange
+        cache.put("a", "A");
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        // Act
+        cache.put("b", "B");
+
+        // Assert
+        assertEquals(1, cache.size());
+        assertEquals(1.0, meterRegistry.get("cache.size").tag("cache", "test").gauge().value());
+    }
+
+    @Test
+    void invalidateIf_ShouldRemoveMatchingKeysOnly() {
+        // Arrange
+        cache.put("otp-1", "A");
+        cache.put("clj-1", "B");
+
+        // Act
+        int removed = cache.invalidateIf(key -> key.startsWith("otp"));
+
+        // Assert
+        assertEquals(1, removed);
+        assertTrue(cache.get("clj-1").isPresent());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void constructor_WithNonPositiveSize_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new BoundedCache<String, String>("bad", 0, Duration.ofSeconds(1), meterRegistry));
+    }
+}
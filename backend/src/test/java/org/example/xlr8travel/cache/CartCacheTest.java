@@ -0,0 +1,60 @@
+package org.example.xlr8travel.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xlr8travel.dto.CartDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CartCacheTest {
+
+    private CartCache cartCache;
+
+    @BeforeEach
+    void setUp() {
+        cartCache = new CartCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void writeThrough_OutsideTransaction_ShouldStoreRightAway() {
+        // Arrange
+        CartDTO cart = CartDTO.of(List.of());
+
+        // Act
+        cartCache.writeThrough(1L, cart);
+
+        // Assert
+        assertSame(cart, cartCache.get(1L).orElseThrow());
+    }
+
+    @Test
+    void putIfUnchanged_AfterAConcurrentWrite_ShouldKeepTheWrittenCart() {
+        // Arrange - a read misses and starts loading
+        long version = cartCache.version(1L);
+        CartDTO written = CartDTO.of(List.of());
+        cartCache.writeThrough(1L, written);
+
+        // Act - the load, which started before the write, finishes afterwards
+        cartCache.putIfUnchanged(1L, version, CartDTO.of(List.of()));
+
+        // Assert
+        assertSame(written, cartCache.get(1L).orElseThrow());
+    }
+
+    @Test
+    void putIfUnchanged_WithoutWrites_ShouldStoreTheLoad() {
+        // Arrange
+        CartDTO loaded = CartDTO.of(List.of());
+
+        // Act
+        cartCache.putIfUnchanged(1L, cartCache.version(1L), loaded);
+
+        // Assert
+        assertSame(loaded, cartCache.get(1L).orElseThrow());
+        assertEquals(1, cartCache.size());
+    }
+}
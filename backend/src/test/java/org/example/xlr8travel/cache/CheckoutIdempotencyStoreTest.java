@@ -0,0 +1,182 @@
+package org.example.xlr8travel.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xlr8travel.models.CheckoutIdempotencyRecord;
+import org.example.xlr8travel.repositories.CheckoutIdempotencyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the store against the checkout_idempotency table. Every repository call commits on its own, as it
+ * does behind the controller, so the unique key is what keeps a second request from claiming a key.
+ */
+@DataJpaTest(
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+    }
+)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CheckoutIdempotencyStoreTest {
+
+    @Autowired
+    private CheckoutIdempotencyRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+    private CheckoutIdempotencyStore store;
+    private final AtomicInteger orders = new AtomicInteger();
+    private final Supplier<ResponseEntity<?>> checkout = () -> ResponseEntity.ok("ORDER" + orders.incrementAndGet());
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock();
+        store = newStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    private CheckoutIdempotencyStore newStore() {
+        return new CheckoutIdempotencyStore(repository, new ObjectMapper(), meterRegistry, Duration.ofHours(24),
+                Duration.ofMinutes(5), Duration.ofSeconds(1), clock);
+    }
+
+    @Test
+    void execute_SameKeyFromAnotherUser_ShouldRunSeparately() {
+        // Act
+        ResponseEntity<?> alice = store.execute("alice", "key-1", "body", checkout);
+        ResponseEntity<?> bob = store.execute("bob", "key-1", "body", checkout);
+
+        // Assert
+        assertEquals("ORDER1", alice.getBody());
+        assertEquals("ORDER2", bob.getBody());
+        assertEquals(2.0, meterRegistry.get("checkout.idempotency.requests").tag("outcome", "executed").counter().count());
+    }
+
+    @Test
+    void execute_AfterTtl_ShouldRunAgain() {
+        // Arrange
+        store.execute("alice", "key-1", "body", checkout);
+        clock.advance(Duration.ofHours(23));
+        assertEquals("ORDER1", store.execute("alice", "key-1", "body", checkout).getBody());
+
+        // Act
+        clock.advance(Duration.ofHours(2));
+        ResponseEntity<?> response = store.execute("alice", "key-1", "body", checkout);
+
+        // Assert
+        assertEquals("ORDER2", response.getBody());
+        assertEquals(1.0, meterRegistry.get("checkout.idempotency.requests").tag("outcome", "replayed").counter().count());
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    void execute_OnAnotherInstance_ShouldReplayTheStoredResponse() {
+        // Arrange
+        store.execute("alice", "key-1", "body", checkout);
+
+        // Act - a second store shares nothing with the first but the table
+        ResponseEntity<?> retry = newStore().execute("alice", "key-1", "body", checkout);
+
+        // Assert
+        assertEquals("ORDER1", retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(CheckoutIdempotencyStore.REPLAYED_HEADER));
+        assertEquals(1, orders.get());
+    }
+
+    @Test
+    void execute_ClientErrorResponse_ShouldNotBeStored() {
+        // Arrange - the first attempt is refused, e.g. a seat taken since the cart was filled
+        store.execute("alice", "key-1", "body", () -> ResponseEntity.status(HttpStatus.CONFLICT).body("SEAT_TAKEN"));
+
+        // Act
+        ResponseEntity<?> retry = store.execute("alice", "key-1", "body", checkout);
+
+        // Assert
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertEquals("ORDER1", retry.getBody());
+        assertNull(retry.getHeaders().getFirst(CheckoutIdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void execute_KeyWhoseLeaseHasLapsed_ShouldBeTakenOver() {
+        // Arrange - an instance claimed the key and died before finishing the checkout
+        LocalDateTime now = LocalDateTime.now(clock);
+        repository.saveAndFlush(new CheckoutIdempotencyRecord("alice", "key-1", "stale",
+                now.minusMinutes(10), now.minusMinutes(5)));
+
+        // Act
+        ResponseEntity<?> response = store.execute("alice", "key-1", "body", checkout);
+
+        // Assert
+        assertEquals("ORDER1", response.getBody());
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    void purgeExpired_ShouldDeleteOnlyKeysPastTheirReplayWindow() {
+        // Arrange
+        store.execute("alice", "key-1", "body", checkout);
+        clock.advance(Duration.ofHours(12));
+        store.execute("alice", "key-2", "body", checkout);
+        clock.advance(Duration.ofHours(13));
+
+        // Act
+        int purged = store.purgeExpired();
+
+        // Assert
+        assertEquals(1, purged);
+        assertTrue(repository.findByUsernameAndIdempotencyKey("alice", "key-2").isPresent());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2030-05-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
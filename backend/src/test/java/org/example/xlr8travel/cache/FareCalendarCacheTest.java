@@ -0,0 +1,54 @@
+package org.example.xlr8travel.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xlr8travel.dto.FareCalendarDayDTO;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FareCalendarCacheTest {
+
+    private static final YearMonth MARCH = YearMonth.of(2030, 3);
+
+    private FareCalendarCache fareCalendarCache;
+
+    @BeforeEach
+    void setUp() {
+        fareCalendarCache = new FareCalendarCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void putIfUnchanged_AfterAFlightChangeInThatMonth_ShouldDropTheLoad() {
+        // Arrange - a read misses and starts loading
+        long version = fareCalendarCache.version("OTP", "LHR", MARCH);
+        FlightDTO changed = new FlightDTO(1L, "XL100", "OTP", "LHR", LocalDate.of(2030, 3, 14), null,
+                null, null, BigDecimal.valueOf(99), null, null, null);
+        fareCalendarCache.onFlightChanged(new FlightChangedEvent(1L, null, changed));
+
+        // Act - the load, which read the fares before the change, finishes afterwards
+        fareCalendarCache.putIfUnchanged("OTP", "LHR", MARCH, version,
+                List.of(new FareCalendarDayDTO(LocalDate.of(2030, 3, 14), BigDecimal.valueOf(120), 1L)));
+
+        // Assert
+        assertTrue(fareCalendarCache.get("OTP", "LHR", MARCH).isEmpty());
+    }
+
+    @Test
+    void putIfUnchanged_WithoutChanges_ShouldStoreTheLoad() {
+        // Act
+        fareCalendarCache.putIfUnchanged("otp", "lhr", MARCH, fareCalendarCache.version("OTP", "LHR", MARCH), List.of());
+
+        // Assert
+        assertTrue(fareCalendarCache.get("OTP", "LHR", MARCH).isPresent());
+        assertEquals(1, fareCalendarCache.size());
+    }
+}
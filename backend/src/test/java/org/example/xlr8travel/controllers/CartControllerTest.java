@@ -3,11 +3,15 @@ package org.example.xlr8travel.controllers;
 import jakarta.persistence.EntityNotFoundException;
 import org.example.xlr8travel.dto.AddToCartRequestDTO;
 import org.example.xlr8travel.dto.CartDTO;
+import org.example.xlr8travel.dto.CartOperationDTO;
+import org.example.xlr8travel.dto.CartPatchRequestDTO;
 import org.example.xlr8travel.dto.FlightCartItemDTO;
 import org.example.xlr8travel.models.Flight;
 import org.example.xlr8travel.models.User;
 import org.example.xlr8travel.services.CartService;
 import org.example.xlr8travel.services.FlightService;
+import org.example.xlr8travel.services.GuestCartService;
+import org.example.xlr8travel.services.SeatConflictException;
 import org.example.xlr8travel.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,8 +19,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -43,6 +50,9 @@ public class CartControllerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private GuestCartService guestCartService;
+
     @Mock
     private UserDetails userDetails;
 
@@ -54,9 +64,12 @@ public class CartControllerTest {
     private CartDTO testCartDTO;
     private final Long TEST_FLIGHT_ID = 1L;
     private final String TEST_USERNAME = "testuser";
+    private final MockHttpServletRequest httpRequest = new MockHttpServletRequest();
 
     @BeforeEach
     void setUp() {
+        httpRequest.setRemoteAddr("203.0.113.7");
+
         // Create test user
         testUser = new User();
         testUser.setId(1L);
@@ -103,7 +116,7 @@ public class CartControllerTest {
         when(cartService.getCartForUser(testUser)).thenReturn(testCartDTO);
 
         // Act
-        ResponseEntity<CartDTO> response = cartController.showCart(userDetails);
+        ResponseEntity<CartDTO> response = cartController.showCart(userDetails, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -125,7 +138,7 @@ public class CartControllerTest {
         );
 
         // Act
-        ResponseEntity<CartDTO> response = cartController.showCart(userDetails);
+        ResponseEntity<CartDTO> response = cartController.showCart(userDetails, null);
 
         // Assert
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
@@ -146,7 +159,7 @@ public class CartControllerTest {
         when(cartService.addItemToCart(testUser, testFlight, null, "B","ca",false, false, "BAGGAGE_TYPE_WEIGHT_CARRY_ON_0")).thenReturn(testCartDTO);
 
         // Act
-        ResponseEntity<?> response = cartController.addFlightToCart(request, userDetails);
+        ResponseEntity<?> response = cartController.addFlightToCart(request, userDetails, null, httpRequest);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -173,7 +186,7 @@ public class CartControllerTest {
         when(flightService.findById(TEST_FLIGHT_ID)).thenReturn(null);
 
         // Act
-        ResponseEntity<?> response = cartController.addFlightToCart(request, userDetails);
+        ResponseEntity<?> response = cartController.addFlightToCart(request, userDetails, null, httpRequest);
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -193,7 +206,7 @@ public class CartControllerTest {
         when(cartService.decreaseItemQuantity(testUser, testFlight)).thenReturn(testCartDTO);
 
         // Act
-        ResponseEntity<?> response = cartController.decreaseQuantity(TEST_FLIGHT_ID, userDetails);
+        ResponseEntity<?> response = cartController.decreaseQuantity(TEST_FLIGHT_ID, userDetails, null, httpRequest);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -213,7 +226,7 @@ public class CartControllerTest {
         when(flightService.findById(TEST_FLIGHT_ID)).thenReturn(null);
 
         // Act
-        ResponseEntity<?> response = cartController.decreaseQuantity(TEST_FLIGHT_ID, userDetails);
+        ResponseEntity<?> response = cartController.decreaseQuantity(TEST_FLIGHT_ID, userDetails, null, httpRequest);
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -235,7 +248,7 @@ public class CartControllerTest {
         );
 
         // Act
-        ResponseEntity<?> response = cartController.decreaseQuantity(TEST_FLIGHT_ID, userDetails);
+        ResponseEntity<?> response = cartController.decreaseQuantity(TEST_FLIGHT_ID, userDetails, null, httpRequest);
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -255,7 +268,7 @@ public class CartControllerTest {
         when(cartService.removeItemFromCart(testUser, testFlight)).thenReturn(testCartDTO);
 
         // Act
-        ResponseEntity<?> response = cartController.removeFlightFromCart(TEST_FLIGHT_ID, userDetails);
+        ResponseEntity<?> response = cartController.removeFlightFromCart(TEST_FLIGHT_ID, userDetails, null, httpRequest);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -275,7 +288,7 @@ public class CartControllerTest {
         when(flightService.findById(TEST_FLIGHT_ID)).thenReturn(null);
 
         // Act
-        ResponseEntity<?> response = cartController.removeFlightFromCart(TEST_FLIGHT_ID, userDetails);
+        ResponseEntity<?> response = cartController.removeFlightFromCart(TEST_FLIGHT_ID, userDetails, null, httpRequest);
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -297,7 +310,7 @@ public class CartControllerTest {
         );
 
         // Act
-        ResponseEntity<?> response = cartController.removeFlightFromCart(TEST_FLIGHT_ID, userDetails);
+        ResponseEntity<?> response = cartController.removeFlightFromCart(TEST_FLIGHT_ID, userDetails, null, httpRequest);
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -309,4 +322,82 @@ public class CartControllerTest {
         verify(flightService).findById(TEST_FLIGHT_ID);
         verify(cartService).removeItemFromCart(testUser, testFlight);
     }
+
+    @Test
+    void updateCart_ShouldApplyAllOperationsWithoutLoadingFlights() {
+        // Arrange
+        CartPatchRequestDTO request = new CartPatchRequestDTO();
+        request.setOperations(List.of(operation(CartOperationDTO.Op.ADD, TEST_FLIGHT_ID), operation(CartOperationDTO.Op.ADD, 2L)));
+        when(cartService.applyOperations(testUser, request.getOperations())).thenReturn(testCartDTO);
+
+        // Act
+        ResponseEntity<?> response = cartController.updateCart(request, userDetails, null, httpRequest);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(testCartDTO, response.getBody());
+        verify(cartService).applyOperations(testUser, request.getOperations());
+        verifyNoInteractions(flightService);
+    }
+
+    @Test
+    void updateCart_WhenSeatTaken_ReturnsConflictWithAlternatives() {
+        // Arrange
+        CartPatchRequestDTO request = new CartPatchRequestDTO();
+        request.setOperations(List.of(operation(CartOperationDTO.Op.SET_SEAT, TEST_FLIGHT_ID)));
+        when(cartService.applyOperations(testUser, request.getOperations()))
+                .thenThrow(new SeatConflictException(TEST_FLIGHT_ID, "12C", List.of("12B", "12D")));
+
+        // Act
+        ResponseEntity<?> response = cartController.updateCart(request, userDetails, null, httpRequest);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        Map<String, Object> errorMap = (Map<String, Object>) response.getBody();
+        assertEquals(List.of("12B", "12D"), errorMap.get("alternativeSeats"));
+    }
+
+    @Test
+    void addFlightToCart_WhenGuest_UpdatesGuestCartAndIssuesCookie() {
+        // Arrange
+        AddToCartRequestDTO request = new AddToCartRequestDTO();
+        request.setFlightId(TEST_FLIGHT_ID);
+        request.setSeatNumber("12C");
+        when(guestCartService.isValidToken(null)).thenReturn(false);
+        when(guestCartService.newToken()).thenReturn("new-token");
+        when(guestCartService.apply(eq("new-token"), eq("203.0.113.7"), anyList())).thenReturn(testCartDTO);
+        when(guestCartService.cookie("new-token")).thenReturn(ResponseCookie.from(GuestCartService.COOKIE_NAME, "new-token").build());
+
+        // Act
+        ResponseEntity<?> response = cartController.addFlightToCart(request, null, null, httpRequest);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(testCartDTO, response.getBody());
+        assertTrue(response.getHeaders().getFirst(HttpHeaders.SET_COOKIE).startsWith(GuestCartService.COOKIE_NAME + "=new-token"));
+        verify(guestCartService).apply(eq("new-token"), eq("203.0.113.7"), argThat(ops -> ops.size() == 1
+                && ops.get(0).getOp() == CartOperationDTO.Op.ADD && "12C".equals(ops.get(0).getSeatNumber())));
+        verifyNoInteractions(cartService, userService);
+    }
+
+    @Test
+    void removeFlightFromCart_WhenGuestLineMissing_ReturnsNotFound() {
+        // Arrange
+        when(guestCartService.isValidToken("guest-token")).thenReturn(true);
+        when(guestCartService.apply(eq("guest-token"), eq("203.0.113.7"), anyList())).thenThrow(new EntityNotFoundException("Item not found in cart."));
+
+        // Act
+        ResponseEntity<?> response = cartController.removeFlightFromCart(TEST_FLIGHT_ID, null, "guest-token", httpRequest);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verifyNoInteractions(cartService);
+    }
+
+    private static CartOperationDTO operation(CartOperationDTO.Op op, Long flightId) {
+        CartOperationDTO operation = new CartOperationDTO();
+        operation.setOp(op);
+        operation.setFlightId(flightId);
+        return operation;
+    }
 }
@@ -1,34 +1,63 @@
 package org.example.xlr8travel.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xlr8travel.cache.CheckoutIdempotencyStore;
 import org.example.xlr8travel.dto.CartDTO;
 import org.example.xlr8travel.dto.CheckoutRequestDTO;
 import org.example.xlr8travel.dto.FlightCartItemDTO;
 import org.example.xlr8travel.models.User;
+import org.example.xlr8travel.repositories.CheckoutIdempotencyRepository;
 import org.example.xlr8travel.services.CartService;
 import org.example.xlr8travel.services.OrderService;
 import org.example.xlr8travel.services.UserService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+// Idempotency keys go through the real checkout_idempotency table, committed per call as in production
+@DataJpaTest(
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+    }
+)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 @ExtendWith(MockitoExtension.class)
 public class CheckoutControllerTest {
 
+    @Autowired
+    private CheckoutIdempotencyRepository idempotencyRepository;
+
     @Mock
     private UserService userService;
 
@@ -41,7 +70,6 @@ public class CheckoutControllerTest {
     @Mock
     private UserDetails userDetails;
 
-    @InjectMocks
     private CheckoutController checkoutController;
 
     private User testUser;
@@ -51,6 +79,10 @@ public class CheckoutControllerTest {
 
     @BeforeEach
     void setUp() {
+        checkoutController = new CheckoutController(userService, orderService, cartService,
+                new CheckoutIdempotencyStore(idempotencyRepository, new ObjectMapper(), new SimpleMeterRegistry(),
+                        Duration.ofHours(24), Duration.ofMinutes(5), Duration.ofSeconds(5)));
+
         // Create test user
         testUser = new User();
         testUser.setId(1L);
@@ -83,15 +115,20 @@ public class CheckoutControllerTest {
         lenient().when(userService.findByUsername(TEST_USERNAME)).thenReturn(testUser);
     }
 
+    @AfterEach
+    void tearDown() {
+        idempotencyRepository.deleteAll();
+    }
+
     @Test
     void confirmPurchase_WhenAuthenticated_AndCartNotEmpty_ReturnsSuccess() throws Exception {
         // Arrange
-        when(cartService.getCartForUser(testUser)).thenReturn(testCart);
+        when(cartService.getCartForCheckout(testUser)).thenReturn(testCart);
         when(orderService.createOrderFromCart(eq(testUser), eq(testCart), any(CheckoutRequestDTO.class)))
                 .thenReturn("ORDER123");
 
         // Act
-        ResponseEntity<?> response = checkoutController.confirmPurchase(testCheckoutRequest, userDetails);
+        ResponseEntity<?> response = checkoutController.confirmPurchase(testCheckoutRequest, userDetails, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -102,7 +139,7 @@ public class CheckoutControllerTest {
 
         // Verify service calls
         verify(userService).findByUsername(TEST_USERNAME);
-        verify(cartService).getCartForUser(testUser);
+        verify(cartService).getCartForCheckout(testUser);
         verify(orderService).createOrderFromCart(eq(testUser), eq(testCart), any(CheckoutRequestDTO.class));
         verify(cartService).clearCart(testUser);
     }
@@ -112,10 +149,10 @@ public class CheckoutControllerTest {
         // Arrange
         CartDTO emptyCart = new CartDTO();
         emptyCart.setItems(new ArrayList<>());
-        when(cartService.getCartForUser(testUser)).thenReturn(emptyCart);
+        when(cartService.getCartForCheckout(testUser)).thenReturn(emptyCart);
 
         // Act
-        ResponseEntity<?> response = checkoutController.confirmPurchase(testCheckoutRequest, userDetails);
+        ResponseEntity<?> response = checkoutController.confirmPurchase(testCheckoutRequest, userDetails, null);
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -125,7 +162,7 @@ public class CheckoutControllerTest {
 
         // Verify service calls
         verify(userService).findByUsername(TEST_USERNAME);
-        verify(cartService).getCartForUser(testUser);
+        verify(cartService).getCartForCheckout(testUser);
         verify(orderService, never()).createOrderFromCart(any(), any(), any());
         verify(cartService, never()).clearCart(any());
     }
@@ -138,7 +175,7 @@ public class CheckoutControllerTest {
         );
 
         // Act
-        ResponseEntity<?> response = checkoutController.confirmPurchase(testCheckoutRequest, userDetails);
+        ResponseEntity<?> response = checkoutController.confirmPurchase(testCheckoutRequest, userDetails, null);
 
         // Assert
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
@@ -148,7 +185,7 @@ public class CheckoutControllerTest {
 
         // Verify service calls
         verify(userService).findByUsername(TEST_USERNAME);
-        verify(cartService, never()).getCartForUser(any());
+        verify(cartService, never()).getCartForCheckout(any());
         verify(orderService, never()).createOrderFromCart(any(), any(), any());
         verify(cartService, never()).clearCart(any());
     }
@@ -156,12 +193,12 @@ public class CheckoutControllerTest {
     @Test
     void confirmPurchase_WhenOrderCreationFails_ReturnsBadRequest() throws Exception {
         // Arrange
-        when(cartService.getCartForUser(testUser)).thenReturn(testCart);
+        when(cartService.getCartForCheckout(testUser)).thenReturn(testCart);
         when(orderService.createOrderFromCart(eq(testUser), eq(testCart), any(CheckoutRequestDTO.class)))
                 .thenThrow(new IllegalArgumentException("Invalid payment information"));
 
         // Act
-        ResponseEntity<?> response = checkoutController.confirmPurchase(testCheckoutRequest, userDetails);
+        ResponseEntity<?> response = checkoutController.confirmPurchase(testCheckoutRequest, userDetails, null);
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -171,7 +208,7 @@ public class CheckoutControllerTest {
 
         // Verify service calls
         verify(userService).findByUsername(TEST_USERNAME);
-        verify(cartService).getCartForUser(testUser);
+        verify(cartService).getCartForCheckout(testUser);
         verify(orderService).createOrderFromCart(eq(testUser), eq(testCart), any(CheckoutRequestDTO.class));
         verify(cartService, never()).clearCart(any());
     }
@@ -179,12 +216,12 @@ public class CheckoutControllerTest {
     @Test
     void confirmPurchase_WhenUnexpectedError_ReturnsInternalServerError() throws Exception {
         // Arrange
-        when(cartService.getCartForUser(testUser)).thenReturn(testCart);
+        when(cartService.getCartForCheckout(testUser)).thenReturn(testCart);
         when(orderService.createOrderFromCart(eq(testUser), eq(testCart), any(CheckoutRequestDTO.class)))
                 .thenThrow(new RuntimeException("Database error"));
 
         // Act
-        ResponseEntity<?> response = checkoutController.confirmPurchase(testCheckoutRequest, userDetails);
+        ResponseEntity<?> response = checkoutController.confirmPurchase(testCheckoutRequest, userDetails, null);
 
         // Assert
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
@@ -194,8 +231,103 @@ public class CheckoutControllerTest {
 
         // Verify service calls
         verify(userService).findByUsername(TEST_USERNAME);
-        verify(cartService).getCartForUser(testUser);
+        verify(cartService).getCartForCheckout(testUser);
         verify(orderService).createOrderFromCart(eq(testUser), eq(testCart), any(CheckoutRequestDTO.class));
         verify(cartService, never()).clearCart(any());
     }
+
+    @Test
+    void confirmPurchase_RetriedWithSameIdempotencyKey_ReplaysOriginalResponse() throws Exception {
+        // Arrange
+        when(cartService.getCartForCheckout(testUser)).thenReturn(testCart);
+        when(orderService.createOrderFromCart(eq(testUser), eq(testCart), any(CheckoutRequestDTO.class)))
+                .thenReturn("ORDER123");
+        ResponseEntity<?> first = checkoutController.confirmPurchase(testCheckoutRequest, userDetails, "key-1");
+
+        // Act - the cart is already empty by now; the retry must not look at it again
+        ResponseEntity<?> retry = checkoutController.confirmPurchase(testCheckoutRequest, userDetails, "key-1");
+
+        // Assert
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(CheckoutIdempotencyStore.REPLAYED_HEADER));
+        assertNull(first.getHeaders().getFirst(CheckoutIdempotencyStore.REPLAYED_HEADER));
+        verify(cartService, times(1)).getCartForCheckout(testUser);
+        verify(orderService, times(1)).createOrderFromCart(any(), any(), any());
+        verify(cartService, times(1)).clearCart(testUser);
+    }
+
+    @Test
+    void confirmPurchase_ConcurrentDuplicates_ShouldCreateOneOrder() throws Exception {
+        // Arrange - the first checkout blocks inside order creation until the duplicate has arrived
+        CountDownLatch orderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cartService.getCartForCheckout(testUser)).thenReturn(testCart);
+        when(orderService.createOrderFromCart(eq(testUser), eq(testCart), any(CheckoutRequestDTO.class)))
+                .thenAnswer(invocation -> {
+                    orderStarted.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return "ORDER123";
+                });
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+
+        try {
+            // Act
+            Future<ResponseEntity<?>> original = clients.submit(
+                    () -> checkoutController.confirmPurchase(testCheckoutRequest, userDetails, "key-1"));
+            assertTrue(orderStarted.await(5, TimeUnit.SECONDS));
+            Future<ResponseEntity<?>> duplicate = clients.submit(
+                    () -> checkoutController.confirmPurchase(testCheckoutRequest, userDetails, "key-1"));
+            Thread.sleep(100); // let the duplicate reach the store and start waiting
+            release.countDown();
+
+            // Assert
+            ResponseEntity<?> originalResponse = original.get(5, TimeUnit.SECONDS);
+            ResponseEntity<?> duplicateResponse = duplicate.get(5, TimeUnit.SECONDS);
+            assertEquals(HttpStatus.OK, duplicateResponse.getStatusCode());
+            assertEquals(originalResponse.getBody(), duplicateResponse.getBody());
+            verify(orderService, times(1)).createOrderFromCart(any(), any(), any());
+            verify(cartService, times(1)).clearCart(testUser);
+        } finally {
+            release.countDown();
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void confirmPurchase_IdempotencyKeyReusedForDifferentRequest_ReturnsUnprocessableEntity() throws Exception {
+        // Arrange
+        when(cartService.getCartForCheckout(testUser)).thenReturn(testCart);
+        when(orderService.createOrderFromCart(eq(testUser), eq(testCart), any(CheckoutRequestDTO.class)))
+                .thenReturn("ORDER123");
+        checkoutController.confirmPurchase(testCheckoutRequest, userDetails, "key-1");
+        CheckoutRequestDTO otherRequest = new CheckoutRequestDTO();
+        otherRequest.setSeatNumber("14A");
+
+        // Act
+        ResponseEntity<?> response = checkoutController.confirmPurchase(otherRequest, userDetails, "key-1");
+
+        // Assert
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        verify(orderService, times(1)).createOrderFromCart(any(), any(), any());
+    }
+
+    @Test
+    void confirmPurchase_AfterServerError_RetryWithSameKeyRunsAgain() throws Exception {
+        // Arrange
+        when(cartService.getCartForCheckout(testUser)).thenReturn(testCart);
+        when(orderService.createOrderFromCart(eq(testUser), eq(testCart), any(CheckoutRequestDTO.class)))
+                .thenThrow(new RuntimeException("Database error"))
+                .thenReturn("ORDER123");
+
+        // Act
+        ResponseEntity<?> failed = checkoutController.confirmPurchase(testCheckoutRequest, userDetails, "key-1");
+        ResponseEntity<?> retry = checkoutController.confirmPurchase(testCheckoutRequest, userDetails, "key-1");
+
+        // Assert
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatusCode());
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertNull(retry.getHeaders().getFirst(CheckoutIdempotencyStore.REPLAYED_HEADER));
+        verify(orderService, times(2)).createOrderFromCart(any(), any(), any());
+    }
 }
@@ -1,14 +1,21 @@
 package org.example.xlr8travel.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.xlr8travel.dto.FareCalendarDayDTO;
 import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.dto.FlightPageDTO;
+import org.example.xlr8travel.dto.RoundTripSearchDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
 import org.example.xlr8travel.models.Flight;
+import org.example.xlr8travel.services.BookingFunnel;
+import org.example.xlr8travel.services.FlightCatalogVersion;
 import org.example.xlr8travel.services.FlightService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -25,10 +32,15 @@ import java.util.List;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -41,6 +53,12 @@ public class FlightControllerIntegrationTest {
     @Mock
     private FlightService flightService;
 
+    @Spy
+    private FlightCatalogVersion catalogVersion = new FlightCatalogVersion();
+
+    @Mock
+    private BookingFunnel bookingFunnel;
+
     @InjectMocks
     private FlightController flightController;
 
@@ -77,10 +95,10 @@ public class FlightControllerIntegrationTest {
 
     @Test
     void getAllFlights_ShouldReturnAllFlights() throws Exception {
-        // Mock the service to return a list with our test flight
-        List<Flight> flights = new ArrayList<>();
-        flights.add(testFlight);
-        when(flightService.findAll()).thenReturn(flights);
+        // Mock the service to return a single page with our test flight
+        List<FlightDTO> flights = new ArrayList<>();
+        flights.add(FlightDTO.fromFlight(testFlight));
+        when(flightService.findFlightPage(null, 100)).thenReturn(new FlightPageDTO(flights, null, false));
 
         mockMvc.perform(get("/api/flights"))
                 .andExpect(status().isOk())
@@ -157,6 +175,23 @@ public class FlightControllerIntegrationTest {
         assertEquals("New Integration Flight", responseFlight.getName());
     }
 
+    @Test
+    void addFlight_WithAircraftId_ShouldHandTheAircraftToTheService() throws Exception {
+        // Arrange
+        when(flightService.save(any(Flight.class))).thenReturn(testFlight);
+
+        // Act
+        mockMvc.perform(post("/api/flights")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"Aircraft Flight\", \"aircraftId\": 7}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.aircraft").doesNotExist())
+                .andExpect(jsonPath("$.aircraftId").doesNotExist());
+
+        // Assert
+        verify(flightService).save(argThat(flight -> flight.getAircraft() != null && flight.getAircraft().getId() == 7L));
+    }
+
     @Test
     void updateFlight_WhenFlightExists_ShouldReturnUpdatedFlight() throws Exception {
         // Create a flight to update
@@ -214,12 +249,12 @@ public class FlightControllerIntegrationTest {
         LocalDate departureDate = testFlight.getDepartureDate();
         String departureDateStr = departureDate.format(dateFormatter);
 
-        // Create a list of flights to be returned by the service
-        List<Flight> flights = new ArrayList<>();
-        flights.add(testFlight);
+        // Create a list of flights to be returned by the catalog search
+        List<FlightDTO> flights = new ArrayList<>();
+        flights.add(FlightDTO.fromFlight(testFlight));
 
         // Mock the service to return our test flights for one-way search
-        when(flightService.findByOriginAndDestinationAndDepartureDate(origin, destination, departureDate))
+        when(flightService.searchFlights(origin, destination, departureDate, null))
             .thenReturn(flights);
 
         // Create a FlightDTO that would be returned in the response
@@ -253,14 +288,6 @@ public class FlightControllerIntegrationTest {
         LocalDate departureDate = testFlight.getDepartureDate();
         String departureDateStr = departureDate.format(dateFormatter);
 
-        // Create a list of flights to be returned by the service
-        List<Flight> flights = new ArrayList<>();
-        flights.add(testFlight);
-
-        // Mock the service to return our test flights for nearby flights search
-        when(flightService.findByOriginAndDepartureDateAfter(origin, departureDate))
-            .thenReturn(flights);
-
         // Create a FlightDTO that would be returned in the response
         List<FlightDTO> flightDTOs = new ArrayList<>();
         FlightDTO flightDTO = new FlightDTO();
@@ -275,6 +302,9 @@ public class FlightControllerIntegrationTest {
         flightDTO.setPrice(testFlight.getPrice());
         flightDTOs.add(flightDTO);
 
+        // Mock the service to return the diversified nearby flights
+        when(flightService.findNearbyFlights(origin, departureDate)).thenReturn(flightDTOs);
+
         mockMvc.perform(get("/api/flights/nearby")
                 .param("origin", origin)
                 .param("departureDate", departureDateStr))
@@ -283,4 +313,137 @@ public class FlightControllerIntegrationTest {
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].name", is("Integration Test Flight")));
     }
+
+    @Test
+    void searchFlightPage_ShouldReturnPageWithCursor() throws Exception {
+        LocalDate departureDate = testFlight.getDepartureDate();
+        FlightPageDTO page = new FlightPageDTO(List.of(FlightDTO.fromFlight(testFlight)), "next-token", true);
+        when(flightService.searchFlightPage("TestOrigin", "TestDestination", departureDate, null, 1)).thenReturn(page);
+
+        mockMvc.perform(get("/api/flights/search/page")
+                .param("origin", "TestOrigin")
+                .param("destination", "TestDestination")
+                .param("departureDate", departureDate.format(dateFormatter))
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor", is("next-token")))
+                .andExpect(jsonPath("$.hasMore", is(true)));
+    }
+
+    @Test
+    void searchFlightPage_WithInvalidCursor_ShouldReturnBadRequest() throws Exception {
+        LocalDate departureDate = testFlight.getDepartureDate();
+        when(flightService.searchFlightPage("TestOrigin", "TestDestination", departureDate, "garbage", 20))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: garbage"));
+
+        mockMvc.perform(get("/api/flights/search/page")
+                .param("origin", "TestOrigin")
+                .param("destination", "TestDestination")
+                .param("departureDate", departureDate.format(dateFormatter))
+                .param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void fareCalendar_ForMonth_ShouldQueryWholeMonth() throws Exception {
+        LocalDate first = LocalDate.of(2030, 2, 1);
+        LocalDate last = LocalDate.of(2030, 2, 28);
+        when(flightService.getFareCalendar("TestOrigin", "TestDestination", first, last))
+                .thenReturn(List.of(new FareCalendarDayDTO(first, BigDecimal.valueOf(49.99), 3L)));
+
+        mockMvc.perform(get("/api/flights/calendar")
+                .param("origin", "TestOrigin")
+                .param("destination", "TestDestination")
+                .param("month", "2030-02"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].flightCount", is(3)));
+    }
+
+    @Test
+    void fareCalendar_WithBothMonthAndDate_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/flights/calendar")
+                .param("origin", "TestOrigin")
+                .param("destination", "TestDestination")
+                .param("month", "2030-02")
+                .param("date", "2030-02-10"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(flightService);
+    }
+
+    @Test
+    void searchRoundTrip_ShouldReturnBothLegs() throws Exception {
+        LocalDate departureDate = testFlight.getDepartureDate();
+        LocalDate returnDate = departureDate.plusDays(7);
+        FlightDTO inbound = new FlightDTO();
+        inbound.setId(2L);
+        inbound.setName("Return Flight");
+        when(flightService.searchRoundTrip("TestOrigin", "TestDestination", departureDate, returnDate))
+                .thenReturn(new RoundTripSearchDTO(List.of(FlightDTO.fromFlight(testFlight)), List.of(inbound)));
+
+        mockMvc.perform(get("/api/flights/search/round-trip")
+                .param("origin", "TestOrigin")
+                .param("destination", "TestDestination")
+                .param("departureDate", departureDate.format(dateFormatter))
+                .param("returnDate", returnDate.format(dateFormatter)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.outbound[0].name", is("Integration Test Flight")))
+                .andExpect(jsonPath("$.inbound[0].name", is("Return Flight")))
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().string("Cache-Control", containsString("public")));
+    }
+
+    @Test
+    void searchFlights_WithMatchingIfNoneMatch_ShouldReturnNotModifiedWithoutSearching() throws Exception {
+        LocalDate departureDate = testFlight.getDepartureDate();
+        when(flightService.searchFlights("TestOrigin", "TestDestination", departureDate, null))
+                .thenReturn(List.of(FlightDTO.fromFlight(testFlight)));
+
+        String eTag = mockMvc.perform(get("/api/flights/search")
+                .param("origin", "TestOrigin")
+                .param("destination", "TestDestination")
+                .param("departureDate", departureDate.format(dateFormatter))
+                .param("tripType", "oneWay"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().string("Cache-Control", containsString("public")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/flights/search")
+                .param("origin", "TestOrigin")
+                .param("destination", "TestDestination")
+                .param("departureDate", departureDate.format(dateFormatter))
+                .param("tripType", "oneWay")
+                .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(flightService, times(1)).searchFlights("TestOrigin", "TestDestination", departureDate, null);
+    }
+
+    @Test
+    void nearbyFlights_AfterCatalogChange_ShouldIssueNewETag() throws Exception {
+        LocalDate departureDate = testFlight.getDepartureDate();
+        when(flightService.findNearbyFlights("TestOrigin", departureDate)).thenReturn(List.of(FlightDTO.fromFlight(testFlight)));
+
+        String firstETag = mockMvc.perform(get("/api/flights/nearby")
+                .param("origin", "TestOrigin")
+                .param("departureDate", departureDate.format(dateFormatter)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        catalogVersion.onFlightChanged(new FlightChangedEvent(1L, FlightDTO.fromFlight(testFlight), null));
+
+        String secondETag = mockMvc.perform(get("/api/flights/nearby")
+                .param("origin", "TestOrigin")
+                .param("departureDate", departureDate.format(dateFormatter))
+                .header("If-None-Match", firstETag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertNotNull(secondETag);
+        assertNotEquals(firstETag, secondETag);
+    }
 }
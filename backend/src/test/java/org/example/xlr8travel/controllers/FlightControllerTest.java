@@ -1,16 +1,23 @@
 package org.example.xlr8travel.controllers;
 
 import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.dto.FlightPageDTO;
 import org.example.xlr8travel.models.Flight;
+import org.example.xlr8travel.services.BookingFunnel;
+import org.example.xlr8travel.services.FlightCatalogVersion;
 import org.example.xlr8travel.services.FlightService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
@@ -30,12 +37,20 @@ public class FlightControllerTest {
     @Mock
     private FlightService flightService;
 
+    @Spy
+    private FlightCatalogVersion catalogVersion = new FlightCatalogVersion();
+
+    @Mock
+    private BookingFunnel bookingFunnel;
+
     @InjectMocks
     private FlightController flightController;
 
     private Flight testFlight;
     private List<Flight> testFlights;
     private final Long TEST_FLIGHT_ID = 1L;
+    private final ServletWebRequest webRequest =
+            new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
 
     @BeforeEach
     void setUp() {
@@ -60,10 +75,11 @@ public class FlightControllerTest {
     @Test
     void getAllFlights_WhenFlightsExist_ReturnsFlights() {
         // Arrange
-        when(flightService.findAll()).thenReturn(testFlights);
+        when(flightService.findFlightPage(null, 100))
+                .thenReturn(new FlightPageDTO(List.of(FlightDTO.fromFlight(testFlight)), null, false));
 
         // Act
-        ResponseEntity<List<Flight>> response = flightController.getAllFlights();
+        ResponseEntity<List<FlightDTO>> response = flightController.getAllFlights();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -72,16 +88,35 @@ public class FlightControllerTest {
         assertEquals(TEST_FLIGHT_ID, response.getBody().get(0).getId());
 
         // Verify service was called
-        verify(flightService).findAll();
+        verify(flightService).findFlightPage(null, 100);
+    }
+
+    @Test
+    void getAllFlights_WhenSeveralPages_FollowsCursorUntilLastPage() {
+        // Arrange
+        FlightDTO second = FlightDTO.fromFlight(testFlight);
+        second.setId(2L);
+        when(flightService.findFlightPage(null, 100))
+                .thenReturn(new FlightPageDTO(List.of(FlightDTO.fromFlight(testFlight)), "cursor-1", true));
+        when(flightService.findFlightPage("cursor-1", 100))
+                .thenReturn(new FlightPageDTO(List.of(second), null, false));
+
+        // Act
+        ResponseEntity<List<FlightDTO>> response = flightController.getAllFlights();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().size());
+        verify(flightService, never()).findAll();
     }
 
     @Test
     void getAllFlights_WhenNoFlights_ReturnsEmptyList() {
         // Arrange
-        when(flightService.findAll()).thenReturn(new ArrayList<>());
+        when(flightService.findFlightPage(null, 100)).thenReturn(new FlightPageDTO(List.of(), null, false));
 
         // Act
-        ResponseEntity<List<Flight>> response = flightController.getAllFlights();
+        ResponseEntity<List<FlightDTO>> response = flightController.getAllFlights();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -89,23 +124,23 @@ public class FlightControllerTest {
         assertTrue(response.getBody().isEmpty());
 
         // Verify service was called
-        verify(flightService).findAll();
+        verify(flightService).findFlightPage(null, 100);
     }
 
     @Test
     void getAllFlights_WhenServiceThrowsException_ReturnsInternalServerError() {
         // Arrange
-        when(flightService.findAll()).thenThrow(new RuntimeException("Database error"));
+        when(flightService.findFlightPage(null, 100)).thenThrow(new RuntimeException("Database error"));
 
         // Act
-        ResponseEntity<List<Flight>> response = flightController.getAllFlights();
+        ResponseEntity<List<FlightDTO>> response = flightController.getAllFlights();
 
         // Assert
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
         assertNull(response.getBody());
 
         // Verify service was called
-        verify(flightService).findAll();
+        verify(flightService).findFlightPage(null, 100);
     }
 
     @Test
@@ -255,24 +290,23 @@ public class FlightControllerTest {
         int children = 1;
         int infants = 0;
 
-        List<Flight> foundFlights = new ArrayList<>();
-        foundFlights.add(testFlight);
+        List<FlightDTO> foundFlights = new ArrayList<>();
+        foundFlights.add(FlightDTO.fromFlight(testFlight));
 
-        when(flightService.findByOriginAndDestinationAndArrivalDateAndDepartureDate(
-                origin, destination, arrivalDate, departureDate)).thenReturn(foundFlights);
+        when(flightService.searchFlights(origin, destination, departureDate, arrivalDate)).thenReturn(foundFlights);
 
         // Act
         ResponseEntity<List<FlightDTO>> response = flightController.searchFlights(
-                origin, destination, departureDate, arrivalDate, tripType, adults, children, infants);
+                origin, destination, departureDate, arrivalDate, tripType, adults, children, infants, webRequest);
 
-        // Assert
+        // Assert - the outbound flights only; /search/round-trip serves both legs
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
 
         // Verify service was called
-        verify(flightService).findByOriginAndDestinationAndArrivalDateAndDepartureDate(
-                origin, destination, arrivalDate, departureDate);
+        verify(flightService).searchFlights(origin, destination, departureDate, arrivalDate);
+        verify(flightService, never()).searchRoundTrip(any(), any(), any(), any());
     }
 
     @Test
@@ -286,15 +320,14 @@ public class FlightControllerTest {
         int children = 0;
         int infants = 0;
 
-        List<Flight> foundFlights = new ArrayList<>();
-        foundFlights.add(testFlight);
+        List<FlightDTO> foundFlights = new ArrayList<>();
+        foundFlights.add(FlightDTO.fromFlight(testFlight));
 
-        when(flightService.findByOriginAndDestinationAndDepartureDate(
-                origin, destination, departureDate)).thenReturn(foundFlights);
+        when(flightService.searchFlights(origin, destination, departureDate, null)).thenReturn(foundFlights);
 
         // Act
         ResponseEntity<List<FlightDTO>> response = flightController.searchFlights(
-                origin, destination, departureDate, null, tripType, adults, children, infants);
+                origin, destination, departureDate, null, tripType, adults, children, infants, webRequest);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -302,8 +335,7 @@ public class FlightControllerTest {
         assertEquals(1, response.getBody().size());
 
         // Verify service was called
-        verify(flightService).findByOriginAndDestinationAndDepartureDate(
-                origin, destination, departureDate);
+        verify(flightService).searchFlights(origin, destination, departureDate, null);
     }
 
     @Test
@@ -319,7 +351,7 @@ public class FlightControllerTest {
 
         // Act
         ResponseEntity<List<FlightDTO>> response = flightController.searchFlights(
-                origin, destination, departureDate, null, tripType, adults, children, infants);
+                origin, destination, departureDate, null, tripType, adults, children, infants, webRequest);
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -327,7 +359,6 @@ public class FlightControllerTest {
         assertTrue(response.getBody().isEmpty());
 
         // Verify service was not called
-        verify(flightService, never()).findByOriginAndDestinationAndArrivalDateAndDepartureDate(
-                anyString(), anyString(), any(), any());
+        verify(flightService, never()).searchFlights(anyString(), anyString(), any(), any());
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package org.example.xlr8travel.controllers;
 import org.example.xlr8travel.dto.LoginRequest;
 import org.example.xlr8travel.dto.LoginResponse;
 import org.example.xlr8travel.security.JwtUtils;
+import org.example.xlr8travel.services.GuestCartService;
 import org.example.xlr8travel.services.MetricsService;
 import org.example.xlr8travel.services.RecaptchaService;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,7 +12,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -42,6 +45,9 @@ public class LoginControllerTest {
     @Mock
     private MetricsService metricsService;
 
+    @Mock
+    private GuestCartService guestCartService;
+
     @InjectMocks
     private LoginController loginController;
 
@@ -81,7 +87,7 @@ public class LoginControllerTest {
                 .thenReturn(authentication);
 
         // Act
-        ResponseEntity<?> response = loginController.authenticateUser(loginRequest);
+        ResponseEntity<?> response = loginController.authenticateUser(loginRequest, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -115,7 +121,7 @@ public class LoginControllerTest {
                 .thenThrow(new BadCredentialsException("Invalid credentials"));
 
         // Act
-        ResponseEntity<?> response = loginController.authenticateUser(loginRequest);
+        ResponseEntity<?> response = loginController.authenticateUser(loginRequest, null);
 
         // Assert
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
@@ -135,7 +141,7 @@ public class LoginControllerTest {
                 .thenThrow(new RuntimeException("Unexpected error"));
 
         // Act
-        ResponseEntity<?> response = loginController.authenticateUser(loginRequest);
+        ResponseEntity<?> response = loginController.authenticateUser(loginRequest, null);
 
         // Assert
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
@@ -147,4 +153,37 @@ public class LoginControllerTest {
         // Verify authentication manager was called
         verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
     }
+
+    @Test
+    void authenticateUser_WithGuestCartCookie_MergesCartAndClearsCookie() {
+        // Arrange
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenReturn(authentication);
+        when(guestCartService.mergeInto(TEST_USERNAME, "guest-token")).thenReturn(true);
+        when(guestCartService.expiredCookie()).thenReturn(ResponseCookie.from(GuestCartService.COOKIE_NAME, "").maxAge(0).build());
+
+        // Act
+        ResponseEntity<?> response = loginController.authenticateUser(loginRequest, "guest-token");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getHeaders().getFirst(HttpHeaders.SET_COOKIE).startsWith(GuestCartService.COOKIE_NAME + "=;"));
+        verify(guestCartService).mergeInto(TEST_USERNAME, "guest-token");
+    }
+
+    @Test
+    void authenticateUser_WhenGuestCartMergeFails_StillLogsIn() {
+        // Arrange
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenReturn(authentication);
+        when(guestCartService.mergeInto(TEST_USERNAME, "guest-token")).thenThrow(new RuntimeException("db down"));
+        when(guestCartService.expiredCookie()).thenReturn(ResponseCookie.from(GuestCartService.COOKIE_NAME, "").maxAge(0).build());
+
+        // Act
+        ResponseEntity<?> response = loginController.authenticateUser(loginRequest, "guest-token");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody() instanceof LoginResponse);
+    }
 }
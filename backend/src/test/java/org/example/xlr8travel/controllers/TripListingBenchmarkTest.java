@@ -0,0 +1,193 @@
+package org.example.xlr8travel.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.xlr8travel.dto.TripDTO;
+import org.example.xlr8travel.models.*;
+import org.example.xlr8travel.repositories.TicketRepository;
+import org.example.xlr8travel.services.BoardingPassPdfService;
+import org.example.xlr8travel.services.TicketServiceImpl;
+import org.example.xlr8travel.services.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Size and query-cost regression benchmark for the check-in and boarding-pass listings. A page of trips is
+ * read through the controllers from the database, and Hibernate's statistics must show one statement with no
+ * entity or collection loads. The same trips are also loaded and serialized as the Ticket entities the
+ * endpoints used to return (passenger with addresses and profile picture, baggage, flight class) to compare
+ * payload size and query count.
+ */
+@DataJpaTest(
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+    }
+)
+@ExtendWith(MockitoExtension.class)
+public class TripListingBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TripListingBenchmarkTest.class);
+
+    private static final int TRIPS = 50;
+    private static final int PROFILE_PICTURE_BYTES = 24 * 1024;
+    private static final int MAX_BYTES_PER_TRIP = 600;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private BoardingPassPdfService pdfService;
+
+    @Mock
+    private UserDetails userDetails;
+
+    // Configured like Spring Boot's default ObjectMapper
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private CheckinController checkinController;
+    private BoardingPassController boardingPassController;
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        // The listings only read through the repository
+        TicketServiceImpl ticketService = new TicketServiceImpl(ticketRepository, null, null);
+        checkinController = new CheckinController(ticketService, userService);
+        boardingPassController = new BoardingPassController(ticketService, pdfService, userService);
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        user = new User();
+        user.setUsername("traveller");
+        user.setFirstname("Ada");
+        user.setLastname("Lovelace");
+        user.setEmail("ada@example.com");
+        user.setPassword("password");
+        user.setRoles(new ArrayList<>(List.of(Role.ROLE_USER)));
+        user.setProfilePicture(new byte[PROFILE_PICTURE_BYTES]);
+        user.addAddress(new Address("1 Analytical Engine Way"));
+        user.addAddress(new Address("2 Difference Street"));
+        entityManager.persist(user);
+        when(userDetails.getUsername()).thenReturn("traveller");
+        when(userService.findByUsername("traveller")).thenReturn(user);
+
+        // One confirmed and one checked-in ticket per flight
+        FlightClass economy = new FlightClass(89.0f, FlightClassType.FLIGHT_CLASS_TYPE_ECONOMY);
+        for (int i = 0; i < TRIPS; i++) {
+            Flight flight = new Flight();
+            flight.setName("XL" + (100 + i));
+            flight.setOrigin("OTP");
+            flight.setDestination("LHR");
+            flight.setDepartureDate(LocalDate.of(2030, 5, 1).plusDays(i));
+            flight.setDepartureTime(LocalTime.of(7, 30));
+            flight.setArrivalDate(LocalDate.of(2030, 5, 1).plusDays(i));
+            flight.setArrivalTime(LocalTime.of(9, 45));
+            flight.setTerminal("1");
+            flight.setGate("B" + i);
+            flight.setPrice(BigDecimal.valueOf(129));
+            flight.setLastUpdated(LocalDateTime.of(2030, 1, 1, 0, 0));
+            entityManager.persist(flight);
+
+            String seatNumber = (i / 6 + 1) + "ABCDEF".substring(i % 6, i % 6 + 1);
+            for (TicketStatus status : List.of(TicketStatus.TICKET_STATUS_CONFIRMED, TicketStatus.TICKET_STATUS_CHECKED_IN)) {
+                Ticket ticket = new Ticket(129.0f, LocalDateTime.of(2030, 1, 1, 12, 0), status,
+                        new Seat(seatNumber, true, SeatType.SEAT_TYPE_STANDARD));
+                ticket.setSeatNumber(seatNumber);
+                ticket.setUser(user);
+                ticket.setFlight(flight);
+                ticket.setFlightClass(economy);
+                ticket.addBaggage(new Baggage(BaggageType.BAGGAGE_TYPE_CARRY_ON));
+                ticket.addBaggage(new Baggage(BaggageType.BAGGAGE_TYPE_CHECKED));
+                entityManager.persist(ticket);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void eligibleTickets_ShouldBeOneStatementWithinThePayloadBudget() throws Exception {
+        // Act
+        ResponseEntity<List<TripDTO>> response = checkinController.getEligibleTickets(userDetails, 0, TRIPS);
+        byte[] body = objectMapper.writeValueAsBytes(response.getBody());
+
+        // Assert
+        log.info("eligible-tickets: {} trips in {} bytes ({} bytes/trip), {} statements",
+                TRIPS, body.length, body.length / TRIPS, statistics.getPrepareStatementCount());
+        assertEquals(TRIPS, response.getBody().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+        assertTrue(body.length <= TRIPS * MAX_BYTES_PER_TRIP,
+                "eligible-tickets payload grew to " + body.length / TRIPS + " bytes per trip");
+        assertFalse(new String(body).contains("profilePicture"));
+    }
+
+    @Test
+    void boardingPasses_ShouldCostOneStatementAndAFractionOfTheTicketEntityPayload() throws Exception {
+        // Act - the page as served now
+        List<TripDTO> page = boardingPassController.getBoardingPasses(userDetails, 0, TRIPS).getBody();
+        byte[] dtoBody = objectMapper.writeValueAsBytes(page);
+        long dtoStatements = statistics.getPrepareStatementCount();
+        long dtoEntityLoads = statistics.getEntityLoadCount();
+        long dtoCollectionLoads = statistics.getCollectionLoadCount();
+
+        // Act - the same trips as the Ticket entities the endpoint used to return
+        entityManager.clear();
+        statistics.clear();
+        List<Ticket> tickets = ticketRepository.findByUserIdAndTicketStatus(user.getId(), TicketStatus.TICKET_STATUS_CHECKED_IN);
+        byte[] entityBody = objectMapper.writeValueAsBytes(tickets);
+        long entityStatements = statistics.getPrepareStatementCount();
+
+        // Assert
+        log.info("boarding-passes: {} trips, DTO {} bytes in {} statements, Ticket entities {} bytes in {} statements",
+                TRIPS, dtoBody.length, dtoStatements, entityBody.length, entityStatements);
+        assertEquals(TRIPS, page.size());
+        assertEquals(1, dtoStatements);
+        assertEquals(0, dtoEntityLoads);
+        assertEquals(0, dtoCollectionLoads);
+        assertTrue(dtoBody.length <= TRIPS * MAX_BYTES_PER_TRIP,
+                "boarding-passes payload grew to " + dtoBody.length / TRIPS + " bytes per trip");
+        assertEquals(TRIPS, tickets.size());
+        assertTrue(dtoBody.length * 20L < entityBody.length, "DTO payload should be a small fraction of the entity payload");
+        assertTrue(entityStatements > dtoStatements, "Ticket entities should need more statements than the DTO page");
+    }
+}
@@ -1,6 +1,9 @@
 package org.example.xlr8travel.repositories;
 
+import org.example.xlr8travel.dto.FlightCartItemDTO;
 import org.example.xlr8travel.models.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,7 +27,8 @@ import static org.junit.jupiter.api.Assertions.*;
         "spring.datasource.username=sa",
         "spring.datasource.password=",
         "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
-        "spring.jpa.hibernate.ddl-auto=create-drop"
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
     }
 )
 public class CartItemRepositoryTest {
@@ -170,4 +174,82 @@ public class CartItemRepositoryTest {
         Optional<CartItemModel> foundCartItem = cartItemRepository.findById(cartItem1.getId());
         assertFalse(foundCartItem.isPresent());
     }
+
+    @Test
+    void findCartLines_ShouldReturnFlightAndSelectionColumns() {
+        // Arrange
+        cartItem1.setSeatNumber("12C");
+        cartItem1.setSeatType("SEAT_TYPE_STANDARD");
+        cartItem1.setBaggageType("BAGGAGE_TYPE_CHECKED");
+        entityManager.flush();
+
+        // Act
+        List<FlightCartItemDTO> lines = cartItemRepository.findCartLines(user.getId());
+
+        // Assert
+        assertEquals(2, lines.size());
+        FlightCartItemDTO line = lines.get(0);
+        assertEquals(flight1.getId(), line.getId());
+        assertEquals("Flight 101", line.getFlightName());
+        assertEquals("Flight 101", line.getCode());
+        assertEquals(0, BigDecimal.valueOf(100.0).compareTo(line.getPrice()));
+        assertEquals(2, line.getQuantity());
+        assertEquals("12C", line.getSeatNumber());
+        assertEquals("BAGGAGE_TYPE_CHECKED", line.getBaggageType());
+        assertEquals(flight2.getId(), lines.get(1).getId());
+        assertTrue(cartItemRepository.findCartLines(user.getId() + 1000).isEmpty());
+    }
+
+    @Test
+    void findCartLines_ShouldIssueOneStatementRegardlessOfCartSizeAndTickets() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        // Arrange - the two-line cart from setUp
+        entityManager.clear();
+        statistics.clear();
+        cartItemRepository.findCartLines(user.getId());
+        long smallCartStatements = statistics.getPrepareStatementCount();
+
+        // Arrange - eight more lines, each flight with plenty of sold tickets (Flight.tickets is EAGER)
+        Cart managedCart = entityManager.find(Cart.class, cart.getId());
+        User managedUser = entityManager.find(User.class, user.getId());
+        for (int i = 0; i < 8; i++) {
+            Flight flight = new Flight();
+            flight.setName("Flight " + (200 + i));
+            flight.setOrigin("Origin" + i);
+            flight.setDestination("Destination" + i);
+            flight.setDepartureDate(LocalDate.now().plusDays(i));
+            flight.setArrivalDate(LocalDate.now().plusDays(i));
+            flight.setDepartureTime(LocalTime.of(8, 0));
+            flight.setArrivalTime(LocalTime.of(10, 0));
+            flight.setPrice(BigDecimal.valueOf(50.0 + i));
+            flight.setLastUpdated(LocalDateTime.now());
+            entityManager.persist(flight);
+            for (int t = 0; t < 25; t++) {
+                Ticket ticket = new Ticket(50.0f, LocalDateTime.now(), TicketStatus.TICKET_STATUS_CONFIRMED, null);
+                ticket.setUser(managedUser);
+                ticket.setFlight(flight);
+                entityManager.persist(ticket);
+            }
+            CartItemModel item = new CartItemModel();
+            item.setCart(managedCart);
+            item.setFlight(flight);
+            item.setQuantity(1);
+            entityManager.persist(item);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        // Act
+        List<FlightCartItemDTO> lines = cartItemRepository.findCartLines(user.getId());
+
+        // Assert - one SELECT and no entity loads, as for the two-line cart
+        assertEquals(10, lines.size());
+        assertEquals(1, smallCartStatements);
+        assertEquals(smallCartStatements, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+    }
 }
@@ -1,11 +1,15 @@
 package org.example.xlr8travel.repositories;
 
+import org.example.xlr8travel.dto.FareCalendarDayDTO;
+import org.example.xlr8travel.dto.FlightCursor;
+import org.example.xlr8travel.dto.FlightDTO;
 import org.example.xlr8travel.models.Flight;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -212,4 +216,126 @@ public class FlightRepositoryTest {
         // Assert
         assertEquals(2, count);
     }
+
+    @Test
+    void summarizeInventory_ShouldMatchTheSingleCountQueries() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+
+        // Act
+        Object[] row = flightRepository.summarizeInventory(today, today.plusDays(7), LocalDateTime.now().minusDays(7)).get(0);
+
+        // Assert - total, with seats, fully booked, departing this week, added this week
+        assertEquals(3L, ((Number) row[0]).longValue());
+        assertEquals(2L, ((Number) row[1]).longValue());
+        assertEquals(1L, ((Number) row[2]).longValue());
+        assertEquals(3L, ((Number) row[3]).longValue());
+        assertEquals(2L, ((Number) row[4]).longValue());
+    }
+
+    @Test
+    void findFlightPage_ShouldReturnFlightsInKeysetOrder() {
+        // Act
+        List<FlightDTO> firstPage = flightRepository.findFlightPage(PageRequest.of(0, 2));
+
+        // Assert
+        assertEquals(2, firstPage.size());
+        assertEquals("Flight 101", firstPage.get(0).getName());
+        assertEquals("Flight 102", firstPage.get(1).getName());
+    }
+
+    @Test
+    void findFlightPageAfter_ShouldContinueAfterCursor() {
+        // Act
+        List<FlightDTO> nextPage = flightRepository.findFlightPageAfter(
+                flight2.getDepartureDate(), flight2.getDepartureTime(), flight2.getId(), PageRequest.of(0, 10));
+
+        // Assert
+        assertEquals(1, nextPage.size());
+        assertEquals("Flight 103", nextPage.get(0).getName());
+    }
+
+    @Test
+    void findRoutePageAfter_ShouldBreakTiesOnId() {
+        // Arrange - a second flight on the same route, date and departure time as flight1
+        Flight sameSlot = new Flight();
+        sameSlot.setName("Flight 104");
+        sameSlot.setOrigin("Origin1");
+        sameSlot.setDestination("Destination1");
+        sameSlot.setDepartureDate(flight1.getDepartureDate());
+        sameSlot.setDepartureTime(flight1.getDepartureTime());
+        sameSlot.setPrice(BigDecimal.valueOf(90.0));
+        entityManager.persist(sameSlot);
+        entityManager.flush();
+
+        // Act
+        List<FlightDTO> firstPage = flightRepository.findRoutePage(
+                "Origin1", "Destination1", flight1.getDepartureDate(), PageRequest.of(0, 1));
+        FlightDTO first = firstPage.get(0);
+        List<FlightDTO> secondPage = flightRepository.findRoutePageAfter(
+                "Origin1", "Destination1", flight1.getDepartureDate(),
+                first.getDepartureTime(), first.getId(), PageRequest.of(0, 1));
+
+        // Assert
+        assertEquals(1, firstPage.size());
+        assertEquals(1, secondPage.size());
+        assertNotEquals(first.getId(), secondPage.get(0).getId());
+        assertTrue(secondPage.get(0).getId() > first.getId());
+    }
+
+    @Test
+    void findRoutePageAfter_FlightWithoutDepartureTime_ShouldBePagedFirstAndNotDropped() {
+        // Arrange - an untimed flight on flight1's route and day
+        Flight untimed = new Flight();
+        untimed.setName("Flight 106");
+        untimed.setOrigin("Origin1");
+        untimed.setDestination("Destination1");
+        untimed.setDepartureDate(flight1.getDepartureDate());
+        untimed.setPrice(BigDecimal.valueOf(80.0));
+        entityManager.persist(untimed);
+        entityManager.flush();
+
+        // Act - one flight per page, resuming from the encoded cursor each time
+        List<FlightDTO> firstPage = flightRepository.findRoutePage(
+                "Origin1", "Destination1", flight1.getDepartureDate(), PageRequest.of(0, 1));
+        FlightCursor cursor = FlightCursor.decode(FlightCursor.of(firstPage.get(0)).encode());
+        List<FlightDTO> secondPage = flightRepository.findRoutePageAfter(
+                "Origin1", "Destination1", flight1.getDepartureDate(),
+                cursor.getDepartureTime(), cursor.getId(), PageRequest.of(0, 1));
+        FlightDTO second = secondPage.get(0);
+        List<FlightDTO> thirdPage = flightRepository.findRoutePageAfter(
+                "Origin1", "Destination1", flight1.getDepartureDate(),
+                second.getDepartureTime(), second.getId(), PageRequest.of(0, 1));
+
+        // Assert
+        assertEquals("Flight 106", firstPage.get(0).getName());
+        assertNull(cursor.getDepartureTime());
+        assertEquals("Flight 101", second.getName());
+        assertTrue(cursor.isBefore(second));
+        assertTrue(thirdPage.isEmpty());
+    }
+
+    @Test
+    void findFareCalendar_ShouldReturnCheapestPriceAndCountPerDay() {
+        // Arrange - a cheaper second departure on flight1's route and day
+        Flight cheaper = new Flight();
+        cheaper.setName("Flight 105");
+        cheaper.setOrigin("Origin1");
+        cheaper.setDestination("Destination1");
+        cheaper.setDepartureDate(flight1.getDepartureDate());
+        cheaper.setDepartureTime(LocalTime.of(18, 0));
+        cheaper.setPrice(BigDecimal.valueOf(60.0));
+        entityManager.persist(cheaper);
+        entityManager.flush();
+
+        // Act
+        List<FareCalendarDayDTO> days = flightRepository.findFareCalendar("Origin1", "Destination1",
+                LocalDate.now().minusDays(1), LocalDate.now().plusDays(5));
+
+        // Assert
+        assertEquals(1, days.size());
+        assertEquals(flight1.getDepartureDate(), days.get(0).getDate());
+        assertEquals(0, BigDecimal.valueOf(60.0).compareTo(days.get(0).getCheapestPrice()));
+        assertEquals(2L, days.get(0).getFlightCount());
+    }
 }
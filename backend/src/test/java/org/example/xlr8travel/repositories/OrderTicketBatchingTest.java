@@ -0,0 +1,142 @@
+package org.example.xlr8travel.repositories;
+
+import org.example.xlr8travel.dto.CartDTO;
+import org.example.xlr8travel.dto.CheckoutRequestDTO;
+import org.example.xlr8travel.dto.FlightCartItemDTO;
+import org.example.xlr8travel.models.Flight;
+import org.example.xlr8travel.models.Role;
+import org.example.xlr8travel.models.Ticket;
+import org.example.xlr8travel.models.TicketStatus;
+import org.example.xlr8travel.models.User;
+import org.example.xlr8travel.services.BookingFunnel;
+import org.example.xlr8travel.services.EmailOutboxService;
+import org.example.xlr8travel.services.OrderServiceImpl;
+import org.example.xlr8travel.services.SeatAssignmentService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Counts the statements a 10-seat group checkout sends to the database. Tickets and order items get pooled
+ * ids and are written as JDBC batches, so the count must not grow with the number of seats.
+ */
+@DataJpaTest(
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+    }
+)
+public class OrderTicketBatchingTest {
+
+    private static final int SEATS = 10;
+
+    // Seat reservation UPDATE, flight SELECT, order INSERT (identity), one id block each for order items
+    // and tickets, one batch each for order items and tickets
+    private static final int MAX_STATEMENTS = 7;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    private OrderServiceImpl orderService;
+    private Statistics statistics;
+    private User user;
+    private Flight flight;
+
+    @BeforeEach
+    void setUp() {
+        // No seats are chosen, so no seat is claimed; email and funnel are not part of the database work
+        orderService = new OrderServiceImpl(orderRepository, orderItemRepository, flightRepository,
+                mock(EmailOutboxService.class), ticketRepository, mock(SeatAssignmentService.class), mock(BookingFunnel.class));
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        user = new User();
+        user.setUsername("group-leader");
+        user.setEmail("group@example.com");
+        user.setPassword("password");
+        user.setRoles(new ArrayList<>(List.of(Role.ROLE_USER)));
+        entityManager.persist(user);
+
+        flight = new Flight();
+        flight.setName("XL700");
+        flight.setOrigin("OTP");
+        flight.setDestination("BCN");
+        flight.setDepartureDate(LocalDate.now().plusDays(30));
+        flight.setDepartureTime(LocalTime.of(9, 0));
+        flight.setArrivalDate(LocalDate.now().plusDays(30));
+        flight.setArrivalTime(LocalTime.of(12, 0));
+        flight.setPrice(BigDecimal.valueOf(99));
+        flight.setLastUpdated(LocalDateTime.now());
+        flight.setTotalSeats(180);
+        flight.setAvailableSeats(180);
+        entityManager.persist(flight);
+
+        // The flight already has a passenger, whose ticket must not be loaded by the checkout. It also takes
+        // ticket_seq past its first value, which the pooled optimizer treats as a block of one id
+        Ticket booked = new Ticket(99f, LocalDateTime.now(), TicketStatus.TICKET_STATUS_CONFIRMED, true);
+        booked.setUser(user);
+        booked.setFlight(flight);
+        entityManager.persist(booked);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void createOrderFromCart_TenSeats_ShouldWriteTicketsAndOrderItemsInBatches() throws Exception {
+        // Arrange
+        FlightCartItemDTO line = new FlightCartItemDTO();
+        line.setId(flight.getId());
+        line.setPrice(flight.getPrice());
+        line.setQuantity(SEATS);
+        line.setDeferSeatSelection(true);
+        CheckoutRequestDTO checkoutRequest = new CheckoutRequestDTO();
+        checkoutRequest.setCustomerName("Group Leader");
+        checkoutRequest.setCustomerEmail("group@example.com");
+        statistics.clear();
+
+        // Act
+        orderService.createOrderFromCart(user, CartDTO.of(List.of(line)), checkoutRequest);
+        entityManager.flush();
+        long statements = statistics.getPrepareStatementCount();
+        long inserts = statistics.getEntityInsertCount();
+
+        // Assert - twelve rows, but only a handful of statements
+        assertEquals(1 + 1 + SEATS, inserts, "order, order item and one ticket per seat");
+        assertTrue(statements <= MAX_STATEMENTS,
+                "A " + SEATS + "-seat order took " + statements + " statements, expected at most " + MAX_STATEMENTS);
+        assertEquals(SEATS + 1, ticketRepository.findByFlightId(flight.getId()).size());
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.xlr8travel.repositories;
+
+import org.example.xlr8travel.models.TicketStatus;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs EXPLAIN on the SQL that Hibernate generates for each hot repository lookup and fails if H2 would
+ * answer it with a full table scan instead of the index declared on the entity. The statements are captured
+ * from the repository calls themselves, so a change to a query is checked as written.
+ */
+@DataJpaTest(
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "org.example.xlr8travel.repositories.QueryPlanTest$CapturedStatements"
+    }
+)
+public class QueryPlanTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 10);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    /**
+     * Records every statement Hibernate prepares; registered through the statement_inspector property.
+     */
+    public static class CapturedStatements implements StatementInspector {
+
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        CapturedStatements.SQL.clear();
+    }
+
+    // The first SELECT issued by the repository call
+    private String sqlOf(Runnable repositoryCall) {
+        CapturedStatements.SQL.clear();
+        repositoryCall.run();
+        return CapturedStatements.SQL.stream()
+                .filter(sql -> sql.trim().toLowerCase(Locale.ROOT).startsWith("select"))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("The repository call issued no SELECT"));
+    }
+
+    // Parameters stay unbound; H2 plans a statement with ? markers the same way as a prepared one
+    private String explain(String sql) {
+        return entityManager.getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet plan = statement.executeQuery("EXPLAIN " + sql)) {
+                plan.next();
+                return plan.getString(1);
+            }
+        });
+    }
+
+    private void assertUsesIndex(Runnable repositoryCall, String indexName) {
+        String sql = sqlOf(repositoryCall);
+        String plan = explain(sql);
+        assertFalse(plan.toLowerCase(Locale.ROOT).contains("tablescan"), "Full table scan for: " + sql + "\n" + plan);
+        if (indexName != null) {
+            // "INDEX:" is followed by the seek condition; a bare index name would mean a full index scan
+            assertTrue(plan.toUpperCase(Locale.ROOT).contains(indexName.toUpperCase(Locale.ROOT) + ":"),
+                    "Expected a seek on " + indexName + " for: " + sql + "\n" + plan);
+        }
+    }
+
+    @Test
+    void flightRouteSearch_ShouldUseRouteDateIndex() {
+        assertUsesIndex(() -> flightRepository.findRoutePage("OTP", "BCN", DAY, PageRequest.of(0, 20)),
+                "idx_flight_route_date");
+        assertUsesIndex(() -> flightRepository.findRoutePageAfter("OTP", "BCN", DAY, LocalTime.NOON, 1L,
+                PageRequest.of(0, 20)), "idx_flight_route_date");
+    }
+
+    @Test
+    void fareCalendar_ShouldUseRouteDateIndex() {
+        assertUsesIndex(() -> flightRepository.findFareCalendar("OTP", "BCN", DAY.withDayOfMonth(1), DAY.withDayOfMonth(31)),
+                "idx_flight_route_date");
+    }
+
+    @Test
+    void flightKeysetPage_ShouldUseDepartureIndex() {
+        assertUsesIndex(() -> flightRepository.findFlightPageAfter(DAY, LocalTime.NOON, 1L, PageRequest.of(0, 20)),
+                "idx_flight_departure");
+        assertUsesIndex(() -> flightRepository.findFlightDTOsDepartingBetween(DAY, DAY.plusDays(2)),
+                "idx_flight_departure");
+        assertUsesIndex(() -> flightRepository.findFlightDTOsDepartingFrom(DAY), "idx_flight_departure");
+    }
+
+    @Test
+    void ticketSeatLookup_ShouldUseFlightSeatIndex() {
+        assertUsesIndex(() -> ticketRepository.findByFlightIdAndSeatNumber(1L, "12A"), "idx_ticket_flight_seat");
+        assertUsesIndex(() -> ticketRepository.findOccupiedSeatNumbers(1L, TicketStatus.TICKET_STATUS_CANCELLED),
+                "idx_ticket_flight_seat");
+    }
+
+    @Test
+    void ticketsByUserAndStatus_ShouldUseUserStatusIndex() {
+        assertUsesIndex(() -> ticketRepository.findByUserIdAndTicketStatus(1L, TicketStatus.TICKET_STATUS_BOOKED),
+                "idx_ticket_user_status");
+        assertUsesIndex(() -> ticketRepository.findTrips(1L, TicketStatus.TICKET_STATUS_BOOKED, PageRequest.of(0, 50)),
+                "idx_ticket_user_status");
+    }
+
+    @Test
+    void ticketsByPurchaseTime_ShouldUsePurchaseTimeIndex() {
+        assertUsesIndex(() -> ticketRepository.countTicketsCreatedAfter(LocalDateTime.of(2030, 1, 1, 0, 0)),
+                "idx_ticket_purchase_time");
+    }
+
+    @Test
+    void userLookups_ShouldUseEmailAndUsernameIndexes() {
+        assertUsesIndex(() -> userRepository.findByEmail("a@b.com"), "idx_users_email");
+        assertUsesIndex(() -> userRepository.findByUsername("alice"), "idx_users_username");
+    }
+
+    @Test
+    void cartByUser_ShouldUseUniqueUserIndex() {
+        // Covered by the unique constraint on carts.user_id, whose index name H2 generates
+        assertUsesIndex(() -> cartRepository.findByUserId(1L), null);
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.xlr8travel.repositories;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.example.xlr8travel.models.Flight;
+import org.example.xlr8travel.models.Ticket;
+import org.example.xlr8travel.models.TicketStatus;
+import org.example.xlr8travel.services.SeatAssignmentService;
+import org.example.xlr8travel.services.SeatConflictException;
+import org.example.xlr8travel.services.SeatHoldService;
+import org.example.xlr8travel.services.SeatLayoutService;
+import org.example.xlr8travel.services.SeatMapService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many passengers check in at once, each picking one of a handful of seats, through two independent
+ * {@link SeatAssignmentService} instances (two application nodes with their own seat bitmaps). Races
+ * inside one node are settled by its bitmap; races across nodes only by the unique seat key.
+ */
+@DataJpaTest(
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:seatassignmentdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;LOCK_TIMEOUT=10000",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+    }
+)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // every check-in commits on its own
+public class SeatAssignmentConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatAssignmentConcurrencyTest.class);
+
+    private static final List<String> CONTESTED_SEATS = List.of("1A", "1B", "1C", "1D", "1E", "1F", "2A", "2B", "2C", "2D");
+    private static final int PASSENGERS_PER_SEAT = 8;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private SeatAssignmentRepository seatAssignmentRepository;
+
+    @Autowired
+    private SeatLayoutTemplateRepository seatLayoutTemplateRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Long flightId;
+    private final List<Long> ticketIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Flight flight = new Flight();
+        flight.setName("Rush Hour");
+        flight.setOrigin("OTP");
+        flight.setDestination("LHR");
+        flight.setDepartureDate(LocalDate.now().plusDays(1));
+        flight.setDepartureTime(LocalTime.of(7, 0));
+        flight.setArrivalDate(LocalDate.now().plusDays(1));
+        flight.setArrivalTime(LocalTime.of(9, 30));
+        flight.setPrice(BigDecimal.valueOf(120));
+        flight.setLastUpdated(LocalDateTime.now());
+        flight = flightRepository.save(flight);
+        flightId = flight.getId();
+
+        for (int i = 0; i < CONTESTED_SEATS.size() * PASSENGERS_PER_SEAT; i++) {
+            Ticket ticket = new Ticket(120f, LocalDateTime.now(), TicketStatus.TICKET_STATUS_CONFIRMED, true);
+            ticket.setFlight(flight);
+            ticketIds.add(ticketRepository.save(ticket).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Bulk deletes, child to parent: removing entities one by one lets the Flight.tickets cascade
+        // re-persist tickets once that collection is loaded, and the flight delete then trips their foreign key
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            entityManager.createQuery("DELETE FROM SeatAssignment").executeUpdate();
+            entityManager.createQuery("DELETE FROM Ticket").executeUpdate();
+            entityManager.createQuery("DELETE FROM Flight").executeUpdate();
+        });
+    }
+
+    private SeatMapService seatMap() {
+        return new SeatMapService(ticketRepository, new SeatLayoutService(seatLayoutTemplateRepository), flightRepository,
+                new SimpleMeterRegistry());
+    }
+
+    private SeatAssignmentService node(SeatMapService seatMapService) {
+        SeatHoldService seatHoldService = new SeatHoldService(seatMapService, new SimpleMeterRegistry(),
+                Duration.ofMinutes(15), Duration.ofMinutes(10), Duration.ofSeconds(5));
+        return new SeatAssignmentService(seatAssignmentRepository, seatMapService, seatHoldService);
+    }
+
+    @Test
+    void claim_UnderContentionAcrossNodes_ShouldNeverDoubleBook() throws Exception {
+        List<SeatAssignmentService> nodes = List.of(node(seatMap()), node(seatMap()));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger claimed = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < ticketIds.size(); i++) {
+            Long ticketId = ticketIds.get(i);
+            String seat = CONTESTED_SEATS.get(i % CONTESTED_SEATS.size());
+            SeatAssignmentService node = nodes.get(i % nodes.size());
+            workers.add(pool.submit(() -> {
+                start.await();
+                try {
+                    tx.executeWithoutResult(status -> node.claim(ticketRepository.findById(ticketId).orElseThrow(), seat));
+                    claimed.incrementAndGet();
+                } catch (SeatConflictException e) {
+                    assertFalse(e.getAlternativeSeats().contains(seat));
+                    conflicts.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS); // rethrows any unexpected failure
+        }
+        long elapsedMillis = (System.nanoTime() - begin) / 1_000_000;
+        pool.shutdown();
+
+        log.info("Seat claims: {} check-ins on {} seats across {} nodes in {} ms, {} claimed, {} conflicts",
+                ticketIds.size(), CONTESTED_SEATS.size(), nodes.size(), elapsedMillis, claimed.get(), conflicts.get());
+
+        List<String> assigned = seatAssignmentRepository.findSeatNumbersByFlightId(flightId);
+        assertEquals(CONTESTED_SEATS.size(), claimed.get(), "every seat should be claimed exactly once");
+        assertEquals(ticketIds.size() - CONTESTED_SEATS.size(), conflicts.get());
+        assertEquals(CONTESTED_SEATS.size(), assigned.size());
+        assertEquals(new HashSet<>(CONTESTED_SEATS), new HashSet<>(assigned));
+    }
+
+    @Test
+    void claim_WhenOtherNodeHoldsSeat_ShouldRejectOnInsertAndOfferAlternatives() {
+        SeatMapService secondSeatMap = seatMap();
+        SeatAssignmentService first = node(seatMap());
+        SeatAssignmentService second = node(secondSeatMap);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        // The second node loads its bitmap before the seat is taken, so it only learns of it from the failed insert
+        assertFalse(secondSeatMap.isBooked(flightId, "5A"));
+        tx.executeWithoutResult(status -> first.claim(ticketRepository.findById(ticketIds.get(0)).orElseThrow(), "5A"));
+        SeatConflictException conflict = assertThrows(SeatConflictException.class, () -> tx.executeWithoutResult(
+                status -> second.claim(ticketRepository.findById(ticketIds.get(1)).orElseThrow(), "5a")));
+
+        assertEquals("5A", conflict.getSeatNumber());
+        assertEquals(List.of("5B", "5C", "5D", "5E", "5F"), conflict.getAlternativeSeats());
+        assertEquals(List.of("5A"), seatAssignmentRepository.findSeatNumbersByFlightId(flightId));
+    }
+}
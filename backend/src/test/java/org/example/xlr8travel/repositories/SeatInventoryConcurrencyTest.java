@@ -0,0 +1,136 @@
+package org.example.xlr8travel.repositories;
+
+import org.example.xlr8travel.models.Flight;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers a single flight from many threads, each attempt in its own transaction (as concurrent
+ * checkouts would), and checks that the conditional decrement never sells more seats than exist.
+ */
+@DataJpaTest(
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:seatinventorydb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;LOCK_TIMEOUT=10000",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+    }
+)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // every worker commits on its own
+public class SeatInventoryConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatInventoryConcurrencyTest.class);
+
+    private static final int SEATS = 50;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 25; // 400 attempts for 50 seats
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long flightId;
+
+    @BeforeEach
+    void setUp() {
+        Flight flight = new Flight();
+        flight.setName("Last Seats");
+        flight.setOrigin("OTP");
+        flight.setDestination("BCN");
+        flight.setDepartureDate(LocalDate.now().plusDays(7));
+        flight.setDepartureTime(LocalTime.of(9, 0));
+        flight.setArrivalDate(LocalDate.now().plusDays(7));
+        flight.setArrivalTime(LocalTime.of(12, 0));
+        flight.setPrice(BigDecimal.valueOf(99));
+        flight.setLastUpdated(LocalDateTime.now());
+        flight.setTotalSeats(SEATS);
+        flight.setAvailableSeats(SEATS);
+        flightId = flightRepository.save(flight).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        flightRepository.deleteAll();
+    }
+
+    @Test
+    void reserveSeats_UnderContention_ShouldNeverOversell() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    Integer updated = tx.execute(status -> flightRepository.reserveSeats(flightId, 1));
+                    if (updated != null && updated == 1) {
+                        sold.incrementAndGet();
+                    } else {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS); // rethrows any worker failure
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+        pool.shutdown();
+
+        int attempts = THREADS * ATTEMPTS_PER_THREAD;
+        log.info("Seat reservation: {} attempts from {} threads in {} ms ({} attempts/s), {} sold, {} rejected",
+                attempts, THREADS, elapsedNanos / 1_000_000,
+                Math.round(attempts / (elapsedNanos / 1_000_000_000.0)), sold.get(), rejected.get());
+
+        Flight flight = flightRepository.findById(flightId).orElseThrow();
+        assertEquals(SEATS, sold.get(), "every seat should be sold exactly once");
+        assertEquals(attempts - SEATS, rejected.get());
+        assertEquals(0, flight.getAvailableSeats());
+    }
+
+    @Test
+    void reserveSeats_WhenRequestExceedsRemaining_ShouldLeaveInventoryUntouched() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        Integer updated = tx.execute(status -> flightRepository.reserveSeats(flightId, SEATS + 1));
+
+        assertEquals(0, updated);
+        assertEquals(SEATS, flightRepository.findById(flightId).orElseThrow().getAvailableSeats());
+    }
+}
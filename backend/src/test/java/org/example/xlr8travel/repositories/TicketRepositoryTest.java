@@ -1,11 +1,15 @@
 package org.example.xlr8travel.repositories;
 
+import org.example.xlr8travel.dto.TripDTO;
 import org.example.xlr8travel.models.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -23,7 +27,8 @@ import static org.junit.jupiter.api.Assertions.*;
         "spring.datasource.username=sa",
         "spring.datasource.password=",
         "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
-        "spring.jpa.hibernate.ddl-auto=create-drop"
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
     }
 )
 public class TicketRepositoryTest {
@@ -169,6 +174,61 @@ public class TicketRepositoryTest {
         assertEquals(ticket2.getId(), tickets.get(0).getId());
     }
 
+    @Test
+    void findTrips_ShouldReturnFlightSeatAndPassengerInOneQuery() {
+        // Arrange
+        user1.setFirstname("Ada");
+        user1.setLastname("Lovelace");
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<TripDTO> trips = ticketRepository.findTrips(user1.getId(), TicketStatus.TICKET_STATUS_CONFIRMED, PageRequest.of(0, 10));
+
+        // Assert
+        assertEquals(1, trips.size());
+        TripDTO trip = trips.get(0);
+        assertEquals(ticket1.getId(), trip.getId());
+        assertEquals("Flight 101", trip.getFlight().getName());
+        assertEquals("1A", trip.getSeat().getSeatNumber());
+        assertEquals(SeatType.SEAT_TYPE_STANDARD, trip.getSeat().getSeatType());
+        assertEquals("Ada", trip.getUser().getFirstname());
+        assertTrue(ticketRepository.findTrips(user2.getId(), TicketStatus.TICKET_STATUS_CONFIRMED, PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    void findTrips_ShouldIssueOneStatementRegardlessOfTableSize() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        // Arrange - the small table from setUp
+        entityManager.clear();
+        statistics.clear();
+        ticketRepository.findTrips(user1.getId(), TicketStatus.TICKET_STATUS_CONFIRMED, PageRequest.of(0, 50));
+        long smallTableStatements = statistics.getPrepareStatementCount();
+
+        // Arrange - many more trips for the same user, with and without seats, across both flights
+        for (int i = 0; i < 200; i++) {
+            Ticket ticket = new Ticket(90.0f, LocalDateTime.now(), TicketStatus.TICKET_STATUS_CONFIRMED,
+                    i % 2 == 0 ? new Seat("S" + i, true, SeatType.SEAT_TYPE_STANDARD) : null);
+            ticket.setUser(user1);
+            ticket.setFlight(i % 3 == 0 ? flight1 : flight2);
+            entityManager.persist(ticket);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        // Act
+        List<TripDTO> page = ticketRepository.findTrips(user1.getId(), TicketStatus.TICKET_STATUS_CONFIRMED, PageRequest.of(0, 50));
+
+        // Assert - one SELECT, no entity loads, same as with four tickets in the table
+        assertEquals(50, page.size());
+        assertEquals(1, smallTableStatements);
+        assertEquals(smallTableStatements, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
     @Test
     void findByPurchaseTimeAfter_ShouldReturnMatchingTickets() {
         // Arrange
@@ -241,4 +301,36 @@ public class TicketRepositoryTest {
         // Assert
         assertEquals(142.5f, average, 0.01f);
     }
+
+    @Test
+    void summarizeTickets_ShouldMatchTheSingleAggregateQueries() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+
+        // Act
+        Object[] row = ticketRepository.summarizeTickets(now.minusDays(7), now.minusDays(14),
+                now.minusDays(30), now.minusDays(60)).get(0);
+
+        // Assert - count, revenue, average, then purchases since 7, 14, 30 and 60 days ago
+        assertEquals(4L, ((Number) row[0]).longValue());
+        assertEquals(570.0, ((Number) row[1]).doubleValue(), 0.01);
+        assertEquals(142.5, ((Number) row[2]).doubleValue(), 0.01);
+        assertEquals(3L, ((Number) row[3]).longValue());
+        assertEquals(4L, ((Number) row[4]).longValue());
+        assertEquals(4L, ((Number) row[5]).longValue());
+        assertEquals(4L, ((Number) row[6]).longValue());
+    }
+
+    @Test
+    void countTicketsByStatus_ShouldReturnOneRowPerUsedStatus() {
+        // Act
+        List<Object[]> rows = ticketRepository.countTicketsByStatus();
+
+        // Assert
+        assertEquals(4, rows.size());
+        for (Object[] row : rows) {
+            assertInstanceOf(TicketStatus.class, row[0]);
+            assertEquals(1L, ((Number) row[1]).longValue());
+        }
+    }
 }
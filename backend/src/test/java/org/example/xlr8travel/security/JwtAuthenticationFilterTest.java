@@ -0,0 +1,36 @@
+package org.example.xlr8travel.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtAuthenticationFilterTest {
+
+    @Test
+    void bearerToken_FromASignedOutFrontend_ShouldCountAsNoToken() {
+        // Arrange
+        MockHttpServletRequest nullToken = requestWith("Bearer null");
+        MockHttpServletRequest undefinedToken = requestWith("Bearer undefined");
+        MockHttpServletRequest blankToken = requestWith("Bearer  ");
+
+        // Act & Assert - these reach the cart as a guest instead of failing authentication
+        assertNull(JwtAuthenticationFilter.bearerToken(nullToken));
+        assertNull(JwtAuthenticationFilter.bearerToken(undefinedToken));
+        assertNull(JwtAuthenticationFilter.bearerToken(blankToken));
+        assertNull(JwtAuthenticationFilter.bearerToken(new MockHttpServletRequest("GET", "/api/cart")));
+    }
+
+    @Test
+    void bearerToken_WithAToken_ShouldReturnItEvenIfInvalid() {
+        // Act & Assert - an expired or forged token must still end in a 401, not a guest cart
+        assertEquals("eyJhbGciOiJIUzUxMiJ9.e30.sig", JwtAuthenticationFilter.bearerToken(requestWith("Bearer eyJhbGciOiJIUzUxMiJ9.e30.sig")));
+        assertEquals("garbage", JwtAuthenticationFilter.bearerToken(requestWith("Bearer garbage")));
+    }
+
+    private static MockHttpServletRequest requestWith(String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cart");
+        request.addHeader("Authorization", authorization);
+        return request;
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.xlr8travel.security;
+
+import jakarta.servlet.http.Cookie;
+import org.example.xlr8travel.services.GuestCartService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OAuth2AuthenticationSuccessHandlerTest {
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    @Mock
+    private GuestCartService guestCartService;
+
+    private OAuth2AuthenticationSuccessHandler handler;
+    private Authentication authentication;
+
+    @BeforeEach
+    void setUp() {
+        handler = new OAuth2AuthenticationSuccessHandler(jwtUtils, guestCartService);
+        ReflectionTestUtils.setField(handler, "frontendUrl", "http://localhost:3000");
+        authentication = new UsernamePasswordAuthenticationToken(
+                new User("ada@example.com", "", List.of()), null, List.of());
+        when(jwtUtils.generateJwtToken(authentication)).thenReturn("access-token");
+        when(jwtUtils.generateRefreshToken("ada@example.com")).thenReturn("refresh-token");
+    }
+
+    @Test
+    void onAuthenticationSuccess_WithGuestCart_ShouldMergeItAndDropTheCookie() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/login/oauth2/code/google");
+        request.setCookies(new Cookie(GuestCartService.COOKIE_NAME, "guest-token"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(guestCartService.mergeInto("ada@example.com", "guest-token")).thenReturn(true);
+        when(guestCartService.expiredCookie()).thenReturn(ResponseCookie.from(GuestCartService.COOKIE_NAME, "").maxAge(0).build());
+
+        // Act
+        handler.onAuthenticationSuccess(request, response, authentication);
+
+        // Assert
+        verify(guestCartService).mergeInto("ada@example.com", "guest-token");
+        assertTrue(response.getHeader(HttpHeaders.SET_COOKIE).startsWith(GuestCartService.COOKIE_NAME + "=;"));
+        assertEquals("http://localhost:3000?oauth=success", response.getRedirectedUrl());
+    }
+
+    @Test
+    void onAuthenticationSuccess_WhenTheMergeFails_ShouldStillSignIn() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/login/oauth2/code/google");
+        request.setCookies(new Cookie(GuestCartService.COOKIE_NAME, "guest-token"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(guestCartService.mergeInto("ada@example.com", "guest-token")).thenThrow(new IllegalStateException("database unavailable"));
+        when(guestCartService.expiredCookie()).thenReturn(ResponseCookie.from(GuestCartService.COOKIE_NAME, "").maxAge(0).build());
+
+        // Act
+        handler.onAuthenticationSuccess(request, response, authentication);
+
+        // Assert
+        assertEquals("access-token", request.getSession().getAttribute("oauth_access_token"));
+        assertEquals("http://localhost:3000?oauth=success", response.getRedirectedUrl());
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.xlr8travel.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecurityConfigTest {
+
+    @Test
+    void corsConfiguration_ShouldAllowTheBatchedCartPatchFromTheFrontend() {
+        // Arrange
+        SecurityConfig securityConfig = new SecurityConfig(null, null, null, null);
+        ReflectionTestUtils.setField(securityConfig, "frontendUrl", "http://localhost:3000");
+        MockHttpServletRequest preflight = new MockHttpServletRequest("OPTIONS", "/api/cart");
+
+        // Act
+        CorsConfiguration cors = securityConfig.corsConfigurationSource().getCorsConfiguration(preflight);
+
+        // Assert
+        assertNotNull(cors);
+        List<HttpMethod> allowed = cors.checkHttpMethod(HttpMethod.PATCH);
+        assertNotNull(allowed, "PATCH preflight would be rejected");
+        assertTrue(allowed.contains(HttpMethod.PATCH));
+        assertEquals("http://localhost:3000", cors.checkOrigin("http://localhost:3000"));
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingFunnelTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong clock;
+    private BookingFunnel funnel;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new AtomicLong(Duration.ofDays(100).toMillis());
+        funnel = new BookingFunnel(meterRegistry, Duration.ofSeconds(5), clock::get);
+    }
+
+    @Test
+    void roll_ShouldPublishRatesForBothWindows() {
+        // Arrange - 10 searches, 4 carts started, 2 checkouts, 1 order
+        record(BookingFunnel.Stage.SEARCH, 10);
+        record(BookingFunnel.Stage.ADD_TO_CART, 4);
+        record(BookingFunnel.Stage.CHECKOUT_STARTED, 2);
+        record(BookingFunnel.Stage.ORDER_CREATED, 1);
+
+        // Act
+        funnel.roll();
+
+        // Assert
+        BookingFunnel.Window day = funnel.lastDay();
+        assertEquals(0.1, day.conversionRate(), 1e-9);
+        assertEquals(0.75, day.cartAbandonmentRate(), 1e-9);
+        assertEquals(0.5, day.checkoutAbandonmentRate(), 1e-9);
+        assertEquals(day, funnel.lastHour());
+        assertEquals(0.75, meterRegistry.get("booking.funnel.cart.abandonment.rate").tag("window", "24h").gauge().value(), 1e-9);
+        assertEquals(10.0, meterRegistry.get("booking.funnel.events").tag("stage", "search").counter().count());
+    }
+
+    @Test
+    void roll_ShouldFoldEachEventInOnce() {
+        // Arrange
+        funnel.roll();
+        record(BookingFunnel.Stage.SEARCH, 3);
+        assertEquals(0, funnel.lastDay().searches()); // readers only see the last published snapshot
+
+        // Act
+        funnel.roll();
+        funnel.roll();
+
+        // Assert
+        assertEquals(3, funnel.lastDay().searches());
+        assertEquals(3.0, meterRegistry.get("booking.funnel.events").tag("stage", "search").counter().count());
+    }
+
+    @Test
+    void roll_ShouldDropEventsThatLeftTheWindow() {
+        // Arrange
+        record(BookingFunnel.Stage.ADD_TO_CART, 2);
+        funnel.roll();
+        clock.addAndGet(Duration.ofMinutes(90).toMillis());
+        record(BookingFunnel.Stage.ADD_TO_CART, 1);
+
+        // Act
+        funnel.roll();
+
+        // Assert
+        assertEquals(1, funnel.lastHour().cartsStarted());
+        assertEquals(3, funnel.lastDay().cartsStarted());
+
+        // Act - a day later the slot of the first minute is reused
+        clock.addAndGet(Duration.ofHours(23).toMillis());
+        funnel.roll();
+
+        // Assert
+        assertEquals(0, funnel.lastHour().cartsStarted());
+        assertEquals(1, funnel.lastDay().cartsStarted());
+    }
+
+    @Test
+    void window_WithMoreOrdersThanCarts_ShouldNotReportNegativeAbandonment() {
+        // Arrange - orders completing carts started before the window
+        record(BookingFunnel.Stage.ADD_TO_CART, 1);
+        record(BookingFunnel.Stage.ORDER_CREATED, 2);
+
+        // Act
+        funnel.roll();
+
+        // Assert
+        assertEquals(0.0, funnel.lastDay().cartAbandonmentRate());
+        assertEquals(0.0, funnel.lastDay().conversionRate());
+    }
+
+    private void record(BookingFunnel.Stage stage, int times) {
+        for (int i = 0; i < times; i++) {
+            funnel.record(stage);
+        }
+    }
+}
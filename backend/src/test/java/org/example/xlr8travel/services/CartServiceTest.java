@@ -0,0 +1,293 @@
+package org.example.xlr8travel.services;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.example.xlr8travel.cache.CartCache;
+import org.example.xlr8travel.dto.CartDTO;
+import org.example.xlr8travel.dto.CartOperationDTO;
+import org.example.xlr8travel.dto.FlightCartItemDTO;
+import org.example.xlr8travel.models.Cart;
+import org.example.xlr8travel.models.CartItemModel;
+import org.example.xlr8travel.models.Flight;
+import org.example.xlr8travel.models.User;
+import org.example.xlr8travel.repositories.CartItemRepository;
+import org.example.xlr8travel.repositories.CartRepository;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CartServiceTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private SeatHoldService seatHoldService;
+
+    @Mock
+    private FlightRepository flightRepository;
+
+    @Mock
+    private CartCache cartCache;
+
+    @Mock
+    private BookingFunnel bookingFunnel;
+
+    @InjectMocks
+    private CartServiceImpl cartService;
+
+    private User user;
+    private Cart cart;
+    private Flight outbound;
+    private Flight inbound;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setUsername("traveller");
+
+        cart = new Cart();
+        cart.setId(5L);
+        cart.setUser(user);
+        cart.setCartItems(new HashSet<>());
+        lenient().when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
+
+        outbound = flight(10L, "XL100", 120);
+        inbound = flight(11L, "XL101", 95);
+    }
+
+    @Test
+    void getCartForUser_ShouldBuildTheCartFromOneProjectionQuery() {
+        // Arrange
+        when(cartItemRepository.findCartLines(1L)).thenReturn(List.of(
+                new FlightCartItemDTO(10L, "XL100", "OTP", "LHR", null, null, null, null, BigDecimal.valueOf(120),
+                        2, null, false, false, "12C", "SEAT_TYPE_STANDARD", null),
+                new FlightCartItemDTO(11L, "XL101", "LHR", "OTP", null, null, null, null, BigDecimal.valueOf(95),
+                        1, null, true, false, null, null, null)));
+
+        // Act
+        CartDTO result = cartService.getCartForUser(user);
+
+        // Assert
+        assertEquals(2, result.getItems().size());
+        assertEquals(3, result.getTotalQuantity());
+        assertEquals(335.0, result.getTotalPrice());
+        verifyNoInteractions(cartRepository, flightRepository);
+    }
+
+    @Test
+    void getCartForUser_WhenCached_ShouldNotQuery() {
+        // Arrange
+        CartDTO cached = CartDTO.of(List.of());
+        when(cartCache.get(1L)).thenReturn(Optional.of(cached));
+
+        // Act
+        CartDTO result = cartService.getCartForUser(user);
+
+        // Assert
+        assertSame(cached, result);
+        verifyNoInteractions(cartItemRepository);
+    }
+
+    @Test
+    void getCartForUser_OnMiss_ShouldOfferTheLoadWithTheVersionSeenBeforeIt() {
+        // Arrange
+        when(cartCache.version(1L)).thenReturn(7L);
+        when(cartItemRepository.findCartLines(1L)).thenReturn(List.of());
+
+        // Act
+        CartDTO result = cartService.getCartForUser(user);
+
+        // Assert
+        verify(cartCache).putIfUnchanged(1L, 7L, result);
+    }
+
+    @Test
+    void getCartForCheckout_ShouldReadTheDatabaseEvenWhenCached() {
+        // Arrange - the cached copy may predate a change made through another instance
+        lenient().when(cartCache.get(1L)).thenReturn(Optional.of(CartDTO.of(List.of())));
+        when(cartItemRepository.findCartLines(1L)).thenReturn(List.of(
+                new FlightCartItemDTO(10L, "XL100", "OTP", "LHR", null, null, null, null, BigDecimal.valueOf(120),
+                        1, null, true, false, null, null, null)));
+
+        // Act
+        CartDTO result = cartService.getCartForCheckout(user);
+
+        // Assert
+        assertEquals(1, result.getItems().size());
+        verifyNoInteractions(cartCache);
+    }
+
+    @Test
+    void mergeGuestCart_ShouldAddQuantitiesAndDeferSeatsThatCannotBeHeld() {
+        // Arrange
+        cart.addCartItem(line(outbound, null));
+        when(flightRepository.findAllById(Set.of(10L, 11L))).thenReturn(List.of(outbound, inbound));
+        doThrow(new SeatConflictException(11L, "14A", List.of("14B")))
+                .when(seatHoldService).hold(1L, 11L, "14A");
+
+        // Act
+        CartDTO result = cartService.mergeGuestCart(user, List.of(
+                new FlightCartItemDTO(10L, "XL100", null, null, null, null, null, null, BigDecimal.valueOf(120),
+                        2, null, false, false, null, null, "BAGGAGE_TYPE_CHECKED"),
+                new FlightCartItemDTO(11L, "XL101", null, null, null, null, null, null, BigDecimal.valueOf(95),
+                        1, null, false, false, "14A", "SEAT_TYPE_STANDARD", null)));
+
+        // Assert
+        assertEquals(4, result.getTotalQuantity());
+        FlightCartItemDTO merged = result.getItems().stream().filter(i -> i.getId() == 10L).findFirst().orElseThrow();
+        assertEquals(3, merged.getQuantity());
+        assertEquals("BAGGAGE_TYPE_CHECKED", merged.getBaggageType());
+        FlightCartItemDTO deferred = result.getItems().stream().filter(i -> i.getId() == 11L).findFirst().orElseThrow();
+        assertNull(deferred.getSeatNumber());
+        assertTrue(deferred.isDeferSeatSelection());
+        verify(cartRepository, times(1)).save(cart);
+        verify(cartCache).writeThrough(1L, result);
+    }
+
+    @Test
+    void applyOperations_RoundTripWithSeatsAndBaggage_ShouldLoadAndSaveOnce() {
+        // Arrange
+        when(flightRepository.findAllById(Set.of(10L, 11L))).thenReturn(List.of(outbound, inbound));
+
+        // Act
+        CartDTO result = cartService.applyOperations(user, List.of(
+                add(10L, "12C", "BAGGAGE_TYPE_CHECKED"),
+                add(11L, "14A", "BAGGAGE_TYPE_CHECKED")));
+
+        // Assert - the DTO is built from the updated cart, not re-read
+        assertEquals(2, result.getItems().size());
+        assertEquals(2, result.getTotalQuantity());
+        assertEquals(215.0, result.getTotalPrice());
+        verify(cartRepository, times(1)).findByUserId(1L);
+        verify(flightRepository, times(1)).findAllById(any());
+        verify(cartRepository, times(1)).save(cart);
+        verify(seatHoldService).hold(1L, 10L, "12C");
+        verify(seatHoldService).hold(1L, 11L, "14A");
+        verify(seatHoldService, never()).release(anyLong(), anyLong(), anyString());
+        verify(bookingFunnel).recordAfterCommit(BookingFunnel.Stage.ADD_TO_CART);
+    }
+
+    @Test
+    void applyOperations_SetSeat_ShouldReleasePreviousSeatAfterTheBatch() {
+        // Arrange
+        CartItemModel line = line(outbound, "12C");
+        cart.addCartItem(line);
+
+        // Act
+        CartDTO result = cartService.applyOperations(user, List.of(setSeat(10L, "14A"), setBaggage(10L, "BAGGAGE_TYPE_CHECKED")));
+
+        // Assert
+        assertEquals("14A", result.getItems().get(0).getSeatNumber());
+        assertEquals("BAGGAGE_TYPE_CHECKED", result.getItems().get(0).getBaggageType());
+        verify(seatHoldService).hold(1L, 10L, "14A");
+        verify(seatHoldService).release(1L, 10L, "12C");
+        verifyNoInteractions(flightRepository, bookingFunnel);
+    }
+
+    @Test
+    void applyOperations_WhenALaterOperationFails_ShouldNotSaveOrReleaseAnything() {
+        // Arrange
+        cart.addCartItem(line(outbound, "12C"));
+        when(flightRepository.findAllById(Set.of(11L))).thenReturn(List.of(inbound));
+
+        // Act & Assert - the inbound flight was never in the cart
+        assertThrows(EntityNotFoundException.class, () -> cartService.applyOperations(user, List.of(
+                add(11L, null, null),
+                setSeat(10L, "14A"),
+                setBaggage(12L, "BAGGAGE_TYPE_CHECKED"))));
+        verify(cartRepository, never()).save(any());
+        verify(seatHoldService, never()).release(anyLong(), anyLong(), anyString());
+    }
+
+    @Test
+    void applyOperations_WithUnknownFlight_ShouldBeNotFound() {
+        // Arrange
+        when(flightRepository.findAllById(Set.of(99L))).thenReturn(List.of());
+
+        // Act
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> cartService.applyOperations(user, List.of(add(99L, null, null))));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+        verify(cartRepository, never()).save(any());
+    }
+
+    @Test
+    void applyOperations_Remove_ShouldDropTheLineAndItsSeat() {
+        // Arrange
+        cart.addCartItem(line(outbound, "12C"));
+
+        // Act
+        CartDTO result = cartService.applyOperations(user, List.of(operation(CartOperationDTO.Op.REMOVE, 10L)));
+
+        // Assert
+        assertTrue(result.getItems().isEmpty());
+        assertTrue(cart.getCartItems().isEmpty());
+        verify(seatHoldService).release(1L, 10L, "12C");
+    }
+
+    private static Flight flight(Long id, String name, int price) {
+        Flight flight = new Flight();
+        flight.setId(id);
+        flight.setName(name);
+        flight.setPrice(BigDecimal.valueOf(price));
+        return flight;
+    }
+
+    private static CartItemModel line(Flight flight, String seatNumber) {
+        CartItemModel item = new CartItemModel();
+        item.setId(flight.getId() * 100);
+        item.setFlight(flight);
+        item.setQuantity(1);
+        item.setSeatNumber(seatNumber);
+        return item;
+    }
+
+    private static CartOperationDTO add(Long flightId, String seatNumber, String baggageType) {
+        CartOperationDTO operation = operation(CartOperationDTO.Op.ADD, flightId);
+        operation.setSeatNumber(seatNumber);
+        operation.setBaggageType(baggageType);
+        return operation;
+    }
+
+    private static CartOperationDTO setSeat(Long flightId, String seatNumber) {
+        CartOperationDTO operation = operation(CartOperationDTO.Op.SET_SEAT, flightId);
+        operation.setSeatNumber(seatNumber);
+        return operation;
+    }
+
+    private static CartOperationDTO setBaggage(Long flightId, String baggageType) {
+        CartOperationDTO operation = operation(CartOperationDTO.Op.SET_BAGGAGE, flightId);
+        operation.setBaggageType(baggageType);
+        return operation;
+    }
+
+    private static CartOperationDTO operation(CartOperationDTO.Op op, Long flightId) {
+        CartOperationDTO operation = new CartOperationDTO();
+        operation.setOp(op);
+        operation.setFlightId(flightId);
+        return operation;
+    }
+}
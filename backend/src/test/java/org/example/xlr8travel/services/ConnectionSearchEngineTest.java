@@ -0,0 +1,139 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.dto.ItineraryDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ConnectionSearchEngineTest {
+
+    @Mock
+    private FlightRepository flightRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConnectionSearchEngine engine;
+
+    private final LocalDate day = LocalDate.of(2030, 1, 10);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        engine = new ConnectionSearchEngine(flightRepository, meterRegistry,
+                Duration.ofMinutes(45), Duration.ofHours(6), 20_000, 20);
+    }
+
+    private FlightDTO flight(long id, String origin, String destination, int departureHour, int arrivalHour, int price) {
+        return new FlightDTO(id, "XT" + id, origin, destination, day, LocalTime.of(departureHour, 0),
+                day, LocalTime.of(arrivalHour, 0), BigDecimal.valueOf(price), "A", "1", null);
+    }
+
+    private List<FlightDTO> network() {
+        return List.of(
+                flight(1, "OTP", "LHR", 6, 9, 100),
+                flight(2, "LHR", "JFK", 11, 19, 400),
+                flight(3, "LHR", "JFK", 9, 17, 300),  // leaves before the minimum connection time
+                flight(4, "OTP", "CDG", 7, 10, 90),
+                flight(5, "CDG", "JFK", 12, 20, 350),
+                flight(6, "OTP", "MUC", 5, 7, 50),
+                flight(7, "MUC", "LHR", 8, 9, 50),
+                flight(8, "LHR", "OTP", 10, 13, 10)); // would loop back to the origin
+    }
+
+    @Test
+    void search_ShouldRankByDurationThenPrice() {
+        // Arrange
+        when(flightRepository.findFlightDTOsDepartingBetween(day, day.plusDays(2))).thenReturn(network());
+
+        // Act
+        List<ItineraryDTO> itineraries = engine.search("otp", "jfk", day, 2);
+
+        // Assert
+        assertEquals(3, itineraries.size());
+        assertEquals(List.of(4L, 5L), itineraries.get(0).getLegs().stream().map(FlightDTO::getId).toList());
+        assertEquals(List.of(1L, 2L), itineraries.get(1).getLegs().stream().map(FlightDTO::getId).toList());
+        assertEquals(List.of(6L, 7L, 2L), itineraries.get(2).getLegs().stream().map(FlightDTO::getId).toList());
+        assertEquals(780, itineraries.get(0).getTotalDurationMinutes());
+        assertEquals(BigDecimal.valueOf(440), itineraries.get(0).getTotalPrice());
+        assertEquals(2, itineraries.get(2).getStops());
+    }
+
+    @Test
+    void search_WithMaxStops_ShouldLimitItineraryLength() {
+        // Arrange
+        when(flightRepository.findFlightDTOsDepartingBetween(day, day.plusDays(2))).thenReturn(network());
+
+        // Act & Assert
+        assertEquals(2, engine.search("OTP", "JFK", day, 1).size());
+        assertTrue(engine.search("OTP", "JFK", day, 0).isEmpty());
+        // Graph for the window is built once and reused
+        verify(flightRepository, times(1)).findFlightDTOsDepartingBetween(any(), any());
+    }
+
+    @Test
+    void search_WhenBudgetRunsOut_ShouldStopAndCountTruncation() {
+        // Arrange
+        ConnectionSearchEngine tinyBudget = new ConnectionSearchEngine(flightRepository, meterRegistry,
+                Duration.ofMinutes(45), Duration.ofHours(6), 2, 20);
+        when(flightRepository.findFlightDTOsDepartingBetween(day, day.plusDays(2))).thenReturn(network());
+
+        // Act
+        List<ItineraryDTO> itineraries = tinyBudget.search("OTP", "JFK", day, 2);
+
+        // Assert
+        assertTrue(itineraries.isEmpty());
+        assertEquals(1.0, meterRegistry.get("flight.connections.search.truncated").counter().count());
+    }
+
+    @Test
+    void onFlightChanged_ShouldRebuildGraphOnNextSearch() {
+        // Arrange
+        when(flightRepository.findFlightDTOsDepartingBetween(day, day.plusDays(2))).thenReturn(network());
+        engine.search("OTP", "JFK", day, 2);
+
+        // Act
+        engine.onFlightChanged(new FlightChangedEvent(2L, network().get(1), null));
+        engine.search("OTP", "JFK", day, 2);
+
+        // Assert
+        verify(flightRepository, times(2)).findFlightDTOsDepartingBetween(day, day.plusDays(2));
+    }
+
+    @Test
+    void search_WhenAFlightChangesWhileTheGraphLoads_ShouldNotCacheTheGraph() {
+        // Arrange - the change commits after the flights were read, before the graph is cached
+        when(flightRepository.findFlightDTOsDepartingBetween(day, day.plusDays(2))).thenAnswer(invocation -> {
+            List<FlightDTO> flights = network();
+            engine.onFlightChanged(new FlightChangedEvent(2L, flights.get(1), null));
+            return flights;
+        });
+        engine.search("OTP", "JFK", day, 2);
+
+        // Act
+        engine.search("OTP", "JFK", day, 2);
+
+        // Assert
+        verify(flightRepository, times(2)).findFlightDTOsDepartingBetween(day, day.plusDays(2));
+    }
+
+    @Test
+    void search_WithTooManyStops_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> engine.search("OTP", "JFK", day, 3));
+    }
+}
@@ -0,0 +1,326 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xlr8travel.models.OutboxEmail;
+import org.example.xlr8travel.models.OutboxEmailStatus;
+import org.example.xlr8travel.repositories.OutboxEmailRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Outbox rows written in a transaction are sent through a real SMTP conversation with a local stand-in
+ * server, which can be told to turn messages away to exercise retries. Every email is queued in a
+ * transaction that really commits (or rolls back), so the first attempt is the one the after-commit hook
+ * hands to the dispatcher thread; later attempts are driven by calling the dispatcher directly.
+ */
+@DataJpaTest(
+    properties = {
+        "spring.datasource.url=jdbc:h2:mem:emailoutboxdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+    }
+)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // enqueue commits on its own, dispatch runs outside a transaction
+public class EmailOutboxDispatchTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String SUBJECT = "XLR8 Travel - Your Purchase Confirmation #42";
+
+    @Autowired
+    private OutboxEmailRepository outboxEmailRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private LocalSmtpServer smtp;
+    private final MutableClock clock = new MutableClock();
+    private SimpleMeterRegistry meterRegistry;
+    private EmailOutboxService outbox;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new LocalSmtpServer();
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtp.getPort());
+        Properties mailProperties = new Properties();
+        mailProperties.put("mail.from", "noreply@xlr8travel.test");
+        mailSender.setJavaMailProperties(mailProperties);
+
+        meterRegistry = new SimpleMeterRegistry();
+        outbox = new EmailOutboxService(outboxEmailRepository, new EmailServiceImpl(mailSender), meterRegistry,
+                Duration.ofSeconds(5), MAX_ATTEMPTS, Duration.ofSeconds(30), Duration.ofMinutes(10), Duration.ofMinutes(2), clock);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        smtp.close();
+        outboxEmailRepository.deleteAll();
+    }
+
+    private OutboxEmail newEmail(String recipient) {
+        return new OutboxEmail(recipient, SUBJECT, "<html><body><h1>Thank you for your purchase!</h1></body></html>");
+    }
+
+    // Queues the email in a transaction that commits, and waits for the attempt the commit triggers
+    private OutboxEmail queueAndCommit(String recipient) throws InterruptedException {
+        OutboxEmail email = new TransactionTemplate(transactionManager).execute(status -> {
+            OutboxEmail queued = outbox.enqueue(newEmail(recipient));
+            assertTrue(smtp.getMessages().isEmpty(), "nothing is sent before the transaction commits");
+            return queued;
+        });
+        return awaitFirstAttempt(email);
+    }
+
+    // The outcome counters are bumped after the row is updated, so once one moves the attempt is complete
+    private OutboxEmail awaitFirstAttempt(OutboxEmail email) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            double outcomes = meterRegistry.get("email.outbox.sent").counter().count()
+                    + meterRegistry.get("email.outbox.retried").counter().count()
+                    + meterRegistry.get("email.outbox.failed").counter().count();
+            if (outcomes > 0) {
+                return reload(email);
+            }
+            Thread.sleep(10);
+        }
+        return fail("The email was not attempted after the transaction committed");
+    }
+
+    private OutboxEmail reload(OutboxEmail email) {
+        return outboxEmailRepository.findById(email.getId()).orElseThrow();
+    }
+
+    @Test
+    void enqueue_WhenTransactionCommits_ShouldSendOverSmtpRightAfterCommit() throws Exception {
+        // Act - no dispatcher poll is scheduled in this test, only the after-commit hook can send it
+        OutboxEmail stored = queueAndCommit("ada@example.com");
+
+        // Assert
+        assertEquals(OutboxEmailStatus.OUTBOX_EMAIL_STATUS_SENT, stored.getStatus());
+        assertEquals(1, stored.getAttempts());
+        assertNotNull(stored.getSentAt());
+        assertEquals(1, smtp.getMessages().size());
+        assertTrue(smtp.getMessages().get(0).contains("Subject: " + SUBJECT));
+        assertTrue(smtp.getRecipients().contains("ada@example.com"));
+        assertEquals(1.0, meterRegistry.get("email.outbox.sent").counter().count());
+        assertEquals(0, outbox.dispatch(), "a sent email is not sent again");
+    }
+
+    @Test
+    void enqueue_WhenTransactionRollsBack_ShouldNeitherStoreNorSend() throws Exception {
+        // Act
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            outbox.enqueue(newEmail("ada@example.com"));
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertEquals(0, outboxEmailRepository.count());
+        assertEquals(0, outbox.dispatch());
+        assertEquals(0, smtp.getConnections());
+    }
+
+    @Test
+    void dispatch_WhenServerRejects_ShouldRetryAfterBackoffUntilItRecovers() throws Exception {
+        // Arrange
+        smtp.rejectNext(1);
+
+        // Act & Assert - the attempt after commit fails and is pushed out by the base backoff
+        OutboxEmail email = queueAndCommit("ada@example.com");
+        assertEquals(OutboxEmailStatus.OUTBOX_EMAIL_STATUS_PENDING, email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertEquals(LocalDateTime.now(clock).plusSeconds(30), email.getNextAttemptAt());
+        assertNotNull(email.getLastError());
+
+        clock.advance(Duration.ofSeconds(29));
+        assertEquals(0, outbox.dispatch());
+        assertEquals(1, smtp.getConnections(), "not due yet, so the server is not contacted");
+
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(1, outbox.dispatch());
+        assertEquals(OutboxEmailStatus.OUTBOX_EMAIL_STATUS_SENT, reload(email).getStatus());
+        assertEquals(1.0, meterRegistry.get("email.outbox.retried").counter().count());
+        assertEquals(0.0, meterRegistry.get("email.outbox.pending").gauge().value());
+    }
+
+    @Test
+    void dispatch_WhenServerKeepsRejecting_ShouldGiveUpAfterMaxAttempts() throws Exception {
+        // Arrange
+        smtp.rejectNext(Integer.MAX_VALUE);
+
+        // Act - attempts at commit, +30s and +60s later (backoff doubles)
+        OutboxEmail email = queueAndCommit("ada@example.com");
+        clock.advance(Duration.ofSeconds(30));
+        outbox.dispatch();
+        assertEquals(LocalDateTime.now(clock).plusSeconds(60), reload(email).getNextAttemptAt());
+        clock.advance(Duration.ofSeconds(60));
+        outbox.dispatch();
+
+        // Assert
+        OutboxEmail stored = reload(email);
+        assertEquals(OutboxEmailStatus.OUTBOX_EMAIL_STATUS_FAILED, stored.getStatus());
+        assertEquals(MAX_ATTEMPTS, stored.getAttempts());
+        assertEquals(2.0, meterRegistry.get("email.outbox.retried").counter().count());
+        assertEquals(1.0, meterRegistry.get("email.outbox.failed").counter().count());
+        clock.advance(Duration.ofHours(1));
+        assertEquals(0, outbox.dispatch());
+        assertEquals(MAX_ATTEMPTS, smtp.getConnections());
+    }
+
+    /**
+     * Just enough of an SMTP server for JavaMail: accepts every message, or answers MAIL FROM with a
+     * transient 451 while rejections are pending.
+     */
+    static final class LocalSmtpServer implements AutoCloseable {
+
+        private final ServerSocket serverSocket;
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final List<String> recipients = new CopyOnWriteArrayList<>();
+        private final AtomicInteger rejections = new AtomicInteger();
+        private final AtomicInteger connections = new AtomicInteger();
+
+        LocalSmtpServer() throws IOException {
+            serverSocket = new ServerSocket(0);
+            Thread acceptor = new Thread(this::acceptLoop, "local-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        List<String> getMessages() {
+            return messages;
+        }
+
+        List<String> getRecipients() {
+            return recipients;
+        }
+
+        int getConnections() {
+            return connections.get();
+        }
+
+        void rejectNext(int count) {
+            rejections.set(count);
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    connections.incrementAndGet();
+                    converse(socket);
+                } catch (IOException e) {
+                    // closed, or the client hung up
+                }
+            }
+        }
+
+        private void converse(Socket socket) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            reply(out, "220 localhost ESMTP stand-in");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO", "HELO" -> reply(out, "250 localhost");
+                    case "MAIL" -> {
+                        if (rejections.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+                            reply(out, "451 4.3.0 Try again later");
+                        } else {
+                            reply(out, "250 OK");
+                        }
+                    }
+                    case "RCPT" -> {
+                        recipients.add(line.substring(line.indexOf('<') + 1, line.indexOf('>')));
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder message = new StringBuilder();
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            message.append(line).append("\r\n");
+                        }
+                        messages.add(message.toString());
+                        reply(out, "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "250 OK"); // RSET, NOOP
+                }
+            }
+        }
+
+        private static void reply(PrintWriter out, String response) {
+            out.print(response + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        // Read by the dispatcher thread for the attempt after commit
+        private volatile Instant now = Instant.parse("2030-05-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
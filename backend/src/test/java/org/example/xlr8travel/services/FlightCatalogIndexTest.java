@@ -0,0 +1,123 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FlightCatalogIndexTest {
+
+    @Mock
+    private FlightRepository flightRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FlightCatalogIndex index;
+
+    private final LocalDate departureDate = LocalDate.now().plusDays(3);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        index = new FlightCatalogIndex(flightRepository, meterRegistry);
+    }
+
+    private FlightDTO flight(long id, String origin, String destination, LocalDate date, LocalTime time) {
+        return new FlightDTO(id, "XT" + id, origin, destination, date, time, date, time.plusHours(2),
+                BigDecimal.valueOf(100 + id), "A", "1", LocalDateTime.now());
+    }
+
+    @Test
+    void lookup_BeforeRebuild_ShouldSignalFallback() {
+        // Act
+        Optional<List<FlightDTO>> result = index.lookup("OTP", "BCN", departureDate);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        assertFalse(index.isReady());
+    }
+
+    @Test
+    void rebuild_ShouldIndexFlightsByRouteAndDateSortedByDepartureTime() {
+        // Arrange
+        when(flightRepository.findAllFlightDTOs()).thenReturn(List.of(
+                flight(2, "OTP", "BCN", departureDate, LocalTime.of(16, 0)),
+                flight(1, "OTP", "BCN", departureDate, LocalTime.of(8, 0)),
+                flight(3, "OTP", "MAD", departureDate, LocalTime.of(9, 0))));
+
+        // Act
+        index.rebuild();
+        List<FlightDTO> result = index.lookup("otp", "bcn", departureDate).orElseThrow();
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertEquals(2L, result.get(1).getId());
+        assertEquals(3, index.size());
+        assertEquals(1.0, meterRegistry.get("flight.catalog.index.lookups").tag("result", "hit").counter().count());
+        assertEquals(3.0, meterRegistry.get("flight.catalog.index.flights").gauge().value());
+        assertEquals(1, meterRegistry.get("flight.catalog.index.rebuild").timer().count());
+    }
+
+    @Test
+    void lookup_ForUnknownRoute_ShouldReturnEmptyListAndCountMiss() {
+        // Arrange
+        when(flightRepository.findAllFlightDTOs()).thenReturn(List.of());
+        index.rebuild();
+
+        // Act
+        Optional<List<FlightDTO>> result = index.lookup("OTP", "JFK", departureDate);
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertTrue(result.get().isEmpty());
+        assertEquals(1.0, meterRegistry.get("flight.catalog.index.lookups").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void onFlightChanged_ShouldMoveFlightWhenRouteChanges() {
+        // Arrange
+        FlightDTO original = flight(1, "OTP", "BCN", departureDate, LocalTime.of(8, 0));
+        when(flightRepository.findAllFlightDTOs()).thenReturn(List.of(original));
+        index.rebuild();
+        FlightDTO moved = flight(1, "OTP", "MAD", departureDate.plusDays(1), LocalTime.of(8, 0));
+
+        // Act
+        index.onFlightChanged(new FlightChangedEvent(1L, original, moved));
+
+        // Assert
+        assertTrue(index.lookup("OTP", "BCN", departureDate).orElseThrow().isEmpty());
+        assertEquals(1, index.lookup("OTP", "MAD", departureDate.plusDays(1)).orElseThrow().size());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void onFlightChanged_ShouldRemoveDeletedFlight() {
+        // Arrange
+        FlightDTO original = flight(1, "OTP", "BCN", departureDate, LocalTime.of(8, 0));
+        when(flightRepository.findAllFlightDTOs()).thenReturn(List.of(original));
+        index.rebuild();
+
+        // Act
+        index.onFlightChanged(new FlightChangedEvent(1L, original, null));
+
+        // Assert
+        assertTrue(index.lookup("OTP", "BCN", departureDate).orElseThrow().isEmpty());
+        assertEquals(0, index.size());
+    }
+}
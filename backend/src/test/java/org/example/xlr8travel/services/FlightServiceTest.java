@@ -1,7 +1,14 @@
 package org.example.xlr8travel.services;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.example.xlr8travel.cache.FareCalendarCache;
+import org.example.xlr8travel.dto.FareCalendarDayDTO;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.dto.RoundTripSearchDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
+import org.example.xlr8travel.models.Aircraft;
 import org.example.xlr8travel.models.Flight;
+import org.example.xlr8travel.models.SeatLayoutTemplate;
 import org.example.xlr8travel.repositories.FlightRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,14 +16,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -27,6 +38,27 @@ public class FlightServiceTest {
 
     @Mock
     private FlightRepository flightRepository;
+
+    @Mock
+    private FlightCatalogIndex flightCatalogIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private FareCalendarCache fareCalendarCache;
+
+    @Mock
+    private ConnectionSearchEngine connectionSearchEngine;
+
+    @Mock
+    private Executor flightSearchExecutor;
+
+    @Mock
+    private NearbyDestinationIndex nearbyDestinationIndex;
+
+    @Mock
+    private SeatLayoutService seatLayoutService;
     
     @InjectMocks
     private FlightServiceImpl flightService;
@@ -272,4 +304,226 @@ public class FlightServiceTest {
         verify(flightRepository).findByOriginAndDepartureDateAfter(
                 origin, departureDate);
     }
-}
\ No newline at end of file
+
+    @Test
+    void searchFlights_WhenIndexReady_ShouldNotQueryRepository() {
+        // Arrange
+        LocalDate departureDate = LocalDate.now();
+        FlightDTO indexed = FlightDTO.fromFlight(testFlight);
+        when(flightCatalogIndex.lookup("Origin", "Destination", departureDate))
+                .thenReturn(Optional.of(List.of(indexed)));
+
+        // Act
+        List<FlightDTO> result = flightService.searchFlights("Origin", "Destination", departureDate, null);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertSame(indexed, result.get(0));
+        verifyNoInteractions(flightRepository);
+    }
+
+    @Test
+    void searchFlights_WhenIndexNotReady_ShouldFallBackToRepository() {
+        // Arrange
+        LocalDate departureDate = LocalDate.now();
+        LocalDate arrivalDate = LocalDate.now().plusDays(1);
+        when(flightCatalogIndex.lookup("Origin", "Destination", departureDate)).thenReturn(Optional.empty());
+        when(flightRepository.findByOriginAndDestinationAndArrivalDateAndDepartureDate(
+                "Origin", "Destination", arrivalDate, departureDate)).thenReturn(testFlights);
+
+        // Act
+        List<FlightDTO> result = flightService.searchFlights("Origin", "Destination", departureDate, arrivalDate);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(TEST_FLIGHT_ID, result.get(0).getId());
+    }
+
+    @Test
+    void updateFlightById_ShouldPublishChangeWithPreviousAndCurrentState() {
+        // Arrange
+        Flight flightToUpdate = new Flight();
+        flightToUpdate.setOrigin("New Origin");
+        flightToUpdate.setDestination("Destination");
+        when(flightRepository.findById(TEST_FLIGHT_ID)).thenReturn(Optional.of(testFlight));
+        when(flightRepository.save(any(Flight.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        flightService.updateFlightById(TEST_FLIGHT_ID, flightToUpdate);
+
+        // Assert
+        verify(eventPublisher).publishEvent(argThat((Object event) ->
+                event instanceof FlightChangedEvent changed
+                        && "Origin".equals(changed.getPrevious().getOrigin())
+                        && "New Origin".equals(changed.getCurrent().getOrigin())));
+    }
+
+    @Test
+    void deleteFlightById_ShouldPublishDeletion() {
+        // Arrange
+        when(flightRepository.existsById(TEST_FLIGHT_ID)).thenReturn(true);
+
+        // Act
+        flightService.deleteFlightById(TEST_FLIGHT_ID);
+
+        // Assert
+        verify(eventPublisher).publishEvent(argThat((Object event) ->
+                event instanceof FlightChangedEvent changed && changed.isDeletion()));
+    }
+
+    @Test
+    void getFareCalendar_OnCacheMiss_ShouldQueryEachMonthOnceAndFillEmptyDays() {
+        // Arrange - window spans the end of January and the start of February
+        LocalDate from = LocalDate.of(2030, 1, 30);
+        LocalDate to = LocalDate.of(2030, 2, 2);
+        when(fareCalendarCache.get(eq("Origin"), eq("Destination"), any(YearMonth.class))).thenReturn(Optional.empty());
+        when(flightRepository.findFareCalendar("Origin", "Destination", LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 31)))
+                .thenReturn(List.of(new FareCalendarDayDTO(LocalDate.of(2030, 1, 31), BigDecimal.valueOf(80), 2L)));
+        when(flightRepository.findFareCalendar("Origin", "Destination", LocalDate.of(2030, 2, 1), LocalDate.of(2030, 2, 28)))
+                .thenReturn(List.of());
+
+        // Act
+        List<FareCalendarDayDTO> calendar = flightService.getFareCalendar("Origin", "Destination", from, to);
+
+        // Assert
+        assertEquals(4, calendar.size());
+        assertNull(calendar.get(0).getCheapestPrice());
+        assertEquals(0L, calendar.get(0).getFlightCount());
+        assertEquals(BigDecimal.valueOf(80), calendar.get(1).getCheapestPrice());
+        assertEquals(2L, calendar.get(1).getFlightCount());
+        verify(fareCalendarCache).putIfUnchanged(eq("Origin"), eq("Destination"), eq(YearMonth.of(2030, 1)), anyLong(), anyList());
+        verify(fareCalendarCache).putIfUnchanged(eq("Origin"), eq("Destination"), eq(YearMonth.of(2030, 2)), anyLong(), anyList());
+    }
+
+    @Test
+    void getFareCalendar_OnCacheHit_ShouldNotQueryRepository() {
+        // Arrange
+        LocalDate day = LocalDate.of(2030, 3, 10);
+        when(fareCalendarCache.get("Origin", "Destination", YearMonth.of(2030, 3)))
+                .thenReturn(Optional.of(List.of(new FareCalendarDayDTO(day, BigDecimal.TEN, 1L))));
+
+        // Act
+        List<FareCalendarDayDTO> calendar = flightService.getFareCalendar("Origin", "Destination", day, day);
+
+        // Assert
+        assertEquals(1, calendar.size());
+        assertEquals(BigDecimal.TEN, calendar.get(0).getCheapestPrice());
+        verifyNoInteractions(flightRepository);
+    }
+
+    @Test
+    void getFareCalendar_WithInvertedWindow_ShouldThrow() {
+        LocalDate day = LocalDate.of(2030, 3, 10);
+        assertThrows(IllegalArgumentException.class,
+                () -> flightService.getFareCalendar("Origin", "Destination", day, day.minusDays(1)));
+    }
+
+    @Test
+    void searchRoundTrip_ShouldReturnOutboundAndInboundLegs() {
+        // Arrange - run submitted legs inline
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(flightSearchExecutor).execute(any(Runnable.class));
+        LocalDate departureDate = LocalDate.now().plusDays(5);
+        LocalDate returnDate = departureDate.plusDays(7);
+        FlightDTO outboundFlight = FlightDTO.fromFlight(testFlight);
+        FlightDTO inboundFlight = new FlightDTO();
+        inboundFlight.setId(2L);
+        when(flightCatalogIndex.lookup("Origin", "Destination", departureDate)).thenReturn(Optional.of(List.of(outboundFlight)));
+        when(flightCatalogIndex.lookup("Destination", "Origin", returnDate)).thenReturn(Optional.of(List.of(inboundFlight)));
+
+        // Act
+        RoundTripSearchDTO result = flightService.searchRoundTrip("Origin", "Destination", departureDate, returnDate);
+
+        // Assert
+        assertEquals(List.of(outboundFlight), result.getOutbound());
+        assertEquals(List.of(inboundFlight), result.getInbound());
+        verify(flightSearchExecutor, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void searchRoundTrip_WhenOneLegFails_ShouldCancelTheOther() {
+        // Arrange - the outbound leg runs inline and fails, the inbound one stays queued
+        List<Runnable> queued = new ArrayList<>();
+        doAnswer(invocation -> {
+            Runnable task = invocation.getArgument(0);
+            queued.add(task);
+            if (queued.size() == 1) {
+                task.run();
+            }
+            return null;
+        }).when(flightSearchExecutor).execute(any(Runnable.class));
+        LocalDate departureDate = LocalDate.now().plusDays(5);
+        when(flightCatalogIndex.lookup("Origin", "Destination", departureDate)).thenThrow(new IllegalStateException("index broken"));
+
+        // Act
+        assertThrows(IllegalStateException.class,
+                () -> flightService.searchRoundTrip("Origin", "Destination", departureDate, departureDate.plusDays(7)));
+
+        // Assert
+        assertEquals(2, queued.size());
+        assertTrue(((Future<?>) queued.get(1)).isCancelled());
+    }
+
+    @Test
+    void searchRoundTrip_WithReturnBeforeDeparture_ShouldThrow() {
+        LocalDate departureDate = LocalDate.now().plusDays(5);
+        assertThrows(IllegalArgumentException.class,
+                () -> flightService.searchRoundTrip("Origin", "Destination", departureDate, departureDate.minusDays(1)));
+        verifyNoInteractions(flightSearchExecutor);
+    }
+
+    @Test
+    void findNearbyFlights_ShouldServePrecomputedTable() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        List<FlightDTO> precomputed = List.of(FlightDTO.fromFlight(testFlight));
+        when(nearbyDestinationIndex.lookup("Origin", today)).thenReturn(Optional.of(precomputed));
+
+        // Act
+        List<FlightDTO> result = flightService.findNearbyFlights("Origin", today);
+
+        // Assert
+        assertEquals(precomputed, result);
+        verifyNoInteractions(flightRepository);
+    }
+
+    @Test
+    void findNearbyFlights_BeforeTableIsBuilt_ShouldRankDatabaseResults() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        when(nearbyDestinationIndex.lookup("Origin", today)).thenReturn(Optional.empty());
+        when(flightRepository.findByOriginAndDepartureDateAfter("Origin", today)).thenReturn(List.of(testFlight));
+        List<FlightDTO> ranked = List.of(FlightDTO.fromFlight(testFlight));
+        when(nearbyDestinationIndex.rank(anyList(), eq(today))).thenReturn(ranked);
+
+        // Act
+        List<FlightDTO> result = flightService.findNearbyFlights("Origin", today);
+
+        // Assert
+        assertEquals(ranked, result);
+        verify(flightRepository).findByOriginAndDepartureDateAfter("Origin", today);
+    }
+
+    @Test
+    void save_NewFlightWithAircraft_ShouldSizeInventoryFromSeatLayout() {
+        // Arrange
+        Flight newFlight = new Flight();
+        newFlight.setName("Wide Body");
+        Aircraft aircraft = new Aircraft();
+        aircraft.setId(3L);
+        newFlight.setAircraft(aircraft);
+        SeatLayout layout = SeatLayout.compile(new SeatLayoutTemplate("B747-416", 42, "ABCDEFGHJK", "CG",
+                "1A,1K,42A,42K", ""));
+        when(seatLayoutService.layoutForAircraft(3L)).thenReturn(layout);
+        when(flightRepository.save(any(Flight.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Flight saved = flightService.save(newFlight);
+
+        // Assert
+        assertEquals(416, saved.getTotalSeats());
+        assertEquals(416, saved.getAvailableSeats());
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.example.xlr8travel.dto.CartDTO;
+import org.example.xlr8travel.dto.CartOperationDTO;
+import org.example.xlr8travel.dto.FlightCartItemDTO;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.models.User;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.example.xlr8travel.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GuestCartServiceTest {
+
+    private static final String CLIENT = "203.0.113.7";
+
+    @Mock
+    private FlightCatalogIndex flightCatalogIndex;
+
+    @Mock
+    private FlightRepository flightRepository;
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private BookingFunnel bookingFunnel;
+
+    @Captor
+    private ArgumentCaptor<List<FlightCartItemDTO>> lines;
+
+    private GuestCartService guestCartService;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        guestCartService = new GuestCartService(flightCatalogIndex, flightRepository, cartService, userRepository,
+                bookingFunnel, new SimpleMeterRegistry(), 100, Duration.ofHours(24), 2);
+        token = guestCartService.newToken();
+        lenient().when(flightCatalogIndex.findById(10L)).thenReturn(Optional.of(flight(10L, "XL100", 120)));
+    }
+
+    @Test
+    void apply_AddTwiceAndSetBaggage_ShouldKeepOneLine() {
+        // Act
+        guestCartService.apply(token, CLIENT, List.of(operation(CartOperationDTO.Op.ADD, 10L)));
+        CartDTO result = guestCartService.apply(token, CLIENT, List.of(operation(CartOperationDTO.Op.ADD, 10L),
+                baggage(10L, "BAGGAGE_TYPE_CHECKED")));
+
+        // Assert
+        assertEquals(1, result.getItems().size());
+        assertEquals(2, result.getTotalQuantity());
+        assertEquals(240.0, result.getTotalPrice());
+        assertEquals("BAGGAGE_TYPE_CHECKED", guestCartService.getCart(token).getItems().get(0).getBaggageType());
+        verify(bookingFunnel, times(1)).record(BookingFunnel.Stage.ADD_TO_CART);
+        verifyNoInteractions(flightRepository, cartService);
+    }
+
+    @Test
+    void apply_WhenALaterOperationFails_ShouldLeaveTheCartAsItWas() {
+        // Arrange
+        guestCartService.apply(token, CLIENT, List.of(operation(CartOperationDTO.Op.ADD, 10L)));
+
+        // Act & Assert - flight 11 is not in the cart
+        assertThrows(EntityNotFoundException.class, () -> guestCartService.apply(token, CLIENT, List.of(
+                operation(CartOperationDTO.Op.REMOVE, 10L),
+                operation(CartOperationDTO.Op.DECREASE, 11L))));
+        assertEquals(1, guestCartService.getCart(token).getTotalQuantity());
+    }
+
+    @Test
+    void apply_WithUnknownFlight_ShouldBeNotFound() {
+        // Arrange
+        when(flightCatalogIndex.findById(99L)).thenReturn(Optional.empty());
+        when(flightRepository.findFlightDTOById(99L)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> guestCartService.apply(token, CLIENT, List.of(operation(CartOperationDTO.Op.ADD, 99L))));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+        assertTrue(guestCartService.getCart(token).getItems().isEmpty());
+    }
+
+    @Test
+    void apply_NewCartBeyondTheClientLimit_ShouldBeRefused() {
+        // Arrange - a client that drops its cookie starts a new cart with every request; the limit is 2
+        guestCartService.apply(guestCartService.newToken(), CLIENT, List.of(operation(CartOperationDTO.Op.ADD, 10L)));
+        guestCartService.apply(guestCartService.newToken(), CLIENT, List.of(operation(CartOperationDTO.Op.ADD, 10L)));
+        String third = guestCartService.newToken();
+
+        // Act
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> guestCartService.apply(third, CLIENT, List.of(operation(CartOperationDTO.Op.ADD, 10L))));
+
+        // Assert - the client's existing carts and other clients are unaffected
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, ex.getStatusCode());
+        assertTrue(guestCartService.getCart(third).getItems().isEmpty());
+        assertEquals(2, guestCartService.size());
+        guestCartService.apply(token, "198.51.100.1", List.of(operation(CartOperationDTO.Op.ADD, 10L)));
+        assertEquals(3, guestCartService.size());
+    }
+
+    @Test
+    void mergeInto_ShouldHandTheLinesOverOnceAndForgetTheGuestCart() {
+        // Arrange
+        User user = new User();
+        user.setId(1L);
+        when(userRepository.findByUsername("traveller")).thenReturn(List.of(user));
+        guestCartService.apply(token, CLIENT, List.of(operation(CartOperationDTO.Op.ADD, 10L), operation(CartOperationDTO.Op.ADD, 10L)));
+
+        // Act
+        boolean merged = guestCartService.mergeInto("traveller", token);
+
+        // Assert
+        assertTrue(merged);
+        verify(cartService).mergeGuestCart(eq(user), lines.capture());
+        assertEquals(1, lines.getValue().size());
+        assertEquals(2, lines.getValue().get(0).getQuantity());
+        assertFalse(guestCartService.mergeInto("traveller", token));
+        assertEquals(0, guestCartService.size());
+    }
+
+    @Test
+    void mergeInto_WithMalformedToken_ShouldDoNothing() {
+        // Act & Assert
+        assertFalse(guestCartService.mergeInto("traveller", "not a token"));
+        verifyNoInteractions(userRepository, cartService);
+    }
+
+    private static FlightDTO flight(Long id, String name, int price) {
+        FlightDTO flight = new FlightDTO();
+        flight.setId(id);
+        flight.setName(name);
+        flight.setPrice(BigDecimal.valueOf(price));
+        return flight;
+    }
+
+    private static CartOperationDTO baggage(Long flightId, String baggageType) {
+        CartOperationDTO operation = operation(CartOperationDTO.Op.SET_BAGGAGE, flightId);
+        operation.setBaggageType(baggageType);
+        return operation;
+    }
+
+    private static CartOperationDTO operation(CartOperationDTO.Op op, Long flightId) {
+        CartOperationDTO operation = new CartOperationDTO();
+        operation.setOp(op);
+        operation.setFlightId(flightId);
+        return operation;
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xlr8travel.models.TicketStatus;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.example.xlr8travel.repositories.TicketRepository;
+import org.example.xlr8travel.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MetricsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private FlightRepository flightRepository;
+
+    @Mock
+    private TicketRepository ticketRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private BookingFunnel bookingFunnel;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MetricsServiceImpl metricsService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(Instant.parse("2026-10-18T12:00:00Z"), ZoneOffset.UTC);
+        metricsService = new MetricsServiceImpl(userRepository, flightRepository, ticketRepository, userService,
+                bookingFunnel, meterRegistry, Duration.ofSeconds(30), clock);
+
+        // total, active 24h, active 48h, created 7d, 14d, 30d, 60d
+        lenient().when(userRepository.summarizeUsers(any(), any(), any(), any(), any(), any()))
+                .thenReturn(rows(new Object[]{50L, 10L, 15L, 4L, 6L, 12L, 20L}));
+        // total, with seats, fully booked, departing this week, added this week
+        lenient().when(flightRepository.summarizeInventory(any(), any(), any()))
+                .thenReturn(rows(new Object[]{8L, 6L, 2L, 3L, 1L}));
+        // count, revenue, average, purchased 7d, 14d, 30d, 60d
+        lenient().when(ticketRepository.summarizeTickets(any(), any(), any(), any()))
+                .thenReturn(rows(new Object[]{4L, 570.0, 142.5, 3L, 4L, 4L, 4L}));
+        lenient().when(ticketRepository.countTicketsByStatus()).thenReturn(rows(
+                new Object[]{TicketStatus.TICKET_STATUS_CONFIRMED, 3L},
+                new Object[]{TicketStatus.TICKET_STATUS_CHECKED_IN, 1L}));
+        lenient().when(ticketRepository.countTicketsPerDay()).thenReturn(rows(new Object[]{LocalDate.of(2026, 10, 17), 4L}));
+        lenient().when(ticketRepository.countTicketsPerWeek()).thenReturn(rows(new Object[]{202642, 4L}));
+        lenient().when(bookingFunnel.lastDay()).thenReturn(new BookingFunnel.Window(100, 10, 5, 4));
+        lenient().when(bookingFunnel.lastHour()).thenReturn(new BookingFunnel.Window(0, 0, 0, 0));
+    }
+
+    @Test
+    void getAllMetrics_ShouldServeRepeatedCallsFromOneSnapshot() {
+        // Act
+        Map<String, Object> first = metricsService.getAllMetrics();
+        Map<String, Object> second = metricsService.getAllMetrics();
+        metricsService.getTicketMetrics();
+
+        // Assert - six queries in all, run once
+        assertSame(first, second);
+        verify(userRepository, times(1)).summarizeUsers(any(), any(), any(), any(), any(), any());
+        verify(flightRepository, times(1)).summarizeInventory(any(), any(), any());
+        verify(ticketRepository, times(1)).summarizeTickets(any(), any(), any(), any());
+        verify(ticketRepository, times(1)).countTicketsByStatus();
+        verify(ticketRepository, times(1)).countTicketsPerDay();
+        verify(ticketRepository, times(1)).countTicketsPerWeek();
+        verifyNoMoreInteractions(userRepository, flightRepository, ticketRepository);
+        assertEquals(1, meterRegistry.get("metrics.snapshot.refresh").timer().count());
+    }
+
+    @Test
+    void getUserMetrics_ShouldDeriveThePreviousWindowsFromTheWiderCounts() {
+        // Act
+        Map<String, Object> metrics = metricsService.getUserMetrics();
+
+        // Assert - 10 active against 5 the day before, 4 signups against 2 the week before
+        assertEquals(50L, metrics.get("totalUsers"));
+        assertEquals(100.0, metrics.get("activeUsersGrowthRate"));
+        assertEquals(100.0, metrics.get("newSignups7DaysGrowthRate"));
+        assertEquals(50.0, metrics.get("newSignups30DaysGrowthRate"));
+    }
+
+    @Test
+    void getFlightInventoryMetrics_ShouldCountUpcomingFlightsInTheQuery() {
+        // Act
+        Map<String, Object> metrics = metricsService.getFlightInventoryMetrics();
+
+        // Assert
+        assertEquals(3L, metrics.get("upcomingFlights7Days"));
+        verify(flightRepository).summarizeInventory(LocalDate.of(2026, 10, 18), LocalDate.of(2026, 10, 25),
+                LocalDateTime.of(2026, 10, 11, 12, 0));
+        verify(flightRepository, never()).findAll();
+    }
+
+    @Test
+    void getTicketMetrics_StatusWithoutTickets_ShouldBeZero() {
+        // Act
+        Map<String, Object> metrics = metricsService.getTicketMetrics();
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        Map<String, Long> byStatus = (Map<String, Long>) metrics.get("ticketsByStatus");
+        @SuppressWarnings("unchecked")
+        Map<String, Double> percentages = (Map<String, Double>) metrics.get("ticketStatusPercentages");
+        assertEquals(3L, byStatus.get(TicketStatus.TICKET_STATUS_CONFIRMED.name()));
+        assertEquals(0L, byStatus.get(TicketStatus.TICKET_STATUS_CANCELLED.name()));
+        assertEquals(75.0, percentages.get(TicketStatus.TICKET_STATUS_CONFIRMED.name()));
+        assertEquals(1L, metrics.get("checkedInTickets"));
+        assertEquals(570.0f, metricsService.getBookingRevenueMetrics().get("totalRevenue"));
+    }
+
+    @Test
+    void refresh_WhenAQueryFails_ShouldKeepThePreviousSnapshot() {
+        // Arrange
+        Map<String, Object> before = metricsService.getAllMetrics();
+        when(ticketRepository.countTicketsByStatus()).thenThrow(new IllegalStateException("database unavailable"));
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> metricsService.refresh());
+
+        // Assert
+        assertSame(before, metricsService.getAllMetrics());
+        assertEquals(0.0, meterRegistry.get("metrics.snapshot.age").gauge().value());
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return List.of(rows);
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.repositories.AirportRepository;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NearbyDestinationIndexTest {
+
+    @Mock
+    private FlightRepository flightRepository;
+
+    @Mock
+    private AirportRepository airportRepository;
+
+    @Spy
+    private FlightCatalogVersion catalogVersion = new FlightCatalogVersion();
+
+    private SimpleMeterRegistry meterRegistry;
+    private NearbyDestinationIndex index;
+
+    private final LocalDate today = LocalDate.of(2030, 5, 1);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(today.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        index = new NearbyDestinationIndex(flightRepository, airportRepository, new AirportLocationService(),
+                catalogVersion, meterRegistry, 60, clock);
+    }
+
+    private FlightDTO flight(long id, String destination, int daysFromToday) {
+        LocalDate date = today.plusDays(daysFromToday);
+        return new FlightDTO(id, "XT" + id, "OTP", destination, date, LocalTime.of(8, 0), date, LocalTime.of(11, 0),
+                BigDecimal.valueOf(100 + id), "A", "1", today.atStartOfDay());
+    }
+
+    private static AirportRepository.AirportCountry airport(String iataCode, String country) {
+        return new AirportRepository.AirportCountry() {
+            @Override
+            public String getIataCode() {
+                return iataCode;
+            }
+
+            @Override
+            public String getCountry() {
+                return country;
+            }
+        };
+    }
+
+    @Test
+    void lookup_BeforeRebuild_ShouldSignalFallback() {
+        assertTrue(index.lookup("OTP", today).isEmpty());
+    }
+
+    @Test
+    void rebuild_ShouldSpreadTopKAcrossCountries() {
+        // Arrange - three Spanish flights come first by date, but Italy and France must still be represented
+        when(flightRepository.findFlightDTOsDepartingFrom(today)).thenReturn(List.of(
+                flight(1, "BCN", 1), flight(2, "MAD", 1), flight(3, "BCN", 2),
+                flight(4, "FCO", 3), flight(5, "CDG", 4)));
+        when(airportRepository.findAirportCountries()).thenReturn(List.of());
+
+        // Act
+        index.rebuild();
+        List<FlightDTO> result = index.lookup("otp", today).orElseThrow();
+
+        // Assert
+        assertEquals(List.of(1L, 4L, 5L, 2L, 3L), result.stream().map(FlightDTO::getId).collect(Collectors.toList()));
+        assertEquals(1.0, meterRegistry.get("flight.nearby.index.origins").gauge().value());
+        assertEquals(1, meterRegistry.get("flight.nearby.index.refresh").timer().count());
+        verify(catalogVersion).bump();
+    }
+
+    @Test
+    void rebuild_WithUnchangedFlights_ShouldNotBumpCatalogVersionAgain() {
+        // Arrange
+        List<FlightDTO> flights = List.of(flight(1, "BCN", 1), flight(2, "FCO", 2));
+        when(flightRepository.findFlightDTOsDepartingFrom(today)).thenReturn(flights);
+        when(airportRepository.findAirportCountries()).thenReturn(List.of());
+        index.rebuild();
+
+        // Act - the hourly pass finds the same table
+        index.rebuild();
+
+        // Assert
+        verify(catalogVersion, times(1)).bump();
+        assertEquals(2, meterRegistry.get("flight.nearby.index.refresh").timer().count());
+    }
+
+    @Test
+    void rebuild_WhenAFlightChanges_ShouldBumpCatalogVersion() {
+        // Arrange
+        FlightDTO repriced = flight(2, "FCO", 2);
+        when(flightRepository.findFlightDTOsDepartingFrom(today))
+                .thenReturn(List.of(flight(1, "BCN", 1), flight(2, "FCO", 2)))
+                .thenReturn(List.of(flight(1, "BCN", 1), repriced));
+        when(airportRepository.findAirportCountries()).thenReturn(List.of());
+        index.rebuild();
+        repriced.setPrice(BigDecimal.valueOf(49));
+
+        // Act
+        index.rebuild();
+
+        // Assert
+        verify(catalogVersion, times(2)).bump();
+    }
+
+    @Test
+    void rebuild_ShouldLoadFlightsFromTodayAndOfferOnlyThoseDepartingAfterIt() {
+        // Arrange - the query starts at today; lookups are strictly after the given date
+        when(flightRepository.findFlightDTOsDepartingFrom(today)).thenReturn(List.of(
+                flight(1, "BCN", 0), flight(2, "FCO", 1)));
+        when(airportRepository.findAirportCountries()).thenReturn(List.of());
+
+        // Act
+        index.rebuild();
+
+        // Assert
+        assertEquals(List.of(2L), index.lookup("OTP", today).orElseThrow().stream()
+                .map(FlightDTO::getId).collect(Collectors.toList()));
+        assertEquals(List.of(1L, 2L), index.lookup("OTP", today.minusDays(1)).orElseThrow().stream()
+                .map(FlightDTO::getId).collect(Collectors.toList()));
+        verify(flightRepository, never()).findAllFlightDTOs();
+    }
+
+    @Test
+    void rebuild_ShouldUseDatabaseCountriesAndKeepUnknownAirportsApart() {
+        // Arrange - ZAG is not in the static list; DB knows it, DUB and KEF stay unknown
+        when(flightRepository.findFlightDTOsDepartingFrom(today)).thenReturn(List.of(
+                flight(1, "ZAG", 1), flight(2, "DUB", 2), flight(3, "KEF", 3), flight(4, "SPU", 4)));
+        when(airportRepository.findAirportCountries()).thenReturn(List.of(
+                airport("ZAG", "Croatia"), airport("SPU", "Croatia")));
+
+        // Act
+        index.rebuild();
+        List<FlightDTO> result = index.lookup("OTP", today).orElseThrow();
+
+        // Assert - SPU shares Croatia with ZAG so it comes after the other buckets
+        assertEquals(List.of(1L, 2L, 3L, 4L), result.stream().map(FlightDTO::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void lookup_ForLaterDate_ShouldSkipEarlierDepartures() {
+        // Arrange
+        when(flightRepository.findFlightDTOsDepartingFrom(today)).thenReturn(List.of(
+                flight(1, "BCN", 1), flight(2, "BCN", 5), flight(3, "LHR", 2), flight(4, "LHR", 6)));
+        when(airportRepository.findAirportCountries()).thenReturn(List.of());
+        index.rebuild();
+
+        // Act
+        List<FlightDTO> result = index.lookup("OTP", today.plusDays(2)).orElseThrow();
+
+        // Assert
+        assertEquals(Set.of(2L, 4L), result.stream().map(FlightDTO::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void lookup_ForUnknownOrigin_ShouldReturnEmptyList() {
+        // Arrange
+        when(flightRepository.findFlightDTOsDepartingFrom(today)).thenReturn(List.of(flight(1, "BCN", 1)));
+        when(airportRepository.findAirportCountries()).thenReturn(List.of());
+        index.rebuild();
+
+        // Act
+        Optional<List<FlightDTO>> result = index.lookup("JFK", today);
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertTrue(result.get().isEmpty());
+    }
+}
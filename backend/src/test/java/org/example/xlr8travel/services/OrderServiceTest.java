@@ -0,0 +1,162 @@
+package org.example.xlr8travel.services;
+
+import org.example.xlr8travel.dto.CartDTO;
+import org.example.xlr8travel.dto.CheckoutRequestDTO;
+import org.example.xlr8travel.dto.FlightCartItemDTO;
+import org.example.xlr8travel.models.Flight;
+import org.example.xlr8travel.models.Order;
+import org.example.xlr8travel.models.Ticket;
+import org.example.xlr8travel.models.User;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.example.xlr8travel.repositories.OrderItemRepository;
+import org.example.xlr8travel.repositories.OrderRepository;
+import org.example.xlr8travel.repositories.TicketRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    @Mock
+    private FlightRepository flightRepository;
+
+    @Mock
+    private EmailOutboxService emailOutboxService;
+
+    @Mock
+    private TicketRepository ticketRepository;
+
+    @Mock
+    private SeatAssignmentService seatAssignmentService;
+
+    @Mock
+    private BookingFunnel bookingFunnel;
+
+    @InjectMocks
+    private OrderServiceImpl orderService;
+
+    private User user;
+    private Flight flight;
+    private CheckoutRequestDTO checkoutRequest;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+
+        flight = new Flight();
+        flight.setId(10L);
+        flight.setName("Test Flight");
+        flight.setPrice(BigDecimal.valueOf(100));
+
+        checkoutRequest = new CheckoutRequestDTO();
+        checkoutRequest.setCustomerName("Test User");
+        checkoutRequest.setCustomerEmail("test@example.com");
+    }
+
+    private CartDTO cartOf(FlightCartItemDTO... items) {
+        CartDTO cart = new CartDTO();
+        cart.setItems(List.of(items));
+        cart.setTotalPrice(100.0 * cart.getItems().stream().mapToInt(FlightCartItemDTO::getQuantity).sum());
+        return cart;
+    }
+
+    private FlightCartItemDTO item(Long flightId, int quantity) {
+        FlightCartItemDTO item = new FlightCartItemDTO();
+        item.setId(flightId);
+        item.setQuantity(quantity);
+        item.setDeferSeatSelection(true);
+        return item;
+    }
+
+    @Test
+    void createOrderFromCart_ShouldReserveSeatsOncePerFlight() throws Exception {
+        // Arrange - two cart lines for the same flight
+        when(flightRepository.reserveSeats(10L, 3)).thenReturn(1);
+        when(flightRepository.findAllById(Set.of(10L))).thenReturn(List.of(flight));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(99L);
+            return order;
+        });
+
+        // Act
+        String orderId = orderService.createOrderFromCart(user, cartOf(item(10L, 1), item(10L, 2)), checkoutRequest);
+
+        // Assert
+        assertEquals("99", orderId);
+        verify(flightRepository, times(1)).reserveSeats(10L, 3);
+        verify(ticketRepository, times(1)).saveAll(anyList());
+        verify(emailOutboxService).enqueuePurchaseConfirmation(any(Order.class), eq(user), eq("€"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createOrderFromCart_ForGroupOrder_ShouldIssueAllTicketsInOneBatch() throws Exception {
+        // Arrange - ten seats on one line, the first with a chosen seat
+        FlightCartItemDTO group = item(10L, 10);
+        group.setDeferSeatSelection(false);
+        group.setSeatNumber("12C");
+        when(flightRepository.reserveSeats(10L, 10)).thenReturn(1);
+        when(flightRepository.findAllById(Set.of(10L))).thenReturn(List.of(flight));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        orderService.createOrderFromCart(user, cartOf(group), checkoutRequest);
+
+        // Assert
+        ArgumentCaptor<List<Ticket>> issued = ArgumentCaptor.forClass(List.class);
+        verify(ticketRepository, times(1)).saveAll(issued.capture());
+        verify(ticketRepository, never()).save(any(Ticket.class));
+        verify(flightRepository, never()).findById(any());
+        assertEquals(10, issued.getValue().size());
+        assertEquals(1, issued.getValue().stream().filter(ticket -> "12C".equals(ticket.getSeatNumber())).count());
+        verify(seatAssignmentService, times(1)).claim(issued.getValue().get(0), "12C");
+    }
+
+    @Test
+    void createOrderFromCart_WhenFlightIsSoldOut_ShouldFailWithConflictBeforeCreatingOrder() {
+        // Arrange
+        when(flightRepository.reserveSeats(10L, 2)).thenReturn(0);
+        when(flightRepository.existsById(10L)).thenReturn(true);
+
+        // Act
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> orderService.createOrderFromCart(user, cartOf(item(10L, 2)), checkoutRequest));
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        verify(orderRepository, never()).save(any());
+        verifyNoInteractions(ticketRepository, emailOutboxService);
+    }
+
+    @Test
+    void createOrderFromCart_WithNonPositiveQuantity_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> orderService.createOrderFromCart(user, cartOf(item(10L, 0)), checkoutRequest));
+        verify(flightRepository, never()).reserveSeats(any(), anyInt());
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.xlr8travel.services;
+
+import org.example.xlr8travel.models.Flight;
+import org.example.xlr8travel.models.SeatAssignment;
+import org.example.xlr8travel.models.SeatType;
+import org.example.xlr8travel.models.Ticket;
+import org.example.xlr8travel.models.TicketStatus;
+import org.example.xlr8travel.repositories.SeatAssignmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SeatAssignmentServiceTest {
+
+    private static final Long FLIGHT_ID = 7L;
+
+    @Mock
+    private SeatAssignmentRepository seatAssignmentRepository;
+
+    @Mock
+    private SeatMapService seatMapService;
+
+    @Mock
+    private SeatHoldService seatHoldService;
+
+    @InjectMocks
+    private SeatAssignmentService seatAssignmentService;
+
+    private Flight flight;
+
+    @BeforeEach
+    void setUp() {
+        flight = new Flight();
+        flight.setId(FLIGHT_ID);
+    }
+
+    private Ticket ticket(long id) {
+        Ticket ticket = new Ticket(TicketStatus.TICKET_STATUS_CONFIRMED);
+        ticket.setId(id);
+        ticket.setFlight(flight);
+        return ticket;
+    }
+
+    @Test
+    void claim_WhenBitmapSaysTaken_ShouldOfferAlternativesWithoutWriting() {
+        // Arrange
+        when(seatMapService.tryBook(FLIGHT_ID, "12C")).thenReturn(false);
+        when(seatMapService.freeSeatsNear(FLIGHT_ID, "12C", SeatAssignmentService.ALTERNATIVE_SEATS))
+                .thenReturn(List.of("12D", "11C"));
+
+        // Act
+        SeatConflictException ex = assertThrows(SeatConflictException.class,
+                () -> seatAssignmentService.claim(ticket(1L), " 12c"));
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        assertEquals(List.of("12D", "11C"), ex.getAlternativeSeats());
+        verifyNoInteractions(seatAssignmentRepository);
+    }
+
+    @Test
+    void claim_WhenUniqueKeyRejectsInsert_ShouldEvictBitmapAndThrowConflict() {
+        // Arrange - this node's bitmap thought 12C was free, another node already holds it
+        when(seatMapService.tryBook(FLIGHT_ID, "12C")).thenReturn(true);
+        when(seatAssignmentRepository.findByTicketId(1L)).thenReturn(Optional.empty());
+        when(seatAssignmentRepository.saveAndFlush(any(SeatAssignment.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_seat_assignment_flight_seat"));
+        when(seatMapService.freeSeatsNear(FLIGHT_ID, "12C", SeatAssignmentService.ALTERNATIVE_SEATS)).thenReturn(List.of("12D"));
+
+        // Act
+        SeatConflictException ex = assertThrows(SeatConflictException.class,
+                () -> seatAssignmentService.claim(ticket(1L), "12C"));
+
+        // Assert
+        assertEquals("12C", ex.getSeatNumber());
+        verify(seatMapService).evict(FLIGHT_ID);
+    }
+
+    @Test
+    void claim_WhenTicketMoves_ShouldRewriteItsOwnAssignment() {
+        // Arrange
+        Ticket ticket = ticket(1L);
+        SeatAssignment existing = new SeatAssignment(flight, "3A", ticket);
+        when(seatMapService.tryBook(FLIGHT_ID, "4B")).thenReturn(true);
+        when(seatAssignmentRepository.findByTicketId(1L)).thenReturn(Optional.of(existing));
+
+        // Act
+        seatAssignmentService.claim(ticket, "4B");
+
+        // Assert
+        assertEquals("4B", existing.getSeatNumber());
+        verify(seatAssignmentRepository).saveAndFlush(existing);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claimAdjacent_ShouldSeatEveryTicketAndWriteAllAssignmentsAtOnce() {
+        // Arrange
+        List<Ticket> group = List.of(ticket(1L), ticket(2L), ticket(3L));
+        when(seatMapService.claimAdjacentSeats(FLIGHT_ID, 3)).thenReturn(Optional.of(List.of("1A", "1B", "1C")));
+        when(seatMapService.layoutFor(FLIGHT_ID)).thenReturn(SeatLayout.DEFAULT);
+
+        // Act
+        List<String> seats = seatAssignmentService.claimAdjacent(group);
+
+        // Assert
+        assertEquals(List.of("1A", "1B", "1C"), seats);
+        assertEquals("1B", group.get(1).getSeatNumber());
+        assertEquals(SeatType.SEAT_TYPE_UPFRONT, group.get(2).getSeat().getSeatType());
+        ArgumentCaptor<List<SeatAssignment>> saved = ArgumentCaptor.forClass(List.class);
+        verify(seatAssignmentRepository, times(1)).saveAllAndFlush(saved.capture());
+        assertEquals(3, saved.getValue().size());
+    }
+
+    @Test
+    void claimAdjacent_WhenFlightIsTooFull_ShouldFailWithConflict() {
+        // Arrange
+        when(seatMapService.claimAdjacentSeats(FLIGHT_ID, 2)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> seatAssignmentService.claimAdjacent(List.of(ticket(1L), ticket(2L))));
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        verifyNoInteractions(seatAssignmentRepository);
+    }
+}
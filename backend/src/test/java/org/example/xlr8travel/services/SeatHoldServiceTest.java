@@ -0,0 +1,156 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xlr8travel.models.TicketStatus;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.example.xlr8travel.repositories.TicketRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SeatHoldServiceTest {
+
+    private static final Long FLIGHT_ID = 7L;
+    private static final Long ALICE = 1L;
+    private static final Long BOB = 2L;
+
+    @Mock
+    private TicketRepository ticketRepository;
+
+    @Mock
+    private SeatLayoutService seatLayoutService;
+
+    @Mock
+    private FlightRepository flightRepository;
+
+    private final MutableClock clock = new MutableClock();
+    private SimpleMeterRegistry meterRegistry;
+    private SeatMapService seatMapService;
+    private SeatHoldService seatHoldService;
+
+    @BeforeEach
+    void setUp() {
+        when(seatLayoutService.layoutForFlight(FLIGHT_ID)).thenReturn(SeatLayout.DEFAULT);
+        when(ticketRepository.findOccupiedSeatNumbers(FLIGHT_ID, TicketStatus.TICKET_STATUS_CANCELLED)).thenReturn(List.of());
+        meterRegistry = new SimpleMeterRegistry();
+        seatMapService = new SeatMapService(ticketRepository, seatLayoutService, flightRepository, meterRegistry);
+        seatHoldService = new SeatHoldService(seatMapService, meterRegistry,
+                Duration.ofMinutes(15), Duration.ofMinutes(10), Duration.ofSeconds(5), clock);
+    }
+
+    @Test
+    void hold_ShouldKeepSeatFromOthersAndSuggestNeighbours() {
+        // Act
+        seatHoldService.hold(ALICE, FLIGHT_ID, "12c");
+
+        // Assert
+        assertTrue(seatMapService.isBooked(FLIGHT_ID, "12C"));
+        SeatConflictException ex = assertThrows(SeatConflictException.class,
+                () -> seatHoldService.hold(BOB, FLIGHT_ID, "12C"));
+        assertEquals(List.of("12B", "12D", "12A", "12E", "12F"), ex.getAlternativeSeats());
+        assertDoesNotThrow(() -> seatHoldService.hold(ALICE, FLIGHT_ID, "12C")); // re-adding extends
+        assertEquals(1.0, meterRegistry.get("seat.holds.active").gauge().value());
+    }
+
+    @Test
+    void hold_ForSeatNotOnTheAircraft_ShouldBeRejected() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> seatHoldService.hold(ALICE, FLIGHT_ID, "31A"));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void sweep_ShouldReleaseExpiredHoldsOnly() {
+        // Arrange - 3A expires at 15m; 12C is re-held at 10m and lives until 25m
+        seatHoldService.hold(ALICE, FLIGHT_ID, "12C");
+        seatHoldService.hold(BOB, FLIGHT_ID, "3A");
+        clock.advance(Duration.ofMinutes(10));
+        seatHoldService.hold(ALICE, FLIGHT_ID, "12C");
+
+        // Act
+        clock.advance(Duration.ofMinutes(6));
+        int released = seatHoldService.sweep();
+
+        // Assert
+        assertEquals(1, released);
+        assertFalse(seatMapService.isBooked(FLIGHT_ID, "3A"));
+        assertTrue(seatMapService.isBooked(FLIGHT_ID, "12C"));
+        assertEquals(1.0, meterRegistry.get("seat.holds.expired").counter().count());
+
+        clock.advance(Duration.ofMinutes(9));
+        assertEquals(1, seatHoldService.sweep());
+        assertFalse(seatMapService.isBooked(FLIGHT_ID, "12C"));
+        assertEquals(0, seatHoldService.sweep());
+    }
+
+    @Test
+    void extendForCheckout_ShouldCarryHoldsPastTheirOriginalTtl() {
+        // Arrange
+        seatHoldService.hold(ALICE, FLIGHT_ID, "5A");
+        seatHoldService.hold(ALICE, FLIGHT_ID, "5B");
+        clock.advance(Duration.ofMinutes(14));
+
+        // Act
+        int extended = seatHoldService.extendForCheckout(ALICE);
+        clock.advance(Duration.ofMinutes(5));
+
+        // Assert - the original 15 minutes are up, the checkout extension is not
+        assertEquals(2, extended);
+        assertEquals(0, seatHoldService.sweep());
+        assertTrue(seatMapService.isBooked(FLIGHT_ID, "5A"));
+    }
+
+    @Test
+    void takeOver_ShouldHandTheSeatToTheTicketWithoutFreeingIt() {
+        // Arrange
+        seatHoldService.hold(ALICE, FLIGHT_ID, "8F");
+
+        // Act & Assert
+        assertFalse(seatHoldService.takeOver(BOB, FLIGHT_ID, "8F"));
+        assertTrue(seatHoldService.takeOver(ALICE, FLIGHT_ID, "8F"));
+        // The hold is gone, so releasing it from the cart or sweeping must not free the bought seat
+        seatHoldService.release(ALICE, FLIGHT_ID, "8F");
+        clock.advance(Duration.ofHours(1));
+        assertEquals(0, seatHoldService.sweep());
+        assertTrue(seatMapService.isBooked(FLIGHT_ID, "8F"));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2030-05-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.xlr8travel.services;
+
+import org.example.xlr8travel.dto.SeatLayoutDTO;
+import org.example.xlr8travel.models.SeatLayoutTemplate;
+import org.example.xlr8travel.models.SeatType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeatLayoutTest {
+
+    private final SeatLayout wideBody = SeatLayout.compile(new SeatLayoutTemplate("B747-416", 42, "ABCDEFGHJK", "CG",
+            "1A,1K,42A,42K", "1-6:UPFRONT,20-21:EXTRA_LEGROOM"));
+
+    @Test
+    void compile_ShouldDeriveCapacityAndSeatTypesFromTemplate() {
+        assertEquals(420, wideBody.capacity());
+        assertEquals(416, wideBody.bookableSeats());
+        assertEquals(SeatType.SEAT_TYPE_UPFRONT, wideBody.typeOf("6K"));
+        assertEquals(SeatType.SEAT_TYPE_EXTRA_LEGROOM, wideBody.typeOf("21e"));
+        assertEquals(SeatType.SEAT_TYPE_STANDARD, wideBody.typeOf("41J"));
+    }
+
+    @Test
+    void isBookable_ShouldRejectBlockedAndUnknownSeats() {
+        assertTrue(wideBody.isBookable("35H"));
+        assertFalse(wideBody.isBookable("1A"));
+        assertFalse(wideBody.isBookable("43A"));
+        assertFalse(wideBody.isBookable("10I")); // no row letter I on this aircraft
+        assertFalse(wideBody.isBookable("A"));
+    }
+
+    @Test
+    void indexOf_AndSeatAt_ShouldRoundTrip() {
+        for (int index = 0; index < wideBody.capacity(); index++) {
+            assertEquals(index, wideBody.indexOf(wideBody.seatAt(index)));
+        }
+    }
+
+    @Test
+    void defaultLayout_ShouldMatchOriginalCabin() {
+        assertEquals(180, SeatLayout.DEFAULT.bookableSeats());
+        assertEquals(SeatType.SEAT_TYPE_UPFRONT, SeatLayout.DEFAULT.typeOf("5A"));
+        assertEquals(SeatType.SEAT_TYPE_EXTRA_LEGROOM, SeatLayout.DEFAULT.typeOf("14C"));
+        assertEquals(SeatType.SEAT_TYPE_EXTRA_LEGROOM, SeatLayout.DEFAULT.typeOf("30F"));
+        assertEquals(SeatType.SEAT_TYPE_STANDARD, SeatLayout.DEFAULT.typeOf("16B"));
+    }
+
+    @Test
+    void toDTO_ShouldDescribeLayoutForRendering() {
+        SeatLayoutDTO dto = wideBody.toDTO();
+
+        assertEquals(42, dto.getRows());
+        assertEquals("CG", dto.getAisleAfter());
+        assertEquals(List.of("1A", "1K", "42A", "42K"), dto.getBlockedSeats());
+        assertEquals(42, dto.getRowTypes().size());
+    }
+
+    @Test
+    void compile_WithInvalidTemplate_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> SeatLayout.compile(
+                new SeatLayoutTemplate("BAD", 10, "ABC", "X", "", "")));
+        assertThrows(IllegalArgumentException.class, () -> SeatLayout.compile(
+                new SeatLayoutTemplate("BAD", 10, "ABC", "", "11A", "")));
+        assertThrows(IllegalArgumentException.class, () -> SeatLayout.compile(
+                new SeatLayoutTemplate("BAD", 10, "ABC", "", "", "1-12:UPFRONT")));
+        assertThrows(IllegalArgumentException.class, () -> SeatLayout.compile(
+                new SeatLayoutTemplate("BAD", 10, "ABC", "", "", "1-2:FIRST")));
+    }
+}
@@ -0,0 +1,262 @@
+package org.example.xlr8travel.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xlr8travel.dto.FlightDTO;
+import org.example.xlr8travel.dto.SeatOccupancyDTO;
+import org.example.xlr8travel.events.FlightChangedEvent;
+import org.example.xlr8travel.models.SeatLayoutTemplate;
+import org.example.xlr8travel.models.TicketStatus;
+import org.example.xlr8travel.repositories.FlightRepository;
+import org.example.xlr8travel.repositories.TicketRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SeatMapServiceTest {
+
+    private static final Long FLIGHT_ID = 7L;
+    private static final int CAPACITY = SeatLayout.DEFAULT.capacity();
+    private static final LocalDate TODAY = LocalDate.of(2030, 5, 1);
+
+    @Mock
+    private TicketRepository ticketRepository;
+
+    @Mock
+    private SeatLayoutService seatLayoutService;
+
+    @Mock
+    private FlightRepository flightRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SeatMapService seatMapService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        seatMapService = new SeatMapService(ticketRepository, seatLayoutService, flightRepository, meterRegistry, clock);
+    }
+
+    private void occupied(String... seats) {
+        occupied(SeatLayout.DEFAULT, seats);
+    }
+
+    private void occupied(SeatLayout layout, String... seats) {
+        when(seatLayoutService.layoutForFlight(FLIGHT_ID)).thenReturn(layout);
+        when(ticketRepository.findOccupiedSeatNumbers(FLIGHT_ID, TicketStatus.TICKET_STATUS_CANCELLED))
+                .thenReturn(List.of(seats));
+    }
+
+    @Test
+    void isBooked_ShouldLoadFlightOnceFromProjection() {
+        // Arrange
+        occupied("12A", "1f");
+
+        // Act & Assert
+        assertTrue(seatMapService.isBooked(FLIGHT_ID, "12A"));
+        assertTrue(seatMapService.isBooked(FLIGHT_ID, "1F"));
+        assertFalse(seatMapService.isBooked(FLIGHT_ID, "12B"));
+        verify(ticketRepository, times(1)).findOccupiedSeatNumbers(FLIGHT_ID, TicketStatus.TICKET_STATUS_CANCELLED);
+        verify(ticketRepository, never()).findByFlightId(any());
+        assertEquals(1.0, meterRegistry.get("seat.maps.loaded").gauge().value());
+    }
+
+    @Test
+    void tryBook_ShouldRejectSecondBookingUntilReleased() {
+        // Arrange
+        occupied();
+
+        // Act & Assert
+        assertTrue(seatMapService.tryBook(FLIGHT_ID, "3C"));
+        assertFalse(seatMapService.tryBook(FLIGHT_ID, "3c"));
+        seatMapService.release(FLIGHT_ID, "3C");
+        assertTrue(seatMapService.tryBook(FLIGHT_ID, "3C"));
+    }
+
+    @Test
+    void seatsOutsideTheGrid_ShouldStillBeTracked() {
+        // Arrange - legacy data: row 42 and column K do not exist on the default cabin
+        occupied("42A", "10K");
+
+        // Act
+        List<String> booked = seatMapService.bookedSeats(FLIGHT_ID);
+
+        // Assert
+        assertEquals(Set.of("42A", "10K"), new HashSet<>(booked));
+        assertFalse(seatMapService.tryBook(FLIGHT_ID, "42A"));
+        assertEquals(CAPACITY, seatMapService.freeSeats(FLIGHT_ID).size());
+    }
+
+    @Test
+    void blockedSeats_ShouldNeverBeBookedClaimedOrReleased() {
+        // Arrange - a 1 x 2 cabin with seat 1A blocked
+        SeatLayout layout = SeatLayout.compile(new SeatLayoutTemplate("TINY", 1, "AB", "", "1A", ""));
+        occupied(layout);
+
+        // Act & Assert
+        assertFalse(seatMapService.tryBook(FLIGHT_ID, "1A"));
+        seatMapService.release(FLIGHT_ID, "1A");
+        assertTrue(seatMapService.isBooked(FLIGHT_ID, "1A"));
+        assertEquals(List.of("1B"), seatMapService.freeSeats(FLIGHT_ID));
+        assertEquals(Optional.of("1B"), seatMapService.claimFreeSeat(FLIGHT_ID));
+        assertTrue(seatMapService.claimFreeSeat(FLIGHT_ID).isEmpty());
+    }
+
+    @Test
+    void occupancy_ShouldEncodeOneBitPerSeat() {
+        // Arrange - 1A is bit 0, 2C is bit 8 (second byte, lowest bit), 30F is the last seat
+        occupied("1A", "2C", "30F");
+
+        // Act
+        SeatOccupancyDTO occupancy = seatMapService.occupancy(FLIGHT_ID);
+
+        // Assert
+        assertEquals(CAPACITY / 8 + (CAPACITY % 8 == 0 ? 0 : 1), occupancy.getBitmap().length);
+        assertEquals(0b1, occupancy.getBitmap()[0]);
+        assertEquals(0b1, occupancy.getBitmap()[1]);
+        int last = CAPACITY - 1;
+        assertEquals(1 << (last % 8), occupancy.getBitmap()[last / 8] & 0xFF);
+        assertTrue(occupancy.getExtraSeats().isEmpty());
+    }
+
+    @Test
+    void claimFreeSeat_FromManyThreads_ShouldHandOutEverySeatExactlyOnce() throws Exception {
+        // Arrange
+        occupied("5A");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        ConcurrentLinkedQueue<String> claimed = new ConcurrentLinkedQueue<>();
+
+        // Act - more attempts than seats
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            workers.add(pool.submit(() -> {
+                for (int i = 0; i < CAPACITY / 4; i++) {
+                    Optional<String> seat = seatMapService.claimFreeSeat(FLIGHT_ID);
+                    seat.ifPresent(claimed::add);
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+
+        // Assert
+        assertEquals(CAPACITY - 1, claimed.size());
+        assertEquals(CAPACITY - 1, new HashSet<>(claimed).size());
+        assertFalse(claimed.contains("5A"));
+        assertTrue(seatMapService.freeSeats(FLIGHT_ID).isEmpty());
+        assertTrue(seatMapService.claimFreeSeat(FLIGHT_ID).isEmpty());
+    }
+
+    @Test
+    void freeSeatsNear_ShouldPreferSameRowThenNeighbouringRows() {
+        // Arrange - row 12 only has 12A and 12F left
+        occupied("12B", "12C", "12D", "12E");
+
+        // Act
+        List<String> nearby = seatMapService.freeSeatsNear(FLIGHT_ID, "12C", 4);
+
+        // Assert - 12A/12F are in the row; 11C and 13C are one row away in the same column
+        assertEquals(Set.of("12A", "12F"), new HashSet<>(nearby.subList(0, 2)));
+        assertEquals(Set.of("11C", "13C"), new HashSet<>(nearby.subList(2, 4)));
+    }
+
+    @Test
+    void claimAdjacentSeats_ShouldPreferARunInOneRowThenFewestRows() {
+        // Arrange - 3 x 4 cabin without an aisle: only row 2 has three free seats side by side
+        SeatLayout layout = SeatLayout.compile(new SeatLayoutTemplate("SMALL", 3, "ABCD", "", "", ""));
+        occupied(layout, "1B", "2D", "3A", "3B");
+
+        // Act & Assert
+        assertEquals(Optional.of(List.of("2A", "2B", "2C")), seatMapService.claimAdjacentSeats(FLIGHT_ID, 3));
+        // No run of three is left, but row 1 still has three free seats
+        assertEquals(Optional.of(List.of("1A", "1C", "1D")), seatMapService.claimAdjacentSeats(FLIGHT_ID, 3));
+        // Only 3C and 3D remain
+        assertTrue(seatMapService.claimAdjacentSeats(FLIGHT_ID, 3).isEmpty());
+        assertEquals(List.of("3C", "3D"), seatMapService.freeSeats(FLIGHT_ID));
+    }
+
+    @Test
+    void claimAdjacentSeats_ShouldNotSeatARunAcrossTheAisle() {
+        // Arrange - 3 x 6 cabin with the aisle after C: row 1 has B-C-D free, but only across the aisle
+        SeatLayout layout = SeatLayout.compile(new SeatLayoutTemplate("NARROW", 3, "ABCDEF", "C", "", ""));
+        occupied(layout, "1A", "1E");
+
+        // Act & Assert - each run stays on one side, taking the frontmost row that has one
+        assertEquals(Optional.of(List.of("2A", "2B", "2C")), seatMapService.claimAdjacentSeats(FLIGHT_ID, 3));
+        assertEquals(Optional.of(List.of("2D", "2E", "2F")), seatMapService.claimAdjacentSeats(FLIGHT_ID, 3));
+        assertEquals(Optional.of(List.of("1B", "1C")), seatMapService.claimAdjacentSeats(FLIGHT_ID, 2));
+        assertEquals(Optional.of(List.of("3A", "3B", "3C")), seatMapService.claimAdjacentSeats(FLIGHT_ID, 3));
+    }
+
+    @Test
+    void claimAdjacentSeats_ForGroupLargerThanARow_ShouldSpanNeighbouringRows() {
+        // Arrange
+        SeatLayout layout = SeatLayout.compile(new SeatLayoutTemplate("SMALL", 3, "ABCD", "B", "", ""));
+        occupied(layout, "1A", "1B", "1C");
+
+        // Act
+        Optional<List<String>> seats = seatMapService.claimAdjacentSeats(FLIGHT_ID, 6);
+
+        // Assert - rows 2 and 3 together beat rows 1 and 2
+        assertEquals(Optional.of(List.of("2A", "2B", "2C", "2D", "3A", "3B")), seats);
+    }
+
+    @Test
+    void evictDeparted_ShouldDropOnlyMapsOfFlightsThatHaveLeft() {
+        // Arrange - flight 7 left yesterday, flight 8 leaves today
+        occupied("1A");
+        when(seatLayoutService.layoutForFlight(8L)).thenReturn(SeatLayout.DEFAULT);
+        when(ticketRepository.findOccupiedSeatNumbers(8L, TicketStatus.TICKET_STATUS_CANCELLED)).thenReturn(List.of());
+        when(flightRepository.findDepartureDateById(FLIGHT_ID)).thenReturn(Optional.of(TODAY.minusDays(1)));
+        when(flightRepository.findDepartureDateById(8L)).thenReturn(Optional.of(TODAY));
+        seatMapService.isBooked(FLIGHT_ID, "1A");
+        seatMapService.isBooked(8L, "1A");
+
+        // Act
+        int evicted = seatMapService.evictDeparted();
+
+        // Assert
+        assertEquals(1, evicted);
+        assertEquals(1.0, meterRegistry.get("seat.maps.loaded").gauge().value());
+        seatMapService.isBooked(8L, "1A");
+        verify(ticketRepository, times(1)).findOccupiedSeatNumbers(8L, TicketStatus.TICKET_STATUS_CANCELLED);
+    }
+
+    @Test
+    void onFlightChanged_WhenTheFlightMovesToALaterDay_ShouldKeepItsMap() {
+        // Arrange
+        occupied("1A");
+        when(flightRepository.findDepartureDateById(FLIGHT_ID)).thenReturn(Optional.of(TODAY.minusDays(1)));
+        seatMapService.isBooked(FLIGHT_ID, "1A");
+        FlightDTO moved = new FlightDTO(FLIGHT_ID, "XT7", "OTP", "LHR", TODAY.plusDays(3), null,
+                null, null, null, null, null, null);
+
+        // Act
+        seatMapService.onFlightChanged(new FlightChangedEvent(FLIGHT_ID, null, moved));
+
+        // Assert
+        assertEquals(0, seatMapService.evictDeparted());
+        assertTrue(seatMapService.isBooked(FLIGHT_ID, "1A"));
+    }
+}
@@ -6,6 +6,7 @@ import Container from "react-bootstrap/Container";
 import Row from "react-bootstrap/Row";
 import Col from "react-bootstrap/Col";
 import Alert from "react-bootstrap/Alert";
+import Button from "react-bootstrap/Button";
 import Spinner from "react-bootstrap/Spinner";
 import QRCodeGenerator from "@/components/QRCodeGenerator"; // Add this import
 import {
@@ -26,6 +27,9 @@ import {
 } from "react-icons/fa";
 import { useAuth } from "@/contexts/AuthContext";
 
+// Matches the backend's default page size for /api/check-in/boarding-passes
+const PAGE_SIZE = 50;
+
 // Helper for date/time formatting
 const formatDisplayDateTime = (isoDateStr, isoTimeStr) => {
   const datePart = isoDateStr
@@ -68,6 +72,51 @@ export default function BoardingPassesPage() {
   const [error, setError] = useState(null);
   const [downloadingTicketId, setDownloadingTicketId] = useState(null);
   const [downloadSuccess, setDownloadSuccess] = useState(null);
+  const [hasMore, setHasMore] = useState(false);
+  const [loadingMore, setLoadingMore] = useState(false);
+
+  const fetchBoardingPassesPage = async (page) => {
+    const token = localStorage.getItem("token");
+    const response = await fetch(
+      `${process.env.NEXT_PUBLIC_BACKEND_URL_GOOGLE}/api/check-in/boarding-passes?page=${page}&size=${PAGE_SIZE}`,
+      {
+        headers: {
+          Authorization: `Bearer ${token}`,
+          "Content-Type": "application/json",
+        },
+      }
+    );
+
+    if (!response.ok) {
+      const errorData = await response.json();
+      throw new Error(errorData.error || "Failed to fetch boarding passes");
+    }
+
+    const data = await response.json();
+    setHasMore(data.length === PAGE_SIZE);
+    return data;
+  };
+
+  const loadMoreBoardingPasses = async () => {
+    setLoadingMore(true);
+    setError(null);
+
+    try {
+      // Passes only ever join the list, so the next page follows the ones shown
+      const data = await fetchBoardingPassesPage(
+        Math.floor(boardingPasses.length / PAGE_SIZE)
+      );
+      setBoardingPasses((current) => {
+        const shown = new Set(current.map((t) => t.id));
+        return [...current, ...data.filter((t) => !shown.has(t.id))];
+      });
+    } catch (err) {
+      console.error("Error fetching boarding passes:", err);
+      setError(err.message || "Failed to fetch boarding passes");
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
   // Fetch boarding passes
   useEffect(() => {
@@ -85,23 +134,7 @@ export default function BoardingPassesPage() {
       setError(null);
 
       try {
-        const token = localStorage.getItem("token");
-        const response = await fetch(
-          `${process.env.NEXT_PUBLIC_BACKEND_URL_GOOGLE}/api/check-in/boarding-passes`,
-          {
-            headers: {
-              Authorization: `Bearer ${token}`,
-              "Content-Type": "application/json",
-            },
-          }
-        );
-
-        if (!response.ok) {
-          const errorData = await response.json();
-          throw new Error(errorData.error || "Failed to fetch boarding passes");
-        }
-
-        const data = await response.json();
+        const data = await fetchBoardingPassesPage(0);
         setBoardingPasses(data);
       } catch (err) {
         console.error("Error fetching boarding passes:", err);
@@ -919,6 +952,22 @@ export default function BoardingPassesPage() {
               </Col>
             ))}
           </Row>
+
+          {hasMore && (
+            <div className="text-center mb-4">
+              <Button
+                variant="outline-primary"
+                onClick={loadMoreBoardingPasses}
+                disabled={loadingMore}
+              >
+                {loadingMore ? (
+                  <Spinner animation="border" size="sm" />
+                ) : (
+                  "Load more"
+                )}
+              </Button>
+            </div>
+          )}
         </Container>
       </div>
     </>
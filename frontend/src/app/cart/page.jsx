@@ -224,7 +224,8 @@ function CartPageContent() {
       const response = await fetch("/api/cart", {
         method: "GET",
         headers: {
-          Authorization: `Bearer ${token}`,
+          // Signed-out visitors send no Authorization header and get the guest cart
+          ...(token && { Authorization: `Bearer ${token}` }),
           "Content-Type": "application/json",
         },
         credentials: "include",
@@ -358,7 +359,7 @@ function CartPageContent() {
         const options = {
           method: method,
           headers: {
-            Authorization: `Bearer ${token}`,
+            ...(token && { Authorization: `Bearer ${token}` }),
             "Content-Type": "application/json",
           },
           credentials: "include",
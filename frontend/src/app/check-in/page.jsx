@@ -33,6 +33,9 @@ import {
 import { useAuth } from "@/contexts/AuthContext";
 import SeatMap from "@/components/SeatMap";
 
+// Matches the backend's default page size for /api/check-in/eligible-tickets
+const PAGE_SIZE = 50;
+
 // Helper for date/time formatting
 const formatDisplayDateTime = (isoDateStr, isoTimeStr) => {
   const datePart = isoDateStr
@@ -82,12 +85,57 @@ export default function CheckInPage() {
   const [checkInResult, setCheckInResult] = useState(null);
   const [seatSelectionDeferred, setSeatSelectionDeferred] = useState(false);
   const [randomSeatAllocation, setRandomSeatAllocation] = useState(false);
+  const [hasMore, setHasMore] = useState(false);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   // Seat configuration
   const rows = 30;
   const seatsPerRow = 6;
   const seatLetters = ["A", "B", "C", "D", "E", "F"];
 
+  // Checked-in tickets leave the list, so the next unseen ticket sits at offset tickets.length.
+  // The page holding that offset is fetched and tickets already shown are skipped by the caller.
+  const fetchTicketsPage = async (offset) => {
+    const token = localStorage.getItem("token");
+    const page = Math.floor(offset / PAGE_SIZE);
+    const response = await fetch(
+      `/api/check-in/eligible-tickets?page=${page}&size=${PAGE_SIZE}`,
+      {
+        headers: {
+          Authorization: `Bearer ${token}`,
+          "Content-Type": "application/json",
+        },
+      }
+    );
+
+    if (!response.ok) {
+      const errorData = await response.json();
+      throw new Error(errorData.error || "Failed to fetch tickets");
+    }
+
+    const data = await response.json();
+    setHasMore(data.length === PAGE_SIZE);
+    return data;
+  };
+
+  const loadMoreTickets = async () => {
+    setLoadingMore(true);
+    setError(null);
+
+    try {
+      const data = await fetchTicketsPage(tickets.length);
+      setTickets((current) => {
+        const shown = new Set(current.map((t) => t.id));
+        return [...current, ...data.filter((t) => !shown.has(t.id))];
+      });
+    } catch (err) {
+      console.error("Error fetching tickets:", err);
+      setError(err.message || "Failed to fetch tickets");
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   // Fetch eligible tickets
   useEffect(() => {
     if (authLoading) return;
@@ -102,20 +150,7 @@ export default function CheckInPage() {
       setError(null);
 
       try {
-        const token = localStorage.getItem("token");
-        const response = await fetch("/api/check-in/eligible-tickets", {
-          headers: {
-            Authorization: `Bearer ${token}`,
-            "Content-Type": "application/json",
-          },
-        });
-
-        if (!response.ok) {
-          const errorData = await response.json();
-          throw new Error(errorData.error || "Failed to fetch tickets");
-        }
-
-        const data = await response.json();
+        const data = await fetchTicketsPage(0);
         setTickets(data);
       } catch (err) {
         console.error("Error fetching tickets:", err);
@@ -1547,6 +1582,22 @@ export default function CheckInPage() {
             ))}
           </Row>
 
+          {hasMore && (
+            <div className="text-center mb-4">
+              <Button
+                variant="outline-primary"
+                onClick={loadMoreTickets}
+                disabled={loadingMore}
+              >
+                {loadingMore ? (
+                  <Spinner animation="border" size="sm" />
+                ) : (
+                  "Load more"
+                )}
+              </Button>
+            </div>
+          )}
+
           {/* Seat Selection Modal */}
           <Modal
             show={showSeatModal}
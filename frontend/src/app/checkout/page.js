@@ -380,6 +380,8 @@ function CheckoutPageContent() {
             headers: {
               Authorization: `Bearer ${token}`,
               "Content-Type": "application/json",
+              // One payment, one order: a retried confirm replays the first response
+              "Idempotency-Key": result.paymentIntent.id,
             },
             body: JSON.stringify({
               customerName: customerName,
@@ -296,54 +296,65 @@ function FlightAvailabilityContent() {
             ? "oneWay"
             : tripType || "oneWay";
 
-        const outboundQuery = new URLSearchParams({
-          origin,
-          destination,
-          departureDate,
-          tripType: "oneWay",
-        });
+        const readError = async (response, fallback) => {
+          try {
+            const errData = await response.json();
+            return errData.message || errData.error || fallback;
+          } catch (e) {
+            return fallback;
+          }
+        };
 
-        const outboundApiUrl = `/api/flights/search?${outboundQuery.toString()}`;
-        console.log("Fetching outbound flights from:", outboundApiUrl);
+        if (tripType === "roundTrip" && arrivalDate) {
+          // Both legs in one request; the backend searches them concurrently
+          const roundTripQuery = new URLSearchParams({
+            origin,
+            destination,
+            departureDate,
+            returnDate: arrivalDate,
+          });
 
-        const outboundResponse = await fetch(outboundApiUrl);
+          const roundTripApiUrl = `/api/flights/search/round-trip?${roundTripQuery.toString()}`;
+          console.log("Fetching round trip flights from:", roundTripApiUrl);
 
-        if (!outboundResponse.ok) {
-          let errorMsg = `Error fetching outbound flights (${outboundResponse.status})`;
-          try {
-            const errData = await outboundResponse.json();
-            errorMsg = errData.message || errData.error || errorMsg;
-          } catch (e) {}
-          throw new Error(errorMsg);
-        }
+          const roundTripResponse = await fetch(roundTripApiUrl);
 
-        const outboundData = await outboundResponse.json();
-        setOutboundFlights(outboundData || []);
+          if (!roundTripResponse.ok) {
+            throw new Error(
+              await readError(
+                roundTripResponse,
+                `Error fetching flights (${roundTripResponse.status})`
+              )
+            );
+          }
 
-        if (tripType === "roundTrip" && arrivalDate) {
-          const returnQuery = new URLSearchParams({
-            origin: destination,
-            destination: origin,
-            departureDate: arrivalDate,
+          const roundTripData = await roundTripResponse.json();
+          setOutboundFlights(roundTripData?.outbound || []);
+          setReturnFlights(roundTripData?.inbound || []);
+        } else {
+          const outboundQuery = new URLSearchParams({
+            origin,
+            destination,
+            departureDate,
             tripType: "oneWay",
           });
 
-          const returnApiUrl = `/api/flights/search?${returnQuery.toString()}`;
-          console.log("Fetching return flights from:", returnApiUrl);
+          const outboundApiUrl = `/api/flights/search?${outboundQuery.toString()}`;
+          console.log("Fetching outbound flights from:", outboundApiUrl);
 
-          const returnResponse = await fetch(returnApiUrl);
+          const outboundResponse = await fetch(outboundApiUrl);
 
-          if (!returnResponse.ok) {
-            let errorMsg = `Error fetching return flights (${returnResponse.status})`;
-            try {
-              const errData = await returnResponse.json();
-              errorMsg = errData.message || errData.error || errorMsg;
-            } catch (e) {}
-            throw new Error(errorMsg);
+          if (!outboundResponse.ok) {
+            throw new Error(
+              await readError(
+                outboundResponse,
+                `Error fetching outbound flights (${outboundResponse.status})`
+              )
+            );
           }
 
-          const returnData = await returnResponse.json();
-          setReturnFlights(returnData || []);
+          const outboundData = await outboundResponse.json();
+          setOutboundFlights(outboundData || []);
         }
       } catch (err) {
         console.error("Failed to fetch available flights:", err);
@@ -609,6 +620,7 @@ function FlightAvailabilityContent() {
 
       try {
         const token = localStorage.getItem("token");
+        const operations = [];
 
         if (selectedOutboundFlight) {
           // Prepare the request body based on the selected option
@@ -648,22 +660,7 @@ function FlightAvailabilityContent() {
           }
 
           console.log("Final request body for outbound:", requestBody);
-
-          const response = await fetch("/api/cart/add", {
-            method: "POST",
-            headers: {
-              Authorization: `Bearer ${token}`,
-              "Content-Type": "application/json",
-            },
-            credentials: "include",
-            body: JSON.stringify(requestBody),
-          });
-
-          if (!response.ok) {
-            throw new Error(
-              `Error adding outbound flight to cart (${response.status})`
-            );
-          }
+          operations.push({ op: "ADD", ...requestBody });
         }
 
         if (tripType === "roundTrip" && selectedReturnFlight) {
@@ -695,20 +692,24 @@ function FlightAvailabilityContent() {
             requestBody.seatType = null;
           }
 
-          const response = await fetch("/api/cart/add", {
-            method: "POST",
+          operations.push({ op: "ADD", ...requestBody });
+        }
+
+        // Outbound and return go in together, or neither does
+        if (operations.length > 0) {
+          const response = await fetch("/api/cart", {
+            method: "PATCH",
             headers: {
-              Authorization: `Bearer ${token}`,
+              // No header when signed out, so the backend serves the guest cart
+              ...(token && { Authorization: `Bearer ${token}` }),
               "Content-Type": "application/json",
             },
             credentials: "include",
-            body: JSON.stringify(requestBody),
+            body: JSON.stringify({ operations }),
           });
 
           if (!response.ok) {
-            throw new Error(
-              `Error adding return flight to cart (${response.status})`
-            );
+            throw new Error(`Error adding flights to cart (${response.status})`);
           }
         }
 